@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with {@code -rf json} and reports the relative change of every benchmark.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar org.graylog.benchmarks.BenchmarkComparison <baseline.json> <current.json> [threshold-percent]}
+ * <p>
+ * A benchmark counts as regressed if it got slower by more than the threshold (default: 10%) and the difference is
+ * larger than the combined score errors of both runs. The process exits with status 1 if any benchmark regressed.
+ */
+public final class BenchmarkComparison {
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        final Map<String, Result> baseline = readResults(new File(args[0]));
+        final Map<String, Result> current = readResults(new File(args[1]));
+
+        int regressions = 0;
+        System.out.println(String.format(Locale.ENGLISH, "%-100s %15s %15s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            final Result base = baseline.get(entry.getKey());
+            final Result cur = entry.getValue();
+            if (base == null) {
+                System.out.println(String.format(Locale.ENGLISH, "%-100s %15s %15.3f %9s", entry.getKey(), "-", cur.score, "new"));
+                continue;
+            }
+
+            // Positive values are always improvements, independent of the benchmark mode
+            final double change = (cur.score - base.score) / base.score * 100.0 * (cur.higherIsBetter ? 1 : -1);
+            final boolean significant = Math.abs(cur.score - base.score) > (cur.scoreError + base.scoreError);
+            final boolean regressed = significant && change < -threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.ENGLISH, "%-100s %15.3f %15.3f %+8.1f%%%s",
+                    entry.getKey(), base.score, cur.score, change, regressed ? "  REGRESSION" : ""));
+        }
+
+        System.out.println(String.format(Locale.ENGLISH, "%d of %d benchmarks regressed by more than %.1f%%",
+                regressions, current.size(), threshold));
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static Map<String, Result> readResults(File file) throws IOException {
+        final Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            final JsonNode metric = node.path("primaryMetric");
+            final String mode = node.path("mode").asText();
+            final double scoreError = metric.path("scoreError").asDouble(0.0);
+            results.put(key(node), new Result(metric.path("score").asDouble(),
+                    Double.isNaN(scoreError) ? 0.0 : scoreError,
+                    "thrpt".equals(mode)));
+        }
+        return results;
+    }
+
+    private static String key(JsonNode node) {
+        final StringBuilder key = new StringBuilder(node.path("benchmark").asText())
+                .append(" (").append(node.path("mode").asText()).append(")");
+        final Map<String, String> params = new TreeMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = node.path("params").fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> param = fields.next();
+            params.put(param.getKey(), param.getValue().asText());
+        }
+        params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+        return key.toString();
+    }
+
+    private static class Result {
+        private final double score;
+        private final double scoreError;
+        private final boolean higherIsBetter;
+
+        private Result(double score, double scoreError, boolean higherIsBetter) {
+            this.score = score;
+            this.scoreError = scoreError;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
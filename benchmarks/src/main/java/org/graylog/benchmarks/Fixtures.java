@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import org.bson.types.ObjectId;
+import org.graylog2.indexer.TestIndexSet;
+import org.graylog2.indexer.indexset.IndexSetConfig;
+import org.graylog2.indexer.retention.strategies.DeletionRetentionStrategy;
+import org.graylog2.indexer.retention.strategies.DeletionRetentionStrategyConfig;
+import org.graylog2.indexer.rotation.strategies.MessageCountRotationStrategy;
+import org.graylog2.indexer.rotation.strategies.MessageCountRotationStrategyConfig;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.streams.StreamImpl;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Reproducible inputs for the benchmarks.
+ * <p>
+ * Payload corpora are read from the {@code fixtures} resources, generated messages always use the same random seed
+ * and base timestamp so that results of different commits are comparable.
+ */
+public final class Fixtures {
+    public static final String GELF = "fixtures/gelf.ndjson";
+    public static final String SYSLOG = "fixtures/syslog.txt";
+    public static final String JSON_PATH = "fixtures/json-path.ndjson";
+
+    private static final long SEED = 0x6772_6179_6c6f_6732L;
+    private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress("127.0.0.1", 12201);
+    private static final DateTime BASE_TIMESTAMP = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final String[] SOURCES = {"web-01.example.org", "web-02.example.org", "db-01.example.org", "app-01.example.org", "fw-01.example.org"};
+    private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+    private static final String[] PATHS = {"/", "/index.html", "/api/orders", "/api/login", "/static/app.js", "/healthz"};
+    private static final int[] STATUS_CODES = {200, 200, 200, 200, 201, 301, 304, 400, 401, 404, 500, 503};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the content of the given fixture.
+     */
+    public static String resource(String resource) {
+        try {
+            return Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't read fixture " + resource, e);
+        }
+    }
+
+    /**
+     * Returns the lines of the given fixture corpus as UTF-8 encoded byte arrays. Empty lines are skipped.
+     */
+    public static List<byte[]> lines(String resource) {
+        try {
+            return Resources.readLines(Resources.getResource(resource), StandardCharsets.UTF_8).stream()
+                    .filter(line -> !line.trim().isEmpty())
+                    .map(line -> line.getBytes(StandardCharsets.UTF_8))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't read fixture " + resource, e);
+        }
+    }
+
+    /**
+     * Creates a raw message like the GELF inputs do before writing it to the journal.
+     */
+    public static RawMessage gelfRawMessage(byte[] payload) {
+        final RawMessage rawMessage = new RawMessage(payload, REMOTE_ADDRESS);
+        rawMessage.setCodecName("gelf");
+        rawMessage.setCodecConfig(Configuration.EMPTY_CONFIGURATION);
+        return rawMessage;
+    }
+
+    /**
+     * Creates the default stream with an index set that doesn't need Elasticsearch or MongoDB.
+     */
+    public static Stream defaultStream() {
+        final IndexSetConfig indexSetConfig = IndexSetConfig.builder()
+                .id("default-index-set")
+                .title("Default index set")
+                .indexPrefix("graylog")
+                .creationDate(ZonedDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC))
+                .shards(1)
+                .replicas(0)
+                .rotationStrategyClass(MessageCountRotationStrategy.class.getCanonicalName())
+                .rotationStrategy(MessageCountRotationStrategyConfig.createDefault())
+                .retentionStrategyClass(DeletionRetentionStrategy.class.getCanonicalName())
+                .retentionStrategy(DeletionRetentionStrategyConfig.createDefault())
+                .indexAnalyzer("standard")
+                .indexTemplateName("graylog-internal")
+                .indexOptimizationMaxNumSegments(1)
+                .indexOptimizationDisabled(false)
+                .build();
+
+        return new StreamImpl(new ObjectId(Stream.DEFAULT_STREAM_ID),
+                ImmutableMap.of(StreamImpl.FIELD_TITLE, "All messages", StreamImpl.FIELD_DEFAULT_STREAM, true),
+                Collections.emptyList(),
+                Collections.emptySet(),
+                new TestIndexSet(indexSetConfig));
+    }
+
+    /**
+     * Generates web access log like messages with a fixed seed.
+     */
+    public static List<Message> messages(int count) {
+        final Random random = new Random(SEED);
+        final List<Message> messages = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final String method = METHODS[random.nextInt(METHODS.length)];
+            final String path = PATHS[random.nextInt(PATHS.length)];
+            final int status = STATUS_CODES[random.nextInt(STATUS_CODES.length)];
+            final String remoteAddress = String.format(Locale.ENGLISH, "198.51.100.%d", random.nextInt(255));
+            final Message message = new Message(method + " " + path + " " + status,
+                    SOURCES[random.nextInt(SOURCES.length)],
+                    BASE_TIMESTAMP.plusMillis(i));
+
+            message.addField("http_method", method);
+            message.addField("http_path", path);
+            message.addField("http_status", status);
+            message.addField("bytes", random.nextInt(100_000));
+            message.addField("took_ms", random.nextInt(2_000));
+            message.addField("remote_addr", remoteAddress);
+            message.addField("user_agent", "Mozilla/5.0 (X11; Linux x86_64; rv:" + (80 + random.nextInt(20)) + ".0)");
+            message.addField("facility", "nginx");
+            messages.add(message);
+        }
+
+        return messages;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.inputs.codecs.GelfCodec;
+import org.graylog2.inputs.codecs.JsonPathCodec;
+import org.graylog2.inputs.codecs.SyslogCodec;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the fixture corpora with the GELF, Syslog and JSON path codecs. Every invocation decodes the next
+ * payload of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecDecodeBenchmark {
+    private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress("127.0.0.1", 12201);
+
+    private GelfCodec gelfCodec;
+    private SyslogCodec syslogCodec;
+    private JsonPathCodec jsonPathCodec;
+
+    private RawMessage[] gelfMessages;
+    private RawMessage[] syslogMessages;
+    private RawMessage[] jsonMessages;
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        // The chunk aggregator is only used by the transport, decoding works on complete payloads
+        gelfCodec = new GelfCodec(new Configuration(Collections.emptyMap()), null);
+        syslogCodec = new SyslogCodec(new Configuration(Collections.emptyMap()), new MetricRegistry());
+        jsonPathCodec = new JsonPathCodec(new Configuration(ImmutableMap.of(
+                JsonPathCodec.CK_PATH, "$.data.metrics.cpu",
+                JsonPathCodec.CK_SOURCE, "benchmark")));
+
+        gelfMessages = rawMessages(Fixtures.lines(Fixtures.GELF));
+        syslogMessages = rawMessages(Fixtures.lines(Fixtures.SYSLOG));
+        jsonMessages = rawMessages(Fixtures.lines(Fixtures.JSON_PATH));
+    }
+
+    private static RawMessage[] rawMessages(List<byte[]> payloads) {
+        return payloads.stream()
+                .map(payload -> new RawMessage(payload, REMOTE_ADDRESS))
+                .toArray(RawMessage[]::new);
+    }
+
+    private RawMessage next(RawMessage[] messages) {
+        return messages[index++ % messages.length];
+    }
+
+    @Benchmark
+    public Message gelf() {
+        return gelfCodec.decode(next(gelfMessages));
+    }
+
+    @Benchmark
+    public Message syslog() {
+        return syslogCodec.decode(next(syslogMessages));
+    }
+
+    @Benchmark
+    public Message jsonPath() {
+        return jsonPathCodec.decode(next(jsonMessages));
+    }
+}
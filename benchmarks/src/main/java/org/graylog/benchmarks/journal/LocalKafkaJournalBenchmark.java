@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.journal;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.journal.Journal;
+import org.graylog2.shared.journal.LocalKafkaJournal;
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched writes to and reads from a {@link LocalKafkaJournal} in a temporary directory. The scores are batches per
+ * second, multiply with the batch size to get messages per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalKafkaJournalBenchmark {
+    private static final int PREFILLED_ENTRIES = 100_000;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private Path journalDirectory;
+    private ScheduledExecutorService scheduler;
+    private LocalKafkaJournal journal;
+    private List<Journal.Entry> batch;
+    private long readOffset = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("journal-benchmark");
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("journal-benchmark-%d").setDaemon(true).build());
+        // Throttling is disabled, so the journal never touches the (missing) server status. The journal service
+        // isn't started either to keep the background flush and retention tasks out of the measurements.
+        journal = new LocalKafkaJournal(journalDirectory,
+                scheduler,
+                Size.megabytes(100L),
+                Duration.standardHours(1),
+                Size.gigabytes(10L),
+                Duration.standardHours(1),
+                1_000_000,
+                Duration.standardMinutes(1),
+                LocalKafkaJournal.THRESHOLD_THROTTLING_DISABLED,
+                new MetricRegistry(),
+                null);
+
+        final List<byte[]> payloads = Fixtures.lines(Fixtures.GELF);
+        final List<Journal.Entry> entries = new ArrayList<>(PREFILLED_ENTRIES);
+        for (int i = 0; i < PREFILLED_ENTRIES; i++) {
+            entries.add(createEntry(payloads.get(i % payloads.size())));
+        }
+        journal.write(entries);
+
+        batch = new ArrayList<>(entries.subList(0, batchSize));
+    }
+
+    private Journal.Entry createEntry(byte[] payload) {
+        final RawMessage rawMessage = Fixtures.gelfRawMessage(payload);
+        return journal.createEntry(rawMessage.getIdBytes(), rawMessage.encode());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        FileUtils.deleteDirectory(journalDirectory.toFile());
+    }
+
+    @Benchmark
+    public long write() {
+        return journal.write(batch);
+    }
+
+    @Benchmark
+    public List<Journal.JournalReadEntry> read() {
+        if (readOffset >= PREFILLED_ENTRIES) {
+            readOffset = 0;
+        }
+        final List<Journal.JournalReadEntry> entries = journal.read(readOffset, batchSize);
+        readOffset += entries.size();
+        return entries;
+    }
+}
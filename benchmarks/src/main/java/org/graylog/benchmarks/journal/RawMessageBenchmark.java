@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.journal;
+
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.plugin.journal.RawMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protobuf encoding and decoding of {@link RawMessage} instances as done before writing to and after reading from
+ * the journal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawMessageBenchmark {
+    private RawMessage[] messages;
+    private byte[][] encoded;
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        final List<byte[]> payloads = Fixtures.lines(Fixtures.GELF);
+        messages = new RawMessage[payloads.size()];
+        encoded = new byte[payloads.size()][];
+
+        for (int i = 0; i < payloads.size(); i++) {
+            messages[i] = Fixtures.gelfRawMessage(payloads.get(i));
+            encoded[i] = messages[i].encode();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return messages[index++ % messages.length].encode();
+    }
+
+    @Benchmark
+    public RawMessage decode() {
+        final int i = index++ % encoded.length;
+        return RawMessage.decode(encoded[i], (long) i);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.graylog2.shared.SuppressForbidden;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal stand-in for an Elasticsearch 7 cluster.
+ * <p>
+ * Bulk requests are acknowledged as successful and either discarded or appended to a file. All other requests
+ * (index templates, index and alias management, cluster health) are answered with a generic success response, which
+ * is enough for a node to start up and write messages.
+ * <p>
+ * Documents containing an {@link LoadGenerator#SENT_AT_MARKER} record their end-to-end latency, from being sent to
+ * an input until arriving here.
+ */
+public class FakeElasticsearch {
+    private static final Logger LOG = LoggerFactory.getLogger(FakeElasticsearch.class);
+
+    private static final String VERSION_RESPONSE = "{\"name\":\"fake-es\",\"cluster_name\":\"graylog-load-test\"," +
+            "\"version\":{\"number\":\"7.10.2\",\"distribution\":\"elasticsearch\",\"lucene_version\":\"8.7.0\"}," +
+            "\"tagline\":\"You Know, for Search\"}";
+    private static final String HEALTH_RESPONSE = "{\"cluster_name\":\"graylog-load-test\",\"status\":\"green\"," +
+            "\"timed_out\":false,\"number_of_nodes\":1,\"number_of_data_nodes\":1,\"active_primary_shards\":1," +
+            "\"active_shards\":1,\"relocating_shards\":0,\"initializing_shards\":0,\"unassigned_shards\":0," +
+            "\"delayed_unassigned_shards\":0,\"number_of_pending_tasks\":0,\"number_of_in_flight_fetch\":0," +
+            "\"task_max_waiting_in_queue_millis\":0,\"active_shards_percent_as_number\":100.0}";
+    private static final String ACKNOWLEDGED_RESPONSE = "{\"acknowledged\":true,\"shards_acknowledged\":true}";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    @Nullable
+    private final Path recordFile;
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final Recorder latencyRecorder = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final AtomicLong indexedDocuments = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong bulkBytes = new AtomicLong();
+
+    @SuppressForbidden("Deliberate usage of HttpServer")
+    public FakeElasticsearch(int port, int threads, @Nullable Path recordFile) throws IOException {
+        this.recordFile = recordFile;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("fake-elasticsearch-%d").setDaemon(true).build());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        LOG.info("Fake Elasticsearch listening on <{}>", getAddress());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public long getIndexedDocuments() {
+        return indexedDocuments.get();
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    public long getBulkBytes() {
+        return bulkBytes.get();
+    }
+
+    /**
+     * Returns the end-to-end latencies (in nanoseconds) recorded since the last call.
+     */
+    public Histogram takeLatencies() {
+        return latencyRecorder.getIntervalHistogram();
+    }
+
+    /**
+     * Resets all counters and latencies, e.g. after the warm-up phase.
+     */
+    public void reset() {
+        latencyRecorder.reset();
+        indexedDocuments.set(0);
+        bulkRequests.set(0);
+        bulkBytes.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getPath();
+            final byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = ByteStreams.toByteArray(in);
+            }
+
+            if (path.endsWith("/_bulk")) {
+                respond(exchange, 200, bulk(body));
+            } else if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("/".equals(path)) {
+                respond(exchange, 200, VERSION_RESPONSE);
+            } else if (path.startsWith("/_cluster/health")) {
+                respond(exchange, 200, HEALTH_RESPONSE);
+            } else if (path.startsWith("/_cat/")) {
+                respond(exchange, 200, "[]");
+            } else if ("GET".equals(method)) {
+                respond(exchange, 200, "{}");
+            } else {
+                respond(exchange, 200, ACKNOWLEDGED_RESPONSE);
+            }
+        } catch (Exception e) {
+            LOG.error("Couldn't handle request <{} {}>", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String bulk(byte[] body) throws IOException {
+        final long receivedAt = LoadGenerator.clock();
+        final String request = new String(body, StandardCharsets.UTF_8);
+        final StringBuilder items = new StringBuilder(request.length() / 8);
+        long documents = 0;
+
+        // The bulk body alternates between action and document lines
+        int start = 0;
+        boolean actionLine = true;
+        while (start < request.length()) {
+            int end = request.indexOf('\n', start);
+            if (end < 0) {
+                end = request.length();
+            }
+            if (end > start) {
+                if (actionLine) {
+                    if (documents > 0) {
+                        items.append(',');
+                    }
+                    items.append("{\"index\":{\"_index\":\"").append(field(request, start, end, "\"_index\":\""))
+                            .append("\",\"_type\":\"_doc\",\"_id\":\"").append(field(request, start, end, "\"_id\":\""))
+                            .append("\",\"_version\":1,\"result\":\"created\",")
+                            .append("\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},")
+                            .append("\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}");
+                    documents++;
+                } else {
+                    recordLatency(request, start, end, receivedAt);
+                }
+                actionLine = !actionLine;
+            }
+            start = end + 1;
+        }
+
+        indexedDocuments.addAndGet(documents);
+        bulkRequests.incrementAndGet();
+        bulkBytes.addAndGet(body.length);
+        if (recordFile != null) {
+            record(body);
+        }
+
+        return "{\"took\":1,\"errors\":false,\"items\":[" + items + "]}";
+    }
+
+    private static String field(String request, int start, int end, String prefix) {
+        final int valueStart = request.indexOf(prefix, start);
+        if (valueStart < 0 || valueStart >= end) {
+            return "";
+        }
+        final int from = valueStart + prefix.length();
+        final int to = request.indexOf('"', from);
+        return to < 0 || to > end ? "" : request.substring(from, to);
+    }
+
+    private void recordLatency(String request, int start, int end, long receivedAt) {
+        final int marker = request.indexOf(LoadGenerator.SENT_AT_MARKER, start);
+        if (marker < 0 || marker >= end) {
+            return;
+        }
+        long sentAt = 0;
+        for (int i = marker + LoadGenerator.SENT_AT_MARKER.length(); i < end; i++) {
+            final char c = request.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            sentAt = sentAt * 10 + (c - '0');
+        }
+        final long latency = receivedAt - sentAt;
+        if (sentAt > 0 && latency >= 0) {
+            latencyRecorder.recordValue(Math.min(latency, MAX_LATENCY_NANOS));
+        }
+    }
+
+    private synchronized void record(byte[] body) throws IOException {
+        //noinspection ConstantConditions
+        Files.write(recordFile, body, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiny client for the parts of the REST API of the node under test that the load test needs.
+ */
+public class GraylogApi {
+    private final String baseUri;
+    private final String authorization;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public GraylogApi(String baseUri, String username, String password) {
+        this.baseUri = baseUri;
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits until the node reports itself as alive to load balancers, i.e. it finished starting up.
+     */
+    public void awaitAlive(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            try {
+                if ("ALIVE".equals(new String(request("GET", "/system/lbstatus", null), StandardCharsets.UTF_8).trim())) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // The REST API isn't up yet
+            }
+            Thread.sleep(1_000L);
+        }
+        throw new IllegalStateException("Node didn't start within " + timeout + " " + unit);
+    }
+
+    /**
+     * Creates a global input listening on the given port on localhost.
+     */
+    public void createInput(LoadInput input, int port) throws IOException {
+        final Map<String, Object> request = ImmutableMap.of(
+                "title", "Load test " + input,
+                "type", input.type(),
+                "global", true,
+                "configuration", ImmutableMap.of(
+                        "bind_address", "127.0.0.1",
+                        "port", port,
+                        "recv_buffer_size", 1024 * 1024));
+        request("POST", "/system/inputs", objectMapper.writeValueAsBytes(request));
+    }
+
+    /**
+     * @return the metric with the given name as serialized by the node or {@code null} if it doesn't exist
+     */
+    @Nullable
+    public JsonNode metric(String name) throws IOException {
+        try {
+            return objectMapper.readTree(request("GET", "/system/metrics/" + URLEncoder.encode(name, "UTF-8"), null));
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    private byte[] request(String method, String path, @Nullable byte[] body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(30_000);
+        connection.setRequestProperty("Authorization", authorization);
+        connection.setRequestProperty("Accept", "application/json, text/plain");
+        connection.setRequestProperty("X-Requested-By", "graylog-load-test");
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+
+        final int status = connection.getResponseCode();
+        if (status == 404) {
+            throw new NotFoundException();
+        }
+        if (status >= 400) {
+            throw new IOException("Request <" + method + " " + path + "> failed with status " + status);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static class NotFoundException extends IOException {
+    }
+}
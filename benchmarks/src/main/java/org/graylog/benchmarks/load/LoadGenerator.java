@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog.benchmarks.Fixtures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the fixture corpora to the inputs of the node under test at a fixed total rate.
+ * <p>
+ * Every message carries the time it has been sent ({@link #SENT_AT_MARKER}) in its message text, so that the
+ * {@link FakeElasticsearch} can calculate the end-to-end latency. The load generator and the node share the same JVM
+ * and thus the same {@link #clock()}.
+ */
+public class LoadGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+
+    public static final String SENT_AT_MARKER = "lt_sent_at=";
+
+    private static final long CLOCK_ORIGIN = System.nanoTime();
+    private static final String GELF_MESSAGE_FIELD = "\"short_message\":\"";
+
+    private final Map<LoadInput, InetSocketAddress> inputs;
+    private final Map<LoadInput, Integer> mix;
+    private final int rate;
+    private final int connections;
+    private final Map<LoadInput, LongAdder> sent = new EnumMap<>(LoadInput.class);
+    private final Map<LoadInput, LongAdder> failed = new EnumMap<>(LoadInput.class);
+    private final ExecutorService executor;
+    private volatile boolean running = false;
+
+    public LoadGenerator(Map<LoadInput, InetSocketAddress> inputs, Map<LoadInput, Integer> mix, int rate, int connections) {
+        this.inputs = inputs;
+        this.mix = mix;
+        this.rate = rate;
+        this.connections = connections;
+        this.executor = Executors.newFixedThreadPool(mix.size() * connections,
+                new ThreadFactoryBuilder().setNameFormat("load-generator-%d").setDaemon(true).build());
+        for (LoadInput input : mix.keySet()) {
+            sent.put(input, new LongAdder());
+            failed.put(input, new LongAdder());
+        }
+    }
+
+    /**
+     * @return monotonic nanoseconds, shared by the load generator and the fake Elasticsearch
+     */
+    public static long clock() {
+        return System.nanoTime() - CLOCK_ORIGIN;
+    }
+
+    public void start() {
+        running = true;
+        final int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        mix.forEach((input, weight) -> {
+            final double ratePerConnection = (double) rate * weight / totalWeight / connections;
+            final List<String> payloads = payloads(input);
+            for (int i = 0; i < connections; i++) {
+                final Sender sender = input.transport() == LoadInput.Transport.HTTP
+                        ? new HttpSender(input, payloads, ratePerConnection, i)
+                        : new TcpSender(input, payloads, ratePerConnection, i);
+                executor.execute(sender);
+            }
+            LOG.info("Sending {} messages per second to {} using {} connections",
+                    String.format(Locale.ENGLISH, "%.1f", ratePerConnection * connections), input, connections);
+        });
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    public long getSent() {
+        return sent.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getFailed() {
+        return failed.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public Map<LoadInput, Long> getSentByInput() {
+        final Map<LoadInput, Long> result = new EnumMap<>(LoadInput.class);
+        sent.forEach((input, count) -> result.put(input, count.sum()));
+        return result;
+    }
+
+    public void resetCounters() {
+        sent.values().forEach(LongAdder::reset);
+        failed.values().forEach(LongAdder::reset);
+    }
+
+    private static List<String> payloads(LoadInput input) {
+        final List<String> payloads = new ArrayList<>();
+        for (byte[] line : Fixtures.lines(input.corpus())) {
+            payloads.add(new String(line, StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+
+    /**
+     * Adds the current time to the message text of the payload.
+     */
+    private static byte[] stamp(LoadInput input, String payload) {
+        final String marker = SENT_AT_MARKER + clock();
+        if (input.isGelf()) {
+            final int index = payload.indexOf(GELF_MESSAGE_FIELD);
+            if (index >= 0) {
+                final int insertAt = index + GELF_MESSAGE_FIELD.length();
+                return (payload.substring(0, insertAt) + marker + " " + payload.substring(insertAt)).getBytes(StandardCharsets.UTF_8);
+            }
+            return payload.getBytes(StandardCharsets.UTF_8);
+        }
+        return (payload + " " + marker).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private abstract class Sender implements Runnable {
+        protected final LoadInput input;
+        private final List<String> payloads;
+        private final RateLimiter rateLimiter;
+        private int index;
+
+        Sender(LoadInput input, List<String> payloads, double rate, int offset) {
+            this.input = input;
+            this.payloads = payloads;
+            this.rateLimiter = RateLimiter.create(rate);
+            // Spread the connections over the corpus
+            this.index = offset * payloads.size() / connections;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    connect();
+                    while (running) {
+                        if (!rateLimiter.tryAcquire()) {
+                            // Flush whatever has been buffered before waiting for the next permit
+                            flush();
+                            rateLimiter.acquire();
+                        }
+                        send(stamp(input, payloads.get(index++ % payloads.size())));
+                        sent.get(input).increment();
+                    }
+                } catch (IOException e) {
+                    failed.get(input).increment();
+                    LOG.debug("Couldn't send message to {}, reconnecting", input, e);
+                    pause();
+                } finally {
+                    close();
+                }
+            }
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(1_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+
+        abstract void connect() throws IOException;
+
+        abstract void send(byte[] payload) throws IOException;
+
+        abstract void flush() throws IOException;
+
+        abstract void close();
+    }
+
+    private class TcpSender extends Sender {
+        private Socket socket;
+        private OutputStream out;
+
+        TcpSender(LoadInput input, List<String> payloads, double rate, int offset) {
+            super(input, payloads, rate, offset);
+        }
+
+        @Override
+        void connect() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(inputs.get(input), 5_000);
+            out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        }
+
+        @Override
+        void send(byte[] payload) throws IOException {
+            out.write(payload);
+            out.write(input.delimiter());
+        }
+
+        @Override
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        void close() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private class HttpSender extends Sender {
+        private URL url;
+
+        HttpSender(LoadInput input, List<String> payloads, double rate, int offset) {
+            super(input, payloads, rate, offset);
+        }
+
+        @Override
+        void connect() throws IOException {
+            final InetSocketAddress address = inputs.get(input);
+            url = new URL("http", address.getHostString(), address.getPort(), "/gelf");
+        }
+
+        @Override
+        void send(byte[] payload) throws IOException {
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(payload.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(payload);
+            }
+            final int status = connection.getResponseCode();
+            // Read the (empty) response so that the connection can be reused
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                while (in != null && in.read() >= 0) {
+                    // drain
+                }
+            }
+            if (status >= 400) {
+                throw new IOException("GELF HTTP input responded with status " + status);
+            }
+        }
+
+        @Override
+        void flush() {
+        }
+
+        @Override
+        void close() {
+        }
+    }
+}
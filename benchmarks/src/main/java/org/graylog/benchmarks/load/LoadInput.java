@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.inputs.gelf.http.GELFHttpInput;
+import org.graylog2.inputs.gelf.tcp.GELFTCPInput;
+import org.graylog2.inputs.raw.tcp.RawTCPInput;
+import org.graylog2.inputs.syslog.tcp.SyslogTCPInput;
+
+import java.util.Locale;
+
+/**
+ * The inputs a load test can send messages to, together with the fixture corpus and framing they use.
+ */
+public enum LoadInput {
+    GELF_TCP(GELFTCPInput.class.getCanonicalName(), Fixtures.GELF, Transport.TCP, (byte) 0),
+    GELF_HTTP(GELFHttpInput.class.getCanonicalName(), Fixtures.GELF, Transport.HTTP, (byte) 0),
+    SYSLOG_TCP(SyslogTCPInput.class.getCanonicalName(), Fixtures.SYSLOG, Transport.TCP, (byte) '\n'),
+    RAW_TCP(RawTCPInput.class.getCanonicalName(), Fixtures.SYSLOG, Transport.TCP, (byte) '\n');
+
+    enum Transport {
+        TCP, HTTP
+    }
+
+    private final String type;
+    private final String corpus;
+    private final Transport transport;
+    private final byte delimiter;
+
+    LoadInput(String type, String corpus, Transport transport, byte delimiter) {
+        this.type = type;
+        this.corpus = corpus;
+        this.transport = transport;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return the input class name used to create the input via the REST API
+     */
+    public String type() {
+        return type;
+    }
+
+    public String corpus() {
+        return corpus;
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    /**
+     * @return the frame delimiter for TCP based inputs
+     */
+    public byte delimiter() {
+        return delimiter;
+    }
+
+    public boolean isGelf() {
+        return Fixtures.GELF.equals(corpus);
+    }
+
+    public static LoadInput fromString(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
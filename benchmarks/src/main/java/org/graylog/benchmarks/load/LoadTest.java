@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import org.HdrHistogram.Histogram;
+import org.graylog2.bootstrap.Main;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a complete Graylog node in this JVM, sends a configurable mix of messages to its inputs and reports the
+ * sustained throughput, the end-to-end latency and the latency of the individual processing stages.
+ * <p>
+ * Elasticsearch is replaced by {@link FakeElasticsearch}, so the results show the limits of the node itself. MongoDB
+ * is still required, see the {@code mongodb_uri} setting in {@code load-test/load-test.properties}.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar org.graylog.benchmarks.load.LoadTest [load-test.properties]}
+ */
+public class LoadTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String ADMIN_PASSWORD = "admin";
+    private static final long DRAIN_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * Node timers that cover the stages a message passes on its way from the input to the output.
+     */
+    private static final Map<String, String> STAGE_TIMERS = ImmutableMap.<String, String>builder()
+            .put("journal_write", "org.graylog2.shared.journal.LocalKafkaJournal.writeTime")
+            .put("journal_read", "org.graylog2.shared.journal.LocalKafkaJournal.readTime")
+            .put("decode", "org.graylog2.shared.buffers.ProcessBuffer.decodeTime")
+            .put("process", "org.graylog2.shared.buffers.processors.ProcessBufferProcessor.processTime")
+            .put("output_buffer", "org.graylog2.buffers.processors.OutputBufferProcessor.processTime")
+            .put("elasticsearch_output", "org.graylog2.outputs.BlockingBatchedESOutput.processTime")
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestConfiguration configuration = LoadTestConfiguration.load(args.length > 0 ? Paths.get(args[0]) : null);
+
+        final FakeElasticsearch elasticsearch = new FakeElasticsearch(configuration.getElasticsearchPort(),
+                configuration.getElasticsearchThreads(), configuration.getElasticsearchRecordFile());
+        elasticsearch.start();
+
+        startNode(configuration, elasticsearch.getAddress());
+        final GraylogApi api = new GraylogApi("http://127.0.0.1:" + configuration.getHttpPort() + "/api", "admin", ADMIN_PASSWORD);
+        api.awaitAlive(5, TimeUnit.MINUTES);
+
+        final Map<LoadInput, InetSocketAddress> inputs = createInputs(configuration, api);
+        final LoadGenerator generator = new LoadGenerator(inputs, configuration.getMix(),
+                configuration.getRate(), configuration.getConnections());
+
+        LOG.info("Warming up for {} seconds", configuration.getWarmupSeconds());
+        generator.start();
+        TimeUnit.SECONDS.sleep(configuration.getWarmupSeconds());
+
+        generator.resetCounters();
+        elasticsearch.reset();
+        final ResourceSnapshot before = ResourceSnapshot.take();
+        final long start = System.nanoTime();
+
+        LOG.info("Measuring for {} seconds", configuration.getDurationSeconds());
+        TimeUnit.SECONDS.sleep(configuration.getDurationSeconds());
+        generator.stop();
+        final double durationSeconds = (System.nanoTime() - start) / 1_000_000_000.0d;
+        final long sent = generator.getSent();
+
+        // Messages which are still in flight count towards the results, but not towards the throughput
+        awaitDrained(elasticsearch, sent);
+        final ResourceSnapshot after = ResourceSnapshot.take();
+        final long indexed = elasticsearch.getIndexedDocuments();
+
+        final LoadTestReport report = new LoadTestReport(configuration, durationSeconds);
+        report.throughput(sent, generator.getFailed(), indexed, elasticsearch.getBulkRequests(), durationSeconds);
+        final Histogram latencies = elasticsearch.takeLatencies();
+        report.endToEndLatency(latencies);
+        for (Map.Entry<String, String> stage : STAGE_TIMERS.entrySet()) {
+            final JsonNode timer = api.metric(stage.getValue());
+            if (timer != null) {
+                report.stage(stage.getKey(), timer);
+            }
+        }
+        report.garbageCollection(after.collections - before.collections,
+                after.collectionTimeMillis - before.collectionTimeMillis,
+                after.allocatedBytes - before.allocatedBytes,
+                indexed);
+
+        report.print(System.out);
+        final Path reportFile = configuration.getReportFile();
+        if (reportFile != null) {
+            report.write(reportFile);
+            LOG.info("Wrote report to {}", reportFile);
+        }
+
+        elasticsearch.stop();
+        // The node doesn't offer a way to shut it down from within the same JVM
+        System.exit(0);
+    }
+
+    private static void startNode(LoadTestConfiguration configuration, InetSocketAddress elasticsearch) throws IOException {
+        final Path baseDir = Files.createTempDirectory("graylog-load-test");
+        final Path configFile = baseDir.resolve("graylog.conf");
+        try (Writer writer = Files.newBufferedWriter(configFile, StandardCharsets.UTF_8)) {
+            setting(writer, "is_leader", "true");
+            setting(writer, "node_id_file", baseDir.resolve("node-id").toString());
+            setting(writer, "password_secret", UUID.randomUUID().toString() + UUID.randomUUID().toString());
+            setting(writer, "root_password_sha2", Hashing.sha256().hashString(ADMIN_PASSWORD, StandardCharsets.UTF_8).toString());
+            setting(writer, "bin_dir", Files.createDirectories(baseDir.resolve("bin")).toString());
+            setting(writer, "data_dir", Files.createDirectories(baseDir.resolve("data")).toString());
+            setting(writer, "plugin_dir", Files.createDirectories(baseDir.resolve("plugin")).toString());
+            setting(writer, "message_journal_dir", Files.createDirectories(baseDir.resolve("journal")).toString());
+            setting(writer, "http_bind_address", "127.0.0.1:" + configuration.getHttpPort());
+            setting(writer, "mongodb_uri", configuration.getMongodbUri());
+            setting(writer, "elasticsearch_hosts", "http://127.0.0.1:" + elasticsearch.getPort());
+            setting(writer, "elasticsearch_version", "7");
+            for (Map.Entry<String, String> setting : configuration.getNodeSettings().entrySet()) {
+                setting(writer, setting.getKey(), setting.getValue());
+            }
+        }
+        LOG.info("Starting node with configuration {}", configFile);
+
+        final Thread node = new Thread(() -> Main.main(new String[]{"server", "-f", configFile.toString(), "-np"}), "graylog-node");
+        node.setDaemon(true);
+        node.start();
+    }
+
+    private static void setting(Writer writer, String name, String value) throws IOException {
+        writer.write(name + " = " + value + "\n");
+    }
+
+    private static Map<LoadInput, InetSocketAddress> createInputs(LoadTestConfiguration configuration, GraylogApi api)
+            throws IOException, InterruptedException {
+        final Map<LoadInput, InetSocketAddress> inputs = new EnumMap<>(LoadInput.class);
+        for (LoadInput input : configuration.getMix().keySet()) {
+            final InetSocketAddress address = new InetSocketAddress("127.0.0.1", configuration.getInputBasePort() + input.ordinal());
+            api.createInput(input, address.getPort());
+            inputs.put(input, address);
+        }
+        for (InetSocketAddress address : inputs.values()) {
+            awaitListening(address);
+        }
+        return inputs;
+    }
+
+    private static void awaitListening(InetSocketAddress address) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(address);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500L);
+            }
+        }
+        throw new IllegalStateException("Input on " + address + " didn't start");
+    }
+
+    private static void awaitDrained(FakeElasticsearch elasticsearch, long sent) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        long indexed = -1;
+        while (System.nanoTime() < deadline) {
+            final long current = elasticsearch.getIndexedDocuments();
+            // Stop as soon as everything arrived or nothing changed for a second
+            if (current >= sent || current == indexed) {
+                return;
+            }
+            indexed = current;
+            Thread.sleep(1_000L);
+        }
+        LOG.warn("Not all messages have been indexed after {} seconds", DRAIN_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * GC and allocation counters of the node. The allocated bytes only cover threads which are alive when the snapshot
+     * is taken and exclude the threads of the load generator and the fake Elasticsearch.
+     */
+    private static class ResourceSnapshot {
+        private final long collections;
+        private final long collectionTimeMillis;
+        private final long allocatedBytes;
+
+        private ResourceSnapshot(long collections, long collectionTimeMillis, long allocatedBytes) {
+            this.collections = collections;
+            this.collectionTimeMillis = collectionTimeMillis;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static ResourceSnapshot take() {
+            long collections = 0;
+            long collectionTime = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, gc.getCollectionCount());
+                collectionTime += Math.max(0, gc.getCollectionTime());
+            }
+
+            long allocated = 0;
+            final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+                for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+                    if (thread == null || isHarnessThread(thread.getThreadName())) {
+                        continue;
+                    }
+                    allocated += Math.max(0, allocations.getThreadAllocatedBytes(thread.getThreadId()));
+                }
+            }
+            return new ResourceSnapshot(collections, collectionTime, allocated);
+        }
+
+        private static boolean isHarnessThread(String name) {
+            return name.startsWith("load-generator-") || name.startsWith("fake-elasticsearch-");
+        }
+    }
+}
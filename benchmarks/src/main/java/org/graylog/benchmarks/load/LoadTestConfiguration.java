@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.Resources;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of a load test run. Defaults are read from {@code load-test/load-test.properties} and can be overridden
+ * with a properties file of the same format.
+ */
+public class LoadTestConfiguration {
+    private static final String DEFAULTS = "load-test/load-test.properties";
+    private static final String NODE_SETTINGS_PREFIX = "graylog.";
+
+    private final Properties properties;
+
+    private LoadTestConfiguration(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static LoadTestConfiguration load(@Nullable Path overrides) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream in = Resources.getResource(DEFAULTS).openStream()) {
+            properties.load(in);
+        }
+        if (overrides != null) {
+            try (Reader reader = Files.newBufferedReader(overrides, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return new LoadTestConfiguration(properties);
+    }
+
+    public String getMongodbUri() {
+        return required("mongodb_uri");
+    }
+
+    public int getRate() {
+        return positiveInt("rate");
+    }
+
+    public int getWarmupSeconds() {
+        return Integer.parseInt(required("warmup_seconds"));
+    }
+
+    public int getDurationSeconds() {
+        return positiveInt("duration_seconds");
+    }
+
+    /**
+     * @return the inputs receiving messages and their relative weight, in the configured order
+     */
+    public Map<LoadInput, Integer> getMix() {
+        final Map<LoadInput, Integer> mix = new LinkedHashMap<>();
+        Splitter.on(',').trimResults().omitEmptyStrings().withKeyValueSeparator(':')
+                .split(required("mix"))
+                .forEach((input, weight) -> mix.put(LoadInput.fromString(input), Integer.parseInt(weight.trim())));
+        mix.values().removeIf(weight -> weight <= 0);
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The message mix must contain at least one input with a positive weight");
+        }
+        return Collections.unmodifiableMap(mix);
+    }
+
+    public int getConnections() {
+        return positiveInt("connections");
+    }
+
+    public int getInputBasePort() {
+        return positiveInt("input_base_port");
+    }
+
+    public int getElasticsearchPort() {
+        return Integer.parseInt(required("elasticsearch_port"));
+    }
+
+    public int getElasticsearchThreads() {
+        return positiveInt("elasticsearch_threads");
+    }
+
+    @Nullable
+    public Path getElasticsearchRecordFile() {
+        return optionalPath("elasticsearch_record_file");
+    }
+
+    public int getHttpPort() {
+        return positiveInt("http_port");
+    }
+
+    @Nullable
+    public Path getReportFile() {
+        return optionalPath("report_file");
+    }
+
+    /**
+     * @return the settings passed to the node configuration, without the {@code graylog.} prefix
+     */
+    public Map<String, String> getNodeSettings() {
+        final Map<String, String> settings = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(NODE_SETTINGS_PREFIX)) {
+                settings.put(name.substring(NODE_SETTINGS_PREFIX.length()), properties.getProperty(name).trim());
+            }
+        }
+        return settings;
+    }
+
+    private String required(String name) {
+        final String value = properties.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing load test setting <" + name + ">");
+        }
+        return value.trim();
+    }
+
+    private int positiveInt(String name) {
+        final int value = Integer.parseInt(required(name));
+        if (value <= 0) {
+            throw new IllegalArgumentException("Load test setting <" + name + "> must be positive");
+        }
+        return value;
+    }
+
+    @Nullable
+    private Path optionalPath(String name) {
+        final String value = properties.getProperty(name);
+        return value == null || value.trim().isEmpty() ? null : Paths.get(value.trim());
+    }
+}
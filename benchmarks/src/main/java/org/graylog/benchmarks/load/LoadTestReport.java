@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of a single load test run.
+ */
+public class LoadTestReport {
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+    private final Map<String, Object> stages = new LinkedHashMap<>();
+
+    public LoadTestReport(LoadTestConfiguration configuration, double durationSeconds) {
+        report.put("target_rate", configuration.getRate());
+        report.put("duration_seconds", durationSeconds);
+    }
+
+    public void throughput(long sent, long failed, long indexed, long bulkRequests, double durationSeconds) {
+        report.put("sent", sent);
+        report.put("failed", failed);
+        report.put("indexed", indexed);
+        report.put("bulk_requests", bulkRequests);
+        report.put("sent_per_second", sent / durationSeconds);
+        report.put("indexed_per_second", indexed / durationSeconds);
+    }
+
+    /**
+     * @param latencies end-to-end latencies in nanoseconds
+     */
+    public void endToEndLatency(Histogram latencies) {
+        final Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", latencies.getTotalCount());
+        for (double percentile : PERCENTILES) {
+            latency.put(percentileName(percentile), nanosToMillis(latencies.getValueAtPercentile(percentile)));
+        }
+        latency.put("max_ms", nanosToMillis(latencies.getMaxValue()));
+        report.put("end_to_end_latency", latency);
+    }
+
+    /**
+     * @param timer a timer metric as serialized by the node, with durations in seconds
+     */
+    public void stage(String name, JsonNode timer) {
+        final Map<String, Object> stage = new LinkedHashMap<>();
+        stage.put("count", timer.path("count").asLong());
+        stage.put("p50_ms", secondsToMillis(timer.path("p50")));
+        stage.put("p95_ms", secondsToMillis(timer.path("p95")));
+        stage.put("p99_ms", secondsToMillis(timer.path("p99")));
+        stage.put("max_ms", secondsToMillis(timer.path("max")));
+        stages.put(name, stage);
+        report.put("stages", stages);
+    }
+
+    public void garbageCollection(long collections, long collectionTimeMillis, long allocatedBytes, long messages) {
+        final Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", collections);
+        gc.put("collection_time_ms", collectionTimeMillis);
+        gc.put("allocated_bytes", allocatedBytes);
+        gc.put("allocated_bytes_per_message", messages == 0 ? 0 : allocatedBytes / messages);
+        report.put("gc", gc);
+    }
+
+    public void print(PrintStream out) {
+        print(out, "", report);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(PrintStream out, String indent, Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                out.println(indent + entry.getKey() + ":");
+                print(out, indent + "  ", (Map<String, Object>) entry.getValue());
+            } else if (entry.getValue() instanceof Double) {
+                out.println(String.format(Locale.ENGLISH, "%s%s: %.2f", indent, entry.getKey(), entry.getValue()));
+            } else {
+                out.println(indent + entry.getKey() + ": " + entry.getValue());
+            }
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + String.format(Locale.ENGLISH, "%s", percentile).replace(".0", "").replace(".", "") + "_ms";
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0d;
+    }
+
+    private static double secondsToMillis(JsonNode seconds) {
+        return seconds.asDouble() * 1_000.0d;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.lookup;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.lookup.caches.CaffeineLookupCache;
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent lookups in a shared {@link CaffeineLookupCache}, similar to the process buffer processors resolving
+ * lookup tables for every message. Keys follow a skewed distribution, the key space relative to the cache size
+ * controls the hit ratio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CaffeineLookupCacheBenchmark {
+    private static final int CACHE_SIZE = 10_000;
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    @Param({"1000", "100000"})
+    public int keySpace;
+
+    private CaffeineLookupCache cache;
+
+    @Setup
+    public void setUp() {
+        final CaffeineLookupCache.Config config = CaffeineLookupCache.Config.builder()
+                .type(CaffeineLookupCache.NAME)
+                .maxSize(CACHE_SIZE)
+                .expireAfterAccess(60)
+                .expireAfterAccessUnit(TimeUnit.SECONDS)
+                .expireAfterWrite(0)
+                .build();
+        cache = new CaffeineLookupCache("cache-id", "benchmark", config, Runtime.getRuntime().availableProcessors(), new MetricRegistry());
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private LookupCacheKey[] keys;
+        private int index = 0;
+
+        @Setup
+        public void setUp(CaffeineLookupCacheBenchmark benchmark, ThreadParams threadParams) {
+            final Random random = new Random(threadParams.getThreadIndex());
+            keys = new LookupCacheKey[KEYS_PER_THREAD];
+            for (int i = 0; i < keys.length; i++) {
+                // Cubing a uniform value skews the distribution towards the low keys
+                final double skewed = Math.pow(random.nextDouble(), 3);
+                keys[i] = LookupCacheKey.createFromJSON("adapter-id", "key-" + (int) (skewed * benchmark.keySpace));
+            }
+        }
+
+        private LookupCacheKey next() {
+            return keys[index++ & (KEYS_PER_THREAD - 1)];
+        }
+    }
+
+    @Benchmark
+    public LookupResult get(Keys keys) {
+        final LookupCacheKey key = keys.next();
+        return cache.get(key, () -> LookupResult.single(String.valueOf(key.key())));
+    }
+
+    @Benchmark
+    public LookupResult getIfPresent(Keys keys) {
+        return cache.getIfPresent(keys.next());
+    }
+}
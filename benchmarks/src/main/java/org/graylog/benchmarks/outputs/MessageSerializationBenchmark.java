@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.outputs;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.plugin.Message;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of messages into Elasticsearch documents and serialization of a complete bulk request body in the
+ * newline delimited format used by the indexer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+    private static final byte[] NEWLINE = {'\n'};
+
+    @Param({"100", "1000"})
+    public int bulkSize;
+
+    private ObjectMapper objectMapper;
+    private Meter invalidTimestampMeter;
+    private List<Message> messages;
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapperProvider().get();
+        invalidTimestampMeter = new Meter();
+        messages = Fixtures.messages(bulkSize);
+    }
+
+    @Benchmark
+    public Map<String, Object> toElasticSearchObject() {
+        return messages.get(index++ % bulkSize).toElasticSearchObject(objectMapper, invalidTimestampMeter);
+    }
+
+    @Benchmark
+    public byte[] bulkRequest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(bulkSize * 1024);
+        for (Message message : messages) {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("index");
+                generator.writeStringField("_index", "graylog_0");
+                generator.writeStringField("_id", message.getId());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            out.write(NEWLINE);
+            objectMapper.writeValue(out, message.toElasticSearchObject(objectMapper, invalidTimestampMeter));
+            out.write(NEWLINE);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.pipelines;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog.benchmarks.Fixtures;
+import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
+import org.graylog.plugins.pipelineprocessor.db.PipelineService;
+import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigDto;
+import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigService;
+import org.graylog.plugins.pipelineprocessor.db.RuleService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryRuleService;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.LongConversion;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Contains;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Lowercase;
+import org.graylog.plugins.pipelineprocessor.functions.strings.RegexMatch;
+import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
+import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.processors.ConfigurationStateUpdater;
+import org.graylog.plugins.pipelineprocessor.processors.PipelineInterpreter;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.shared.messageq.noop.NoopMessageQueueAcknowledger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline processing of generated access log messages with the rules and pipelines from
+ * {@code fixtures/pipelines}. All pipelines are connected to the default stream.
+ * <p>
+ * The rules only set fields, so processing a message more than once yields the same result and messages can be
+ * reused between invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineInterpreterBenchmark {
+    private static final String[] RULES = {"server-errors", "api-requests", "normalize-method", "slow-requests", "health-checks"};
+    private static final String[] PIPELINES = {"access-log", "performance"};
+
+    @Param({"false", "true"})
+    public boolean ruleMetrics;
+
+    private ScheduledExecutorService scheduler;
+    private PipelineInterpreter interpreter;
+    private Message[] messages;
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        final ClusterEventBus clusterEventBus = new ClusterEventBus();
+        final RuleService ruleService = new InMemoryRuleService(clusterEventBus);
+        for (String rule : RULES) {
+            ruleService.save(RuleDao.create(null, rule, null, Fixtures.resource("fixtures/pipelines/" + rule + ".rule"), Tools.nowUTC(), null));
+        }
+
+        final PipelineService pipelineService = new InMemoryPipelineService(clusterEventBus);
+        final ImmutableSet.Builder<String> pipelineIds = ImmutableSet.builder();
+        for (String pipeline : PIPELINES) {
+            final PipelineDao saved = pipelineService.save(PipelineDao.create(null, pipeline, null, Fixtures.resource("fixtures/pipelines/" + pipeline + ".pipeline"), Tools.nowUTC(), null));
+            pipelineIds.add(saved.id());
+        }
+
+        final PipelineStreamConnectionsService connectionsService = new InMemoryPipelineStreamConnectionsService(clusterEventBus);
+        connectionsService.save(PipelineConnections.create(null, Stream.DEFAULT_STREAM_ID, pipelineIds.build()));
+
+        final Map<String, Function<?>> functions = ImmutableMap.<String, Function<?>>builder()
+                .put(HasField.NAME, new HasField())
+                .put(SetField.NAME, new SetField())
+                .put(StringConversion.NAME, new StringConversion())
+                .put(LongConversion.NAME, new LongConversion())
+                .put(Contains.NAME, new Contains())
+                .put(Lowercase.NAME, new Lowercase())
+                .put(RegexMatch.NAME, new RegexMatch())
+                .build();
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final RuleMetricsConfigDto ruleMetricsConfig = RuleMetricsConfigDto.builder().metricsEnabled(ruleMetrics).build();
+        final RuleMetricsConfigService ruleMetricsConfigService = new RuleMetricsConfigService(null, null) {
+            @Override
+            public RuleMetricsConfigDto get() {
+                return ruleMetricsConfig;
+            }
+        };
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("pipeline-benchmark-%d").setDaemon(true).build());
+        final ConfigurationStateUpdater stateUpdater = new ConfigurationStateUpdater(ruleService,
+                pipelineService,
+                connectionsService,
+                new PipelineRuleParser(new FunctionRegistry(functions)),
+                ruleMetricsConfigService,
+                metricRegistry,
+                scheduler,
+                new EventBus(),
+                (currentPipelines, streamPipelineConnections, config) -> new PipelineInterpreter.State(
+                        currentPipelines, streamPipelineConnections, config, metricRegistry, 1, true));
+        interpreter = new PipelineInterpreter(new NoopMessageQueueAcknowledger(), metricRegistry, stateUpdater, 1);
+
+        final Stream defaultStream = Fixtures.defaultStream();
+        final List<Message> generated = Fixtures.messages(1024);
+        generated.forEach(message -> message.addStream(defaultStream));
+        messages = generated.toArray(new Message[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public Messages process() {
+        return interpreter.process(messages[index++ & (messages.length - 1)]);
+    }
+}
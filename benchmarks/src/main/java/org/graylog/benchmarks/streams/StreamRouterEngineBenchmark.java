@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks.streams;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bson.types.ObjectId;
+import org.graylog.benchmarks.Fixtures;
+import org.graylog2.Configuration;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.plugin.streams.StreamRuleType;
+import org.graylog2.streams.StreamFaultManager;
+import org.graylog2.streams.StreamImpl;
+import org.graylog2.streams.StreamMetrics;
+import org.graylog2.streams.StreamRouterEngine;
+import org.graylog2.streams.StreamRuleImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream routing of generated access log messages against a growing number of streams. Every stream uses a mix of
+ * exact, regex, greater, contains and presence rules and alternates between the AND and OR matching types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamRouterEngineBenchmark {
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+
+    @Param({"10", "100", "500"})
+    public int streamCount;
+
+    private ExecutorService executorService;
+    private StreamRouterEngine engine;
+    private Message[] messages;
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        final List<Stream> streams = new ArrayList<>(streamCount);
+        for (int i = 0; i < streamCount; i++) {
+            streams.add(stream(i));
+        }
+
+        final StreamMetrics streamMetrics = new StreamMetrics(new MetricRegistry());
+        // Notifications and the stream service are only used when a stream exceeds the processing timeout
+        final StreamFaultManager streamFaultManager = new StreamFaultManager(new Configuration(), streamMetrics, null, null);
+        final Stream defaultStream = Fixtures.defaultStream();
+
+        executorService = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("stream-router-benchmark-%d").setDaemon(true).build());
+        engine = new StreamRouterEngine(streams, executorService, streamFaultManager, streamMetrics, () -> defaultStream);
+        messages = Fixtures.messages(1024).toArray(new Message[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static Stream stream(int i) {
+        final ObjectId streamId = new ObjectId(String.format(Locale.ENGLISH, "%024x", 0x1000 + i));
+        final Stream.MatchingType matchingType = i % 2 == 0 ? Stream.MatchingType.AND : Stream.MatchingType.OR;
+        final List<StreamRule> rules = ImmutableList.of(
+                rule(streamId, StreamRuleType.EXACT, "http_method", METHODS[i % METHODS.length]),
+                rule(streamId, StreamRuleType.REGEX, "http_path", "^/api/(orders|login)$"),
+                rule(streamId, StreamRuleType.GREATER, "http_status", String.valueOf(199 + (i % 4) * 100)),
+                rule(streamId, StreamRuleType.CONTAINS, "user_agent", "rv:9" + (i % 10)),
+                rule(streamId, StreamRuleType.PRESENCE, "remote_addr", null));
+
+        final Map<String, Object> fields = ImmutableMap.of(
+                StreamImpl.FIELD_TITLE, "Stream " + i,
+                StreamImpl.FIELD_MATCHING_TYPE, matchingType.toString(),
+                StreamImpl.FIELD_DISABLED, false);
+        return new StreamImpl(streamId, fields, rules, Collections.emptySet(), null);
+    }
+
+    private static StreamRule rule(ObjectId streamId, StreamRuleType type, String field, String value) {
+        final Map<String, Object> fields = new HashMap<>();
+        fields.put(StreamRuleImpl.FIELD_TYPE, type.toInteger());
+        fields.put(StreamRuleImpl.FIELD_FIELD, field);
+        fields.put(StreamRuleImpl.FIELD_VALUE, value);
+        fields.put(StreamRuleImpl.FIELD_INVERTED, false);
+        fields.put(StreamRuleImpl.FIELD_STREAM_ID, streamId);
+        return new StreamRuleImpl(fields);
+    }
+
+    @Benchmark
+    public List<Stream> match() {
+        return engine.match(messages[index++ & (messages.length - 1)]);
+    }
+}
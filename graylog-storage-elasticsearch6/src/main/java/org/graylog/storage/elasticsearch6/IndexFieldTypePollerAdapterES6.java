@@ -20,6 +20,7 @@ import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.JsonNode;
 import io.searchbox.client.JestClient;
 import io.searchbox.client.JestResult;
+import io.searchbox.cluster.State;
 import io.searchbox.indices.mapping.GetMapping;
 import org.graylog.storage.elasticsearch6.jest.JestUtils;
 import org.graylog2.indexer.IndexMapping;
@@ -48,6 +49,24 @@ public class IndexFieldTypePollerAdapterES6 implements IndexFieldTypePollerAdapt
         this.jestClient = jestClient;
     }
 
+    @Override
+    public Optional<Long> mappingVersion(String indexName) {
+        final State request = new State.Builder()
+                .withMetadata()
+                .indices(indexName)
+                .setParameter("filter_path", "metadata.indices.*.mapping_version")
+                .build();
+
+        final JestResult result = JestUtils.execute(jestClient, request, () -> "Unable to get mapping version of index: " + indexName);
+        final JsonNode mappingVersion = result.getJsonObject()
+                .path("metadata")
+                .path("indices")
+                .path(indexName)
+                .path("mapping_version");
+
+        return mappingVersion.isNumber() ? Optional.of(mappingVersion.asLong()) : Optional.empty();
+    }
+
     @Override
     public Optional<Set<FieldTypeDTO>> pollIndex(String indexName, Timer pollTimer) {
         final GetMapping getMapping = new GetMapping.Builder()
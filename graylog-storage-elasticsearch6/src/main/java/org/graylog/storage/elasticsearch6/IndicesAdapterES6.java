@@ -74,6 +74,7 @@ import org.graylog2.indexer.ElasticsearchException;
 import org.graylog2.indexer.IndexMapping;
 import org.graylog2.indexer.IndexNotFoundException;
 import org.graylog2.indexer.indices.HealthStatus;
+import org.graylog2.indexer.indices.IndexFingerprint;
 import org.graylog2.indexer.indices.IndexMoveResult;
 import org.graylog2.indexer.indices.IndexSettings;
 import org.graylog2.indexer.indices.Indices;
@@ -354,9 +355,10 @@ public class IndicesAdapterES6 implements IndicesAdapter {
                 .size(0)
                 .toString();
 
+        // The aggregations don't depend on term statistics, so the additional DFS round trip isn't needed
         final Search request = new Search.Builder(query)
                 .addIndex(index)
-                .setSearchType(SearchType.DFS_QUERY_THEN_FETCH)
+                .setSearchType(SearchType.QUERY_THEN_FETCH)
                 .ignoreUnavailable(true)
                 .build();
 
@@ -436,6 +438,21 @@ public class IndicesAdapterES6 implements IndicesAdapter {
         return indexStats(indexName).path("primaries").path("docs").path("count").asLong();
     }
 
+    @Override
+    public Map<String, IndexFingerprint> indexFingerprints(String indexWildcard) {
+        final JsonNode catResult = catIndices(Collections.singleton(indexWildcard), "index", "uuid", "docs.count");
+        final Map<String, IndexFingerprint> fingerprints = new HashMap<>();
+        for (JsonNode index : catResult) {
+            final JsonNode uuid = index.path("uuid");
+            final JsonNode documentCount = index.path("docs.count");
+            // Closed indices have no document count
+            if (uuid.isTextual() && documentCount.isValueNode() && !documentCount.isNull()) {
+                fingerprints.put(index.path("index").asText(), IndexFingerprint.create(uuid.asText(), documentCount.asLong()));
+            }
+        }
+        return fingerprints;
+    }
+
     private JsonNode indexStats(final String indexName) {
         final Stats request = new Stats.Builder()
                 .addIndex(indexName)
@@ -17,6 +17,7 @@
 package org.graylog.storage.elasticsearch7;
 
 import com.codahale.metrics.Timer;
+import org.graylog.storage.elasticsearch7.cluster.ClusterStateApi;
 import org.graylog.storage.elasticsearch7.mapping.FieldMappingApi;
 import org.graylog2.indexer.IndexNotFoundException;
 import org.graylog2.indexer.fieldtypes.FieldTypeDTO;
@@ -35,10 +36,17 @@ import java.util.stream.Collectors;
 public class IndexFieldTypePollerAdapterES7 implements IndexFieldTypePollerAdapter {
     private static final Logger LOG = LoggerFactory.getLogger(IndexFieldTypePollerAdapterES7.class);
     private final FieldMappingApi fieldMappingApi;
+    private final ClusterStateApi clusterStateApi;
 
     @Inject
-    public IndexFieldTypePollerAdapterES7(FieldMappingApi fieldMappingApi) {
+    public IndexFieldTypePollerAdapterES7(FieldMappingApi fieldMappingApi, ClusterStateApi clusterStateApi) {
         this.fieldMappingApi = fieldMappingApi;
+        this.clusterStateApi = clusterStateApi;
+    }
+
+    @Override
+    public Optional<Long> mappingVersion(String indexName) {
+        return Optional.ofNullable(clusterStateApi.mappingVersions(Collections.singleton(indexName)).get(indexName));
     }
 
     @Override
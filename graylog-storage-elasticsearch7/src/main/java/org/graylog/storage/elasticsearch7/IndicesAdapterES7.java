@@ -62,6 +62,7 @@ import org.graylog.storage.elasticsearch7.cluster.ClusterStateApi;
 import org.graylog.storage.elasticsearch7.stats.StatsApi;
 import org.graylog2.indexer.IndexNotFoundException;
 import org.graylog2.indexer.indices.HealthStatus;
+import org.graylog2.indexer.indices.IndexFingerprint;
 import org.graylog2.indexer.indices.IndexMoveResult;
 import org.graylog2.indexer.indices.IndexSettings;
 import org.graylog2.indexer.indices.Indices;
@@ -274,6 +275,11 @@ public class IndicesAdapterES7 implements IndicesAdapter {
         return count.asLong();
     }
 
+    @Override
+    public Map<String, IndexFingerprint> indexFingerprints(String indexWildcard) {
+        return catApi.indexFingerprints(indexWildcard, "Couldn't get fingerprints of indices <" + indexWildcard + ">");
+    }
+
     private GetSettingsResponse settingsFor(String indexOrAlias) {
         final GetSettingsRequest request = new GetSettingsRequest().indices(indexOrAlias)
                 .indicesOptions(IndicesOptions.fromOptions(true, true, true, true));
@@ -429,12 +435,14 @@ public class IndicesAdapterES7 implements IndicesAdapter {
                 .subAggregation(AggregationBuilders.terms("streams").size(Integer.MAX_VALUE).field(Message.FIELD_STREAMS));
         final SearchSourceBuilder query = SearchSourceBuilder.searchSource()
                 .aggregation(builder)
+                .trackTotalHits(false)
                 .size(0);
 
+        // The aggregations don't depend on term statistics, so the additional DFS round trip isn't needed
         final SearchRequest request = new SearchRequest()
                 .source(query)
                 .indices(index)
-                .searchType(SearchType.DFS_QUERY_THEN_FETCH)
+                .searchType(SearchType.QUERY_THEN_FETCH)
                 .indicesOptions(IndicesOptions.lenientExpandOpen());
 
         final SearchResponse result = client.execute((c, requestOptions) -> c.search(request, requestOptions),
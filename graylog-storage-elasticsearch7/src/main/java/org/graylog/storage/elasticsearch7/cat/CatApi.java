@@ -23,12 +23,15 @@ import com.google.common.collect.Streams;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.client.Request;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.client.Response;
 import org.graylog.storage.elasticsearch7.ElasticsearchClient;
+import org.graylog2.indexer.indices.IndexFingerprint;
 
 import javax.inject.Inject;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -76,6 +79,23 @@ public class CatApi {
                 .findFirst();
     }
 
+    public Map<String, IndexFingerprint> indexFingerprints(String indexWildcard, String errorMessage) {
+        final Request request = request("GET", "indices/" + indexWildcard);
+        request.addParameter("h", "index,uuid,docs.count");
+        final JsonNode jsonResponse = perform(request, new TypeReference<JsonNode>() {}, errorMessage);
+
+        final Map<String, IndexFingerprint> fingerprints = new HashMap<>();
+        for (JsonNode index : jsonResponse) {
+            final JsonNode uuid = index.path("uuid");
+            final JsonNode documentCount = index.path("docs.count");
+            // Closed indices have no document count
+            if (uuid.isTextual() && documentCount.isValueNode() && !documentCount.isNull()) {
+                fingerprints.put(index.path("index").asText(), IndexFingerprint.create(uuid.asText(), documentCount.asLong()));
+            }
+        }
+        return fingerprints;
+    }
+
     private JsonNode requestIndices(String indexName, String errorMessage) {
         final Request request = request("GET", "indices/" + indexName);
         request.addParameter("h", "index,status");
@@ -60,6 +60,22 @@ public class ClusterStateApi {
                 .collect(groupingBy(Map.Entry::getKey, mapping(Map.Entry::getValue, Collectors.toSet())));
     }
 
+    public Map<String, Long> mappingVersions(Collection<String> indices) {
+        final Request request = request(indices);
+        request.addParameter("filter_path", "metadata.indices.*.mapping_version");
+
+        final JsonNode jsonResponse = client.execute((c, requestOptions) -> {
+            request.setOptions(requestOptions);
+            final Response response = c.getLowLevelClient().performRequest(request);
+            return objectMapper.readTree(response.getEntity().getContent());
+        }, "Unable to retrieve mapping versions of indices: " + String.join(",", indices));
+
+        //noinspection UnstableApiUsage
+        return Streams.stream(jsonResponse.path("metadata").path("indices").fields())
+                .filter(index -> index.getValue().path("mapping_version").isNumber())
+                .collect(Collectors.toMap(Map.Entry::getKey, index -> index.getValue().path("mapping_version").asLong()));
+    }
+
     private Stream<Map.Entry<String, String>> allFieldsFromIndex(String indexName, JsonNode indexMapping) {
         //noinspection UnstableApiUsage
         return Streams.stream(indexMapping.path("mappings").fields())
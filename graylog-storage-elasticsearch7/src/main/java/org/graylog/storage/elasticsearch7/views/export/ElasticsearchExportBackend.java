@@ -21,6 +21,7 @@ import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
 import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
 import org.graylog.plugins.views.search.export.ExportBackend;
 import org.graylog.plugins.views.search.export.ExportMessagesCommand;
+import org.graylog.plugins.views.search.export.ExportStoppedException;
 import org.graylog.plugins.views.search.export.SimpleMessage;
 import org.graylog.plugins.views.search.export.SimpleMessageChunk;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.action.search.SearchRequest;
@@ -158,6 +159,9 @@ public class ElasticsearchExportBackend implements ExportBackend {
         try {
             chunkCollector.accept(chunk);
             return true;
+        } catch (ExportStoppedException e) {
+            // Stopping the export is part of the regular flow and has been logged by the consumer
+            return false;
         } catch (Exception e) {
             LOG.warn("Chunk publishing threw exception. Stopping search after queries", e);
             return false;
@@ -16,68 +16,172 @@
  */
 package org.graylog.events.indices;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.graylog.events.event.Event;
 import org.graylog.events.event.EventWithContext;
 import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indexset.events.IndexSetCreatedEvent;
+import org.graylog2.indexer.indexset.events.IndexSetDeletedEvent;
 import org.graylog2.indexer.messages.IndexingRequest;
 import org.graylog2.indexer.messages.Messages;
 import org.graylog2.plugin.database.Persisted;
 import org.graylog2.streams.StreamService;
+import org.graylog2.streams.events.StreamDeletedEvent;
+import org.graylog2.streams.events.StreamsChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * This class contains indices helper for the events system.
+ * <p>
+ * Events of concurrent event processor executions are written together. Every index set has its own queue of pending
+ * indexing requests. A caller which finds no bulk request running for an index set writes the pending requests of
+ * that index set, including those of other callers, in a single bulk request. Once its own requests are written, it
+ * leaves the remaining ones to the other waiting callers. A blocked or slow index set therefore only delays the
+ * callers writing into it.
+ * <p>
+ * Writes are synchronous. Event processors update their state, which is used for dependency checks between event
+ * processors, as soon as their events have been handed over, so the job can't complete before the events are
+ * written.
  */
 @Singleton
 public class EventIndexer {
     private static final Logger LOG = LoggerFactory.getLogger(EventIndexer.class);
+    // Upper bound for the number of requests in a bulk request. Requests of a single write are never split.
+    private static final int MAX_BATCH_SIZE = 1000;
 
     private final StreamService streamService;
     private final Messages messages;
+    private final LoadingCache<String, Optional<IndexSet>> streamIndexSets;
+    private final ConcurrentMap<IndexSet, IndexSetWriter> indexSetWriters = new ConcurrentHashMap<>();
 
     @Inject
-    public EventIndexer(StreamService streamService, Messages messages) {
+    public EventIndexer(StreamService streamService, Messages messages, EventBus eventBus) {
         this.streamService = streamService;
         this.messages = messages;
+        this.streamIndexSets = CacheBuilder.newBuilder()
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .build(new CacheLoader<String, Optional<IndexSet>>() {
+                    @Override
+                    public Optional<IndexSet> load(String streamId) {
+                        return loadAll(Collections.singleton(streamId)).get(streamId);
+                    }
+
+                    @Override
+                    public Map<String, Optional<IndexSet>> loadAll(Iterable<? extends String> streamIds) {
+                        return indexSetsForStreams(streamIds);
+                    }
+                });
+
+        eventBus.register(this);
     }
 
+    /**
+     * Writes the given events and blocks until they have been indexed.
+     *
+     * @param eventsWithContext events to write
+     */
     public void write(List<EventWithContext> eventsWithContext) {
         if (eventsWithContext.isEmpty()) {
             return;
         }
 
-        // Pre-load all write index targets of all events to avoid looking them up for every event when building the bulk request
-        final Set<String> streamIds = streamIdsForEvents(eventsWithContext);
-        final Map<String, IndexSet> streamIndices = indexSetsForStreams(streamIds);
-        final List<IndexingRequest> requests = eventsWithContext.stream()
+        final List<Event> events = eventsWithContext.stream()
                 .map(EventWithContext::event)
+                .collect(Collectors.toList());
+
+        // Pre-load all write index targets of all events to avoid looking them up for every event when building the bulk request
+        final Set<String> streamIds = streamIdsForEvents(events);
+        final Map<String, IndexSet> streamIndices;
+        try {
+            streamIndices = streamIndexSets.getAll(streamIds).entrySet().stream()
+                    .filter(entry -> entry.getValue().isPresent())
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+
+        final Map<IndexSet, List<IndexingRequest>> requestsByIndexSet = events.stream()
                 // Collect a set of indices for the event to avoid writing to the same index set twice if
                 // multiple streams use the same index set.
                 .flatMap(event -> assignEventsToTargetIndices(event, streamIndices))
-                .map(event -> IndexingRequest.create(event.getKey(), event.getValue()))
-                .collect(Collectors.toList());
-        messages.bulkIndexRequests(requests, true);
+                .collect(Collectors.groupingBy(Map.Entry::getKey, LinkedHashMap::new,
+                        Collectors.mapping(entry -> IndexingRequest.create(entry.getKey(), entry.getValue()), Collectors.toList())));
+
+        final Map<IndexSetWriter, PendingWrite> pendingWrites = new LinkedHashMap<>();
+        requestsByIndexSet.forEach((indexSet, requests) -> {
+            final IndexSetWriter writer = indexSetWriters.computeIfAbsent(indexSet, key -> new IndexSetWriter());
+            pendingWrites.put(writer, writer.add(requests));
+        });
+
+        // Wait for all index sets before reporting a failure, so no requests of this write are left behind
+        Throwable failure = null;
+        for (Map.Entry<IndexSetWriter, PendingWrite> entry : pendingWrites.entrySet()) {
+            try {
+                entry.getKey().await(entry.getValue());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            Throwables.throwIfUnchecked(failure);
+            throw new RuntimeException(failure);
+        }
+    }
+
+    @VisibleForTesting
+    int pendingRequests() {
+        return indexSetWriters.values().stream()
+                .flatMap(writer -> writer.pendingWrites.stream())
+                .mapToInt(pendingWrite -> pendingWrite.requests.size())
+                .sum();
     }
 
-    private Map<String, IndexSet> indexSetsForStreams(Set<String> streamIds) {
-        return streamService.loadByIds(streamIds).stream()
-            .collect(Collectors.toMap(Persisted::getId, org.graylog2.plugin.streams.Stream::getIndexSet));
+    private Map<String, Optional<IndexSet>> indexSetsForStreams(Iterable<? extends String> streamIds) {
+        final Set<String> ids = ImmutableSet.copyOf(streamIds);
+        final Map<String, IndexSet> indexSets = streamService.loadByIds(ids).stream()
+                .collect(Collectors.toMap(Persisted::getId, org.graylog2.plugin.streams.Stream::getIndexSet));
+        // Streams which don't exist are cached as well, so we don't load them for every event
+        return ids.stream().collect(Collectors.toMap(Function.identity(), id -> Optional.ofNullable(indexSets.get(id))));
     }
 
-    private Set<String> streamIdsForEvents(List<EventWithContext> eventsWithContext) {
-        return eventsWithContext.stream()
-            .map(EventWithContext::event)
+    private Set<String> streamIdsForEvents(List<Event> events) {
+        return events.stream()
             .flatMap(event -> event.getStreams().stream())
             .collect(Collectors.toSet());
     }
@@ -101,4 +205,107 @@ public class EventIndexer {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
     }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleStreamsChanged(StreamsChangedEvent event) {
+        streamIndexSets.invalidateAll(event.streamIds());
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleStreamDeleted(StreamDeletedEvent event) {
+        streamIndexSets.invalidate(event.streamId());
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleIndexSetCreated(IndexSetCreatedEvent event) {
+        // Index sets are also saved with this event on updates
+        streamIndexSets.invalidateAll();
+        // Writers which are still in use keep working, they only aren't handed out anymore
+        indexSetWriters.clear();
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleIndexSetDeleted(IndexSetDeletedEvent event) {
+        streamIndexSets.invalidateAll();
+        indexSetWriters.clear();
+    }
+
+    /**
+     * Collects the indexing requests of concurrent writes into the same index set.
+     */
+    private class IndexSetWriter {
+        private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushing = new AtomicBoolean(false);
+        // Completed and replaced after every bulk request, so the waiting callers check whether one of them has to
+        // take over writing
+        private final AtomicReference<CompletableFuture<Void>> flushed = new AtomicReference<>(new CompletableFuture<>());
+
+        private PendingWrite add(List<IndexingRequest> requests) {
+            final PendingWrite pendingWrite = new PendingWrite(requests);
+            pendingWrites.add(pendingWrite);
+            return pendingWrite;
+        }
+
+        /**
+         * Waits until the given write is done. While no other caller is writing, the pending requests are written
+         * batch by batch, including those of other callers. This stops as soon as the given write is done, the next
+         * waiting caller takes over then.
+         */
+        private void await(PendingWrite pendingWrite) throws ExecutionException {
+            while (!pendingWrite.future.isDone()) {
+                final CompletableFuture<Void> turn = flushed.get();
+                if (flushing.compareAndSet(false, true)) {
+                    try {
+                        flushBatch();
+                    } finally {
+                        flushing.set(false);
+                        flushed.getAndSet(new CompletableFuture<>()).complete(null);
+                    }
+                } else {
+                    CompletableFuture.anyOf(pendingWrite.future, turn).exceptionally(e -> null).join();
+                }
+            }
+            Uninterruptibles.getUninterruptibly(pendingWrite.future);
+        }
+
+        private void flushBatch() {
+            final List<PendingWrite> batch = new ArrayList<>();
+            int batchSize = 0;
+            PendingWrite pendingWrite;
+            while (batchSize < MAX_BATCH_SIZE && (pendingWrite = pendingWrites.poll()) != null) {
+                batch.add(pendingWrite);
+                batchSize += pendingWrite.requests.size();
+            }
+            if (!batch.isEmpty()) {
+                index(batch, batchSize);
+            }
+        }
+
+        private void index(List<PendingWrite> batch, int batchSize) {
+            try {
+                final List<IndexingRequest> requests = batch.stream()
+                        .flatMap(pendingWrite -> pendingWrite.requests.stream())
+                        .collect(Collectors.toList());
+
+                LOG.debug("Bulk-index {} events of {} writes", batchSize, batch.size());
+                messages.bulkIndexRequests(requests, true);
+                batch.forEach(pendingWrite -> pendingWrite.future.complete(null));
+            } catch (Exception e) {
+                batch.forEach(pendingWrite -> pendingWrite.future.completeExceptionally(e));
+            }
+        }
+    }
+
+    private static class PendingWrite {
+        private final List<IndexingRequest> requests;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(List<IndexingRequest> requests) {
+            this.requests = requests;
+        }
+    }
 }
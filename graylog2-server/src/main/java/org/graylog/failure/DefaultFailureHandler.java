@@ -16,11 +16,21 @@
  */
 package org.graylog.failure;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
+import org.graylog2.indexer.IndexFailure;
 import org.graylog2.indexer.IndexFailureImpl;
 import org.graylog2.indexer.IndexFailureService;
 
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 /**
  * A fallback failure handler, which persists submitted failures in Mongo via {@link IndexFailureService}.
@@ -29,22 +39,45 @@ import javax.inject.Inject;
 public class DefaultFailureHandler implements FailureHandler {
 
     private final IndexFailureService indexFailureService;
+    private final Meter deduplicatedFailures;
 
     @Inject
-    public DefaultFailureHandler(IndexFailureService indexFailureService) {
+    public DefaultFailureHandler(IndexFailureService indexFailureService,
+                                 MetricRegistry metricRegistry) {
         this.indexFailureService = indexFailureService;
+        this.deduplicatedFailures = metricRegistry.meter(name(DefaultFailureHandler.class, "deduplicatedFailures"));
     }
 
+    /**
+     * Stores the failures of the batch with a single bulk write. Failures with identical target index,
+     * type and details are stored only once, along with the number of their occurrences in the batch.
+     */
     @Override
     public void handle(FailureBatch failureBatch) {
+        final Map<List<String>, DuplicateFailures> uniqueFailures = new LinkedHashMap<>();
         failureBatch.getFailures().forEach(failure ->
-                indexFailureService.saveWithoutValidation(new IndexFailureImpl(ImmutableMap.<String, Object>builder()
-                        .put("letter_id", failure.failedMessage().getId())
-                        .put("index", failure.targetIndex())
-                        .put("type", failure.failureType().toString())
-                        .put("message", failure.failureDetails())
-                        .put("timestamp", failure.failedMessage().getTimestamp())
-                        .build())));
+                uniqueFailures.computeIfAbsent(
+                        Arrays.asList(failure.targetIndex(), failure.failureType().toString(), failure.failureDetails()),
+                        key -> new DuplicateFailures(failure)).count++);
+
+        final List<IndexFailure> indexFailures = uniqueFailures.values().stream()
+                .map(DefaultFailureHandler::toIndexFailure)
+                .collect(Collectors.toList());
+
+        indexFailureService.saveAll(indexFailures);
+        deduplicatedFailures.mark(failureBatch.size() - indexFailures.size());
+    }
+
+    private static IndexFailure toIndexFailure(DuplicateFailures duplicates) {
+        final Failure failure = duplicates.first;
+        return new IndexFailureImpl(ImmutableMap.<String, Object>builder()
+                .put("letter_id", failure.failedMessage().getId())
+                .put("index", failure.targetIndex())
+                .put("type", failure.failureType().toString())
+                .put("message", failure.failureDetails())
+                .put("timestamp", failure.failedMessage().getTimestamp())
+                .put("count", duplicates.count)
+                .build());
     }
 
     @Override
@@ -56,4 +89,13 @@ public class DefaultFailureHandler implements FailureHandler {
     public boolean isEnabled() {
         return true;
     }
+
+    private static class DuplicateFailures {
+        private final Failure first;
+        private int count = 0;
+
+        private DuplicateFailures(Failure first) {
+            this.first = first;
+        }
+    }
 }
@@ -19,7 +19,12 @@ package org.graylog.failure;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * A structure bearing a batch of failures. It guarantees all failures
@@ -69,6 +74,27 @@ public class FailureBatch {
         return processingFailureBatch(ImmutableList.of(processingFailure));
     }
 
+    /**
+     * Regroups the failures of the given batches into batches of failures with the same type and cause.
+     * The order of the failures is retained within each group.
+     *
+     * @param batches the batches to regroup
+     * @return one batch per failure type and cause
+     */
+    static List<FailureBatch> groupByCause(Collection<FailureBatch> batches) {
+        final Map<GroupKey, List<Failure>> groups = new LinkedHashMap<>();
+        for (FailureBatch batch : batches) {
+            for (Failure failure : batch.getFailures()) {
+                groups.computeIfAbsent(new GroupKey(batch.getFailureClass(), failure.failureCause()), key -> new ArrayList<>())
+                        .add(failure);
+            }
+        }
+
+        return groups.entrySet().stream()
+                .map(group -> new FailureBatch(group.getValue(), group.getKey().failureClass))
+                .collect(Collectors.toList());
+    }
+
     /**
      * @return a list of failures within the batch. The returned collection is immutable.
      */
@@ -116,4 +142,27 @@ public class FailureBatch {
     public int hashCode() {
         return Objects.hashCode(failures, failureClass);
     }
+
+    private static class GroupKey {
+        private final Class<? extends Failure> failureClass;
+        private final FailureCause failureCause;
+
+        private GroupKey(Class<? extends Failure> failureClass, FailureCause failureCause) {
+            this.failureClass = failureClass;
+            this.failureCause = failureCause;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final GroupKey that = (GroupKey) o;
+            return Objects.equal(failureClass, that.failureClass) && Objects.equal(failureCause, that.failureCause);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(failureClass, failureCause);
+        }
+    }
 }
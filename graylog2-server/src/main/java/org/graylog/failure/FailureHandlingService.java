@@ -16,6 +16,9 @@
  */
 package org.graylog.failure;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import org.graylog2.Configuration;
@@ -27,12 +30,15 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 /**
  * A service consuming and processing failure batches submitted via {@link FailureSubmissionQueue}.
  * The processing is done in a dedicated thread, the lifecycle of this service is managed
@@ -53,6 +59,9 @@ public class FailureHandlingService extends AbstractExecutionThreadService {
     private final FailureSubmissionQueue failureSubmissionQueue;
     private final Configuration configuration;
     private final MessageQueueAcknowledger acknowledger;
+    private final Meter handledFailures;
+    private final Meter droppedFailures;
+    private final Timer handleTime;
     private Thread executionThread;
 
     @Inject
@@ -61,12 +70,17 @@ public class FailureHandlingService extends AbstractExecutionThreadService {
             Set<FailureHandler> failureHandlers,
             FailureSubmissionQueue failureSubmissionQueue,
             Configuration configuration,
-            MessageQueueAcknowledger acknowledger) {
+            MessageQueueAcknowledger acknowledger,
+            MetricRegistry metricRegistry) {
         this.fallbackFailureHandlerAsList = Lists.newArrayList(fallbackFailureHandler);
         this.failureHandlers = failureHandlers;
         this.failureSubmissionQueue = failureSubmissionQueue;
         this.configuration = configuration;
         this.acknowledger = acknowledger;
+
+        this.handledFailures = metricRegistry.meter(name(FailureHandlingService.class, "handledFailures"));
+        this.droppedFailures = metricRegistry.meter(name(FailureHandlingService.class, "droppedFailures"));
+        this.handleTime = metricRegistry.timer(name(FailureHandlingService.class, "handleTime"));
     }
 
     @Override
@@ -87,8 +101,7 @@ public class FailureHandlingService extends AbstractExecutionThreadService {
         FailureBatch remainingFailureBatch = failureSubmissionQueue.consumeBlockingWithTimeout(shutdownAwaitInsMs);
 
         while (remainingFailureBatch != null) {
-            handle(remainingFailureBatch);
-            remainingBatchCount++;
+            remainingBatchCount += handleWithAvailable(remainingFailureBatch);
             remainingFailureBatch = failureSubmissionQueue.consumeBlockingWithTimeout(shutdownAwaitInsMs);
         }
 
@@ -115,7 +128,7 @@ public class FailureHandlingService extends AbstractExecutionThreadService {
 
         while (isRunning()) {
             try {
-                handle(failureSubmissionQueue.consumeBlocking());
+                handleWithAvailable(failureSubmissionQueue.consumeBlocking());
             } catch (InterruptedException ignored) {
                 logger.info("The service's thread has been interrupted. The queue currently contains {} failure batches.",
                         failureSubmissionQueue.queueSize());
@@ -127,15 +140,45 @@ public class FailureHandlingService extends AbstractExecutionThreadService {
         logger.debug("The service has been interrupted.");
     }
 
+    /**
+     * Handles the given batch together with the batches already waiting in the queue, up to the configured
+     * batch size. The failures are regrouped by type and cause, so that failure handlers can write them
+     * with a few large requests instead of one request per submitted batch.
+     *
+     * @return the number of consumed batches
+     */
+    private int handleWithAvailable(FailureBatch failureBatch) {
+        final List<FailureBatch> available = failureSubmissionQueue.consumeAvailable(
+                configuration.getFailureHandlingBatchSize() - failureBatch.size());
+
+        if (available.isEmpty()) {
+            handle(failureBatch);
+        } else {
+            final List<FailureBatch> batches = new ArrayList<>(available.size() + 1);
+            batches.add(failureBatch);
+            batches.addAll(available);
+            FailureBatch.groupByCause(batches).forEach(this::handle);
+        }
+
+        return available.size() + 1;
+    }
+
     private void handle(FailureBatch failureBatch) {
-        suitableHandlers(failureBatch)
-                .forEach(handler -> {
-                    try {
-                        handler.handle(failureBatch);
-                    } catch (Exception e) {
-                        logger.error("Error occurred while handling failures by {}", handler.getClass().getName());
-                    }
-                });
+        boolean handled = true;
+        try (final Timer.Context ignored = handleTime.time()) {
+            for (FailureHandler handler : suitableHandlers(failureBatch)) {
+                try {
+                    handler.handle(failureBatch);
+                } catch (Exception e) {
+                    logger.error("Error occurred while handling failures by {}", handler.getClass().getName());
+                    droppedFailures.mark(failureBatch.size());
+                    handled = false;
+                }
+            }
+        }
+        if (handled) {
+            handledFailures.mark(failureBatch.size());
+        }
 
         final List<Message> requiresAcknowledgement = failureBatch.getFailures().stream()
                 .filter(Failure::requiresAcknowledgement)
@@ -19,16 +19,23 @@ package org.graylog.failure;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import org.graylog2.Configuration;
+import org.graylog2.indexer.messages.Indexable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -41,40 +48,64 @@ import static com.codahale.metrics.MetricRegistry.name;
  * 2. To decouple failure producers from failure consumers.
  *
  * The capacity of the underlying queue is controlled by {@link Configuration#getFailureHandlingQueueCapacity()}}
+ * and {@link Configuration#getFailureHandlingQueueMaxSize()}.
  */
 @Singleton
 class FailureSubmissionQueue {
+    // Rough estimate of the memory used by a failure object without its strings and the failed message
+    private static final long FAILURE_OVERHEAD_BYTES = 128L;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final BlockingQueue<FailureBatch> queue;
+    private final BlockingQueue<QueuedFailureBatch> queue;
     private final Configuration configuration;
+    private final long maxQueueSizeBytes;
+    private final AtomicLong queueSizeBytes = new AtomicLong(0L);
+    private final ReentrantLock queueSizeLock = new ReentrantLock();
+    private final Condition queueSizeDecreased = queueSizeLock.newCondition();
     private final Meter submittedFailureBatches;
     private final Meter submittedFailures;
     private final Meter consumedFailureBatches;
     private final Meter consumedFailures;
+    private final Meter blockedSubmissions;
 
     @Inject
     FailureSubmissionQueue(Configuration configuration,
                                   MetricRegistry metricRegistry) {
         this.queue = new LinkedBlockingQueue<>(configuration.getFailureHandlingQueueCapacity());
         this.configuration = configuration;
+        this.maxQueueSizeBytes = configuration.getFailureHandlingQueueMaxSize().toBytes();
 
         this.submittedFailureBatches = metricRegistry.meter(name(FailureSubmissionQueue.class, "submittedFailureBatches"));
         this.submittedFailures = metricRegistry.meter(name(FailureSubmissionQueue.class, "submittedFailures"));
         this.consumedFailureBatches = metricRegistry.meter(name(FailureSubmissionQueue.class, "consumedFailureBatches"));
         this.consumedFailures = metricRegistry.meter(name(FailureSubmissionQueue.class, "consumedFailures"));
+        this.blockedSubmissions = metricRegistry.meter(name(FailureSubmissionQueue.class, "blockedSubmissions"));
 
         metricRegistry.register(MetricRegistry.name(FailureSubmissionQueue.class, "queueSize"),
                 (Gauge<Integer>) queue::size);
+        metricRegistry.register(MetricRegistry.name(FailureSubmissionQueue.class, "queueSizeBytes"),
+                (Gauge<Long>) queueSizeBytes::get);
     }
 
     /**
      * Submits a failure batch for handling. If the underlying queue is full,
+     * either by the number of batches or by their estimated size in bytes,
      * the call will block until the queue is ready to accept new batches.
+     * <p>
+     * Blocking the submitting thread keeps the failed messages unacknowledged
+     * in the message journal instead of piling them up on the heap.
      */
     void submitBlocking(FailureBatch batch) throws InterruptedException {
-        queue.put(batch);
+        final long batchSizeBytes = estimateSize(batch);
+
+        reserve(batchSizeBytes);
+        try {
+            queue.put(new QueuedFailureBatch(batch, batchSizeBytes));
+        } catch (InterruptedException e) {
+            release(batchSizeBytes);
+            throw e;
+        }
 
         if (queueSize() == configuration.getFailureHandlingQueueCapacity()) {
             logger.debug("The queue is full! Current capacity: {}", configuration.getFailureHandlingQueueCapacity());
@@ -84,6 +115,38 @@ class FailureSubmissionQueue {
         submittedFailures.mark(batch.size());
     }
 
+    private void reserve(long bytes) throws InterruptedException {
+        queueSizeLock.lockInterruptibly();
+        try {
+            if (exceedsMaxQueueSize(bytes)) {
+                logger.debug("The queue is full! Current size: {} bytes, maximum size: {} bytes", queueSizeBytes.get(), maxQueueSizeBytes);
+                blockedSubmissions.mark();
+                do {
+                    queueSizeDecreased.await();
+                } while (exceedsMaxQueueSize(bytes));
+            }
+            queueSizeBytes.addAndGet(bytes);
+        } finally {
+            queueSizeLock.unlock();
+        }
+    }
+
+    private boolean exceedsMaxQueueSize(long bytes) {
+        // A batch larger than the maximum size is still accepted by an empty queue, it would block forever otherwise
+        final long currentSize = queueSizeBytes.get();
+        return currentSize > 0 && currentSize + bytes > maxQueueSizeBytes;
+    }
+
+    private void release(long bytes) {
+        queueSizeLock.lock();
+        try {
+            queueSizeBytes.addAndGet(-bytes);
+            queueSizeDecreased.signalAll();
+        } finally {
+            queueSizeLock.unlock();
+        }
+    }
+
     /**
      * Logs current submission/consumption stats.
      */
@@ -99,10 +162,7 @@ class FailureSubmissionQueue {
      * waits for a batch to become available.
      */
     FailureBatch consumeBlocking() throws InterruptedException {
-        final FailureBatch fb = queue.take();
-        consumedFailureBatches.mark();
-        consumedFailures.mark(fb.size());
-        return fb;
+        return consumed(queue.take());
     }
 
 
@@ -113,12 +173,34 @@ class FailureSubmissionQueue {
      */
     @Nullable
     FailureBatch consumeBlockingWithTimeout(long timeoutInMs) throws InterruptedException {
-        final FailureBatch fb = queue.poll(timeoutInMs, TimeUnit.MILLISECONDS);
-        if (fb != null) {
-            consumedFailureBatches.mark();
-            consumedFailures.mark(fb.size());
+        final QueuedFailureBatch queued = queue.poll(timeoutInMs, TimeUnit.MILLISECONDS);
+        return queued == null ? null : consumed(queued);
+    }
+
+    /**
+     * Consumes batches from the queue without waiting, until either the queue is empty
+     * or the consumed batches contain at least the given number of failures.
+     *
+     * @param maxFailures the number of failures after which no further batches are consumed
+     * @return the consumed batches, or an empty list if the queue is empty
+     */
+    List<FailureBatch> consumeAvailable(int maxFailures) {
+        final List<FailureBatch> batches = new ArrayList<>();
+        int failures = 0;
+        QueuedFailureBatch queued;
+        while (failures < maxFailures && (queued = queue.poll()) != null) {
+            final FailureBatch batch = consumed(queued);
+            batches.add(batch);
+            failures += batch.size();
         }
-        return fb;
+        return batches;
+    }
+
+    private FailureBatch consumed(QueuedFailureBatch queued) {
+        release(queued.sizeBytes);
+        consumedFailureBatches.mark();
+        consumedFailures.mark(queued.batch.size());
+        return queued.batch;
     }
 
     /**
@@ -127,4 +209,38 @@ class FailureSubmissionQueue {
     int queueSize() {
         return queue.size();
     }
+
+    /**
+     * @return the estimated size in bytes of the failure batches in the queue.
+     */
+    long queueSizeBytes() {
+        return queueSizeBytes.get();
+    }
+
+    @VisibleForTesting
+    static long estimateSize(FailureBatch batch) {
+        long size = 0L;
+        for (Failure failure : batch.getFailures()) {
+            size += FAILURE_OVERHEAD_BYTES + 2L * (length(failure.message()) + length(failure.failureDetails()));
+            final Indexable failedMessage = failure.failedMessage();
+            if (failedMessage != null) {
+                size += failedMessage.getSize();
+            }
+        }
+        return size;
+    }
+
+    private static int length(@Nullable String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static class QueuedFailureBatch {
+        private final FailureBatch batch;
+        private final long sizeBytes;
+
+        private QueuedFailureBatch(FailureBatch batch, long sizeBytes) {
+            this.batch = batch;
+            this.sizeBytes = sizeBytes;
+        }
+    }
 }
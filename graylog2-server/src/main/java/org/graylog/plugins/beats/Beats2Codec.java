@@ -16,9 +16,9 @@
  */
 package org.graylog.plugins.beats;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.assistedinject.Assisted;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.Tools;
@@ -38,8 +38,9 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -67,97 +68,175 @@ public class Beats2Codec extends AbstractCodec {
     @Override
     public Message decode(@Nonnull RawMessage rawMessage) {
         final byte[] payload = rawMessage.getPayload();
-        final JsonNode event;
-        try {
-            event = objectMapper.readTree(payload);
-            if (event == null) {
+        try (final JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            final JsonToken token = parser.nextToken();
+            if (token == null) {
                 throw new IOException("null result");
             }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Beats event is not a JSON object");
+            }
+            return parseEvent(parser);
         } catch (IOException e) {
             LOG.error("Couldn't decode raw message {}", rawMessage);
             return null;
         }
-
-        return parseEvent(event);
     }
 
-    private Message parseEvent(JsonNode event) {
-        final String beatsType = event.path("@metadata").path("beat").asText("beat");
+    /**
+     * Maps the event to a message while it is being parsed, without building an intermediate JSON tree.
+     * <p>
+     * The Beats type which is used as prefix for all fields is only known after the {@code @metadata} field has been
+     * read, so the flattened fields are collected without the prefix and added to the message at the end.
+     */
+    private Message parseEvent(JsonParser parser) throws IOException {
+        final List<Map.Entry<String, Object>> fields = new ArrayList<>();
+        final Map<String, String> metadata = new HashMap<>();
+        final Map<String, String> agent = new HashMap<>();
+        final Map<String, String> beat = new HashMap<>();
+        String message = "-";
+        String timestampField = "";
+        String gl2SourceCollector = "";
+        boolean hasAgent = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            Map<String, String> children = null;
+            switch (fieldName) {
+                // Fields that should not be duplicated with a prefix
+                case "message":
+                    message = textValue(parser, token, "-");
+                    parser.skipChildren();
+                    continue;
+                case Message.FIELD_GL2_SOURCE_COLLECTOR:
+                    gl2SourceCollector = textValue(parser, token, "null");
+                    parser.skipChildren();
+                    continue;
+                case "@timestamp":
+                    timestampField = textValue(parser, token, "null");
+                    break;
+                case "@metadata":
+                    children = metadata;
+                    break;
+                case "agent":
+                    hasAgent = true;
+                    children = agent;
+                    break;
+                case "beat":
+                    children = beat;
+                    break;
+                default:
+                    break;
+            }
+            addFlattened(parser, token, fieldName, fields, children);
+        }
+
+        final String beatsType = textValue(metadata, "beat", "beat");
         final String rootPath = noBeatsPrefix ? "" : beatsType;
-        final String message = event.path("message").asText("-");
-        final String timestampField = event.path("@timestamp").asText();
+        final String pathPrefix = rootPath.isEmpty() ? "" : rootPath + MAP_KEY_SEPARATOR;
         final DateTime timestamp = Tools.dateTimeFromString(timestampField);
 
-        JsonNode agentOrBeat = event.path("agent");
         // backwards compatibility for beats < 7.0
-        if (agentOrBeat.isMissingNode()) {
-            agentOrBeat = event.path("beat");
-        }
-        final String hostname = agentOrBeat.path("hostname").asText(BEATS_UNKNOWN);
+        final String hostname = textValue(hasAgent ? agent : beat, "hostname", BEATS_UNKNOWN);
 
         final Message gelfMessage = new Message(message, hostname, timestamp);
         gelfMessage.addField("beats_type", beatsType);
 
         // This field should be stored without a prefix
-        final String gl2SourceCollector = event.path(Message.FIELD_GL2_SOURCE_COLLECTOR).asText();
         if (!gl2SourceCollector.isEmpty()) {
             gelfMessage.addField(Message.FIELD_GL2_SOURCE_COLLECTOR, gl2SourceCollector);
         }
 
-        // Remove fields that should not be duplicated with a prefix
-        if (event.isObject()) {
-            ObjectNode onode = (ObjectNode) event;
-            onode.remove("message");
-            onode.remove(Message.FIELD_GL2_SOURCE_COLLECTOR);
+        for (Map.Entry<String, Object> field : fields) {
+            final String key = pathPrefix.isEmpty() ? field.getKey() : pathPrefix + field.getKey();
+            gelfMessage.addField(key, field.getValue());
         }
-        addFlattened(gelfMessage, rootPath, event);
         return gelfMessage;
     }
 
-    private void addFlattened(Message message, String currentPath, JsonNode jsonNode) {
-        if (jsonNode.isObject()) {
-            final Iterator<Map.Entry<String, JsonNode>> it = jsonNode.fields();
+    /**
+     * Flattens the current JSON value into the given list of fields.
+     *
+     * @param children if not {@code null}, collects the text values of the direct children of an object
+     */
+    private void addFlattened(JsonParser parser,
+                              JsonToken token,
+                              String currentPath,
+                              List<Map.Entry<String, Object>> fields,
+                              @Nullable Map<String, String> children) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
             final String pathPrefix = currentPath.isEmpty() ? "" : currentPath + MAP_KEY_SEPARATOR;
-            while (it.hasNext()) {
-                final Map.Entry<String, JsonNode> entry = it.next();
-                addFlattened(message, pathPrefix + entry.getKey(), entry.getValue());
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if (children != null) {
+                    children.put(fieldName, textValue(parser, valueToken, null));
+                }
+                addFlattened(parser, valueToken, pathPrefix + fieldName, fields, null);
             }
-        } else if (jsonNode.isArray()) {
-            final List<Object> values = new ArrayList<>(jsonNode.size());
-            for (int i = 0; i < jsonNode.size(); i++) {
-                final JsonNode currentNode = jsonNode.get(i);
-                if (currentNode.isObject()) {
+        } else if (token == JsonToken.START_ARRAY) {
+            final List<Object> values = new ArrayList<>();
+            int i = 0;
+            for (JsonToken elementToken = parser.nextToken(); elementToken != JsonToken.END_ARRAY; elementToken = parser.nextToken(), i++) {
+                if (elementToken == JsonToken.START_OBJECT) {
                     final String pathPrefix = currentPath.isEmpty() ? "" : currentPath + MAP_KEY_SEPARATOR + i;
-                    addFlattened(message, pathPrefix, currentNode);
-                } else if (currentNode.isValueNode()) {
-                    values.add(valueNode(currentNode));
+                    addFlattened(parser, elementToken, pathPrefix, fields, null);
+                } else if (elementToken == JsonToken.START_ARRAY) {
+                    // Nested arrays are not supported
+                    parser.skipChildren();
+                } else {
+                    values.add(scalarValue(parser, elementToken));
                 }
             }
-            message.addField(currentPath, values);
-        } else if (jsonNode.isValueNode()) {
-            message.addField(currentPath, valueNode(jsonNode));
+            fields.add(new AbstractMap.SimpleImmutableEntry<>(currentPath, values));
+        } else {
+            fields.add(new AbstractMap.SimpleImmutableEntry<>(currentPath, scalarValue(parser, token)));
         }
     }
 
     @Nullable
-    private Object valueNode(JsonNode jsonNode) {
-        if (jsonNode.isInt()) {
-            return jsonNode.asInt();
-        } else if (jsonNode.isLong()) {
-            return jsonNode.asLong();
-        } else if (jsonNode.isIntegralNumber()) {
-            return jsonNode.asLong();
-        } else if (jsonNode.isFloatingPointNumber()) {
-            return jsonNode.asDouble();
-        } else if (jsonNode.isBoolean()) {
-            return jsonNode.asBoolean();
-        } else if (jsonNode.isNull()) {
-            return null;
-        } else {
-            return jsonNode.asText();
+    private Object scalarValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return parser.getIntValue();
+                    case LONG:
+                        return parser.getLongValue();
+                    default:
+                        return parser.getBigIntegerValue().longValue();
+                }
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getBooleanValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getText();
+        }
+    }
+
+    /**
+     * Returns the text of the current value like {@link com.fasterxml.jackson.databind.JsonNode#asText()}, that is
+     * an empty string for objects and arrays.
+     */
+    @Nullable
+    private static String textValue(JsonParser parser, JsonToken token, @Nullable String nullValue) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            return "";
+        } else if (token == JsonToken.VALUE_NULL) {
+            return nullValue;
         }
+        return parser.getText();
     }
 
+    private static String textValue(Map<String, String> children, String fieldName, String defaultValue) {
+        final String value = children.get(fieldName);
+        return value == null ? defaultValue : value;
+    }
 
     @FactoryClass
     public interface Factory extends AbstractCodec.Factory<Beats2Codec> {
@@ -19,34 +19,36 @@ package org.graylog.plugins.beats;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.io.ByteStreams;
 import com.google.common.primitives.Ints;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * FrameDecoder for the Beats/Lumberjack protocol.
+ * <p>
+ * The decoder waits until a complete frame has been received and emits the JSON payload of each event as a slice of
+ * the received (or inflated) buffer, so the payload isn't copied before it is converted into a raw message.
+ * Compressed frames are inflated into pooled buffers by an {@link Inflater} which is reused for the lifetime of the
+ * connection.
  *
  * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md">Lumberjack protocol</a>
  */
-public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.DecodingState> {
+public class BeatsFrameDecoder extends ByteToMessageDecoder {
     private static final Logger LOG = LoggerFactory.getLogger(BeatsFrameDecoder.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private static final byte PROTOCOL_VERSION = '2';
     private static final byte FRAME_ACK = 'A';
@@ -55,88 +57,110 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
     private static final byte FRAME_JSON = 'J';
     private static final byte FRAME_WINDOW_SIZE = 'W';
 
-    enum DecodingState {
-        PROTOCOL_VERSION,
-        FRAME_TYPE,
-        FRAME_COMPRESSED,
-        FRAME_DATA,
-        FRAME_JSON,
-        FRAME_WINDOW_SIZE
-    }
+    private static final int INFLATE_CHUNK_SIZE = 8192;
+
+    private final Inflater inflater = new Inflater();
 
     private long windowSize;
     private long sequenceNum;
 
-    public BeatsFrameDecoder() {
-        super(DecodingState.PROTOCOL_VERSION);
+    @Override
+    protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf buffer, List<Object> list) throws Exception {
+        if (!buffer.isReadable()) {
+            return;
+        }
+        // Fail early instead of waiting for a frame which will never be complete
+        checkVersion(buffer.getByte(buffer.readerIndex()));
+
+        final int frameLength = frameLength(buffer);
+        if (frameLength < 0) {
+            return;
+        }
+
+        final ByteBuf frame = buffer.readSlice(frameLength);
+        processFrame(channelHandlerContext.channel(), frame, list);
     }
 
     @Override
-    protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf buffer, List<Object> list) throws Exception {
-        switch (state()) {
-            case PROTOCOL_VERSION:
-                checkVersion(buffer);
-                checkpoint(DecodingState.FRAME_TYPE);
-                // fall through
-            case FRAME_TYPE:
-                final byte frameType = buffer.readByte();
-                switch (frameType) {
-                    case FRAME_WINDOW_SIZE:
-                        checkpoint(DecodingState.FRAME_WINDOW_SIZE);
-                        break;
-                    case FRAME_DATA:
-                        checkpoint(DecodingState.FRAME_DATA);
-                        break;
-                    case FRAME_COMPRESSED:
-                        checkpoint(DecodingState.FRAME_COMPRESSED);
-                        break;
-                    case FRAME_JSON:
-                        checkpoint(DecodingState.FRAME_JSON);
-                        break;
-                    default:
-                        throw new Exception("Unknown frame type: " + frameType);
-                }
-                return;
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        inflater.end();
+    }
+
+    /**
+     * Returns the length of the frame at the reader index of the given buffer, without modifying the buffer.
+     *
+     * @return the frame length or {@code -1} if the frame hasn't been received completely yet
+     */
+    private static int frameLength(ByteBuf buffer) {
+        final int start = buffer.readerIndex();
+        final int readable = buffer.readableBytes();
+        if (readable < 2) {
+            return -1;
+        }
+
+        final long length;
+        switch (buffer.getByte(start + 1)) {
             case FRAME_WINDOW_SIZE:
-                processWindowSizeFrame(buffer);
-                break;
-            case FRAME_DATA:
-                list.addAll(parseDataFrame(channelHandlerContext.channel(), buffer));
+                length = 6;
                 break;
             case FRAME_COMPRESSED:
-                list.addAll(processCompressedFrame(channelHandlerContext.channel(), buffer));
+                // version, frame type, payload length, payload
+                length = readable < 6 ? Long.MAX_VALUE : 6 + buffer.getUnsignedInt(start + 2);
                 break;
             case FRAME_JSON:
-                list.addAll(parseJsonFrame(channelHandlerContext.channel(), buffer));
+                // version, frame type, sequence number, payload length, payload
+                length = readable < 10 ? Long.MAX_VALUE : 10 + buffer.getUnsignedInt(start + 6);
+                break;
+            case FRAME_DATA:
+                length = dataFrameLength(buffer, start, readable);
                 break;
             default:
-                throw new Exception("Unknown decoding state: " + state());
+                // Unknown frame types are rejected when the frame is processed
+                length = 2;
         }
 
-        checkpoint(DecodingState.PROTOCOL_VERSION);
+        return length <= readable ? (int) length : -1;
+    }
+
+    private static long dataFrameLength(ByteBuf buffer, int start, int readable) {
+        // version, frame type, sequence number, number of key/value pairs
+        if (readable < 10) {
+            return Long.MAX_VALUE;
+        }
+        final long items = 2 * buffer.getUnsignedInt(start + 6);
+        long length = 10;
+        for (long i = 0; i < items; i++) {
+            if (length + 4 > readable) {
+                return Long.MAX_VALUE;
+            }
+            length += 4 + buffer.getUnsignedInt(start + (int) length);
+        }
+        return length;
     }
 
-    private Collection<ByteBuf> processUncompressedBuffer(Channel channel, ByteBuf buffer) throws Exception {
-        checkVersion(buffer);
-        byte frameType = buffer.readByte();
+    private void processFrame(Channel channel, ByteBuf buffer, List<Object> list) throws Exception {
+        checkVersion(buffer.readByte());
+        final byte frameType = buffer.readByte();
 
         switch (frameType) {
             case FRAME_WINDOW_SIZE:
                 processWindowSizeFrame(buffer);
-                return Collections.emptyList();
+                break;
             case FRAME_DATA:
-                return parseDataFrame(channel, buffer);
+                list.add(parseDataFrame(channel, buffer));
+                break;
             case FRAME_COMPRESSED:
-                return processCompressedFrame(channel, buffer);
+                processCompressedFrame(channel, buffer, list);
+                break;
             case FRAME_JSON:
-                return parseJsonFrame(channel, buffer);
+                list.add(parseJsonFrame(channel, buffer));
+                break;
             default:
                 throw new Exception("Unknown frame type: " + frameType);
         }
     }
 
-    private void checkVersion(ByteBuf channelBuffer) {
-        byte version = channelBuffer.readByte();
+    private void checkVersion(byte version) {
         if (version != PROTOCOL_VERSION) {
             throw new IllegalStateException("Unknown beats protocol version: " + version);
         }
@@ -160,39 +184,57 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
     /**
      * <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#json-frame-type">'json' frame type</a>
      */
-    private Collection<ByteBuf> parseJsonFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
+    private ByteBuf parseJsonFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
         sequenceNum = channelBuffer.readUnsignedInt();
         LOG.trace("Received sequence number {}", sequenceNum);
 
         final int jsonLength = Ints.saturatedCast(channelBuffer.readUnsignedInt());
 
-        final ByteBuf buffer = channelBuffer.readBytes(jsonLength);
+        final ByteBuf buffer = channelBuffer.readRetainedSlice(jsonLength);
         sendACK(channel);
 
-        return Collections.singleton(buffer);
+        return buffer;
     }
 
     /**
      * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#compressed-frame-type">'compressed' frame type</a>
      */
-    private Collection<ByteBuf> processCompressedFrame(Channel channel, ByteBuf channelBuffer) throws Exception {
-        final long payloadLength = channelBuffer.readUnsignedInt();
-        final byte[] data = new byte[(int) payloadLength];
-        channelBuffer.readBytes(data);
-        try (final ByteArrayInputStream dataStream = new ByteArrayInputStream(data);
-             final InputStream in = new InflaterInputStream(dataStream)) {
-            final ByteBuf buffer = Unpooled.wrappedBuffer(ByteStreams.toByteArray(in));
-            return processCompressedDataFrames(channel, buffer);
+    private void processCompressedFrame(Channel channel, ByteBuf channelBuffer, List<Object> list) throws Exception {
+        final int payloadLength = Ints.saturatedCast(channelBuffer.readUnsignedInt());
+        final ByteBuf buffer = inflate(channel.alloc(), channelBuffer.readSlice(payloadLength));
+        try {
+            // The decoded events are slices of the inflated buffer and retain it
+            while (buffer.isReadable()) {
+                processFrame(channel, buffer, list);
+            }
+        } finally {
+            buffer.release();
         }
     }
 
-    private Collection<ByteBuf> processCompressedDataFrames(Channel channel, ByteBuf channelBuffer) throws Exception {
-        final List<ByteBuf> events = new ArrayList<>();
-        while (channelBuffer.isReadable()) {
-            final Collection<ByteBuf> buffers = processUncompressedBuffer(channel, channelBuffer);
-            events.addAll(buffers);
+    private ByteBuf inflate(ByteBufAllocator allocator, ByteBuf compressed) throws DataFormatException {
+        final int compressedLength = compressed.readableBytes();
+        // The inflater only accepts byte arrays, so direct buffers are copied into a pooled heap buffer first
+        final ByteBuf input = compressed.hasArray() ? compressed.retain() : allocator.heapBuffer(compressedLength).writeBytes(compressed);
+        final ByteBuf output = allocator.heapBuffer(Math.max(INFLATE_CHUNK_SIZE, compressedLength * 4));
+        try {
+            inflater.reset();
+            inflater.setInput(input.array(), input.arrayOffset() + input.readerIndex(), compressedLength);
+            while (!inflater.finished()) {
+                output.ensureWritable(INFLATE_CHUNK_SIZE);
+                final int inflated = inflater.inflate(output.array(), output.arrayOffset() + output.writerIndex(), output.writableBytes());
+                output.writerIndex(output.writerIndex() + inflated);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Unexpected end of compressed frame");
+                }
+            }
+            return output;
+        } catch (DataFormatException | RuntimeException e) {
+            output.release();
+            throw e;
+        } finally {
+            input.release();
         }
-        return events;
     }
 
     /**
@@ -206,14 +248,14 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
     /**
      * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#data-frame-type">'data' frame type</a>
      */
-    private Collection<ByteBuf> parseDataFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
+    private ByteBuf parseDataFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
         sequenceNum = channelBuffer.readUnsignedInt();
         LOG.trace("Received sequence number {}", sequenceNum);
 
         final int pairs = Ints.saturatedCast(channelBuffer.readUnsignedInt());
-        final JsonFactory jsonFactory = new JsonFactory();
-        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (final JsonGenerator jg = jsonFactory.createGenerator(outputStream)) {
+        final ByteBuf buffer = channel.alloc().buffer();
+        final OutputStream outputStream = new ByteBufOutputStream(buffer);
+        try (final JsonGenerator jg = JSON_FACTORY.createGenerator(outputStream)) {
             jg.writeStartObject();
             for (int i = 0; i < pairs; i++) {
                 final String key = parseDataItem(channelBuffer);
@@ -221,12 +263,14 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
                 jg.writeStringField(key, value);
             }
             jg.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
         }
 
-        final ByteBuf buffer = Unpooled.wrappedBuffer(outputStream.toByteArray());
         sendACK(channel);
 
-        return Collections.singleton(buffer);
+        return buffer;
     }
 
     private String parseDataItem(ByteBuf buf) {
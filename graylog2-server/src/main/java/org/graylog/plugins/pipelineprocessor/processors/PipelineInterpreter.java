@@ -78,17 +78,20 @@ public class PipelineInterpreter implements MessageProcessor {
     private final Timer executionTime;
     private final MetricRegistry metricRegistry;
     private final ConfigurationStateUpdater stateUpdater;
+    private final int ruleTimerSampleRate;
 
     @Inject
     public PipelineInterpreter(MessageQueueAcknowledger messageQueueAcknowledger,
                                MetricRegistry metricRegistry,
-                               ConfigurationStateUpdater stateUpdater) {
+                               ConfigurationStateUpdater stateUpdater,
+                               @Named("pipeline_rule_timer_sample_rate") int ruleTimerSampleRate) {
 
         this.messageQueueAcknowledger = messageQueueAcknowledger;
         this.filteredOutMessages = metricRegistry.meter(name(ProcessBufferProcessor.class, "filteredOutMessages"));
         this.executionTime = metricRegistry.timer(name(PipelineInterpreter.class, "executionTime"));
         this.metricRegistry = metricRegistry;
         this.stateUpdater = stateUpdater;
+        this.ruleTimerSampleRate = ruleTimerSampleRate;
     }
 
     /**
@@ -100,12 +103,17 @@ public class PipelineInterpreter implements MessageProcessor {
         try (Timer.Context ignored = executionTime.time()) {
             final State latestState = stateUpdater.getLatestState();
             if (latestState.enableRuleMetrics()) {
-                return process(messages, new RuleMetricsListener(metricRegistry), latestState);
+                return process(messages, new RuleMetricsListener(metricRegistry, ruleTimerSampleRate), latestState);
             }
             return process(messages, new NoopInterpreterListener(), latestState);
         }
     }
 
+    @Override
+    public boolean handlesMessageFailures() {
+        return true;
+    }
+
     /**
      * Evaluates all pipelines that apply to the given messages, based on the current stream routing
      * of the messages.
@@ -44,6 +44,7 @@ import org.graylog.plugins.sidecar.services.CollectorService;
 import org.graylog.plugins.sidecar.services.ConfigurationService;
 import org.graylog.plugins.sidecar.services.ConfigurationVariableService;
 import org.graylog.plugins.sidecar.services.EtagService;
+import org.graylog.plugins.sidecar.services.SidecarHeartbeatBuffer;
 import org.graylog.plugins.sidecar.services.SidecarService;
 import org.graylog2.migrations.Migration;
 import org.graylog2.plugin.PluginConfigBean;
@@ -92,5 +93,6 @@ public class SidecarModule extends PluginModule {
         binder.addBinding().to(V20180601151500_AddDefaultConfiguration.class);
 
         serviceBinder().addBinding().to(EtagService.class).in(Scopes.SINGLETON);
+        serviceBinder().addBinding().to(SidecarHeartbeatBuffer.class).in(Scopes.SINGLETON);
     }
 }
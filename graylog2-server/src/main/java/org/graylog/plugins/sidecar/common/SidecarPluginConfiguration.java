@@ -35,6 +35,12 @@ public class SidecarPluginConfiguration implements PluginConfigBean {
     @Parameter(value = PREFIX + "cache_max_size", validator = PositiveIntegerValidator.class)
     private int cacheMaxSize = 100;
 
+    @Parameter(value = PREFIX + "render_cache_max_size", validator = PositiveIntegerValidator.class)
+    private int renderCacheMaxSize = 10000;
+
+    @Parameter(value = PREFIX + "heartbeat_flush_interval", validator = PositiveDurationValidator.class)
+    private Duration heartbeatFlushInterval = Duration.seconds(5L);
+
     public Duration getCacheTime() {
         return cacheTime;
     }
@@ -46,4 +52,12 @@ public class SidecarPluginConfiguration implements PluginConfigBean {
     public int getCacheMaxSize() {
         return cacheMaxSize;
     }
+
+    public int getRenderCacheMaxSize() {
+        return renderCacheMaxSize;
+    }
+
+    public Duration getHeartbeatFlushInterval() {
+        return heartbeatFlushInterval;
+    }
 }
@@ -42,6 +42,7 @@ import org.graylog.plugins.sidecar.rest.requests.RegistrationRequest;
 import org.graylog.plugins.sidecar.rest.responses.RegistrationResponse;
 import org.graylog.plugins.sidecar.rest.responses.SidecarListResponse;
 import org.graylog.plugins.sidecar.services.ActionService;
+import org.graylog.plugins.sidecar.services.SidecarHeartbeatBuffer;
 import org.graylog.plugins.sidecar.services.SidecarService;
 import org.graylog.plugins.sidecar.system.SidecarConfiguration;
 import org.graylog2.audit.jersey.AuditEvent;
@@ -71,6 +72,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
@@ -101,13 +103,16 @@ public class SidecarResource extends RestResource implements PluginRestResource
     private final SearchQueryParser searchQueryParser;
     private final SidecarStatusMapper sidecarStatusMapper;
     private final SidecarConfiguration sidecarConfiguration;
+    private final SidecarHeartbeatBuffer heartbeatBuffer;
 
     @Inject
     public SidecarResource(SidecarService sidecarService,
                            ActionService actionService,
                            ClusterConfigService clusterConfigService,
-                           SidecarStatusMapper sidecarStatusMapper) {
+                           SidecarStatusMapper sidecarStatusMapper,
+                           SidecarHeartbeatBuffer heartbeatBuffer) {
         this.sidecarService = sidecarService;
+        this.heartbeatBuffer = heartbeatBuffer;
         this.sidecarConfiguration = clusterConfigService.getOrDefault(SidecarConfiguration.class, SidecarConfiguration.defaultConfiguration());
         this.actionService = actionService;
         this.activeSidecarFilter = new ActiveSidecarFilter(sidecarConfiguration.sidecarInactiveThreshold());
@@ -188,6 +193,7 @@ public class SidecarResource extends RestResource implements PluginRestResource
     @ApiOperation(value = "Create/update a Sidecar registration",
             notes = "This is a stateless method which upserts a Sidecar registration")
     @ApiResponses(value = {
+            @ApiResponse(code = 304, message = "The registration response did not change since the last request."),
             @ApiResponse(code = 400, message = "The supplied request is not valid.")
     })
     @RequiresPermissions(SidecarRestPermissions.SIDECARS_UPDATE)
@@ -196,22 +202,21 @@ public class SidecarResource extends RestResource implements PluginRestResource
                              @PathParam("sidecarId") @NotEmpty String sidecarId,
                              @ApiParam(name = "JSON body", required = true)
                              @Valid @NotNull RegistrationRequest request,
-                             @HeaderParam(value = "X-Graylog-Sidecar-Version") @NotEmpty String sidecarVersion) {
-        final Sidecar newSidecar;
+                             @HeaderParam(value = "X-Graylog-Sidecar-Version") @NotEmpty String sidecarVersion,
+                             @HeaderParam(value = "If-None-Match") String ifNoneMatch) {
         final Sidecar oldSidecar = sidecarService.findByNodeId(sidecarId);
         List<ConfigurationAssignment> assignments = null;
         if (oldSidecar != null) {
             assignments = oldSidecar.assignments();
-            newSidecar = oldSidecar.toBuilder()
+            heartbeatBuffer.heartbeat(oldSidecar.toBuilder()
                     .nodeName(request.nodeName())
                     .nodeDetails(request.nodeDetails())
                     .sidecarVersion(sidecarVersion)
                     .lastSeen(DateTime.now(DateTimeZone.UTC))
-                    .build();
+                    .build());
         } else {
-            newSidecar = sidecarService.fromRequest(sidecarId, request, sidecarVersion);
+            heartbeatBuffer.save(sidecarService.fromRequest(sidecarId, request, sidecarVersion));
         }
-        sidecarService.save(newSidecar);
 
         final CollectorActions collectorActions = actionService.findActionBySidecar(sidecarId, true);
         List<CollectorAction> collectorAction = null;
@@ -225,7 +230,18 @@ public class SidecarResource extends RestResource implements PluginRestResource
                 this.sidecarConfiguration.sidecarConfigurationOverride(),
                 collectorAction,
                 assignments);
-        return Response.accepted(sidecarRegistrationResponse).build();
+
+        // Actions are only delivered once, so responses containing them must always be sent
+        if (collectorAction != null) {
+            heartbeatBuffer.invalidateRegistration(sidecarId);
+            return Response.accepted(sidecarRegistrationResponse).build();
+        }
+
+        final EntityTag etag = heartbeatBuffer.registrationEtag(sidecarId, sidecarRegistrationResponse);
+        if (ifNoneMatch != null && etag.getValue().equals(ifNoneMatch.replaceAll("\"", ""))) {
+            return Response.notModified(etag).build();
+        }
+        return Response.accepted(sidecarRegistrationResponse).tag(etag).build();
     }
 
     @PUT
@@ -247,8 +263,8 @@ public class SidecarResource extends RestResource implements PluginRestResource
                     .flatMap(a -> a.assignments().stream())
                     .collect(Collectors.toList());
             try {
-                Sidecar sidecar = sidecarService.assignConfiguration(nodeId, nodeRelations);
-                sidecarService.save(sidecar);
+                sidecarService.assignConfiguration(nodeId, nodeRelations);
+                heartbeatBuffer.invalidateRegistration(nodeId);
             } catch (org.graylog2.database.NotFoundException e) {
                 throw new NotFoundException(e.getMessage());
             }
@@ -16,6 +16,14 @@
  */
 package org.graylog.plugins.sidecar.services;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.mongodb.BasicDBObject;
 import freemarker.cache.MultiTemplateLoader;
 import freemarker.cache.StringTemplateLoader;
@@ -23,6 +31,7 @@ import freemarker.cache.TemplateLoader;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
 import org.graylog.plugins.sidecar.rest.models.Configuration;
 import org.graylog.plugins.sidecar.rest.models.ConfigurationVariable;
 import org.graylog.plugins.sidecar.rest.models.Sidecar;
@@ -33,25 +42,33 @@ import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.PaginatedDbService;
 import org.graylog2.database.PaginatedList;
+import org.graylog2.metrics.CacheStatsSet;
 import org.graylog2.search.SearchQuery;
+import org.graylog2.shared.metrics.MetricUtils;
 import org.mongojack.DBQuery;
 import org.mongojack.DBSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static org.apache.commons.lang.CharEncoding.UTF_8;
 
 @Singleton
@@ -64,11 +81,30 @@ public class ConfigurationService extends PaginatedDbService<Configuration> {
 
     private static final String COLLECTION_NAME = "sidecar_configurations";
 
+    // Rendered templates, the key contains everything the result depends on
+    private final Cache<RenderKey, String> renderCache;
+    // Compiled templates by configuration ID and template hash
+    private final Cache<TemplateKey, Template> templateCache;
+    private final AtomicLong variablesRevision = new AtomicLong();
+    private volatile VariablesSnapshot variables;
+
     @Inject
     public ConfigurationService(MongoConnection mongoConnection,
                                 MongoJackObjectMapperProvider mapper,
-                                ConfigurationVariableService configurationVariableService) {
+                                ConfigurationVariableService configurationVariableService,
+                                SidecarPluginConfiguration pluginConfiguration,
+                                MetricRegistry metricRegistry) {
         super(mongoConnection, mapper, Configuration.class, COLLECTION_NAME);
+        final Duration cacheTime = pluginConfiguration.getCacheTime();
+        this.renderCache = CacheBuilder.newBuilder()
+                .recordStats()
+                .expireAfterAccess(cacheTime.getQuantity(), cacheTime.getUnit())
+                .maximumSize(pluginConfiguration.getRenderCacheMaxSize())
+                .build();
+        this.templateCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(cacheTime.getQuantity(), cacheTime.getUnit())
+                .build();
+        MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(ConfigurationService.class, "render-cache"), renderCache));
         MongoDbTemplateLoader mongoDbTemplateLoader = new MongoDbTemplateLoader(db);
         MultiTemplateLoader multiTemplateLoader = new MultiTemplateLoader(new TemplateLoader[] {
                 mongoDbTemplateLoader,
@@ -155,22 +191,52 @@ public class ConfigurationService extends PaginatedDbService<Configuration> {
     }
 
     public Configuration renderConfigurationForCollector(Sidecar sidecar, Configuration configuration) throws RenderTemplateException {
-        Map<String, Object> context = new HashMap<>();
+        final VariablesSnapshot variables = variables();
+        final HashCode templateHash = Hashing.murmur3_128().hashString(configuration.template(), StandardCharsets.UTF_8);
+        final RenderKey key = RenderKey.create(
+                configuration.id(),
+                templateHash,
+                variables.revision(),
+                sidecar.nodeId(),
+                sidecar.nodeName(),
+                sidecar.sidecarVersion(),
+                sidecar.nodeDetails().operatingSystem());
 
-        context.put("nodeId", sidecar.nodeId());
-        context.put("nodeName", sidecar.nodeName());
-        context.put("sidecarVersion", sidecar.sidecarVersion());
-        context.put("operatingSystem", sidecar.nodeDetails().operatingSystem());
+        final String renderedTemplate;
+        try {
+            renderedTemplate = renderCache.get(key, () -> {
+                final Template template;
+                try {
+                    template = templateCache.get(TemplateKey.create(configuration.id(), templateHash), () -> compileTemplate(configuration));
+                } catch (ExecutionException | UncheckedExecutionException e) {
+                    throw unwrapRenderException(e);
+                }
+                return renderTemplate(template, sidecarContext(sidecar), variables.values());
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw unwrapRenderException(e);
+        }
 
         return Configuration.create(
                 configuration.id(),
                 configuration.collectorId(),
                 configuration.name(),
                 configuration.color(),
-                renderTemplate(configuration.id(), context)
+                renderedTemplate
         );
     }
 
+    /**
+     * Drops all rendered configurations and the cached configuration variables. Has to be called whenever a
+     * configuration or configuration variable changes, see {@link EtagService}.
+     */
+    public void invalidateRenderCache() {
+        variablesRevision.incrementAndGet();
+        variables = null;
+        renderCache.invalidateAll();
+        templateCache.invalidateAll();
+    }
+
     public String renderPreview(String template) throws RenderTemplateException {
         Map<String, Object> context = new HashMap<>();
         context.put("nodeId", "<node id>");
@@ -191,19 +257,58 @@ public class ConfigurationService extends PaginatedDbService<Configuration> {
         return result;
     }
 
-    private String renderTemplate(String configurationId, Map<String, Object> sidecarContext) throws RenderTemplateException {
-        Writer writer = new StringWriter();
-        String template;
+    private RenderTemplateException unwrapRenderException(Exception e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RenderTemplateException) {
+            return (RenderTemplateException) cause;
+        }
+        return new RenderTemplateException(cause.getMessage(), cause);
+    }
 
+    private Map<String, Object> sidecarContext(Sidecar sidecar) {
         final Map<String, Object> context = new HashMap<>();
-        context.put("sidecar", sidecarContext);
+        context.put("nodeId", sidecar.nodeId());
+        context.put("nodeName", sidecar.nodeName());
+        context.put("sidecarVersion", sidecar.sidecarVersion());
+        context.put("operatingSystem", sidecar.nodeDetails().operatingSystem());
+        return context;
+    }
+
+    private VariablesSnapshot variables() {
+        final VariablesSnapshot snapshot = variables;
+        final long revision = variablesRevision.get();
+        if (snapshot != null && snapshot.revision() == revision) {
+            return snapshot;
+        }
+        // A snapshot loaded during an invalidation keeps the old revision and is ignored by the next call
+        final VariablesSnapshot loaded = new VariablesSnapshot(revision, userContext());
+        variables = loaded;
+        return loaded;
+    }
+
+    private Map<String, Object> userContext() {
+        return configurationVariableService.all().stream()
+                .collect(Collectors.toMap(ConfigurationVariable::name, ConfigurationVariable::content));
+    }
 
-        final Map<String, Object> userContext =
-                configurationVariableService.all().stream().collect(Collectors.toMap(ConfigurationVariable::name, ConfigurationVariable::content));
+    private Template compileTemplate(Configuration configuration) throws RenderTemplateException {
+        try {
+            return new Template(configuration.id(), new StringReader(configuration.template()), templateConfiguration);
+        } catch (IOException e) {
+            LOG.error("Failed to render template: ", e);
+            throw new RenderTemplateException(e.getMessage(), e);
+        }
+    }
+
+    private String renderTemplate(Template compiledTemplate,
+                                  Map<String, Object> sidecarContext,
+                                  Map<String, Object> userContext) throws RenderTemplateException {
+        final Writer writer = new StringWriter();
+        final Map<String, Object> context = new HashMap<>();
+        context.put("sidecar", sidecarContext);
         context.put(ConfigurationVariable.VARIABLE_PREFIX, userContext);
 
         try {
-            Template compiledTemplate = templateConfiguration.getTemplate(configurationId);
             compiledTemplate.process(context, writer);
         } catch (TemplateException e) {
             LOG.error("Failed to render template: " + e.getMessageWithoutStackTop());
@@ -213,7 +318,77 @@ public class ConfigurationService extends PaginatedDbService<Configuration> {
             throw new RenderTemplateException(e.getMessage(), e);
         }
 
-        template = writer.toString();
+        final String template = writer.toString();
         return template.endsWith("\n") ? template : template + "\n";
     }
+
+    private String renderTemplate(String templateName, Map<String, Object> sidecarContext) throws RenderTemplateException {
+        final Template compiledTemplate;
+        try {
+            compiledTemplate = templateConfiguration.getTemplate(templateName);
+        } catch (IOException e) {
+            LOG.error("Failed to render template: ", e);
+            throw new RenderTemplateException(e.getMessage(), e);
+        }
+        return renderTemplate(compiledTemplate, sidecarContext, userContext());
+    }
+
+    @AutoValue
+    abstract static class TemplateKey {
+        abstract String configurationId();
+
+        abstract HashCode templateHash();
+
+        static TemplateKey create(String configurationId, HashCode templateHash) {
+            return new AutoValue_ConfigurationService_TemplateKey(configurationId, templateHash);
+        }
+    }
+
+    @AutoValue
+    abstract static class RenderKey {
+        abstract String configurationId();
+
+        abstract HashCode templateHash();
+
+        abstract long variablesRevision();
+
+        abstract String nodeId();
+
+        abstract String nodeName();
+
+        @Nullable
+        abstract String sidecarVersion();
+
+        @Nullable
+        abstract String operatingSystem();
+
+        static RenderKey create(String configurationId,
+                                HashCode templateHash,
+                                long variablesRevision,
+                                String nodeId,
+                                String nodeName,
+                                @Nullable String sidecarVersion,
+                                @Nullable String operatingSystem) {
+            return new AutoValue_ConfigurationService_RenderKey(configurationId, templateHash, variablesRevision,
+                    nodeId, nodeName, sidecarVersion, operatingSystem);
+        }
+    }
+
+    private static class VariablesSnapshot {
+        private final long revision;
+        private final Map<String, Object> values;
+
+        private VariablesSnapshot(long revision, Map<String, Object> values) {
+            this.revision = revision;
+            this.values = values;
+        }
+
+        private long revision() {
+            return revision;
+        }
+
+        private Map<String, Object> values() {
+            return values;
+        }
+    }
 }
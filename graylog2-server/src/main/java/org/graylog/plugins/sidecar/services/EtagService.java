@@ -43,13 +43,16 @@ public class EtagService extends AbstractIdleService {
     private MetricRegistry metricRegistry;
     private EventBus eventBus;
     private ClusterEventBus clusterEventBus;
+    private ConfigurationService configurationService;
 
     @Inject
     public EtagService(SidecarPluginConfiguration pluginConfiguration,
                        MetricRegistry metricRegistry,
                        EventBus eventBus,
-                       ClusterEventBus clusterEventBus) {
+                       ClusterEventBus clusterEventBus,
+                       ConfigurationService configurationService) {
         this.metricRegistry = metricRegistry;
+        this.configurationService = configurationService;
         this.eventBus = eventBus;
         this.clusterEventBus = clusterEventBus;
         Duration cacheTime = pluginConfiguration.getCacheTime();
@@ -65,6 +68,7 @@ public class EtagService extends AbstractIdleService {
         if (event.etag().equals("")) {
             LOG.trace("Invalidating all collector configuration etags");
             cache.invalidateAll();
+            configurationService.invalidateRenderCache();
         } else {
             LOG.trace("Invalidating collector configuration etag {}", event.etag());
             cache.invalidate(event.etag());
@@ -85,6 +89,7 @@ public class EtagService extends AbstractIdleService {
 
     public void invalidateAll() {
         cache.invalidateAll();
+        configurationService.invalidateRenderCache();
         clusterEventBus.post(EtagCacheInvalidation.etag(""));
     }
 
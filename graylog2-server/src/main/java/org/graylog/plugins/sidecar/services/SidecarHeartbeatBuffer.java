@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.sidecar.services;
+
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
+import org.graylog.plugins.sidecar.rest.models.Sidecar;
+import org.graylog.plugins.sidecar.rest.responses.RegistrationResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.core.EntityTag;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the periodic registrations of sidecars.
+ * <p>
+ * Only the latest heartbeat of every sidecar is kept in memory and written to the database in one bulk operation
+ * per flush interval. The registration response last sent to a sidecar is remembered together with its ETag, so
+ * sidecars whose assignments and actions did not change can be answered with "304 Not Modified".
+ */
+@Singleton
+public class SidecarHeartbeatBuffer extends AbstractIdleService {
+    private static final Logger LOG = LoggerFactory.getLogger(SidecarHeartbeatBuffer.class);
+
+    private final SidecarService sidecarService;
+    private final Duration flushInterval;
+    private final ConcurrentMap<String, Sidecar> pendingHeartbeats = new ConcurrentHashMap<>();
+    private final Cache<String, CachedRegistration> registrations;
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public SidecarHeartbeatBuffer(SidecarService sidecarService,
+                                  SidecarPluginConfiguration pluginConfiguration) {
+        this.sidecarService = sidecarService;
+        this.flushInterval = pluginConfiguration.getHeartbeatFlushInterval();
+        final Duration cacheTime = pluginConfiguration.getCacheTime();
+        this.registrations = CacheBuilder.newBuilder()
+                .expireAfterAccess(cacheTime.getQuantity(), cacheTime.getUnit())
+                .build();
+    }
+
+    /**
+     * Records the heartbeat of an already registered sidecar. It is written with the next flush, replacing any
+     * earlier heartbeat of the same sidecar which has not been written yet.
+     *
+     * @throws IllegalArgumentException if the sidecar fails validation
+     */
+    public void heartbeat(Sidecar sidecar) {
+        sidecarService.validate(sidecar);
+        pendingHeartbeats.put(sidecar.nodeId(), sidecar);
+    }
+
+    /**
+     * Saves a new sidecar or a sidecar with changed assignments immediately.
+     */
+    public Sidecar save(Sidecar sidecar) {
+        final Sidecar saved = sidecarService.save(sidecar);
+        registrations.invalidate(sidecar.nodeId());
+        return saved;
+    }
+
+    /**
+     * Returns the ETag of the given registration response. The ETag of the previous response is reused if the
+     * response did not change.
+     */
+    public EntityTag registrationEtag(String nodeId, RegistrationResponse response) {
+        final CachedRegistration cached = registrations.getIfPresent(nodeId);
+        if (cached != null && cached.response().equals(response)) {
+            return cached.etag();
+        }
+        final EntityTag etag = new EntityTag(Hashing.md5()
+                .hashInt(response.hashCode())  // avoid negative values
+                .toString());
+        registrations.put(nodeId, new CachedRegistration(response, etag));
+        return etag;
+    }
+
+    /**
+     * Forgets the last registration response of the given sidecar, e. g. because it has been sent actions.
+     */
+    public void invalidateRegistration(String nodeId) {
+        registrations.invalidate(nodeId);
+    }
+
+    @VisibleForTesting
+    int flush() {
+        final List<Sidecar> heartbeats = new ArrayList<>(pendingHeartbeats.size());
+        for (String nodeId : pendingHeartbeats.keySet()) {
+            final Sidecar heartbeat = pendingHeartbeats.remove(nodeId);
+            if (heartbeat != null) {
+                heartbeats.add(heartbeat);
+            }
+        }
+        if (heartbeats.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            sidecarService.saveHeartbeats(heartbeats);
+            LOG.debug("Saved heartbeats of {} sidecars.", heartbeats.size());
+            return heartbeats.size();
+        } catch (Exception e) {
+            // Retry with the next flush unless a newer heartbeat has been received in the meantime
+            heartbeats.forEach(heartbeat -> pendingHeartbeats.putIfAbsent(heartbeat.nodeId(), heartbeat));
+            LOG.warn("Couldn't save heartbeats of {} sidecars, retrying.", heartbeats.size(), e);
+            return 0;
+        }
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("sidecar-heartbeat-flush")
+                .setDaemon(true)
+                .build());
+        final long period = flushInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(flushInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    private static class CachedRegistration {
+        private final RegistrationResponse response;
+        private final EntityTag etag;
+
+        private CachedRegistration(RegistrationResponse response, EntityTag etag) {
+            this.response = response;
+            this.etag = etag;
+        }
+
+        private RegistrationResponse response() {
+            return response;
+        }
+
+        private EntityTag etag() {
+            return etag;
+        }
+    }
+}
@@ -18,6 +18,8 @@ package org.graylog.plugins.sidecar.services;
 
 import com.google.common.collect.ImmutableSet;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
 import org.graylog.plugins.sidecar.rest.models.Collector;
 import org.graylog.plugins.sidecar.rest.models.CollectorStatus;
 import org.graylog.plugins.sidecar.rest.models.CollectorStatusList;
@@ -42,6 +44,7 @@ import org.mongojack.DBSort;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -50,6 +53,11 @@ import java.util.stream.Stream;
 
 public class SidecarService extends PaginatedDbService<Sidecar> {
     private static final String COLLECTION_NAME = "sidecars";
+    private static final ImmutableSet<String> HEARTBEAT_FIELDS = ImmutableSet.of(
+            Sidecar.FIELD_NODE_NAME,
+            Sidecar.FIELD_NODE_DETAILS,
+            Sidecar.FIELD_SIDECAR_VERSION,
+            Sidecar.FIELD_LAST_SEEN);
     private final CollectorService collectorService;
     private final ConfigurationService configurationService;
 
@@ -76,23 +84,50 @@ public class SidecarService extends PaginatedDbService<Sidecar> {
     @Override
     public Sidecar save(Sidecar sidecar) {
         if (sidecar != null) {
-            final Set<ConstraintViolation<Sidecar>> violations = validator.validate(sidecar);
-            if (violations.isEmpty()) {
-                return db.findAndModify(
-                        DBQuery.is(Sidecar.FIELD_NODE_ID, sidecar.nodeId()),
-                        new BasicDBObject(),
-                        new BasicDBObject(),
-                        false,
-                        sidecar,
-                        true,
-                        true);
-            } else {
-                throw new IllegalArgumentException("Specified object failed validation: " + violations);
-            }
+            validate(sidecar);
+            return db.findAndModify(
+                    DBQuery.is(Sidecar.FIELD_NODE_ID, sidecar.nodeId()),
+                    new BasicDBObject(),
+                    new BasicDBObject(),
+                    false,
+                    sidecar,
+                    true,
+                    true);
         } else
             throw new IllegalArgumentException("Specified object is not of correct implementation type (" + sidecar.getClass() + ")!");
     }
 
+    void validate(Sidecar sidecar) {
+        final Set<ConstraintViolation<Sidecar>> violations = validator.validate(sidecar);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Specified object failed validation: " + violations);
+        }
+    }
+
+    /**
+     * Writes the heartbeat fields (name, details, version and last seen) of the given sidecars in one bulk operation.
+     * Configuration assignments are left untouched, and sidecars which have been deleted in the meantime are not
+     * recreated.
+     *
+     * @return the number of matched sidecars
+     */
+    public int saveHeartbeats(Collection<Sidecar> sidecars) {
+        if (sidecars.isEmpty()) {
+            return 0;
+        }
+        final BulkWriteOperation bulk = db.getDbCollection().initializeUnorderedBulkOperation();
+        for (Sidecar sidecar : sidecars) {
+            final DBObject document = db.convertToDbObject(sidecar);
+            final BasicDBObject heartbeat = new BasicDBObject();
+            for (String field : HEARTBEAT_FIELDS) {
+                heartbeat.put(field, document.get(field));
+            }
+            bulk.find(new BasicDBObject(Sidecar.FIELD_NODE_ID, sidecar.nodeId()))
+                    .updateOne(new BasicDBObject("$set", heartbeat));
+        }
+        return bulk.execute().getMatchedCount();
+    }
+
     public List<Sidecar> all() {
         try (final Stream<Sidecar> collectorStream = streamAll()) {
             return collectorStream.collect(Collectors.toList());
@@ -19,6 +19,7 @@ package org.graylog.plugins.views;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Scopes;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.name.Names;
 import org.graylog.plugins.views.audit.ViewsAuditEventTypes;
 import org.graylog.plugins.views.migrations.V20181220133700_AddViewsAdminRole;
 import org.graylog.plugins.views.migrations.V20190127111728_MigrateWidgetFormatSettings;
@@ -31,6 +32,7 @@ import org.graylog.plugins.views.migrations.V20200204122000_MigrateUntypedViewsT
 import org.graylog.plugins.views.migrations.V20200409083200_RemoveRootQueriesFromMigratedDashboards;
 import org.graylog.plugins.views.migrations.V20200730000000_AddGl2MessageIdFieldAliasForEvents;
 import org.graylog.plugins.views.providers.ExportBackendProvider;
+import org.graylog.plugins.views.providers.ExportSlicesExecutorServiceProvider;
 import org.graylog.plugins.views.providers.QuerySuggestionsProvider;
 import org.graylog.plugins.views.search.SearchRequirements;
 import org.graylog.plugins.views.search.SearchRequiresParameterSupport;
@@ -48,6 +50,7 @@ import org.graylog.plugins.views.search.export.ExportBackend;
 import org.graylog.plugins.views.search.export.LegacyChunkDecorator;
 import org.graylog.plugins.views.search.export.MessagesExporter;
 import org.graylog.plugins.views.search.export.SimpleMessageChunkCsvWriter;
+import org.graylog.plugins.views.search.export.SimpleMessageChunkNdjsonWriter;
 import org.graylog.plugins.views.search.filter.AndFilter;
 import org.graylog.plugins.views.search.filter.OrFilter;
 import org.graylog.plugins.views.search.filter.QueryStringFilter;
@@ -114,6 +117,7 @@ import org.graylog2.plugin.PluginConfigBean;
 import org.graylog2.rest.MoreMediaTypes;
 
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 public class ViewsBindings extends ViewsModule {
     @Override
@@ -182,6 +186,7 @@ public class ViewsBindings extends ViewsModule {
         bind(QueryValidationService.class).to(QueryValidationServiceImpl.class).in(Scopes.SINGLETON);
         bind(ChunkDecorator.class).to(LegacyChunkDecorator.class);
         bind(MessagesExporter.class).to(DecoratingMessagesExporter.class);
+        bind(ExecutorService.class).annotatedWith(Names.named("exportSlicesExecutorService")).toProvider(ExportSlicesExecutorServiceProvider.class).asEagerSingleton();
 
         registerWidgetConfigSubtypes();
 
@@ -218,8 +223,10 @@ public class ViewsBindings extends ViewsModule {
         registerExceptionMappers();
 
         addExportFormat(() -> MoreMediaTypes.TEXT_CSV_TYPE);
+        addExportFormat(() -> MoreMediaTypes.APPLICATION_NDJSON_TYPE);
 
         jerseyAdditionalComponentsBinder().addBinding().toInstance(SimpleMessageChunkCsvWriter.class);
+        jerseyAdditionalComponentsBinder().addBinding().toInstance(SimpleMessageChunkNdjsonWriter.class);
         jerseyAdditionalComponentsBinder().addBinding().toInstance(MessageExportFormatFilter.class);
         jerseyAdditionalComponentsBinder().addBinding().toInstance(SearchUserBinder.class);
 
@@ -44,7 +44,8 @@ public class CommandFactory {
                 .queryString(request.queryString())
                 .streams(request.streams())
                 .fieldsInOrder(request.fieldsInOrder())
-                .chunkSize(request.chunkSize());
+                .chunkSize(request.chunkSize())
+                .slices(request.slices());
 
         if (request.limit().isPresent()) {
             builder.limit(request.limit().getAsInt());
@@ -17,24 +17,33 @@
 package org.graylog.plugins.views.search.export;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 public class DecoratingMessagesExporter implements MessagesExporter {
     private final ExportBackend backend;
     private final ChunkDecorator chunkDecorator;
+    private final ExecutorService slicesExecutor;
 
     @Inject
     public DecoratingMessagesExporter(
             ExportBackend backend,
-            ChunkDecorator chunkDecorator) {
+            ChunkDecorator chunkDecorator,
+            @Named("exportSlicesExecutorService") ExecutorService slicesExecutor) {
         this.backend = backend;
         this.chunkDecorator = chunkDecorator;
+        this.slicesExecutor = slicesExecutor;
     }
 
     public void export(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkForwarder) {
         Consumer<SimpleMessageChunk> decoratedForwarder = chunk -> decorate(chunkForwarder, chunk, command);
 
-        backend.run(command, decoratedForwarder);
+        backendFor(command).run(command, decoratedForwarder);
+    }
+
+    private ExportBackend backendFor(ExportMessagesCommand command) {
+        return command.slices() > 1 ? new TimeSlicedExportBackend(backend, slicesExecutor) : backend;
     }
 
     private void decorate(Consumer<SimpleMessageChunk> chunkForwarder, SimpleMessageChunk chunk, ExportMessagesCommand command) {
@@ -39,6 +39,7 @@ public abstract class ExportMessagesCommand {
     public static final Set<String> DEFAULT_STREAMS = ImmutableSet.of();
     public static final LinkedHashSet<String> DEFAULT_FIELDS = linkedHashSetOf("timestamp", "source", "message");
     public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_SLICES = 1;
     public static final DateTimeZone DEFAULT_TIME_ZONE = DateTimeZone.UTC;
 
     public static AbsoluteRange defaultTimeRange() {
@@ -66,6 +67,12 @@ public abstract class ExportMessagesCommand {
 
     public abstract DateTimeZone timeZone();
 
+    /**
+     * Number of time range slices that are retrieved in parallel. Messages of different slices are interleaved in
+     * the result, so only exports with a single slice are sorted by timestamp.
+     */
+    public abstract int slices();
+
     public static ExportMessagesCommand withDefaults() {
         return builder().build();
     }
@@ -102,6 +109,8 @@ public abstract class ExportMessagesCommand {
 
         public abstract Builder timeZone(DateTimeZone timeZone);
 
+        public abstract Builder slices(int slices);
+
         abstract ExportMessagesCommand autoBuild();
 
         public ExportMessagesCommand build() {
@@ -116,7 +125,8 @@ public abstract class ExportMessagesCommand {
                     .fieldsInOrder(DEFAULT_FIELDS)
                     .decorators(Collections.emptyList())
                     .chunkSize(DEFAULT_CHUNK_SIZE)
-                    .timeZone(DEFAULT_TIME_ZONE);
+                    .timeZone(DEFAULT_TIME_ZONE)
+                    .slices(DEFAULT_SLICES);
         }
     }
 }
@@ -26,6 +26,7 @@ import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.joda.time.DateTimeZone;
 
 import javax.annotation.Nonnull;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import java.util.LinkedHashSet;
@@ -36,6 +37,7 @@ import java.util.Set;
 import static org.graylog.plugins.views.search.export.ExportMessagesCommand.DEFAULT_CHUNK_SIZE;
 import static org.graylog.plugins.views.search.export.ExportMessagesCommand.DEFAULT_FIELDS;
 import static org.graylog.plugins.views.search.export.ExportMessagesCommand.DEFAULT_QUERY;
+import static org.graylog.plugins.views.search.export.ExportMessagesCommand.DEFAULT_SLICES;
 import static org.graylog.plugins.views.search.export.ExportMessagesCommand.DEFAULT_STREAMS;
 import static org.graylog.plugins.views.search.export.ExportMessagesCommand.defaultTimeRange;
 import static org.graylog.plugins.views.search.export.LinkedHashSetUtil.linkedHashSetOf;
@@ -49,6 +51,9 @@ public abstract class MessagesRequest {
     private static final String FIELD_FIELDS = "fields_in_order";
     private static final String FIELD_CHUNK_SIZE = "chunk_size";
     private static final String FIELD_TIME_ZONE = "time_zone";
+    private static final String FIELD_SLICES = "slices";
+
+    public static final int MAX_SLICES = 32;
 
     @JsonProperty(FIELD_TIMERANGE)
     public abstract TimeRange timeRange();
@@ -73,6 +78,11 @@ public abstract class MessagesRequest {
     @Positive
     public abstract OptionalInt limit();
 
+    @JsonProperty(FIELD_SLICES)
+    @Positive
+    @Max(MAX_SLICES)
+    public abstract int slices();
+
     public static MessagesRequest withDefaults() {
         return builder().build();
     }
@@ -118,6 +128,9 @@ public abstract class MessagesRequest {
         @JsonProperty
         public abstract Builder limit(Integer limit);
 
+        @JsonProperty(FIELD_SLICES)
+        public abstract Builder slices(int slices);
+
         public abstract MessagesRequest build();
 
         @JsonCreator
@@ -127,7 +140,8 @@ public abstract class MessagesRequest {
                     .streams(DEFAULT_STREAMS)
                     .queryString(DEFAULT_QUERY)
                     .fieldsInOrder(DEFAULT_FIELDS)
-                    .chunkSize(DEFAULT_CHUNK_SIZE);
+                    .chunkSize(DEFAULT_CHUNK_SIZE)
+                    .slices(DEFAULT_SLICES);
         }
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog2.rest.MoreMediaTypes;
+
+import javax.inject.Inject;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes every message of a chunk as a single line JSON object containing the requested fields in order. Missing
+ * fields are written as {@code null}. The output can be compressed with the regular HTTP content encoding.
+ */
+@Provider
+@Produces(MoreMediaTypes.APPLICATION_NDJSON)
+public class SimpleMessageChunkNdjsonWriter extends SimpleMessageChunkWriter {
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public SimpleMessageChunkNdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return typesMatch(type, genericType) && MoreMediaTypes.APPLICATION_NDJSON_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public void writeTo(
+            SimpleMessageChunk chunk,
+            Class<?> type, Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException, WebApplicationException {
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(entityStream)) {
+            // Chunks are written one after another to the same stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (SimpleMessage message : chunk.messages()) {
+                generator.writeStartObject();
+                for (String field : chunk.fieldsInOrder()) {
+                    generator.writeObjectField(field, message.valueFor(field));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Splits the time range of an export into {@link ExportMessagesCommand#slices()} adjacent slices and retrieves them
+ * in parallel from the wrapped backend, using an executor which is shared by all exports.
+ * <p>
+ * Chunks are forwarded as soon as they are available. Forwarding is serialized, so every slice holds at most one
+ * chunk in memory while waiting for the consumer, no matter how large the export is. Only the first forwarded chunk is
+ * marked as {@link SimpleMessageChunk.ChunkOrder#FIRST} and a single {@link SimpleMessageChunk.ChunkOrder#LAST} chunk
+ * is sent after all slices are done. A limit is enforced across all slices.
+ */
+public class TimeSlicedExportBackend implements ExportBackend {
+    private static final Logger LOG = LoggerFactory.getLogger(TimeSlicedExportBackend.class);
+
+    private final ExportBackend delegate;
+    private final ExecutorService executor;
+
+    public TimeSlicedExportBackend(ExportBackend delegate, ExecutorService executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void run(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+        final List<AbsoluteRange> slices = slice(command.timeRange(), command.slices());
+        if (slices.size() == 1) {
+            delegate.run(command, chunkCollector);
+            return;
+        }
+
+        final SliceForwarder forwarder = new SliceForwarder(command, chunkCollector);
+        final List<Future<?>> futures = new ArrayList<>(slices.size());
+
+        try {
+            for (AbsoluteRange slice : slices) {
+                final ExportMessagesCommand sliceCommand = command.toBuilder().timeRange(slice).slices(1).build();
+                futures.add(executor.submit(() -> delegate.run(sliceCommand, forwarder::forward)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Interrupted while waiting for export slices", e);
+        } catch (ExecutionException e) {
+            throw new ExportException("Failed to export time range slice: " + e.getCause().getMessage(), e);
+        } finally {
+            // Stop the remaining slices of a failed export
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        forwarder.complete();
+    }
+
+    /**
+     * Splits the given range into at most {@code count} adjacent ranges. The time range queries of the backends treat
+     * the end of a range as exclusive, so adjacent slices never return the same message twice.
+     */
+    static List<AbsoluteRange> slice(AbsoluteRange range, int count) {
+        final long from = range.getFrom().getMillis();
+        final long to = range.getTo().getMillis();
+        final int sliceCount = (int) Math.max(1, Math.min(count, to - from));
+
+        if (sliceCount == 1) {
+            return Collections.singletonList(range);
+        }
+
+        final List<AbsoluteRange> slices = new ArrayList<>(sliceCount);
+        long sliceFrom = from;
+        for (int i = 1; i <= sliceCount; i++) {
+            final long sliceTo = i == sliceCount ? to : from + (to - from) * i / sliceCount;
+            slices.add(AbsoluteRange.create(new DateTime(sliceFrom, range.getFrom().getZone()), new DateTime(sliceTo, range.getTo().getZone())));
+            sliceFrom = sliceTo;
+        }
+        return slices;
+    }
+
+    private static class SliceForwarder {
+        private final ExportMessagesCommand command;
+        private final Consumer<SimpleMessageChunk> chunkCollector;
+        private boolean isFirstChunk = true;
+        private boolean isStopped = false;
+        private boolean isFailed = false;
+        private int totalCount = 0;
+
+        private SliceForwarder(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+            this.command = command;
+            this.chunkCollector = chunkCollector;
+        }
+
+        // Throwing makes the backend stop retrieving the slice.
+        private synchronized void forward(SimpleMessageChunk chunk) {
+            if (isStopped) {
+                throw new ExportStoppedException("Export has been stopped");
+            }
+            if (chunk.messages().isEmpty()) {
+                return;
+            }
+
+            final SimpleMessageChunk limitedChunk = applyLimit(chunk);
+            try {
+                chunkCollector.accept(limitedChunk.toBuilder()
+                        .chunkOrder(isFirstChunk ? SimpleMessageChunk.ChunkOrder.FIRST : SimpleMessageChunk.ChunkOrder.INTERMEDIATE)
+                        .build());
+            } catch (RuntimeException e) {
+                isStopped = true;
+                isFailed = true;
+                throw e;
+            }
+            isFirstChunk = false;
+            totalCount += limitedChunk.size();
+
+            if (command.limit().isPresent() && totalCount >= command.limit().getAsInt()) {
+                LOG.debug("Limit of {} reached. Stopping message retrieval.", command.limit().getAsInt());
+                isStopped = true;
+                throw new ExportStoppedException("Export limit reached");
+            }
+        }
+
+        private SimpleMessageChunk applyLimit(SimpleMessageChunk chunk) {
+            if (!command.limit().isPresent()) {
+                return chunk;
+            }
+            final int remaining = command.limit().getAsInt() - totalCount;
+            if (chunk.size() <= remaining) {
+                return chunk;
+            }
+            final LinkedHashSet<SimpleMessage> messages = new LinkedHashSet<>(remaining);
+            for (SimpleMessage message : chunk.messages()) {
+                if (messages.size() == remaining) {
+                    break;
+                }
+                messages.add(message);
+            }
+            return chunk.toBuilder().messages(messages).build();
+        }
+
+        private synchronized void complete() {
+            if (isFailed) {
+                return;
+            }
+            chunkCollector.accept(SimpleMessageChunk.builder()
+                    .fieldsInOrder(command.fieldsInOrder())
+                    .messages(new LinkedHashSet<>())
+                    .chunkOrder(SimpleMessageChunk.ChunkOrder.LAST)
+                    .build());
+        }
+    }
+}
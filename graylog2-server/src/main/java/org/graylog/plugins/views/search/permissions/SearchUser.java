@@ -48,6 +48,10 @@ public class SearchUser implements SearchPermissions, StreamPermissions, ViewPer
         return this.currentUser.getName();
     }
 
+    public String userId() {
+        return this.currentUser.getId();
+    }
+
     public boolean canReadView(ViewLike view) {
         final String viewId = view.id();
         return isPermitted(ViewsRestPermissions.VIEW_READ, viewId)
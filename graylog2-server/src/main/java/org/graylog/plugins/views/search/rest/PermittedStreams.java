@@ -17,34 +17,143 @@
 package org.graylog.plugins.views.search.rest;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.graylog.grn.GRNRegistry;
+import org.graylog.grn.GRNTypes;
+import org.graylog.plugins.views.search.permissions.SearchUser;
+import org.graylog2.security.AuthorizationDecisionCache;
 import org.graylog2.streams.StreamService;
+import org.graylog2.streams.events.StreamDeletedEvent;
+import org.graylog2.streams.events.StreamsChangedEvent;
 
 import javax.inject.Inject;
-import java.util.Set;
+import javax.inject.Singleton;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
-import static java.util.stream.Collectors.toSet;
 import static org.graylog2.plugin.streams.Stream.NON_MESSAGE_STREAM_IDS;
 
+/**
+ * Loads the IDs of all message streams a user is permitted to read.
+ * <p>
+ * The stream IDs are loaded once and kept until a stream changes. The streams a user is permitted to read are kept
+ * as a bitmap over these IDs in the {@link AuthorizationDecisionCache}, so they are dropped together with the
+ * authorization decisions of the user.
+ */
+@Singleton
 public class PermittedStreams {
     private final StreamService streamService;
+    private final AuthorizationDecisionCache decisionCache;
+    private final GRNRegistry grnRegistry;
+
+    // Increased on every stream change, a snapshot of the stream IDs is only valid for the generation it was loaded in
+    private final AtomicLong generation = new AtomicLong();
+    private volatile StreamIds streamIds;
 
     @Inject
-    public PermittedStreams(StreamService streamService) {
+    public PermittedStreams(StreamService streamService,
+                            AuthorizationDecisionCache decisionCache,
+                            GRNRegistry grnRegistry,
+                            EventBus serverEventBus) {
         this.streamService = streamService;
+        this.decisionCache = decisionCache;
+        this.grnRegistry = grnRegistry;
+        serverEventBus.register(this);
     }
 
     public ImmutableSet<String> load(Predicate<String> isStreamIdPermitted) {
-        final Set<String> result = streamService.loadAll().stream()
+        return streamIds().select(isStreamIdPermitted);
+    }
+
+    /**
+     * Like {@link #load(Predicate)} for the stream read permissions of the given user, but reuses the result of
+     * earlier calls until the streams or the permissions of the user change.
+     *
+     * @param searchUser the user to load the permitted streams for
+     * @return the IDs of all message streams the user is permitted to read
+     */
+    public ImmutableSet<String> loadForUser(SearchUser searchUser) {
+        final String userId = searchUser.userId();
+        if (userId == null) {
+            return load(searchUser::canReadStream);
+        }
+
+        final StreamIds currentStreamIds = streamIds();
+        final BitSet permitted = decisionCache.derivedValue(grnRegistry.newGRN(GRNTypes.USER, userId),
+                "permitted-streams-" + currentStreamIds.generation,
+                () -> currentStreamIds.permitted(searchUser::canReadStream));
+        return currentStreamIds.select(permitted);
+    }
+
+    private StreamIds streamIds() {
+        final long currentGeneration = generation.get();
+        StreamIds current = streamIds;
+        if (current == null || current.generation != currentGeneration) {
+            synchronized (this) {
+                current = streamIds;
+                if (current == null || current.generation != currentGeneration) {
+                    current = streamIds = loadStreamIds(currentGeneration);
+                }
+            }
+        }
+        return current;
+    }
+
+    private StreamIds loadStreamIds(long generation) {
+        final String[] ids = streamService.loadAll().stream()
                 .map(org.graylog2.plugin.streams.Stream::getId)
                 // Unless explicitly queried, exclude event and failure indices by default
                 // Having these indices in every search, makes sorting almost impossible
                 // because it triggers https://github.com/Graylog2/graylog2-server/issues/6378
                 // TODO: this filter could be removed, once we implement https://github.com/Graylog2/graylog2-server/issues/6490
                 .filter(id -> !NON_MESSAGE_STREAM_IDS.contains(id))
-                .filter(isStreamIdPermitted)
-                .collect(toSet());
+                .toArray(String[]::new);
+        return new StreamIds(ids, generation);
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleStreamsChanged(StreamsChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleStreamDeleted(StreamDeletedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    private static class StreamIds {
+        private final String[] ids;
+        private final long generation;
+
+        private StreamIds(String[] ids, long generation) {
+            this.ids = ids;
+            this.generation = generation;
+        }
+
+        private BitSet permitted(Predicate<String> isStreamIdPermitted) {
+            final BitSet permitted = new BitSet(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (isStreamIdPermitted.test(ids[i])) {
+                    permitted.set(i);
+                }
+            }
+            return permitted;
+        }
+
+        private ImmutableSet<String> select(Predicate<String> isStreamIdPermitted) {
+            return select(permitted(isStreamIdPermitted));
+        }
 
-        return ImmutableSet.copyOf(result);
+        private ImmutableSet<String> select(BitSet permitted) {
+            final ImmutableSet.Builder<String> result = ImmutableSet.builderWithExpectedSize(permitted.cardinality());
+            for (int i = permitted.nextSetBit(0); i >= 0; i = permitted.nextSetBit(i + 1)) {
+                result.add(ids[i]);
+            }
+            return result.build();
+        }
     }
 }
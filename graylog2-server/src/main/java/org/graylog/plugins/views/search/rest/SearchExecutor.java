@@ -98,7 +98,7 @@ public class SearchExecutor {
         this.executionGuard.check(search, streamPermissions::canReadStream);
     }
 
-    private ImmutableSet<String> loadAllAllowedStreamsForUser(StreamPermissions streamPermissions) {
-        return permittedStreams.load(streamPermissions::canReadStream);
+    private ImmutableSet<String> loadAllAllowedStreamsForUser(SearchUser searchUser) {
+        return permittedStreams.loadForUser(searchUser);
     }
 }
@@ -19,13 +19,16 @@ package org.graylog.security;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
 import com.mongodb.BasicDBObject;
 import org.graylog.grn.GRN;
 import org.graylog.grn.GRNRegistry;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.PaginatedDbService;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.plugin.database.users.User;
+import org.graylog2.security.AuthorizationChangedEvent;
 import org.mongojack.DBQuery;
 
 import javax.annotation.Nullable;
@@ -47,13 +50,16 @@ public class DBGrantService extends PaginatedDbService<GrantDTO> {
     public static final String COLLECTION_NAME = "grants";
 
     private final GRNRegistry grnRegistry;
+    private final EventBus clusterEventBus;
 
     @Inject
     public DBGrantService(MongoConnection mongoConnection,
                           MongoJackObjectMapperProvider mapper,
-                          GRNRegistry grnRegistry) {
+                          GRNRegistry grnRegistry,
+                          ClusterEventBus clusterEventBus) {
         super(mongoConnection, mapper, GrantDTO.class, COLLECTION_NAME);
         this.grnRegistry = grnRegistry;
+        this.clusterEventBus = clusterEventBus;
 
         db.createIndex(new BasicDBObject(GrantDTO.FIELD_GRANTEE, 1));
         db.createIndex(new BasicDBObject(GrantDTO.FIELD_TARGET, 1));
@@ -158,13 +164,34 @@ public class DBGrantService extends PaginatedDbService<GrantDTO> {
         final GrantDTO existingGrant = get(updatedGrant.id())
                 .orElseThrow(() -> new IllegalArgumentException("Couldn't find grant with ID " + updatedGrant.id()));
 
-        return save(existingGrant.toBuilder()
+        final GrantDTO savedGrant = save(existingGrant.toBuilder()
                 .grantee(updatedGrant.grantee())
                 .capability(updatedGrant.capability())
                 .target(updatedGrant.target())
                 .updatedBy(requireNonNull(currentUser, "currentUser cannot be null").getName())
                 .updatedAt(ZonedDateTime.now(ZoneOffset.UTC))
                 .build());
+        if (!existingGrant.grantee().equals(savedGrant.grantee())) {
+            grantsChanged(existingGrant.grantee());
+        }
+        return savedGrant;
+    }
+
+    @Override
+    public GrantDTO save(GrantDTO grantDTO) {
+        final GrantDTO savedGrant = super.save(grantDTO);
+        grantsChanged(savedGrant.grantee());
+        return savedGrant;
+    }
+
+    @Override
+    public int delete(String id) {
+        final int deleted = super.delete(id);
+        if (deleted > 0) {
+            // We don't know the grantee of the deleted grant anymore
+            clusterEventBus.post(AuthorizationChangedEvent.forAllPrincipals());
+        }
+        return deleted;
     }
 
     public ImmutableList<GrantDTO> getAll() {
@@ -178,11 +205,19 @@ public class DBGrantService extends PaginatedDbService<GrantDTO> {
     }
 
     public int deleteForGrantee(GRN grantee) {
-        return db.remove(DBQuery.is(GrantDTO.FIELD_GRANTEE, grantee.toString())).getN();
+        final int deleted = db.remove(DBQuery.is(GrantDTO.FIELD_GRANTEE, grantee.toString())).getN();
+        if (deleted > 0) {
+            grantsChanged(grantee);
+        }
+        return deleted;
     }
 
     public int deleteForTarget(GRN target) {
-        return db.remove(DBQuery.is(GrantDTO.FIELD_TARGET, target.toString())).getN();
+        final int deleted = db.remove(DBQuery.is(GrantDTO.FIELD_TARGET, target.toString())).getN();
+        if (deleted > 0) {
+            clusterEventBus.post(AuthorizationChangedEvent.forAllPrincipals());
+        }
+        return deleted;
     }
 
     public List<GrantDTO> getForTargetExcludingGrantee(GRN target, GRN grantee) {
@@ -211,4 +246,11 @@ public class DBGrantService extends PaginatedDbService<GrantDTO> {
                 DBQuery.is(GrantDTO.FIELD_TARGET, target)
         )) != null;
     }
+
+    /**
+     * Makes all nodes drop the cached authorization decisions of the given grantee.
+     */
+    private void grantsChanged(GRN grantee) {
+        clusterEventBus.post(AuthorizationChangedEvent.forPrincipal(grantee));
+    }
 }
@@ -23,6 +23,7 @@ import com.github.joschi.jadconfig.ValidatorMethod;
 import com.github.joschi.jadconfig.converters.StringSetConverter;
 import com.github.joschi.jadconfig.converters.TrimmedStringSetConverter;
 import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.util.Size;
 import com.github.joschi.jadconfig.validators.PositiveDurationValidator;
 import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 import com.github.joschi.jadconfig.validators.PositiveLongValidator;
@@ -72,6 +73,9 @@ public class Configuration extends BaseConfiguration {
     @Parameter(value = "output_flush_interval", required = true, validators = PositiveIntegerValidator.class)
     private int outputFlushInterval = 1;
 
+    @Parameter(value = "output_bulk_index_set_parallelism", validators = PositiveIntegerValidator.class)
+    private int outputBulkIndexSetParallelism = 1;
+
     @Parameter(value = "outputbuffer_processors", required = true, validators = PositiveIntegerValidator.class)
     private int outputBufferProcessors = 3;
 
@@ -112,12 +116,30 @@ public class Configuration extends BaseConfiguration {
     @Parameter(value = "lb_throttle_threshold_percentage", validators = PositiveIntegerValidator.class)
     private int loadBalancerThrottleThresholdPercentage = 100;
 
+    @Parameter(value = "input_backpressure_enabled")
+    private boolean inputBackpressureEnabled = false;
+
+    @Parameter(value = "input_backpressure_journal_utilization_percentage", validators = PositiveIntegerValidator.class)
+    private int inputBackpressureJournalUtilizationPercentage = 50;
+
+    @Parameter(value = "input_backpressure_journal_write_latency", validators = PositiveDurationValidator.class)
+    private Duration inputBackpressureJournalWriteLatency = Duration.milliseconds(100);
+
     @Parameter(value = "stream_processing_timeout", validators = PositiveLongValidator.class)
     private long streamProcessingTimeout = 2000;
 
     @Parameter(value = "stream_processing_max_faults", validators = PositiveIntegerValidator.class)
     private int streamProcessingMaxFaults = 3;
 
+    @Parameter(value = "stream_rule_timer_sample_rate", validators = PositiveIntegerValidator.class)
+    private int streamRuleTimerSampleRate = 1;
+
+    @Parameter(value = "extractor_timer_sample_rate", validators = PositiveIntegerValidator.class)
+    private int extractorTimerSampleRate = 1;
+
+    @Parameter(value = "pipeline_rule_timer_sample_rate", validators = PositiveIntegerValidator.class)
+    private int pipelineRuleTimerSampleRate = 1;
+
     @Parameter(value = "output_module_timeout", validators = PositiveLongValidator.class)
     private long outputModuleTimeout = 10000;
 
@@ -159,6 +181,15 @@ public class Configuration extends BaseConfiguration {
     @Parameter(value = "dashboard_widget_default_cache_time", validators = PositiveDurationValidator.class)
     private Duration dashboardWidgetDefaultCacheTime = Duration.seconds(10L);
 
+    @Parameter(value = "authorization_decision_cache_ttl")
+    private Duration authorizationDecisionCacheTtl = Duration.hours(1L);
+
+    @Parameter(value = "export_slices_thread_pool_size", validators = PositiveIntegerValidator.class)
+    private int exportSlicesThreadPoolSize = 8;
+
+    @Parameter(value = "session_last_access_write_interval")
+    private Duration sessionLastAccessWriteInterval = Duration.seconds(30L);
+
     @Parameter(value = "user_password_default_algorithm")
     private String userPasswordDefaultAlgorithm = "bcrypt";
 
@@ -177,6 +208,9 @@ public class Configuration extends BaseConfiguration {
     @Parameter(value = "index_ranges_cleanup_interval", validators = PositiveDurationValidator.class)
     private Duration indexRangesCleanupInterval = Duration.hours(1L);
 
+    @Parameter(value = "index_ranges_rebuild_parallelism", validators = PositiveIntegerValidator.class)
+    private int indexRangesRebuildParallelism = 4;
+
     @Parameter(value = "trusted_proxies", converter = IPSubnetConverter.class)
     private Set<IpSubnet> trustedProxies = Collections.emptySet();
 
@@ -190,6 +224,12 @@ public class Configuration extends BaseConfiguration {
     @Parameter(value = "failure_handling_queue_capacity", validators = {PositiveIntegerValidator.class})
     private int failureHandlingQueueCapacity = 1000;
 
+    @Parameter(value = "failure_handling_queue_max_size")
+    private Size failureHandlingQueueMaxSize = Size.megabytes(64L);
+
+    @Parameter(value = "failure_handling_batch_size", validators = {PositiveIntegerValidator.class})
+    private int failureHandlingBatchSize = 500;
+
     @Parameter(value = "failure_handling_shutdown_await", validators = {PositiveDurationValidator.class})
     private Duration failureHandlingShutdownAwait = Duration.milliseconds(3000);
 
@@ -268,6 +308,10 @@ public class Configuration extends BaseConfiguration {
         return outputFlushInterval;
     }
 
+    public int getOutputBulkIndexSetParallelism() {
+        return outputBulkIndexSetParallelism;
+    }
+
     public int getOutputBufferProcessors() {
         return outputBufferProcessors;
     }
@@ -329,6 +373,18 @@ public class Configuration extends BaseConfiguration {
         return loadBalancerRecognitionPeriodSeconds;
     }
 
+    public boolean isInputBackpressureEnabled() {
+        return inputBackpressureEnabled;
+    }
+
+    public int getInputBackpressureJournalUtilizationPercentage() {
+        return inputBackpressureJournalUtilizationPercentage;
+    }
+
+    public Duration getInputBackpressureJournalWriteLatency() {
+        return inputBackpressureJournalWriteLatency;
+    }
+
     public long getStreamProcessingTimeout() {
         return streamProcessingTimeout;
     }
@@ -337,6 +393,18 @@ public class Configuration extends BaseConfiguration {
         return streamProcessingMaxFaults;
     }
 
+    public int getStreamRuleTimerSampleRate() {
+        return streamRuleTimerSampleRate;
+    }
+
+    public int getExtractorTimerSampleRate() {
+        return extractorTimerSampleRate;
+    }
+
+    public int getPipelineRuleTimerSampleRate() {
+        return pipelineRuleTimerSampleRate;
+    }
+
     public long getOutputModuleTimeout() {
         return outputModuleTimeout;
     }
@@ -387,6 +455,18 @@ public class Configuration extends BaseConfiguration {
         return dashboardWidgetDefaultCacheTime;
     }
 
+    public Duration getAuthorizationDecisionCacheTtl() {
+        return authorizationDecisionCacheTtl;
+    }
+
+    public int getExportSlicesThreadPoolSize() {
+        return exportSlicesThreadPoolSize;
+    }
+
+    public Duration getSessionLastAccessWriteInterval() {
+        return sessionLastAccessWriteInterval;
+    }
+
     public String getUserPasswordDefaultAlgorithm() {
         return userPasswordDefaultAlgorithm;
     }
@@ -411,6 +491,10 @@ public class Configuration extends BaseConfiguration {
         return indexRangesCleanupInterval;
     }
 
+    public int getIndexRangesRebuildParallelism() {
+        return indexRangesRebuildParallelism;
+    }
+
     public Set<IpSubnet> getTrustedProxies() {
         return trustedProxies;
     }
@@ -427,6 +511,20 @@ public class Configuration extends BaseConfiguration {
         return failureHandlingQueueCapacity;
     }
 
+    /**
+     * @return the maximum estimated amount of memory used by queued failure batches
+     */
+    public Size getFailureHandlingQueueMaxSize() {
+        return failureHandlingQueueMaxSize;
+    }
+
+    /**
+     * @return the maximum number of failures which are handed over to the failure handlers at once
+     */
+    public int getFailureHandlingBatchSize() {
+        return failureHandlingBatchSize;
+    }
+
 
     public Duration getFailureHandlingShutdownAwait() {
         return failureHandlingShutdownAwait;
@@ -17,6 +17,8 @@
 package org.graylog2.cluster;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
@@ -39,23 +41,35 @@ import org.mongojack.WriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
 import java.util.Set;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+@Singleton
 public class ClusterConfigServiceImpl implements ClusterConfigService {
     private static final Logger LOG = LoggerFactory.getLogger(ClusterConfigServiceImpl.class);
 
     @VisibleForTesting
     static final String COLLECTION_NAME = "cluster_config";
 
+    /**
+     * Cached configs are invalidated by {@link ClusterConfigChangedEvent}s. The expiry only covers changes which
+     * haven't been announced, e.g. removed configs or changes made directly in MongoDB.
+     */
+    @VisibleForTesting
+    static final Duration CACHE_TTL = Duration.ofSeconds(10L);
+
     private final JacksonDBCollection<ClusterConfig, String> dbCollection;
     private final NodeId nodeId;
     private final ObjectMapper objectMapper;
     private final ChainingClassLoader chainingClassLoader;
     private final EventBus clusterEventBus;
+    private final Cache<String, CachedConfig> cache;
 
     @Inject
     public ClusterConfigServiceImpl(final MongoJackObjectMapperProvider mapperProvider,
@@ -77,6 +91,9 @@ public class ClusterConfigServiceImpl implements ClusterConfigService {
         this.objectMapper = checkNotNull(objectMapper);
         this.chainingClassLoader = chainingClassLoader;
         this.clusterEventBus = checkNotNull(clusterEventBus);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(CACHE_TTL)
+                .build();
     }
 
     @VisibleForTesting
@@ -99,14 +116,22 @@ public class ClusterConfigServiceImpl implements ClusterConfigService {
 
     @Override
     public <T> T get(String key, Class<T> type) {
-        ClusterConfig config = dbCollection.findOne(DBQuery.is("type", key));
+        final CachedConfig cachedConfig = cache.get(key, k -> new CachedConfig(dbCollection.findOne(DBQuery.is("type", k))));
+        final ClusterConfig config = cachedConfig.config;
 
         if (config == null) {
             LOG.debug("Couldn't find cluster config of type {}", key);
             return null;
         }
 
-        T result = extractPayload(config.payload(), type);
+        final T result;
+        final CachedPayload cachedPayload = cachedConfig.payload;
+        if (cachedPayload != null && cachedPayload.type == type) {
+            result = type.cast(cachedPayload.value);
+        } else {
+            result = extractPayload(config.payload(), type);
+            cachedConfig.payload = new CachedPayload(type, result);
+        }
         if (result == null) {
             LOG.error("Couldn't extract payload from cluster config (type: {})", key);
         }
@@ -145,6 +170,7 @@ public class ClusterConfigServiceImpl implements ClusterConfigService {
         ClusterConfig clusterConfig = ClusterConfig.create(key, payload, nodeId.toString());
 
         dbCollection.update(DBQuery.is("type", key), clusterConfig, true, false, WriteConcern.JOURNALED);
+        invalidate(key);
 
         ClusterConfigChangedEvent event = ClusterConfigChangedEvent.create(
                 DateTime.now(DateTimeZone.UTC), nodeId.toString(), key);
@@ -153,11 +179,26 @@ public class ClusterConfigServiceImpl implements ClusterConfigService {
 
     @Override
     public <T> int remove(Class<T> type) {
-        final String canonicalName = type.getCanonicalName();
-        final WriteResult<ClusterConfig, String> result = dbCollection.remove(DBQuery.is("type", canonicalName));
+        return remove(type.getCanonicalName());
+    }
+
+    @Override
+    public int remove(String key) {
+        final WriteResult<ClusterConfig, String> result = dbCollection.remove(DBQuery.is("type", key));
+        invalidate(key);
         return result.getN();
     }
 
+    /**
+     * Evicts the cached config of the given type, so that the next read loads it from the database again.
+     * <p>
+     * This has to happen before any subscriber of the corresponding {@link ClusterConfigChangedEvent} reloads the
+     * config, so the event bus can't be used to deliver the invalidation.
+     */
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
     @Override
     public Set<Class<?>> list() {
         final ImmutableSet.Builder<Class<?>> classes = ImmutableSet.builder();
@@ -176,4 +217,27 @@ public class ClusterConfigServiceImpl implements ClusterConfigService {
 
         return classes.build();
     }
+
+    private static class CachedConfig {
+        @Nullable
+        private final ClusterConfig config;
+        // Remembers the deserialized payload for the type it has been requested with last
+        @Nullable
+        private volatile CachedPayload payload;
+
+        private CachedConfig(@Nullable ClusterConfig config) {
+            this.config = config;
+        }
+    }
+
+    private static class CachedPayload {
+        private final Class<?> type;
+        @Nullable
+        private final Object value;
+
+        private CachedPayload(Class<?> type, @Nullable Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
 }
@@ -111,6 +111,9 @@ public class ElasticsearchConfiguration {
     @Parameter(value = "index_field_type_periodical_full_refresh_interval", validators = {PositiveDurationValidator.class})
     private Duration indexFieldTypePeriodicalFullRefreshInterval = Duration.minutes(5);
 
+    @Parameter(value = "index_field_type_periodical_polling_threads", validator = PositiveIntegerValidator.class)
+    private int indexFieldTypePeriodicalPollingThreads = 4;
+
     @Parameter(value = DEFAULT_EVENTS_INDEX_PREFIX, validators = StringNotBlankValidator.class)
     private String defaultEventsIndexPrefix = "gl-events";
 
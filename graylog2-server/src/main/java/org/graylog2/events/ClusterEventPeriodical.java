@@ -29,6 +29,8 @@ import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import com.mongodb.WriteConcern;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.cluster.ClusterConfigChangedEvent;
+import org.graylog2.cluster.ClusterConfigServiceImpl;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.plugin.periodical.Periodical;
 import org.graylog2.plugin.system.NodeId;
@@ -58,6 +60,7 @@ public class ClusterEventPeriodical extends Periodical {
     private final ObjectMapper objectMapper;
     private final EventBus serverEventBus;
     private final ChainingClassLoader chainingClassLoader;
+    private final ClusterConfigServiceImpl clusterConfigService;
 
     @Inject
     public ClusterEventPeriodical(final MongoJackObjectMapperProvider mapperProvider,
@@ -65,9 +68,10 @@ public class ClusterEventPeriodical extends Periodical {
                                   final NodeId nodeId,
                                   final ChainingClassLoader chainingClassLoader,
                                   final EventBus serverEventBus,
-                                  final ClusterEventBus clusterEventBus) {
+                                  final ClusterEventBus clusterEventBus,
+                                  final ClusterConfigServiceImpl clusterConfigService) {
         this(JacksonDBCollection.wrap(prepareCollection(mongoConnection), ClusterEvent.class, String.class, mapperProvider.get()),
-                nodeId, mapperProvider.get(), chainingClassLoader, serverEventBus, clusterEventBus);
+                nodeId, mapperProvider.get(), chainingClassLoader, serverEventBus, clusterEventBus, clusterConfigService);
     }
 
     private ClusterEventPeriodical(final JacksonDBCollection<ClusterEvent, String> dbCollection,
@@ -75,12 +79,14 @@ public class ClusterEventPeriodical extends Periodical {
                            final ObjectMapper objectMapper,
                            final ChainingClassLoader chainingClassLoader,
                            final EventBus serverEventBus,
-                           final ClusterEventBus clusterEventBus) {
+                           final ClusterEventBus clusterEventBus,
+                           final ClusterConfigServiceImpl clusterConfigService) {
         this.nodeId = checkNotNull(nodeId);
         this.dbCollection = checkNotNull(dbCollection);
         this.objectMapper = checkNotNull(objectMapper);
         this.chainingClassLoader = chainingClassLoader;
         this.serverEventBus = checkNotNull(serverEventBus);
+        this.clusterConfigService = checkNotNull(clusterConfigService);
 
         checkNotNull(clusterEventBus).registerClusterEventSubscriber(this);
     }
@@ -155,6 +161,7 @@ public class ClusterEventPeriodical extends Periodical {
 
                 Object payload = extractPayload(clusterEvent.payload(), clusterEvent.eventClass());
                 if (payload != null) {
+                    invalidateClusterConfig(payload);
                     serverEventBus.post(payload);
                 } else {
                     LOG.warn("Couldn't extract payload of cluster event with ID <{}>", clusterEvent.id());
@@ -183,6 +190,7 @@ public class ClusterEventPeriodical extends Periodical {
             // We are handling a locally generated event, so we can speed up processing by posting it to the local event
             // bus immediately. Due to having added the local node id to its list of consumers, it will not be picked up
             // by the db cursor again, avoiding double processing of the event. See #11263 for details.
+            invalidateClusterConfig(event);
             serverEventBus.post(event);
             LOG.debug("Published cluster event with ID <{}> and type <{}>", id, className);
         } catch (MongoException e) {
@@ -190,6 +198,16 @@ public class ClusterEventPeriodical extends Periodical {
         }
     }
 
+    /**
+     * The subscribers of the local event bus run concurrently, so cached cluster configs have to be evicted before
+     * posting the event. Otherwise a subscriber reloading the changed config might still read the old one.
+     */
+    private void invalidateClusterConfig(Object event) {
+        if (event instanceof ClusterConfigChangedEvent) {
+            clusterConfigService.invalidate(((ClusterConfigChangedEvent) event).type());
+        }
+    }
+
     private DBCursor<ClusterEvent> eventCursor(NodeId nodeId) {
         // Resorting to ugly MongoDB Java Client because of https://github.com/devbliss/mongojack/issues/88
         final BasicDBList consumersList = new BasicDBList();
@@ -51,6 +51,7 @@ public class IndexFailureImpl extends PersistedImpl implements IndexFailure {
                 .put("message", fields.get("message"))
                 .put("index", fields.get("index"))
                 .put("type", fields.get("type"))
+                .put("count", fields.getOrDefault("count", 1))
                 .build();
     }
 
@@ -30,4 +30,11 @@ public interface IndexFailureService extends PersistedService {
     long countSince(DateTime since);
 
     long totalCount();
+
+    /**
+     * Inserts the given index failures with a single bulk write.
+     *
+     * @param failures the index failures to insert
+     */
+    void saveAll(List<IndexFailure> failures);
 }
@@ -75,4 +75,21 @@ public class IndexFailureServiceImpl extends PersistedServiceImpl implements Ind
     public long totalCount() {
         return collection(IndexFailureImpl.class).count();
     }
+
+    @Override
+    public void saveAll(List<IndexFailure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        final List<DBObject> documents = new ArrayList<>(failures.size());
+        for (IndexFailure failure : failures) {
+            final BasicDBObject document = new BasicDBObject(failure.getFields());
+            document.put("_id", new ObjectId(failure.getId()));
+            fieldTransformations(document);
+            documents.add(document);
+        }
+
+        collection(IndexFailureImpl.class).insert(documents);
+    }
 }
\ No newline at end of file
@@ -16,14 +16,20 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.indices.Indices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -31,16 +37,23 @@ import static com.codahale.metrics.MetricRegistry.name;
 /**
  * This class can be used to poll index field type information for indices in an {@link IndexSet}.
  */
+@Singleton
 public class IndexFieldTypePoller {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexFieldTypePoller.class);
+
     private final Indices indices;
     private final Timer pollTimer;
+    private final Counter unchangedCounter;
     private final IndexFieldTypePollerAdapter indexFieldTypePollerAdapter;
+    // Mapping version of every index at the time its field types have been polled the last time
+    private final ConcurrentMap<String, Long> mappingVersions = new ConcurrentHashMap<>();
 
     @Inject
     public IndexFieldTypePoller(final Indices indices, final MetricRegistry metricRegistry, IndexFieldTypePollerAdapter indexFieldTypePollerAdapter) {
         this.indices = indices;
 
         this.pollTimer = metricRegistry.timer(name(getClass(), "indexPollTime"));
+        this.unchangedCounter = metricRegistry.counter(name(getClass(), "indexPollUnchanged"));
         this.indexFieldTypePollerAdapter = indexFieldTypePollerAdapter;
     }
 
@@ -82,4 +95,50 @@ public class IndexFieldTypePoller {
 
         return optionalFields.map(fields -> IndexFieldTypesDTO.create(indexSetId, indexName, fields));
     }
+
+    /**
+     * Returns the index field types for the given index if its mapping changed since the last time this method
+     * polled it.
+     * <p>
+     * The mapping version of the index is checked before requesting the complete mapping. Indices for which the
+     * mapping version can't be determined are always polled.
+     *
+     * @param indexName index name to poll types for
+     * @param indexSetId index set ID of the given index
+     * @return the polled index field type data or an empty optional if the mapping didn't change
+     */
+    public Optional<IndexFieldTypesDTO> pollIndexIfChanged(final String indexName, final String indexSetId) {
+        final Optional<Long> mappingVersion = mappingVersion(indexName);
+        if (mappingVersion.isPresent() && mappingVersion.get().equals(mappingVersions.get(indexName))) {
+            LOG.debug("Mapping of index <{}> didn't change, skipping it.", indexName);
+            unchangedCounter.inc();
+            return Optional.empty();
+        }
+
+        // The version is read before the mapping, so a concurrent mapping update is picked up by the next poll.
+        final Optional<IndexFieldTypesDTO> indexFieldTypes = pollIndex(indexName, indexSetId);
+        if (indexFieldTypes.isPresent()) {
+            mappingVersion.ifPresent(version -> mappingVersions.put(indexName, version));
+        }
+        return indexFieldTypes;
+    }
+
+    /**
+     * Forgets the mapping version of the given index, so the next call of
+     * {@link #pollIndexIfChanged(String, String)} polls it again.
+     *
+     * @param indexName index name to forget
+     */
+    public void forgetIndex(final String indexName) {
+        mappingVersions.remove(indexName);
+    }
+
+    private Optional<Long> mappingVersion(final String indexName) {
+        try {
+            return indexFieldTypePollerAdapter.mappingVersion(indexName);
+        } catch (Exception e) {
+            LOG.debug("Couldn't get mapping version of index <{}>, polling it unconditionally.", indexName, e);
+            return Optional.empty();
+        }
+    }
 }
@@ -23,4 +23,15 @@ import java.util.Set;
 
 public interface IndexFieldTypePollerAdapter {
     Optional<Set<FieldTypeDTO>> pollIndex(String indexName, Timer pollTimer);
+
+    /**
+     * Returns the mapping version of the given index. The version is increased by Elasticsearch on every mapping
+     * update, so it can be used to skip polling indices whose mapping didn't change.
+     *
+     * @param indexName index name to get the mapping version for
+     * @return the mapping version or an empty optional if it couldn't be determined
+     */
+    default Optional<Long> mappingVersion(String indexName) {
+        return Optional.empty();
+    }
 }
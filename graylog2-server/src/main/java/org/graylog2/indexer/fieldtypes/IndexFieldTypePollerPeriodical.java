@@ -16,9 +16,15 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.cluster.Node;
+import org.graylog2.cluster.NodeService;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.MongoIndexSet;
 import org.graylog2.indexer.cluster.Cluster;
@@ -32,6 +38,9 @@ import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.lifecycles.Lifecycle;
 import org.graylog2.plugin.periodical.Periodical;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.system.shutdown.GracefulShutdownHook;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,19 +48,35 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * {@link Periodical} that creates and maintains index field type information in the database.
+ * <p>
+ * The index sets are spread across all active server nodes by rendezvous hashing their IDs, so every node only polls
+ * the index sets it owns. Polls run concurrently on a bounded thread pool.
  */
-public class IndexFieldTypePollerPeriodical extends Periodical {
+public class IndexFieldTypePollerPeriodical extends Periodical implements GracefulShutdownHook {
     private static final Logger LOG = LoggerFactory.getLogger(IndexFieldTypePollerPeriodical.class);
+    private static final java.time.Duration NODE_REFRESH_INTERVAL = java.time.Duration.ofSeconds(10);
+    private static final HashFunction OWNERSHIP_HASH = Hashing.murmur3_128();
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
 
     private final IndexFieldTypePoller poller;
     private final IndexFieldTypesService dbService;
@@ -60,12 +85,17 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
     private final MongoIndexSet.Factory mongoIndexSetFactory;
     private final Cluster cluster;
     private final ServerStatus serverStatus;
+    private final NodeService nodeService;
+    private final NodeId nodeId;
     private final com.github.joschi.jadconfig.util.Duration fullRefreshInterval;
-    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
 
     private volatile Set<IndexSetConfig> allIndexSetConfigs;
     private volatile Instant lastFullRefresh = Instant.MIN;
+    private volatile SortedSet<String> activeNodeIds;
+    private volatile Instant lastNodeRefresh = Instant.MIN;
     private final ConcurrentHashMap<String, Instant> lastPoll = new ConcurrentHashMap<>();
+    private final Set<String> pollsInProgress = ConcurrentHashMap.newKeySet();
 
     @Inject
     public IndexFieldTypePollerPeriodical(final IndexFieldTypePoller poller,
@@ -77,8 +107,11 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
                                           final Cluster cluster,
                                           final EventBus eventBus,
                                           final ServerStatus serverStatus,
+                                          final NodeService nodeService,
+                                          final NodeId nodeId,
+                                          final GracefulShutdownService gracefulShutdownService,
                                           @Named("index_field_type_periodical_full_refresh_interval") final com.github.joschi.jadconfig.util.Duration fullRefreshInterval,
-                                          @Named("daemonScheduler") final ScheduledExecutorService scheduler) {
+                                          @Named("index_field_type_periodical_polling_threads") final int pollingThreads) {
         this.poller = poller;
         this.dbService = dbService;
         this.indexSetService = indexSetService;
@@ -86,10 +119,26 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         this.mongoIndexSetFactory = mongoIndexSetFactory;
         this.cluster = cluster;
         this.serverStatus = serverStatus;
+        this.nodeService = nodeService;
+        this.nodeId = nodeId;
         this.fullRefreshInterval = fullRefreshInterval;
-        this.scheduler = scheduler;
+        this.executor = Executors.newFixedThreadPool(pollingThreads, new ThreadFactoryBuilder()
+                .setNameFormat("index-field-type-poller-%d")
+                .setDaemon(true)
+                .build());
+        this.activeNodeIds = new TreeSet<>(ImmutableSet.of(nodeId.toString()));
 
         eventBus.register(this);
+        gracefulShutdownService.register(this);
+    }
+
+    @Override
+    public void doGracefulShutdown() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("Index field type polls still running after {} seconds, interrupting them.", SHUTDOWN_TIMEOUT_SECONDS);
+            executor.shutdownNow();
+        }
     }
 
     private static final Set<Lifecycle> skippedLifecycles = ImmutableSet.of(Lifecycle.STARTING, Lifecycle.HALTING, Lifecycle.PAUSED, Lifecycle.FAILED, Lifecycle.UNINITIALIZED);
@@ -122,42 +171,102 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
             lastPoll.keySet().retainAll(allConfigs.stream().map(IndexSetConfig::id).collect(Collectors.toSet()));
         }
 
+        final Set<IndexSetConfig> ownedConfigs = ownedIndexSetConfigs(allConfigs);
+
         if (needsFullRefresh()) {
             try {
-                refreshFieldTypes(allConfigs);
+                refreshFieldTypes(ownedConfigs);
             } finally {
                 lastFullRefresh = Instant.now();
             }
         } else {
-            poll(allConfigs);
+            poll(ownedConfigs);
+        }
+    }
+
+    @VisibleForTesting
+    Set<IndexSetConfig> ownedIndexSetConfigs(Collection<IndexSetConfig> indexSetConfigs) {
+        final SortedSet<String> nodeIds = activeNodeIds();
+        return indexSetConfigs.stream()
+                .filter(config -> isOwnedByThisNode(config.id(), nodeIds))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private boolean isOwnedByThisNode(String indexSetId, SortedSet<String> nodeIds) {
+        String owner = null;
+        long highestScore = Long.MIN_VALUE;
+        for (String candidate : nodeIds) {
+            final long score = OWNERSHIP_HASH.newHasher()
+                    .putString(candidate, UTF_8)
+                    .putString(indexSetId, UTF_8)
+                    .hash()
+                    .asLong();
+            if (owner == null || score > highestScore) {
+                owner = candidate;
+                highestScore = score;
+            }
+        }
+        return nodeId.toString().equals(owner);
+    }
+
+    private SortedSet<String> activeNodeIds() {
+        final Instant now = Instant.now();
+        if (now.isBefore(lastNodeRefresh.plus(NODE_REFRESH_INTERVAL))) {
+            return activeNodeIds;
+        }
+
+        try {
+            final SortedSet<String> nodeIds = new TreeSet<>(nodeService.allActive(Node.Type.SERVER).keySet());
+            // Make sure that this node takes its share even before it has been registered
+            nodeIds.add(nodeId.toString());
+            activeNodeIds = nodeIds;
+        } catch (Exception e) {
+            LOG.warn("Couldn't get active nodes, keeping the previous index field type polling assignments.", e);
+        } finally {
+            lastNodeRefresh = now;
         }
+        return activeNodeIds;
     }
 
     private void refreshFieldTypes(Collection<IndexSetConfig> indexSetConfigs) {
         LOG.debug("Refreshing index field types for {} index sets.", indexSetConfigs.size());
 
         // this is the first time we run, or the index sets have changed, so we re-initialize the field types
-        indexSetConfigs.forEach(indexSetConfig -> {
-            final String indexSetId = indexSetConfig.id();
-            final String indexSetTitle = indexSetConfig.title();
+        final List<Future<?>> refreshes = new ArrayList<>(indexSetConfigs.size());
+        indexSetConfigs.forEach(indexSetConfig -> refreshes.add(executor.submit(() -> refreshFieldTypes(indexSetConfig))));
 
+        for (Future<?> refresh : refreshes) {
             try {
-                final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
+                refresh.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOG.error("Couldn't refresh index field types", e.getCause());
+            }
+        }
+    }
 
-                final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
+    private void refreshFieldTypes(IndexSetConfig indexSetConfig) {
+        final String indexSetId = indexSetConfig.id();
+        final String indexSetTitle = indexSetConfig.title();
 
-                // We check that we have the field types for all existing indices
-                LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
-                poller.poll(indexSet, existingIndexTypes).forEach(dbService::upsert);
+        try {
+            final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
 
-                // Cleanup orphaned field type entries that haven't been removed by the event handler
-                dbService.findForIndexSet(indexSetId).stream()
-                        .filter(types -> !indices.exists(types.indexName()))
-                        .forEach(types -> dbService.delete(types.id()));
-            } finally {
-                lastPoll.put(indexSetId, Instant.now());
-            }
-        });
+            final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
+
+            // We check that we have the field types for all existing indices
+            LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
+            poller.poll(indexSet, existingIndexTypes).forEach(dbService::upsert);
+
+            // Cleanup orphaned field type entries that haven't been removed by the event handler
+            dbService.findForIndexSet(indexSetId).stream()
+                    .filter(types -> !indices.exists(types.indexName()))
+                    .forEach(types -> dbService.delete(types.id()));
+        } finally {
+            lastPoll.put(indexSetId, Instant.now());
+        }
     }
 
     private void poll(Collection<IndexSetConfig> indexSetConfigs) {
@@ -177,7 +286,12 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         final String indexSetTitle = indexSetConfig.title();
         final String indexSetId = indexSetConfig.id();
 
-        scheduler.submit(() -> {
+        // Don't queue up another poll while the previous one for the same index set hasn't finished
+        if (!pollsInProgress.add(indexSetId)) {
+            return;
+        }
+
+        executor.submit(() -> {
             try {
                 final MongoIndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
                 // Only check the active write index on a regular basis, the others don't change anymore
@@ -185,7 +299,7 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
                 if (activeWriteIndex != null) {
                     LOG.debug("Updating index field types for active write index <{}> in index set <{}/{}>",
                             activeWriteIndex, indexSetTitle, indexSetId);
-                    poller.pollIndex(activeWriteIndex, indexSetId).ifPresent(dbService::upsert);
+                    poller.pollIndexIfChanged(activeWriteIndex, indexSetId).ifPresent(dbService::upsert);
                 } else {
                     LOG.warn("Active write index for index set \"{}\" ({}) doesn't exist yet",
                             indexSetTitle, indexSetId);
@@ -196,6 +310,7 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
                 LOG.error("Couldn't update field types for index set <{}/{}>", indexSetTitle, indexSetId, e);
             } finally {
                 lastPoll.put(indexSetId, Instant.now());
+                pollsInProgress.remove(indexSetId);
             }
         });
     }
@@ -249,6 +364,7 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         event.indices().forEach(indexName -> {
             LOG.debug("Removing field type information for deleted index <{}>", indexName);
             dbService.delete(indexName);
+            poller.forgetIndex(indexName);
         });
     }
 
@@ -264,8 +380,8 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
 
     @Override
     public boolean leaderOnly() {
-        // Only needs to run on the leader node because results are stored in the database
-        return true;
+        // Runs on all nodes, every node only polls the index sets it owns
+        return false;
     }
 
     @Override
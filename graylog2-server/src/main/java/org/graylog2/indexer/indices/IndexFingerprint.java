@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.indices;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Identifies the contents of an index: the UUID changes when an index is recreated (e. g. restored from a
+ * snapshot) and the document count changes when documents are added or removed.
+ */
+@AutoValue
+public abstract class IndexFingerprint {
+    public abstract String uuid();
+
+    public abstract long documentCount();
+
+    public static IndexFingerprint create(String uuid, long documentCount) {
+        return new AutoValue_IndexFingerprint(uuid, documentCount);
+    }
+}
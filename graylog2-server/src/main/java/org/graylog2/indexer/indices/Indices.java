@@ -116,6 +116,10 @@ public class Indices {
         return indicesAdapter.numberOfMessages(indexName);
     }
 
+    public Map<String, IndexFingerprint> getIndexFingerprints(String indexWildcard) {
+        return indicesAdapter.indexFingerprints(indexWildcard);
+    }
+
     public JsonNode getIndexStats(final IndexSet indexSet) {
         return indicesAdapter.getIndexStats(Collections.singleton(indexSet.getIndexWildcard()));
     }
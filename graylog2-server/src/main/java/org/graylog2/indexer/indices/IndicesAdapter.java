@@ -68,6 +68,11 @@ public interface IndicesAdapter {
 
     long numberOfMessages(String indexName);
 
+    /**
+     * Returns the fingerprints of all open indices matching the given index name or wildcard.
+     */
+    Map<String, IndexFingerprint> indexFingerprints(String indexWildcard);
+
     boolean aliasExists(String alias) throws IOException;
 
     Map<String, Set<String>> aliases(String indexPattern);
@@ -27,6 +27,9 @@ import com.github.rholder.retry.WaitStrategy;
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.graylog.failure.FailureSubmissionService;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.InvalidWriteTargetException;
@@ -35,24 +38,40 @@ import org.graylog2.indexer.results.ResultMessage;
 import org.graylog2.plugin.Message;
 import org.graylog2.shared.utilities.ExceptionUtils;
 import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.graylog2.system.shutdown.GracefulShutdownService;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Singleton
 public class Messages {
+    /**
+     * Listener for the bulk requests of a batch. If index sets are written concurrently, the listener is called
+     * from multiple threads.
+     */
     public interface IndexingListener {
         void onRetry(long attemptNumber);
         void onSuccess(long delaySinceFirstAttempt);
@@ -96,16 +115,36 @@ public class Messages {
     private final MessagesAdapter messagesAdapter;
     private final ProcessingStatusRecorder processingStatusRecorder;
     private final TrafficAccounting trafficAccounting;
+    @Nullable
+    private final ExecutorService indexSetExecutor;
+    // At most one partition per index set is written on the executor, so blocked index sets can't occupy all threads
+    private final ConcurrentMap<IndexSet, CompletableFuture<Set<IndexingError>>> inFlightPartitions = new ConcurrentHashMap<>();
 
     @Inject
     public Messages(TrafficAccounting trafficAccounting,
                     MessagesAdapter messagesAdapter,
                     ProcessingStatusRecorder processingStatusRecorder,
-                    FailureSubmissionService failureSubmissionService) {
+                    FailureSubmissionService failureSubmissionService,
+                    GracefulShutdownService gracefulShutdownService,
+                    @Named("output_bulk_index_set_parallelism") int indexSetParallelism) {
         this.trafficAccounting = trafficAccounting;
         this.messagesAdapter = messagesAdapter;
         this.processingStatusRecorder = processingStatusRecorder;
         this.failureSubmissionService = failureSubmissionService;
+        if (indexSetParallelism > 1) {
+            this.indexSetExecutor = Executors.newFixedThreadPool(indexSetParallelism,
+                    new ThreadFactoryBuilder().setNameFormat("messages-bulk-index-%d").setDaemon(true).build());
+            // Shutdown after the GracefulShutdownService has stopped, the buffers have been flushed and the shutdown
+            // hooks writing messages are done by then.
+            gracefulShutdownService.addListener(new Service.Listener() {
+                @Override
+                public void terminated(Service.State from) {
+                    indexSetExecutor.shutdown();
+                }
+            }, MoreExecutors.directExecutor());
+        } else {
+            this.indexSetExecutor = null;
+        }
     }
 
     public ResultMessage get(String messageId, String index) throws DocumentNotFoundException, IOException {
@@ -145,10 +184,16 @@ public class Messages {
     }
 
     public List<String> bulkIndexRequests(List<IndexingRequest> indexingRequestList, boolean isSystemTraffic, IndexingListener indexingListener) {
-        final List<IndexingError> indexingErrors = runBulkRequest(indexingRequestList, indexingRequestList.size(), indexingListener);
+        final Collection<List<IndexingRequest>> indexSetPartitions = partitionByIndexSet(indexingRequestList, IndexingRequest::indexSet);
+
+        final Set<IndexingError> remainingErrors = indexSetExecutor == null || indexSetPartitions.size() < 2
+                ? indexWithRetries(indexingRequestList, indexingListener)
+                : indexConcurrently(indexSetPartitions, indexingListener);
 
-        final Set<IndexingError> remainingErrors = retryOnlyIndexBlockItemsForever(indexingRequestList, indexingErrors, indexingListener);
+        return completeRequests(indexingRequestList, remainingErrors, isSystemTraffic);
+    }
 
+    private List<String> completeRequests(List<IndexingRequest> indexingRequestList, Set<IndexingError> remainingErrors, boolean isSystemTraffic) {
         final Set<String> failedIds = remainingErrors.stream()
                 .map(indexingError -> indexingError.message().getId())
                 .collect(Collectors.toSet());
@@ -162,6 +207,111 @@ public class Messages {
         return propagateFailure(remainingErrors);
     }
 
+    private Set<IndexingError> indexWithRetries(List<IndexingRequest> indexingRequestList, @Nullable IndexingListener indexingListener) {
+        final List<IndexingError> indexingErrors = runBulkRequest(indexingRequestList, indexingRequestList.size(), indexingListener);
+
+        return retryOnlyIndexBlockItemsForever(indexingRequestList, indexingErrors, indexingListener);
+    }
+
+    /**
+     * Writes every partition with its own bulk requests and retries, so a slow or blocked index set doesn't hold
+     * back the messages of other index sets. Waits for all partitions before returning.
+     * <p>
+     * Only one partition per index set is written at a time. Partitions of index sets which are still being written
+     * for another caller are dispatched last, once the previous partition is done. This keeps blocked index sets from
+     * occupying more than one thread and applies backpressure to the callers writing to them.
+     */
+    private Set<IndexingError> indexConcurrently(Collection<List<IndexingRequest>> partitions, @Nullable IndexingListener indexingListener) {
+        final List<CompletableFuture<Set<IndexingError>>> futures = new ArrayList<>(partitions.size());
+        final List<List<IndexingRequest>> deferredPartitions = new ArrayList<>();
+        for (List<IndexingRequest> partition : partitions) {
+            final CompletableFuture<Set<IndexingError>> future = tryDispatch(partition, indexingListener);
+            if (future == null) {
+                deferredPartitions.add(partition);
+            } else {
+                futures.add(future);
+            }
+        }
+        for (List<IndexingRequest> partition : deferredPartitions) {
+            CompletableFuture<Set<IndexingError>> future;
+            while ((future = tryDispatch(partition, indexingListener)) == null) {
+                final CompletableFuture<Set<IndexingError>> inFlight = inFlightPartitions.get(partition.get(0).indexSet());
+                if (inFlight != null) {
+                    // Failures are reported to the caller of the other partition
+                    await(inFlight.handle((indexingErrors, e) -> null));
+                }
+            }
+            futures.add(future);
+        }
+
+        final Set<IndexingError> indexingErrors = new HashSet<>();
+        RuntimeException failure = null;
+        for (CompletableFuture<Set<IndexingError>> future : futures) {
+            try {
+                indexingErrors.addAll(await(future));
+            } catch (RuntimeException e) {
+                // Keep waiting for the other partitions, they might still be writing successfully
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return indexingErrors;
+    }
+
+    /**
+     * Writes the partition on the executor unless a partition of the same index set is still in flight.
+     *
+     * @return the result of the partition or {@code null} if another partition of the index set is in flight
+     */
+    @Nullable
+    private CompletableFuture<Set<IndexingError>> tryDispatch(List<IndexingRequest> partition, @Nullable IndexingListener indexingListener) {
+        final IndexSet indexSet = partition.get(0).indexSet();
+        final CompletableFuture<Set<IndexingError>> future = new CompletableFuture<>();
+        if (inFlightPartitions.putIfAbsent(indexSet, future) != null) {
+            return null;
+        }
+        final Runnable task = () -> {
+            try {
+                final Set<IndexingError> indexingErrors = indexWithRetries(partition, indexingListener);
+                inFlightPartitions.remove(indexSet, future);
+                future.complete(indexingErrors);
+            } catch (Exception e) {
+                inFlightPartitions.remove(indexSet, future);
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            indexSetExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The executor has been shut down, keep writing on the calling thread
+            task.run();
+        }
+        return future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        }
+    }
+
+    private static <T> Collection<List<T>> partitionByIndexSet(List<T> items, Function<T, IndexSet> indexSetFunction) {
+        final Map<IndexSet, List<T>> partitions = new LinkedHashMap<>();
+        for (T item : items) {
+            partitions.computeIfAbsent(indexSetFunction.apply(item), indexSet -> new ArrayList<>()).add(item);
+        }
+        return partitions.values();
+    }
+
     private Set<IndexingError> retryOnlyIndexBlockItemsForever(List<IndexingRequest> messages, List<IndexingError> allFailedItems, IndexingListener indexingListener) {
         Set<IndexingError> indexBlocks = indexBlocksFrom(allFailedItems);
         final Set<IndexingError> otherFailures = new HashSet<>(Sets.difference(new HashSet<>(allFailedItems), indexBlocks));
@@ -261,10 +411,17 @@ public class Messages {
     }
 
     private void recordTimestamp(List<IndexingRequest> messageList) {
+        // Only the latest receive time of a batch matters, so report it once instead of for every message
+        DateTime latestReceiveTime = null;
         for (final IndexingRequest entry : messageList) {
-            final Indexable message = entry.message();
+            final DateTime receiveTime = entry.message().getReceiveTime();
 
-            processingStatusRecorder.updatePostIndexingReceiveTime(message.getReceiveTime());
+            if (receiveTime != null && (latestReceiveTime == null || receiveTime.isAfter(latestReceiveTime))) {
+                latestReceiveTime = receiveTime;
+            }
+        }
+        if (latestReceiveTime != null) {
+            processingStatusRecorder.updatePostIndexingReceiveTime(latestReceiveTime);
         }
     }
 
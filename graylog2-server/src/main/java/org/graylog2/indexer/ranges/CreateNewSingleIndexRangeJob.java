@@ -19,11 +19,15 @@ package org.graylog2.indexer.ranges;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indices.IndexFingerprint;
 import org.graylog2.indexer.indices.Indices;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.system.NodeId;
 import org.graylog2.shared.system.activities.ActivityWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Named;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -31,7 +35,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class CreateNewSingleIndexRangeJob extends RebuildIndexRangesJob {
     private static final Logger LOG = LoggerFactory.getLogger(CreateNewSingleIndexRangeJob.class);
     private final String indexName;
-    private final Indices indices;
 
     public interface Factory {
         CreateNewSingleIndexRangeJob create(Set<IndexSet> indexSets, String indexName);
@@ -42,10 +45,12 @@ public class CreateNewSingleIndexRangeJob extends RebuildIndexRangesJob {
                                         @Assisted String indexName,
                                         ActivityWriter activityWriter,
                                         Indices indices,
-                                        IndexRangeService indexRangeService) {
-        super(indexSets, activityWriter, indexRangeService);
+                                        IndexRangeService indexRangeService,
+                                        ClusterConfigService clusterConfigService,
+                                        NodeId nodeId,
+                                        @Named("index_ranges_rebuild_parallelism") int parallelism) {
+        super(indexSets, activityWriter, indexRangeService, indices, clusterConfigService, nodeId, parallelism);
         this.indexName = checkNotNull(indexName);
-        this.indices = indices;
     }
 
     @Override
@@ -69,8 +74,9 @@ public class CreateNewSingleIndexRangeJob extends RebuildIndexRangesJob {
             return;
         }
         LOG.info("Calculating ranges for index {}.", indexName);
+        final IndexFingerprint fingerprint = fingerprints(indexName).get(indexName);
         try {
-            final IndexRange indexRange = indexRangeService.calculateRange(indexName);
+            final IndexRange indexRange = calculateRange(indexName, fingerprint);
             indexRangeService.save(indexRange);
             LOG.info("Created ranges for index {}.", indexName);
         } catch (Exception e) {
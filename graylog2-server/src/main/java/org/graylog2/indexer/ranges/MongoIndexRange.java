@@ -18,22 +18,28 @@ package org.graylog2.indexer.ranges;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 import org.bson.types.ObjectId;
 import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.indexer.indices.IndexFingerprint;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.mongojack.Id;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Optional;
 
 
 @AutoValue
 @WithBeanGetter
 @JsonAutoDetect
 public abstract class MongoIndexRange implements IndexRange {
+    public static final String FIELD_INDEX_UUID = "index_uuid";
+    public static final String FIELD_DOCUMENT_COUNT = "document_count";
+
     @Id
     @Nullable
     @JsonProperty("_id")
@@ -76,6 +82,35 @@ public abstract class MongoIndexRange implements IndexRange {
     @Nullable
     public abstract List<String> streamIds();
 
+    /**
+     * The UUID of the index when the range was calculated, {@code null} for ranges calculated by older versions.
+     */
+    @JsonProperty(FIELD_INDEX_UUID)
+    @Nullable
+    public abstract String indexUuid();
+
+    /**
+     * The document count of the index when the range was calculated, {@code null} for ranges calculated by older
+     * versions.
+     */
+    @JsonProperty(FIELD_DOCUMENT_COUNT)
+    @Nullable
+    public abstract Long documentCount();
+
+    @JsonIgnore
+    public Optional<IndexFingerprint> fingerprint() {
+        if (indexUuid() == null || documentCount() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(IndexFingerprint.create(indexUuid(), documentCount()));
+    }
+
+    public MongoIndexRange withFingerprint(@Nullable IndexFingerprint fingerprint) {
+        return new AutoValue_MongoIndexRange(id(), indexName(), begin(), end(), calculatedAt(), calculationDuration(), streamIds(),
+                fingerprint == null ? null : fingerprint.uuid(),
+                fingerprint == null ? null : fingerprint.documentCount());
+    }
+
     public static MongoIndexRange create(ObjectId id,
                                          String indexName,
                                          DateTime begin,
@@ -83,7 +118,7 @@ public abstract class MongoIndexRange implements IndexRange {
                                          DateTime calculatedAt,
                                          int calculationDuration,
                                          List<String> streamIds) {
-        return new AutoValue_MongoIndexRange(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds);
+        return new AutoValue_MongoIndexRange(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds, null, null);
     }
 
     @JsonCreator
@@ -93,11 +128,13 @@ public abstract class MongoIndexRange implements IndexRange {
                                          @JsonProperty(FIELD_END) long endMillis,
                                          @JsonProperty(FIELD_CALCULATED_AT) long calculatedAtMillis,
                                          @JsonProperty(FIELD_TOOK_MS) int calculationDuration,
-                                         @JsonProperty(FIELD_STREAM_IDS) @Nullable List<String> streamIds) {
+                                         @JsonProperty(FIELD_STREAM_IDS) @Nullable List<String> streamIds,
+                                         @JsonProperty(FIELD_INDEX_UUID) @Nullable String indexUuid,
+                                         @JsonProperty(FIELD_DOCUMENT_COUNT) @Nullable Long documentCount) {
         final DateTime begin = new DateTime(beginMillis, DateTimeZone.UTC);
         final DateTime end = new DateTime(endMillis, DateTimeZone.UTC);
         final DateTime calculatedAt = new DateTime(calculatedAtMillis, DateTimeZone.UTC);
-        return create(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds);
+        return new AutoValue_MongoIndexRange(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds, indexUuid, documentCount);
     }
 
     public static MongoIndexRange create(String indexName,
@@ -119,6 +156,17 @@ public abstract class MongoIndexRange implements IndexRange {
     }
 
     public static MongoIndexRange create(IndexRange indexRange) {
+        if (indexRange instanceof MongoIndexRange) {
+            final MongoIndexRange mongoIndexRange = (MongoIndexRange) indexRange;
+            return create(
+                    mongoIndexRange.indexName(),
+                    mongoIndexRange.begin(),
+                    mongoIndexRange.end(),
+                    mongoIndexRange.calculatedAt(),
+                    mongoIndexRange.calculationDuration(),
+                    mongoIndexRange.streamIds())
+                    .withFingerprint(mongoIndexRange.fingerprint().orElse(null));
+        }
         return create(
                 indexRange.indexName(),
                 indexRange.begin(),
@@ -19,20 +19,38 @@ package org.graylog2.indexer.ranges;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indices.IndexFingerprint;
+import org.graylog2.indexer.indices.Indices;
 import org.graylog2.indexer.indices.TooManyAliasesException;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.system.NodeId;
 import org.graylog2.shared.system.activities.Activity;
 import org.graylog2.shared.system.activities.ActivityWriter;
 import org.graylog2.system.jobs.SystemJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class RebuildIndexRangesJob extends SystemJob {
     public interface Factory {
@@ -45,18 +63,31 @@ public class RebuildIndexRangesJob extends SystemJob {
     private volatile boolean cancelRequested = false;
     private volatile int indicesToCalculate = 0;
     private final AtomicInteger indicesCalculated = new AtomicInteger(0);
+    private final AtomicInteger indicesUnchanged = new AtomicInteger(0);
 
     protected final Set<IndexSet> indexSets;
     private final ActivityWriter activityWriter;
     protected final IndexRangeService indexRangeService;
+    protected final Indices indices;
+    private final ClusterConfigService clusterConfigService;
+    private final NodeId nodeId;
+    private final int parallelism;
 
     @AssistedInject
     public RebuildIndexRangesJob(@Assisted Set<IndexSet> indexSets,
                                  ActivityWriter activityWriter,
-                                 IndexRangeService indexRangeService) {
+                                 IndexRangeService indexRangeService,
+                                 Indices indices,
+                                 ClusterConfigService clusterConfigService,
+                                 NodeId nodeId,
+                                 @Named("index_ranges_rebuild_parallelism") int parallelism) {
         this.indexSets = indexSets;
         this.activityWriter = activityWriter;
         this.indexRangeService = indexRangeService;
+        this.indices = indices;
+        this.clusterConfigService = clusterConfigService;
+        this.nodeId = nodeId;
+        this.parallelism = parallelism;
     }
 
     @Override
@@ -98,55 +129,122 @@ public class RebuildIndexRangesJob extends SystemJob {
         }
         indicesToCalculate = indexSets.values().size();
 
-        Stopwatch sw = Stopwatch.createStarted();
-        for (IndexSet indexSet : indexSets.keySet()) {
-            LOG.info("Recalculating index ranges for index set {} ({}): {} indices affected.",
-                    indexSet.getConfig().title(),
-                    indexSet.getIndexWildcard(),
-                    indexSets.get(indexSet).size());
-            for (String index : indexSets.get(indexSet)) {
+        // Ranges are saved one by one together with the fingerprint of their index, so a resumed job only has to
+        // calculate the ranges which haven't been saved before the restart.
+        final Set<String> indexSetIds = indexSets.keySet().stream()
+                .map(indexSet -> indexSet.getConfig().id())
+                .collect(Collectors.toSet());
+        clusterConfigService.write(RebuildIndexRangesState.key(nodeId.toString()),
+                RebuildIndexRangesState.create(nodeId.toString(), indexSetIds, Tools.nowUTC()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, indicesToCalculate),
+                new ThreadFactoryBuilder().setNameFormat("rebuild-index-ranges-%d").setDaemon(true).build());
+        final Stopwatch sw = Stopwatch.createStarted();
+        try {
+            final List<Future<?>> calculations = new ArrayList<>(indicesToCalculate);
+            for (IndexSet indexSet : indexSets.keySet()) {
+                LOG.info("Recalculating index ranges for index set {} ({}): {} indices affected.",
+                        indexSet.getConfig().title(),
+                        indexSet.getIndexWildcard(),
+                        indexSets.get(indexSet).size());
+
+                final String activeWriteIndex;
                 try {
-                    if (index.equals(indexSet.getActiveWriteIndex())) {
-                        LOG.debug("{} is current write target, do not calculate index range for it", index);
-                        final IndexRange emptyRange = indexRangeService.createUnknownRange(index);
-                        try {
-                            final IndexRange indexRange = indexRangeService.get(index);
-                            if (indexRange.begin().getMillis() != 0 || indexRange.end().getMillis() != 0) {
-                                LOG.info("Invalid date ranges for write index {}, resetting it.", index);
-                                indexRangeService.save(emptyRange);
-                            }
-                        } catch (NotFoundException e) {
-                            LOG.info("No index range found for write index {}, recreating it.", index);
-                            indexRangeService.save(emptyRange);
-                        }
-
-                        indicesCalculated.incrementAndGet();
-                        continue;
-                    }
+                    activeWriteIndex = indexSet.getActiveWriteIndex();
                 } catch (TooManyAliasesException e) {
                     LOG.error("Multiple write alias targets found, this is a bug.");
-                    indicesCalculated.incrementAndGet();
+                    indicesCalculated.addAndGet(indexSets.get(indexSet).size());
                     continue;
                 }
-                if (cancelRequested) {
-                    info("Stop requested. Not calculating next index range, not updating ranges.");
-                    sw.stop();
-                    return;
+                final Map<String, IndexFingerprint> fingerprints = fingerprints(indexSet.getIndexWildcard());
+
+                for (String index : indexSets.get(indexSet)) {
+                    calculations.add(executor.submit(() -> recalculate(index, index.equals(activeWriteIndex), fingerprints.get(index))));
                 }
+            }
+
+            for (Future<?> calculation : calculations) {
+                Uninterruptibles.getUninterruptibly(calculation);
+            }
+        } catch (ExecutionException e) {
+            LOG.error("Couldn't recalculate index ranges.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        clusterConfigService.remove(RebuildIndexRangesState.key(nodeId.toString()));
+        if (cancelRequested) {
+            info("Stop requested. Stopped calculating index ranges after " + indicesCalculated.get() + " of " + indicesToCalculate + " indices.");
+            return;
+        }
+        info("Done calculating index ranges for " + indicesToCalculate + " indices (" + indicesUnchanged.get() + " unchanged). Took " + sw.stop().elapsed(TimeUnit.MILLISECONDS) + "ms.");
+    }
 
+    private void recalculate(String index, boolean isWriteIndex, @Nullable IndexFingerprint fingerprint) {
+        try {
+            if (isWriteIndex) {
+                LOG.debug("{} is current write target, do not calculate index range for it", index);
+                final IndexRange emptyRange = indexRangeService.createUnknownRange(index);
                 try {
-                    final IndexRange indexRange = indexRangeService.calculateRange(index);
-                    indexRangeService.save(indexRange);
-                    LOG.info("Created ranges for index {}: {}", index, indexRange);
-                } catch (Exception e) {
-                    LOG.info("Could not calculate range of index [" + index + "]. Skipping.", e);
-                } finally {
-                    indicesCalculated.incrementAndGet();
+                    final IndexRange indexRange = indexRangeService.get(index);
+                    if (indexRange.begin().getMillis() != 0 || indexRange.end().getMillis() != 0) {
+                        LOG.info("Invalid date ranges for write index {}, resetting it.", index);
+                        indexRangeService.save(emptyRange);
+                    }
+                } catch (NotFoundException e) {
+                    LOG.info("No index range found for write index {}, recreating it.", index);
+                    indexRangeService.save(emptyRange);
                 }
+                return;
+            }
+            if (cancelRequested) {
+                return;
+            }
+            if (fingerprint != null && isUnchanged(index, fingerprint)) {
+                LOG.debug("Index {} didn't change since its range has been calculated, skipping it.", index);
+                indicesUnchanged.incrementAndGet();
+                return;
             }
+
+            final IndexRange indexRange = calculateRange(index, fingerprint);
+            indexRangeService.save(indexRange);
+            LOG.info("Created ranges for index {}: {}", index, indexRange);
+        } catch (Exception e) {
+            LOG.info("Could not calculate range of index [" + index + "]. Skipping.", e);
+        } finally {
+            indicesCalculated.incrementAndGet();
         }
+    }
+
+    private boolean isUnchanged(String index, IndexFingerprint fingerprint) {
+        try {
+            final IndexRange indexRange = indexRangeService.get(index);
+            return indexRange instanceof MongoIndexRange
+                    && ((MongoIndexRange) indexRange).fingerprint().map(fingerprint::equals).orElse(false);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the fingerprints of the indices matching the given pattern or an empty map if they can't be retrieved.
+     * Ranges of indices without fingerprint are always calculated.
+     */
+    protected Map<String, IndexFingerprint> fingerprints(String indexPattern) {
+        try {
+            return indices.getIndexFingerprints(indexPattern);
+        } catch (Exception e) {
+            LOG.warn("Couldn't get fingerprints of indices <{}>, calculating their ranges without fingerprints.", indexPattern, e);
+            return Collections.emptyMap();
+        }
+    }
 
-        info("Done calculating index ranges for " + indicesToCalculate + " indices. Took " + sw.stop().elapsed(TimeUnit.MILLISECONDS) + "ms.");
+    /**
+     * Calculates the range of the given index and attaches the given fingerprint, so that later rebuilds can skip the
+     * index if it didn't change.
+     */
+    protected MongoIndexRange calculateRange(String index, @Nullable IndexFingerprint fingerprint) {
+        return MongoIndexRange.create(indexRangeService.calculateRange(index)).withFingerprint(fingerprint);
     }
 
     protected void info(String what) {
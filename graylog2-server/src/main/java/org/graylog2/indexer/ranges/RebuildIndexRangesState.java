@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+import org.joda.time.DateTime;
+
+import java.util.Set;
+
+/**
+ * Marks a running {@link RebuildIndexRangesJob}, so it can be resumed if the node running it is restarted.
+ * <p>
+ * Every node stores its state under its own {@link #key(String) key}, so rebuilds running on different nodes don't
+ * overwrite or remove each other's state.
+ */
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class RebuildIndexRangesState {
+    @JsonProperty("node_id")
+    public abstract String nodeId();
+
+    @JsonProperty("index_set_ids")
+    public abstract Set<String> indexSetIds();
+
+    @JsonProperty("started_at")
+    public abstract DateTime startedAt();
+
+    @JsonCreator
+    public static RebuildIndexRangesState create(@JsonProperty("node_id") String nodeId,
+                                                 @JsonProperty("index_set_ids") Set<String> indexSetIds,
+                                                 @JsonProperty("started_at") DateTime startedAt) {
+        return new AutoValue_RebuildIndexRangesState(nodeId, indexSetIds, startedAt);
+    }
+
+    public static String key(String nodeId) {
+        return RebuildIndexRangesState.class.getCanonicalName() + "." + nodeId;
+    }
+}
@@ -22,8 +22,10 @@ import org.graylog2.grok.GrokPatternRegistry;
 import org.graylog2.lookup.LookupTableService;
 import org.graylog2.plugin.inputs.Converter;
 import org.graylog2.plugin.inputs.Extractor;
+import org.graylog2.shared.metrics.SampledTimer;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import java.util.List;
 import java.util.Map;
 
@@ -31,12 +33,21 @@ public class ExtractorFactory {
     private final MetricRegistry metricRegistry;
     private final GrokPatternRegistry grokPatternRegistry;
     private final LookupTableService lookupTableService;
+    private final int timerSampleRate;
 
-    @Inject
     public ExtractorFactory(MetricRegistry metricRegistry, GrokPatternRegistry grokPatternRegistry, LookupTableService lookupTableService) {
+        this(metricRegistry, grokPatternRegistry, lookupTableService, 1);
+    }
+
+    @Inject
+    public ExtractorFactory(MetricRegistry metricRegistry,
+                            GrokPatternRegistry grokPatternRegistry,
+                            LookupTableService lookupTableService,
+                            @Named("extractor_timer_sample_rate") int timerSampleRate) {
         this.metricRegistry = metricRegistry;
         this.grokPatternRegistry = grokPatternRegistry;
         this.lookupTableService = lookupTableService;
+        this.timerSampleRate = timerSampleRate;
     }
 
     public Extractor factory(String id,
@@ -55,26 +66,43 @@ public class ExtractorFactory {
         // TODO convert to guice factory
         switch (type) {
             case REGEX:
+                registerTimers(RegexExtractor.class, type, id);
                 return new RegexExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case SUBSTRING:
+                registerTimers(SubstringExtractor.class, type, id);
                 return new SubstringExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case SPLIT_AND_INDEX:
+                registerTimers(SplitAndIndexExtractor.class, type, id);
                 return new SplitAndIndexExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case COPY_INPUT:
+                registerTimers(CopyInputExtractor.class, type, id);
                 return new CopyInputExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case REGEX_REPLACE:
+                registerTimers(RegexReplaceExtractor.class, type, id);
                 return new RegexReplaceExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case GROK:
+                registerTimers(GrokExtractor.class, type, id);
                 return new GrokExtractor(metricRegistry, grokPatternRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case JSON:
+                registerTimers(JsonExtractor.class, type, id);
                 return new JsonExtractor(metricRegistry, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             case LOOKUP_TABLE:
+                registerTimers(LookupTableExtractor.class, type, id);
                 return new LookupTableExtractor(metricRegistry, lookupTableService, id, title, order, cursorStrategy, sourceField, targetField, extractorConfig, creatorUserId, converters, conditionType, conditionValue);
             default:
                 throw new NoSuchExtractorException();
         }
     }
 
+    private void registerTimers(Class<? extends Extractor> extractorClass, Extractor.Type type, String id) {
+        // The extractor looks up its timers by name, so sampled timers have to be registered before it is created
+        if (timerSampleRate > 1) {
+            for (String timerName : Extractor.getTimerNames(extractorClass, type, id)) {
+                SampledTimer.getOrRegister(metricRegistry, timerName, timerSampleRate);
+            }
+        }
+    }
+
     public static class NoSuchExtractorException extends Exception {
     }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import com.codahale.metrics.Timer;
+import com.rabbitmq.client.Channel;
+import org.graylog2.plugin.buffers.InputBuffer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Acknowledges the deliveries of an AMQP channel in batches, once they have been written to the message journal.
+ * <p>
+ * Deliveries are grouped into batches of up to {@code batchSize} messages or {@code maxDelay}, whichever comes
+ * first. Each batch remembers an input buffer checkpoint, and is acknowledged with a single
+ * {@code basicAck(deliveryTag, multiple = true)} once the checkpoint has been reached.
+ */
+class AmqpAcknowledger {
+    private final Channel channel;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Supplier<InputBuffer.Checkpoint> checkpointSupplier;
+    private final Timer ackLatency;
+    private final LongSupplier nanoClock;
+
+    private final Deque<PendingAck> pendingAcks = new ArrayDeque<>();
+    private long lastDeliveryTag = -1L;
+    private int unbatchedDeliveries = 0;
+    private long firstUnbatchedDeliveryNanos = 0L;
+    private long unackedDeliveries = 0L;
+
+    AmqpAcknowledger(Channel channel,
+                     int batchSize,
+                     long maxDelay,
+                     TimeUnit maxDelayUnit,
+                     Supplier<InputBuffer.Checkpoint> checkpointSupplier,
+                     Timer ackLatency) {
+        this(channel, batchSize, maxDelayUnit.toNanos(maxDelay), checkpointSupplier, ackLatency, System::nanoTime);
+    }
+
+    AmqpAcknowledger(Channel channel,
+                     int batchSize,
+                     long maxDelayNanos,
+                     Supplier<InputBuffer.Checkpoint> checkpointSupplier,
+                     Timer ackLatency,
+                     LongSupplier nanoClock) {
+        this.channel = channel;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.checkpointSupplier = checkpointSupplier;
+        this.ackLatency = ackLatency;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Registers a delivery which has been handed over to the input buffer.
+     */
+    synchronized void delivered(long deliveryTag) throws IOException {
+        if (unbatchedDeliveries == 0) {
+            firstUnbatchedDeliveryNanos = nanoClock.getAsLong();
+        }
+        lastDeliveryTag = deliveryTag;
+        unbatchedDeliveries++;
+        unackedDeliveries++;
+
+        if (unbatchedDeliveries >= batchSize) {
+            closeBatch();
+        }
+        acknowledgeWritten();
+    }
+
+    /**
+     * Closes the current batch if it is older than the maximum delay, and acknowledges all batches
+     * which have been written to the journal.
+     */
+    synchronized void flush() throws IOException {
+        if (unbatchedDeliveries > 0 && nanoClock.getAsLong() - firstUnbatchedDeliveryNanos >= maxDelayNanos) {
+            closeBatch();
+        }
+        acknowledgeWritten();
+    }
+
+    /**
+     * Closes the current batch and waits up to the given time for all batches to be acknowledged.
+     * Deliveries which couldn't be acknowledged in time will be redelivered by the broker.
+     */
+    void flushAll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        final long deadline = nanoClock.getAsLong() + unit.toNanos(timeout);
+        while (!flushAll() && nanoClock.getAsLong() < deadline) {
+            Thread.sleep(10L);
+        }
+    }
+
+    private synchronized boolean flushAll() throws IOException {
+        if (unbatchedDeliveries > 0) {
+            closeBatch();
+        }
+        acknowledgeWritten();
+        return pendingAcks.isEmpty();
+    }
+
+    /**
+     * @return the number of deliveries which haven't been acknowledged yet
+     */
+    synchronized long getUnackedDeliveries() {
+        return unackedDeliveries;
+    }
+
+    private void closeBatch() {
+        pendingAcks.add(new PendingAck(checkpointSupplier.get(), lastDeliveryTag, unbatchedDeliveries, firstUnbatchedDeliveryNanos));
+        unbatchedDeliveries = 0;
+    }
+
+    private void acknowledgeWritten() throws IOException {
+        PendingAck lastWritten = null;
+        int writtenDeliveries = 0;
+        while (!pendingAcks.isEmpty() && pendingAcks.peek().checkpoint.isReached()) {
+            lastWritten = pendingAcks.poll();
+            writtenDeliveries += lastWritten.deliveries;
+        }
+        if (lastWritten == null) {
+            return;
+        }
+
+        // Acknowledges all earlier deliveries of the channel as well
+        channel.basicAck(lastWritten.deliveryTag, true);
+        unackedDeliveries -= writtenDeliveries;
+        ackLatency.update(nanoClock.getAsLong() - lastWritten.firstDeliveryNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static class PendingAck {
+        private final InputBuffer.Checkpoint checkpoint;
+        private final long deliveryTag;
+        private final int deliveries;
+        private final long firstDeliveryNanos;
+
+        private PendingAck(InputBuffer.Checkpoint checkpoint, long deliveryTag, int deliveries, long firstDeliveryNanos) {
+            this.checkpoint = checkpoint;
+            this.deliveryTag = deliveryTag;
+            this.deliveries = deliveries;
+            this.firstDeliveryNanos = firstDeliveryNanos;
+        }
+    }
+}
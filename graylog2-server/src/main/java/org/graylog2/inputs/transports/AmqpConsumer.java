@@ -16,6 +16,7 @@
  */
 package org.graylog2.inputs.transports;
 
+import com.codahale.metrics.Timer;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
@@ -30,8 +31,11 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -40,6 +44,7 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 
 public class AmqpConsumer {
     private static final Logger LOG = LoggerFactory.getLogger(AmqpConsumer.class);
+    private static final long ACK_FLUSH_INTERVAL_MS = 10L;
 
     // Not threadsafe!
 
@@ -57,12 +62,18 @@ public class AmqpConsumer {
     private final boolean requeueInvalid;
 
     private Connection connection;
-    private Channel channel;
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final List<AmqpAcknowledger> acknowledgers = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> ackFlushTask;
 
     private final int heartbeatTimeout;
     private final MessageInput sourceInput;
     private final int parallelQueues;
     private final boolean tls;
+    private final int ackBatchSize;
+    private final long ackMaxDelayMs;
+    private final Timer ackLatency;
+    private final ScheduledExecutorService scheduler;
     private AmqpTransport amqpTransport;
 
     private AtomicLong totalBytesRead = new AtomicLong(0);
@@ -73,6 +84,20 @@ public class AmqpConsumer {
                         int prefetchCount, String queue, String exchange, boolean exchangeBind, String routingKey,int parallelQueues,
                         boolean tls, boolean requeueInvalid, int heartbeatTimeout, MessageInput sourceInput,
                         ScheduledExecutorService scheduler, AmqpTransport amqpTransport) {
+        this(hostname, port, virtualHost, username, password, prefetchCount, queue, exchange, exchangeBind, routingKey,
+                parallelQueues, tls, requeueInvalid, heartbeatTimeout, 1, 0L, new Timer(), sourceInput, scheduler, amqpTransport);
+    }
+
+    /**
+     * @param ackBatchSize   the number of deliveries which are acknowledged at once, after they have been written to the
+     *                       message journal. Every delivery is acknowledged right after hand over if this is 1 or less.
+     * @param ackMaxDelayMs  the maximum time in milliseconds a delivery waits for its batch to be closed
+     * @param ackLatency     timer for the time between a delivery and its acknowledgement
+     */
+    public AmqpConsumer(String hostname, int port, String virtualHost, String username, String password,
+                        int prefetchCount, String queue, String exchange, boolean exchangeBind, String routingKey, int parallelQueues,
+                        boolean tls, boolean requeueInvalid, int heartbeatTimeout, int ackBatchSize, long ackMaxDelayMs,
+                        Timer ackLatency, MessageInput sourceInput, ScheduledExecutorService scheduler, AmqpTransport amqpTransport) {
         this.hostname = hostname;
         this.port = port;
         this.virtualHost = virtualHost;
@@ -90,8 +115,17 @@ public class AmqpConsumer {
         this.parallelQueues = parallelQueues;
         this.tls = tls;
         this.requeueInvalid = requeueInvalid;
+        this.ackBatchSize = ackBatchSize;
+        this.ackMaxDelayMs = ackMaxDelayMs;
+        this.ackLatency = ackLatency;
+        this.scheduler = scheduler;
         this.amqpTransport = amqpTransport;
 
+        if (isBatchedAck() && prefetchCount > 0 && prefetchCount < ackBatchSize) {
+            LOG.warn("AMQP prefetch count <{}> is smaller than the acknowledgement batch size <{}>. Batches will only be " +
+                    "acknowledged after the maximum delay.", prefetchCount, ackBatchSize);
+        }
+
         scheduler.scheduleAtFixedRate(() -> lastSecBytesRead.set(lastSecBytesReadTmp.getAndSet(0)), 1, 1, TimeUnit.SECONDS);
     }
 
@@ -102,6 +136,9 @@ public class AmqpConsumer {
 
         for (int i = 0; i < parallelQueues; i++) {
             final String queueName = String.format(Locale.ENGLISH, queue, i);
+            // Every queue gets its own channel, so that deliveries of different queues are dispatched in parallel
+            final Channel channel = channels.get(i);
+            final AmqpAcknowledger acknowledger = isBatchedAck() ? acknowledgers.get(i) : null;
             channel.queueDeclare(queueName, true, false, false, null);
             if (exchangeBind) {
                 channel.queueBind(queueName, exchange, routingKey);
@@ -122,7 +159,11 @@ public class AmqpConsumer {
                         }
 
                         sourceInput.processRawMessage(rawMessage);
-                        channel.basicAck(deliveryTag, false);
+                        if (acknowledger != null) {
+                            acknowledger.delivered(deliveryTag);
+                        } else {
+                            channel.basicAck(deliveryTag, false);
+                        }
                     } catch (Exception e) {
                         LOG.error("Error while trying to process AMQP message", e);
                         if (channel.isOpen()) {
@@ -140,6 +181,39 @@ public class AmqpConsumer {
                 }
             });
         }
+
+        if (isBatchedAck()) {
+            // run() is called again on reconnect, don't leave the flush task of the previous connection running
+            if (ackFlushTask != null) {
+                ackFlushTask.cancel(false);
+            }
+            ackFlushTask = scheduler.scheduleAtFixedRate(this::flushAcknowledgers, ACK_FLUSH_INTERVAL_MS, ACK_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean isBatchedAck() {
+        return ackBatchSize > 1;
+    }
+
+    private void flushAcknowledgers() {
+        for (AmqpAcknowledger acknowledger : acknowledgers) {
+            try {
+                acknowledger.flush();
+            } catch (Exception e) {
+                LOG.warn("Unable to acknowledge AMQP messages", e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of deliveries which have been handed over, but not acknowledged yet
+     */
+    public long getUnackedMessages() {
+        long unacked = 0L;
+        for (AmqpAcknowledger acknowledger : acknowledgers) {
+            unacked += acknowledger.getUnackedDeliveries();
+        }
+        return unacked;
     }
 
     public void connect() throws IOException {
@@ -172,16 +246,27 @@ public class AmqpConsumer {
             throw new IOException("Timeout while opening new AMQP connection", e);
         }
 
-        channel = connection.createChannel();
+        channels.clear();
+        acknowledgers.clear();
+        for (int i = 0; i < parallelQueues; i++) {
+            final Channel channel = connection.createChannel();
+
+            if (null == channel) {
+                LOG.error("No channel descriptor available!");
+                throw new IOException("No AMQP channel available");
+            }
 
-        if (null == channel) {
-            LOG.error("No channel descriptor available!");
-        }
+            if (prefetchCount > 0) {
+                channel.basicQos(prefetchCount);
 
-        if (null != channel && prefetchCount > 0) {
-            channel.basicQos(prefetchCount);
+                LOG.debug("AMQP prefetch count overriden to <{}>.", prefetchCount);
+            }
 
-            LOG.debug("AMQP prefetch count overriden to <{}>.", prefetchCount);
+            channels.add(channel);
+            if (isBatchedAck()) {
+                acknowledgers.add(new AmqpAcknowledger(channel, ackBatchSize, ackMaxDelayMs, TimeUnit.MILLISECONDS,
+                        sourceInput::checkpoint, ackLatency));
+            }
         }
 
         connection.addShutdownListener(cause -> {
@@ -195,12 +280,31 @@ public class AmqpConsumer {
 
 
     public void stop() throws IOException {
-        if (channel != null && channel.isOpen()) {
+        if (ackFlushTask != null) {
+            ackFlushTask.cancel(false);
+            ackFlushTask = null;
+        }
+
+        for (AmqpAcknowledger acknowledger : acknowledgers) {
             try {
-                channel.close();
-            } catch (TimeoutException e) {
-                LOG.error("Timeout when closing AMQP channel", e);
-                channel.abort();
+                // Unacknowledged deliveries are redelivered by the broker after closing the channel
+                acknowledger.flushAll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                LOG.warn("Unable to acknowledge AMQP messages", e);
+            }
+        }
+
+        for (Channel channel : channels) {
+            if (channel.isOpen()) {
+                try {
+                    channel.close();
+                } catch (TimeoutException e) {
+                    LOG.error("Timeout when closing AMQP channel", e);
+                    channel.abort();
+                }
             }
         }
 
@@ -212,8 +316,8 @@ public class AmqpConsumer {
     public boolean isConnected() {
         return connection != null
                 && connection.isOpen()
-                && channel != null
-                && channel.isOpen();
+                && !channels.isEmpty()
+                && channels.stream().allMatch(Channel::isOpen);
     }
 
     public AtomicLong getLastSecBytesRead() {
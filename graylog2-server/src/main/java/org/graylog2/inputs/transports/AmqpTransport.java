@@ -18,6 +18,7 @@ package org.graylog2.inputs.transports;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.assistedinject.Assisted;
@@ -60,13 +61,17 @@ public class AmqpTransport extends ThrottleableTransport {
     public static final String CK_TLS = "tls";
     public static final String CK_REQUEUE_INVALID_MESSAGES = "requeue_invalid_messages";
     public static final String CK_HEARTBEAT_TIMEOUT = "heartbeat";
+    public static final String CK_ACK_BATCH_SIZE = "ack_batch_size";
+    public static final String CK_ACK_MAX_DELAY = "ack_max_delay";
 
     private static final Logger LOG = LoggerFactory.getLogger(AmqpTransport.class);
+    private static final int DEFAULT_ACK_MAX_DELAY_MS = 100;
 
     private final Configuration configuration;
     private final EventBus eventBus;
     private final MetricRegistry localRegistry;
     private final ScheduledExecutorService scheduler;
+    private final Timer ackLatency;
 
     private AmqpConsumer consumer;
 
@@ -101,6 +106,8 @@ public class AmqpTransport extends ThrottleableTransport {
                                     public Long getValue() { return 0L;
                                     }
                                 });
+        localRegistry.register("unacked_messages", (Gauge<Long>) () -> consumer == null ? 0L : consumer.getUnackedMessages());
+        this.ackLatency = localRegistry.timer("ack_latency");
     }
 
     @Subscribe
@@ -167,6 +174,9 @@ public class AmqpTransport extends ThrottleableTransport {
                 configuration.getBoolean(CK_TLS),
                 configuration.getBoolean(CK_REQUEUE_INVALID_MESSAGES),
                 heartbeatTimeout,
+                configuration.intIsSet(CK_ACK_BATCH_SIZE) ? configuration.getInt(CK_ACK_BATCH_SIZE) : 1,
+                configuration.intIsSet(CK_ACK_MAX_DELAY) ? configuration.getInt(CK_ACK_MAX_DELAY) : DEFAULT_ACK_MAX_DELAY_MS,
+                ackLatency,
                 input,
                 scheduler,
                 this
@@ -332,6 +342,27 @@ public class AmqpTransport extends ThrottleableTransport {
                     )
             );
 
+            cr.addField(
+                    new NumberField(
+                            CK_ACK_BATCH_SIZE,
+                            "Acknowledgement batch size",
+                            1,
+                            "Number of messages which are acknowledged at once, after they have been written to the " +
+                                    "message journal. Use 1 to acknowledge every message right after it has been received.",
+                            ConfigurationField.Optional.OPTIONAL
+                    )
+            );
+
+            cr.addField(
+                    new NumberField(
+                            CK_ACK_MAX_DELAY,
+                            "Acknowledgement maximum delay (ms)",
+                            DEFAULT_ACK_MAX_DELAY_MS,
+                            "Maximum time to wait for an acknowledgement batch to fill up.",
+                            ConfigurationField.Optional.OPTIONAL
+                    )
+            );
+
             cr.addField(
                     new BooleanField(
                             CK_TLS,
@@ -29,6 +29,7 @@ import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.graylog2.configuration.TLSProtocolsConfiguration;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
 import org.graylog2.inputs.transports.netty.HttpHandler;
+import org.graylog2.inputs.transports.netty.RawMessageBatchHandler;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
@@ -55,8 +56,10 @@ public class HttpTransport extends AbstractTcpTransport {
     static final String CK_ENABLE_CORS = "enable_cors";
     static final String CK_MAX_CHUNK_SIZE = "max_chunk_size";
     static final String CK_IDLE_WRITER_TIMEOUT = "idle_writer_timeout";
+    static final String CK_ENABLE_BULK_RECEIVING = "enable_bulk_receiving";
 
     private final boolean enableCors;
+    private final boolean enableBulkReceiving;
     private final int maxChunkSize;
     private final int idleWriterTimeout;
 
@@ -67,16 +70,19 @@ public class HttpTransport extends AbstractTcpTransport {
                          NettyTransportConfiguration nettyTransportConfiguration,
                          ThroughputCounter throughputCounter,
                          LocalMetricRegistry localRegistry,
-                         TLSProtocolsConfiguration tlsConfiguration) {
+                         TLSProtocolsConfiguration tlsConfiguration,
+                         InputBackpressure inputBackpressure) {
         super(configuration,
               throughputCounter,
               localRegistry,
               eventLoopGroup,
               eventLoopGroupFactory,
               nettyTransportConfiguration,
-              tlsConfiguration);
+              tlsConfiguration,
+              inputBackpressure);
 
         enableCors = configuration.getBoolean(CK_ENABLE_CORS);
+        enableBulkReceiving = configuration.getBoolean(CK_ENABLE_BULK_RECEIVING);
 
         int maxChunkSize = configuration.intIsSet(CK_MAX_CHUNK_SIZE) ? configuration.getInt(CK_MAX_CHUNK_SIZE) : DEFAULT_MAX_CHUNK_SIZE;
         this.maxChunkSize = maxChunkSize <= 0 ? DEFAULT_MAX_CHUNK_SIZE : maxChunkSize;
@@ -98,7 +104,10 @@ public class HttpTransport extends AbstractTcpTransport {
         handlers.put("decompressor", HttpContentDecompressor::new);
         handlers.put("encoder", HttpResponseEncoder::new);
         handlers.put("aggregator", () -> new HttpObjectAggregator(maxChunkSize));
-        handlers.put("http-handler", () -> new HttpHandler(enableCors));
+        handlers.put("http-handler", () -> new HttpHandler(enableCors, enableBulkReceiving));
+        if (enableBulkReceiving) {
+            handlers.put("bulk-handler", () -> new RawMessageBatchHandler(input));
+        }
         handlers.putAll(super.getCustomChildChannelHandlers(input));
 
         return handlers;
@@ -133,6 +142,10 @@ public class HttpTransport extends AbstractTcpTransport {
                                         "The server closes the connection after the given time in seconds after the last client write request. (use 0 to disable)",
                                         ConfigurationField.Optional.OPTIONAL,
                                         NumberField.Attribute.ONLY_POSITIVE));
+            r.addField(new BooleanField(CK_ENABLE_BULK_RECEIVING,
+                                        "Enable bulk receiving",
+                                        false,
+                                        "Accept newline-delimited messages on the /gelf/bulk path. The whole request must fit into the max. HTTP chunk size."));
             return r;
         }
     }
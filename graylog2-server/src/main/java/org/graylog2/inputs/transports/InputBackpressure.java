@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.graylog2.plugin.ThrottleState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.graylog2.shared.metrics.MetricUtils.safelyRegister;
+
+/**
+ * Derives a graded backpressure level for inputs from the {@link ThrottleState} which is published every second.
+ * <p>
+ * The pressure is a value between {@code 0} (read as fast as possible) and {@code 1} (don't read at all). It rises
+ * as soon as the journal utilization, the journal write latency or the process buffer usage exceed their thresholds,
+ * and decays smoothly once they recover, to avoid that inputs oscillate between reading and not reading at all.
+ * Only a (nearly) full journal results in a pressure of {@code 1}.
+ */
+@Singleton
+public class InputBackpressure {
+    private static final Logger LOG = LoggerFactory.getLogger(InputBackpressure.class);
+
+    private static final InputBackpressure DISABLED = new InputBackpressure(false, 100, Duration.milliseconds(100));
+
+    private static final double FULL_JOURNAL_UTILIZATION = 0.95;
+    private static final double MAX_LATENCY_PRESSURE = 0.9;
+    private static final double PROCESS_BUFFER_USAGE_THRESHOLD = 0.9;
+    private static final double MAX_PROCESS_BUFFER_PRESSURE = 0.5;
+    private static final double DECAY = 0.5;
+    private static final double MIN_PRESSURE = 0.01;
+
+    private final boolean enabled;
+    private final double journalUtilizationThreshold;
+    private final long journalWriteLatencyThresholdNanos;
+
+    private volatile double pressure = 0.0d;
+
+    @Inject
+    public InputBackpressure(@Named("input_backpressure_enabled") boolean enabled,
+                             @Named("input_backpressure_journal_utilization_percentage") int journalUtilizationPercentage,
+                             @Named("input_backpressure_journal_write_latency") Duration journalWriteLatency,
+                             EventBus eventBus,
+                             MetricRegistry metricRegistry) {
+        this(enabled, journalUtilizationPercentage, journalWriteLatency);
+        if (enabled) {
+            eventBus.register(this);
+            safelyRegister(metricRegistry, name(InputBackpressure.class, "pressure"), (Gauge<Double>) this::getPressure);
+        }
+    }
+
+    @VisibleForTesting
+    InputBackpressure(boolean enabled, int journalUtilizationPercentage, Duration journalWriteLatency) {
+        this.enabled = enabled;
+        this.journalUtilizationThreshold = journalUtilizationPercentage / 100.0d;
+        this.journalWriteLatencyThresholdNanos = journalWriteLatency.toNanoseconds();
+    }
+
+    /**
+     * @return an instance which never applies any backpressure
+     */
+    public static InputBackpressure disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the current pressure between {@code 0} (no backpressure) and {@code 1} (stop reading)
+     */
+    public double getPressure() {
+        return pressure;
+    }
+
+    @Subscribe
+    public void updateThrottleState(ThrottleState throttleState) {
+        final double target = targetPressure(throttleState);
+        final double previous = pressure;
+        // Back off immediately, but recover gradually
+        final double next = target >= previous ? target : previous + (target - previous) * DECAY;
+        pressure = next < MIN_PRESSURE ? 0.0d : next;
+        LOG.debug("Input backpressure changed from {} to {} (target {})", previous, pressure, target);
+    }
+
+    @VisibleForTesting
+    double targetPressure(ThrottleState state) {
+        final double journalUtilization = state.journalSizeLimit > 0 ? state.journalSize / (double) state.journalSizeLimit : 0.0d;
+        final double journalPressure = ramp(journalUtilization, journalUtilizationThreshold, FULL_JOURNAL_UTILIZATION);
+
+        final double latencyPressure = MAX_LATENCY_PRESSURE * ramp(state.journalWriteLatencyNanos,
+                journalWriteLatencyThresholdNanos, 4.0d * journalWriteLatencyThresholdNanos);
+
+        final double processBufferUsage = state.processBufferSize > 0 ? 1.0d - state.processBufferCapacity / (double) state.processBufferSize : 0.0d;
+        final double processBufferPressure = MAX_PROCESS_BUFFER_PRESSURE * ramp(processBufferUsage, PROCESS_BUFFER_USAGE_THRESHOLD, 1.0d);
+
+        return Math.max(journalPressure, Math.max(latencyPressure, processBufferPressure));
+    }
+
+    private static double ramp(double value, double low, double high) {
+        if (value >= high) {
+            return 1.0d;
+        } else if (value <= low) {
+            return 0.0d;
+        }
+        return (value - low) / (high - low);
+    }
+}
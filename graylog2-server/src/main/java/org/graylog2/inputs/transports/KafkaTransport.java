@@ -28,11 +28,14 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.InvalidOffsetException;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.AuthorizationException;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
@@ -47,6 +50,7 @@ import org.graylog.shaded.kafka09.javaapi.consumer.ConsumerConnector;
 import org.graylog.shaded.kafka09.message.MessageAndMetadata;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.plugin.configuration.fields.BooleanField;
@@ -71,7 +75,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
@@ -97,6 +107,7 @@ public class KafkaTransport extends ThrottleableTransport {
     public static final String CK_OFFSET_RESET = "offset_reset";
     public static final String CK_GROUP_ID = "group_id";
     public static final String CK_CUSTOM_PROPERTIES = "custom_properties";
+    public static final String CK_COMMIT_AFTER_JOURNAL_WRITE = "commit_after_journal_write";
 
     // See https://kafka.apache.org/090/documentation.html for available values for "auto.offset.reset".
     private static final ImmutableMap<String, String> OFFSET_RESET_VALUES = ImmutableMap.of(
@@ -234,6 +245,10 @@ public class KafkaTransport extends ThrottleableTransport {
         // Default auto commit interval is 60 seconds. Reduce to 1 second to minimize message duplication
         // if something breaks.
         props.put("auto.commit.interval.ms", "1000");
+        if (configuration.getBoolean(CK_COMMIT_AFTER_JOURNAL_WRITE, false)) {
+            // Offsets are committed by the consumer threads once the records have been written to the journal
+            props.put(org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        }
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 
@@ -251,17 +266,29 @@ public class KafkaTransport extends ThrottleableTransport {
     private class ConsumerRunnable implements Runnable {
         private final MessageInput input;
         private final KafkaConsumer<byte[], byte[]> consumer;
+        private final boolean commitAfterJournalWrite;
+        private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
 
         public ConsumerRunnable(Properties props, MessageInput input, int threadId) {
             this.input = input;
+            this.commitAfterJournalWrite = configuration.getBoolean(CK_COMMIT_AFTER_JOURNAL_WRITE, false);
             final Properties nprops = (Properties) props.clone();
             nprops.put("client.id", "gl2-" + nodeId.getShortNodeId() + "-" + input.getId() + "-" + threadId);
             consumer = new KafkaConsumer<>(nprops);
             //noinspection ConstantConditions
-            consumer.subscribe(Pattern.compile(configuration.getString(CK_TOPIC_FILTER)));
+            final Pattern topicPattern = Pattern.compile(configuration.getString(CK_TOPIC_FILTER));
+            if (commitAfterJournalWrite) {
+                consumer.subscribe(topicPattern, new CommitOnRevokeListener());
+            } else {
+                consumer.subscribe(topicPattern);
+            }
         }
 
         private void consumeRecords(ConsumerRecords<byte[], byte[]> consumerRecords) {
+            if (commitAfterJournalWrite) {
+                consumeRecordsBatched(consumerRecords);
+                return;
+            }
             for (final ConsumerRecord<byte[], byte[]> record : consumerRecords) {
                 if (paused) {
                     // we try not to spin here, so we wait until the lifecycle goes back to running.
@@ -292,6 +319,98 @@ public class KafkaTransport extends ThrottleableTransport {
             }
         }
 
+        /**
+         * Hands over all polled records at once and remembers their offsets, to commit them
+         * once the records have been written to the journal.
+         */
+        private void consumeRecordsBatched(ConsumerRecords<byte[], byte[]> consumerRecords) {
+            if (consumerRecords.isEmpty()) {
+                return;
+            }
+            if (paused) {
+                // we try not to spin here, so we wait until the lifecycle goes back to running.
+                LOG.debug("Message processing is paused, blocking until message processing is turned back on.");
+                Uninterruptibles.awaitUninterruptibly(pausedLatch);
+            }
+            // the offsets of records which haven't been handed over are not committed, so they will be consumed again
+            if (stopped) {
+                return;
+            }
+            if (isThrottled()) {
+                blockUntilUnthrottled();
+            }
+
+            final List<RawMessage> rawMessages = new ArrayList<>(consumerRecords.count());
+            for (final ConsumerRecord<byte[], byte[]> record : consumerRecords) {
+                final byte[] bytes = record.value();
+
+                // it is possible that the message is null
+                if (bytes == null) {
+                    continue;
+                }
+                totalBytesRead.addAndGet(bytes.length);
+                lastSecBytesReadTmp.addAndGet(bytes.length);
+
+                rawMessages.add(new RawMessage(bytes));
+            }
+            input.processRawMessages(rawMessages);
+
+            final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (final TopicPartition partition : consumerRecords.partitions()) {
+                final List<ConsumerRecord<byte[], byte[]>> partitionRecords = consumerRecords.records(partition);
+                final long lastOffset = partitionRecords.get(partitionRecords.size() - 1).offset();
+                offsets.put(partition, new OffsetAndMetadata(lastOffset + 1));
+            }
+            pendingCommits.add(new PendingCommit(input.checkpoint(), offsets));
+        }
+
+        /**
+         * Commits the offsets of all handed over records which have been written to the journal in the meantime.
+         */
+        private void commitWrittenOffsets() {
+            final Map<TopicPartition, OffsetAndMetadata> offsets = writtenOffsets();
+            if (!offsets.isEmpty()) {
+                consumer.commitAsync(offsets, (committedOffsets, e) -> {
+                    if (e != null) {
+                        LOG.warn("Failed to commit offsets {}", committedOffsets, e);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Waits until all handed over records have been written to the journal, and commits their offsets.
+         * Offsets of records which couldn't be written in time are not committed.
+         */
+        private void commitPendingOffsets() {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (!pendingCommits.isEmpty() && !pendingCommits.getLast().checkpoint.isReached() && System.nanoTime() < deadline) {
+                Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+            }
+            final Map<TopicPartition, OffsetAndMetadata> offsets = writtenOffsets();
+            if (!pendingCommits.isEmpty()) {
+                LOG.warn("Timed out waiting for {} batches of records to be written to the journal. Their offsets won't be committed.",
+                        pendingCommits.size());
+                pendingCommits.clear();
+            }
+            if (!offsets.isEmpty()) {
+                try {
+                    consumer.commitSync(offsets);
+                } catch (KafkaException e) {
+                    LOG.warn("Failed to commit offsets {}", offsets, e);
+                }
+            }
+        }
+
+        private Map<TopicPartition, OffsetAndMetadata> writtenOffsets() {
+            final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            while (!pendingCommits.isEmpty() && pendingCommits.peek().checkpoint.isReached()) {
+                // later batches contain higher offsets for the same partitions
+                offsets.putAll(pendingCommits.poll().offsets);
+            }
+            return offsets;
+        }
+
         private Optional<ConsumerRecords<byte[], byte[]>> tryPoll() {
             try {
                 final ConsumerRecords<byte[], byte[]> consumerRecords = consumer.poll(Duration.ofSeconds(1));
@@ -323,6 +442,9 @@ public class KafkaTransport extends ThrottleableTransport {
                 }
                 try {
                     consumeRecords(consumerRecords.get());
+                    if (commitAfterJournalWrite) {
+                        commitWrittenOffsets();
+                    }
                 } catch (Exception e) {
                     LOG.error("Exception in consumer thread. Stopping input", e);
                     stopped = true;
@@ -331,10 +453,36 @@ public class KafkaTransport extends ThrottleableTransport {
             }
             // explicitly commit our offsets when stopping.
             // this might trigger a couple of times, but it won't hurt
-            consumer.commitAsync();
+            if (commitAfterJournalWrite) {
+                commitPendingOffsets();
+            } else {
+                consumer.commitAsync();
+            }
             stopLatch.countDown();
             consumer.close(Duration.ofSeconds(5));
         }
+
+        private class CommitOnRevokeListener implements ConsumerRebalanceListener {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                // commit before another consumer takes over the partitions, to avoid consuming records twice
+                commitPendingOffsets();
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+        }
+    }
+
+    private static class PendingCommit {
+        private final InputBuffer.Checkpoint checkpoint;
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+        private PendingCommit(InputBuffer.Checkpoint checkpoint, Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.checkpoint = checkpoint;
+            this.offsets = offsets;
+        }
     }
 
     private void doLaunchLegacy(final MessageInput input) {
@@ -553,6 +701,13 @@ public class KafkaTransport extends ThrottleableTransport {
                     "Number of processor threads to spawn. Use one thread per Kafka topic partition.",
                     ConfigurationField.Optional.NOT_OPTIONAL));
 
+            cr.addField(new BooleanField(
+                    CK_COMMIT_AFTER_JOURNAL_WRITE,
+                    "Commit offsets after journal write",
+                    false,
+                    "Hand over polled records in batches and commit their offsets only after they have been written to " +
+                            "the message journal. Not used in legacy mode."));
+
             cr.addField(new DropdownField(
                     CK_OFFSET_RESET,
                     "Auto offset reset",
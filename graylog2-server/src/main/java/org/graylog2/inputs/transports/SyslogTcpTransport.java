@@ -42,14 +42,16 @@ public class SyslogTcpTransport extends TcpTransport {
                               NettyTransportConfiguration nettyTransportConfiguration,
                               ThroughputCounter throughputCounter,
                               LocalMetricRegistry localRegistry,
-                              TLSProtocolsConfiguration tlsConfiguration) {
+                              TLSProtocolsConfiguration tlsConfiguration,
+                              InputBackpressure inputBackpressure) {
         super(configuration,
                 eventLoopGroup,
                 eventLoopGroupFactory,
                 nettyTransportConfiguration,
                 throughputCounter,
                 localRegistry,
-                tlsConfiguration);
+                tlsConfiguration,
+                inputBackpressure);
     }
 
     @Override
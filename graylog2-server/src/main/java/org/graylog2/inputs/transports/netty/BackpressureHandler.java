@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Limits how long a connection reads within each period, depending on the current backpressure.
+ * <p>
+ * With a pressure of {@code p}, the connection gets a read window of {@code (1 - p)} of each period. After the window
+ * has been used up, auto-read is disabled for the rest of the period. This shrinks the read rate of every connection
+ * smoothly instead of stopping and resuming all of them at once.
+ */
+public class BackpressureHandler extends ChannelInboundHandlerAdapter {
+    public static final long DEFAULT_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final DoubleSupplier pressure;
+    private final long periodNanos;
+
+    private long windowStart;
+    private boolean paused = false;
+
+    public BackpressureHandler(DoubleSupplier pressure) {
+        this(pressure, DEFAULT_PERIOD_NANOS);
+    }
+
+    public BackpressureHandler(DoubleSupplier pressure, long periodNanos) {
+        this.pressure = pressure;
+        this.periodNanos = periodNanos;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        windowStart = System.nanoTime();
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        super.channelReadComplete(ctx);
+        maybePause(ctx);
+    }
+
+    private void maybePause(ChannelHandlerContext ctx) {
+        final double currentPressure = pressure.getAsDouble();
+        if (paused || currentPressure <= 0.0d) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        if (now - windowStart >= periodNanos) {
+            // Idle connections start a new period with their next read
+            windowStart = now;
+        }
+        final long readWindowNanos = readWindowNanos(currentPressure);
+        if (now - windowStart >= readWindowNanos) {
+            pause(ctx, periodNanos - readWindowNanos);
+        }
+    }
+
+    private void pause(ChannelHandlerContext ctx, long pauseNanos) {
+        paused = true;
+        ctx.channel().config().setAutoRead(false);
+        ctx.executor().schedule(() -> resume(ctx), pauseNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void resume(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        final double currentPressure = pressure.getAsDouble();
+        if (currentPressure >= 1.0d) {
+            // No read window at all, check again after the next period
+            ctx.executor().schedule(() -> resume(ctx), periodNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        paused = false;
+        windowStart = System.nanoTime();
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private long readWindowNanos(double currentPressure) {
+        return (long) ((1.0d - Math.min(currentPressure, 1.0d)) * periodNanos);
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+}
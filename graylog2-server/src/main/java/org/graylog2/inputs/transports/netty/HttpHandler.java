@@ -17,6 +17,7 @@
 package org.graylog2.inputs.transports.netty;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -33,11 +34,22 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 
+import java.nio.charset.StandardCharsets;
+
 public class HttpHandler extends SimpleChannelInboundHandler<HttpRequest> {
+    static final String BULK_PATH = "/gelf/bulk";
+    static final int MAX_REPORTED_ERRORS = 100;
+
     private final boolean enableCors;
+    private final boolean enableBulk;
 
     public HttpHandler(boolean enableCors) {
+        this(enableCors, false);
+    }
+
+    public HttpHandler(boolean enableCors, boolean enableBulk) {
         this.enableCors = enableCors;
+        this.enableBulk = enableBulk;
     }
 
     @Override
@@ -64,19 +76,110 @@ public class HttpHandler extends SimpleChannelInboundHandler<HttpRequest> {
             // send on to raw message handler
             writeResponse(channel, keepAlive, httpRequestVersion, HttpResponseStatus.ACCEPTED, origin);
             ctx.fireChannelRead(buffer.retain());
+        } else if (enableBulk && BULK_PATH.equals(request.uri()) && request instanceof FullHttpRequest) {
+            handleBulk(ctx, (FullHttpRequest) request, keepAlive, httpRequestVersion, origin);
         } else {
             writeResponse(channel, keepAlive, httpRequestVersion, HttpResponseStatus.NOT_FOUND, origin);
         }
     }
 
+    /**
+     * Splits a newline-delimited request body into one message per line and hands them on as a single batch.
+     * <p>
+     * Blank lines are skipped. Lines which obviously aren't a JSON object are rejected and reported with their line
+     * number and byte offset in the (decompressed) body, so clients can retry exactly these lines. The response is
+     * only written after all messages of the request have been passed to the input.
+     */
+    private void handleBulk(ChannelHandlerContext ctx,
+                            FullHttpRequest request,
+                            boolean keepAlive,
+                            HttpVersion httpRequestVersion,
+                            String origin) {
+        final ByteBuf content = request.content();
+        final RawMessageBatch batch = new RawMessageBatch(content.retain());
+        final StringBuilder errors = new StringBuilder();
+        int failed = 0;
+
+        final int bodyStart = content.readerIndex();
+        final int bodyEnd = content.writerIndex();
+        int lineStart = bodyStart;
+        int lineNumber = 0;
+        while (lineStart < bodyEnd) {
+            final int newline = content.indexOf(lineStart, bodyEnd, (byte) '\n');
+            final int lineEnd = newline < 0 ? bodyEnd : newline;
+            lineNumber++;
+
+            if (!addLine(batch, content, lineStart, lineEnd)) {
+                if (failed < MAX_REPORTED_ERRORS) {
+                    errors.append(failed == 0 ? "" : ",")
+                            .append("{\"line\":").append(lineNumber)
+                            .append(",\"offset\":").append(lineStart - bodyStart)
+                            .append(",\"error\":\"Line is not a JSON object\"}");
+                }
+                failed++;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        final int accepted = batch.size();
+        if (batch.isEmpty()) {
+            batch.release();
+        } else {
+            ctx.fireChannelRead(batch);
+        }
+
+        final String body = "{\"accepted\":" + accepted + ",\"failed\":" + failed + ",\"errors\":[" + errors + "]}";
+        final HttpResponseStatus status = accepted == 0 ? HttpResponseStatus.BAD_REQUEST : HttpResponseStatus.ACCEPTED;
+        writeResponse(ctx.channel(), keepAlive, httpRequestVersion, status, origin,
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return {@code false} if the line isn't blank and doesn't look like a JSON object
+     */
+    private static boolean addLine(RawMessageBatch batch, ByteBuf content, int start, int end) {
+        int first = start;
+        int last = end - 1;
+        while (first <= last && isWhitespace(content.getByte(first))) {
+            first++;
+        }
+        while (last >= first && isWhitespace(content.getByte(last))) {
+            last--;
+        }
+        if (first > last) {
+            return true;
+        }
+        if (content.getByte(first) != '{' || content.getByte(last) != '}') {
+            return false;
+        }
+        batch.add(first, last - first + 1);
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
     private void writeResponse(Channel channel,
                                boolean keepAlive,
                                HttpVersion httpRequestVersion,
                                HttpResponseStatus status,
                                String origin) {
-        final HttpResponse response = new DefaultFullHttpResponse(httpRequestVersion, status);
+        writeResponse(channel, keepAlive, httpRequestVersion, status, origin, Unpooled.EMPTY_BUFFER);
+    }
 
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+    private void writeResponse(Channel channel,
+                               boolean keepAlive,
+                               HttpVersion httpRequestVersion,
+                               HttpResponseStatus status,
+                               String origin,
+                               ByteBuf content) {
+        final HttpResponse response = new DefaultFullHttpResponse(httpRequestVersion, status, content);
+
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        if (content.isReadable()) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+        }
         response.headers().set(HttpHeaderNames.CONNECTION, keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
 
         if (enableCors && origin != null && !origin.isEmpty()) {
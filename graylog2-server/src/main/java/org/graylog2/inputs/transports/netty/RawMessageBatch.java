@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+import java.util.Arrays;
+
+/**
+ * Several raw messages sharing a single buffer, e.g. the lines of a bulk HTTP request.
+ * <p>
+ * The messages are stored as offsets into the buffer, so splitting a request doesn't copy any of its content.
+ */
+public class RawMessageBatch extends DefaultByteBufHolder {
+    private int[] offsets;
+    private int[] lengths;
+    private int size = 0;
+
+    public RawMessageBatch(ByteBuf content) {
+        super(content);
+        this.offsets = new int[16];
+        this.lengths = new int[16];
+    }
+
+    /**
+     * Adds the message starting at the given absolute index of the content.
+     */
+    public void add(int offset, int length) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy of the payload of the message with the given index
+     */
+    public byte[] payload(int index) {
+        final byte[] payload = new byte[lengths[index]];
+        content().getBytes(offsets[index], payload);
+        return payload;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.journal.RawMessage;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands all messages of a {@link RawMessageBatch} to the input at once, so they end up in the same journal write.
+ */
+public class RawMessageBatchHandler extends SimpleChannelInboundHandler<RawMessageBatch> {
+    private final MessageInput input;
+
+    public RawMessageBatchHandler(MessageInput input) {
+        this.input = input;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, RawMessageBatch batch) throws Exception {
+        final InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        final List<RawMessage> rawMessages = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            rawMessages.add(new RawMessage(batch.payload(i), remoteAddress));
+        }
+        input.processRawMessages(rawMessages);
+    }
+}
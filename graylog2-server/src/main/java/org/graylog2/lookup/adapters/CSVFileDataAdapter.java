@@ -27,10 +27,13 @@ import com.google.auto.value.AutoValue;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import com.google.common.hash.Hashing;
 import com.google.common.primitives.Ints;
 import com.google.inject.assistedinject.Assisted;
 import org.graylog.autovalue.WithBeanGetter;
 import org.graylog2.lookup.AllowedAuxiliaryPathChecker;
+import org.graylog2.lookup.adapters.cidr.IpPrefixTrie;
+import org.graylog2.lookup.adapters.mapped.MappedLookupIndex;
 import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupDataAdapter;
 import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
@@ -40,21 +43,28 @@ import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Size;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
@@ -75,7 +85,10 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
 
     private final Config config;
     private final AllowedAuxiliaryPathChecker pathChecker;
+    private final Path dataDir;
     private final AtomicReference<Map<String, String>> lookupRef = new AtomicReference<>(ImmutableMap.of());
+    private final AtomicReference<IpPrefixTrie> cidrLookupRef = new AtomicReference<>(IpPrefixTrie.empty());
+    private final AtomicReference<MappedLookupIndex> mappedLookupRef = new AtomicReference<>(MappedLookupIndex.empty());
 
     private FileInfo fileInfo = FileInfo.empty();
 
@@ -84,10 +97,12 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
                               @Assisted("name") String name,
                               @Assisted LookupDataAdapterConfiguration config,
                               MetricRegistry metricRegistry,
-                              AllowedAuxiliaryPathChecker pathChecker) {
+                              AllowedAuxiliaryPathChecker pathChecker,
+                              @Named("data_dir") Path dataDir) {
         super(id, name, config, metricRegistry);
         this.config = (Config) config;
         this.pathChecker = pathChecker;
+        this.dataDir = dataDir;
     }
 
     @Override
@@ -105,7 +120,7 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
 
         // Set file info before parsing the data for the first time
         fileInfo = FileInfo.forPath(Paths.get(config.path()));
-        lookupRef.set(parseCSVFile());
+        loadCSVFile();
     }
 
     @Override
@@ -129,7 +144,7 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             }
 
             LOG.debug("CSV file {} has changed, updating data", config.path());
-            lookupRef.set(parseCSVFile());
+            loadCSVFile();
             cachePurge.purgeAll();
             fileInfo = fileChanged.fileInfo();
             clearError();
@@ -139,10 +154,160 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
         }
     }
 
+    private void loadCSVFile() throws IOException {
+        if (config.isCidrLookup()) {
+            cidrLookupRef.set(parseCIDRFile());
+        } else if (config.isMemoryMappedIndex()) {
+            swapMappedIndex(loadMappedIndex());
+        } else {
+            lookupRef.set(parseCSVFile());
+        }
+    }
+
     private Map<String, String> parseCSVFile() throws IOException {
+        final ImmutableMap.Builder<String, String> newLookupBuilder = ImmutableMap.builder();
+
+        readCSVFile((key, value) -> {
+            if (config.isCaseInsensitiveLookup()) {
+                newLookupBuilder.put(key.toLowerCase(Locale.ENGLISH), value);
+            } else {
+                newLookupBuilder.put(key, value);
+            }
+        });
+
+        return newLookupBuilder.build();
+    }
+
+    private IpPrefixTrie parseCIDRFile() throws IOException {
+        final IpPrefixTrie.Builder newLookupBuilder = IpPrefixTrie.builder();
+
+        readCSVFile(newLookupBuilder::put);
+
+        return newLookupBuilder.build();
+    }
+
+    /**
+     * Compiles the CSV file into an index file in the data directory and maps it into memory. An existing index file
+     * is reused if the CSV file and the adapter configuration didn't change since it has been written. Every
+     * generation of the index is written to a new file, so the file of the index which is currently in use is never
+     * replaced.
+     */
+    private MappedLookupIndex loadMappedIndex() throws IOException {
+        final long fingerprint = sourceFingerprint();
+        final Path indexPath = mappedIndexDir().resolve(mappedIndexFileName(fingerprint));
+
+        if (!Objects.equals(MappedLookupIndex.readSourceFingerprint(indexPath), fingerprint)) {
+            compileMappedIndex(indexPath, fingerprint);
+        }
+
+        try {
+            return MappedLookupIndex.open(indexPath);
+        } catch (IOException e) {
+            LOG.warn("Lookup index {} is invalid, compiling it again from CSV file {}: {}", indexPath, config.path(), e.getMessage());
+            Files.deleteIfExists(indexPath);
+            compileMappedIndex(indexPath, fingerprint);
+            return MappedLookupIndex.open(indexPath);
+        }
+    }
+
+    private void compileMappedIndex(Path indexPath, long fingerprint) throws IOException {
+        LOG.debug("Compiling CSV file {} into lookup index {}", config.path(), indexPath);
+        Files.createDirectories(indexPath.getParent());
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(indexPath, fingerprint)) {
+            final boolean parsed = readCSVFile((key, value) -> {
+                try {
+                    writer.put(config.isCaseInsensitiveLookup() ? key.toLowerCase(Locale.ENGLISH) : key, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!parsed) {
+                // Keep serving the previous index instead of persisting incomplete data
+                throw new IOException("Couldn't compile CSV file " + config.path() + " into lookup index");
+            }
+            final long entries = writer.finish();
+            LOG.debug("Compiled {} entries from CSV file {} into lookup index {}", entries, config.path(), indexPath);
+        }
+    }
+
+    private void swapMappedIndex(MappedLookupIndex index) {
+        final MappedLookupIndex previous = mappedLookupRef.getAndSet(index);
+        if (previous != index) {
+            previous.close();
+        }
+        deleteStaleMappedIndexFiles(index);
+    }
+
+    /**
+     * Deletes the files of previous index generations. Files which are still mapped by readers of the previous index
+     * might not be deletable on some platforms, they are deleted with the next refresh.
+     */
+    private void deleteStaleMappedIndexFiles(MappedLookupIndex current) {
+        final String currentFileName = mappedIndexFileName(current.sourceFingerprint());
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(mappedIndexDir(), mappedIndexFilePrefix() + "*.idx")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals(currentFileName)) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        LOG.debug("Couldn't delete stale lookup index {}, retrying with the next refresh", file, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Couldn't list lookup index files in {}", mappedIndexDir(), e);
+        }
+    }
+
+    private Path mappedIndexDir() {
+        return dataDir.resolve("lookup-tables");
+    }
+
+    private String mappedIndexFilePrefix() {
+        return "csvfile-" + id() + "-";
+    }
+
+    private String mappedIndexFileName(long fingerprint) {
+        return String.format(Locale.ROOT, "%s%016x.idx", mappedIndexFilePrefix(), fingerprint);
+    }
+
+    @Nullable
+    private String mappedGet(String key) {
+        while (true) {
+            final MappedLookupIndex index = mappedLookupRef.get();
+            if (index.retain()) {
+                try {
+                    return index.get(key);
+                } finally {
+                    index.release();
+                }
+            }
+            // The index has been replaced and closed in the meantime, retry with the current one
+        }
+    }
+
+    private long sourceFingerprint() throws IOException {
+        final Path path = Paths.get(config.path());
+        return Hashing.murmur3_128().newHasher()
+                .putString(path.toAbsolutePath().toString(), StandardCharsets.UTF_8)
+                .putLong(Files.size(path))
+                .putLong(Files.getLastModifiedTime(path).toMillis())
+                .putString(config.separator(), StandardCharsets.UTF_8)
+                .putString(config.quotechar(), StandardCharsets.UTF_8)
+                .putString(config.keyColumn(), StandardCharsets.UTF_8)
+                .putString(config.valueColumn(), StandardCharsets.UTF_8)
+                .putBoolean(config.isCaseInsensitiveLookup())
+                .hash()
+                .asLong();
+    }
+
+    /**
+     * @return {@code true} if the file has been parsed successfully, {@code false} otherwise
+     */
+    private boolean readCSVFile(BiConsumer<String, String> entryConsumer) throws IOException {
         final InputStream inputStream = Files.newInputStream(Paths.get(config.path()));
         final InputStreamReader fileReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-        final ImmutableMap.Builder<String, String> newLookupBuilder = ImmutableMap.builder();
 
         try (final CSVReader csvReader = new CSVReader(fileReader, config.separatorAsChar(), config.quotecharAsChar())) {
             int line = 0;
@@ -175,31 +340,47 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
                     if (keyColumn < 0 || valueColumn < 0) {
                         throw new IllegalStateException("Couldn't detect column number for key or value - check CSV file format");
                     }
-                    if (config.isCaseInsensitiveLookup()) {
-                        newLookupBuilder.put(next[keyColumn].toLowerCase(Locale.ENGLISH), next[valueColumn]);
-                    } else {
-                        newLookupBuilder.put(next[keyColumn], next[valueColumn]);
-                    }
+                    entryConsumer.accept(next[keyColumn], next[valueColumn]);
                 }
             }
         } catch (Exception e) {
             LOG.error("Couldn't parse CSV file {} (settings separator=<{}> quotechar=<{}> key_column=<{}> value_column=<{}>)", config.path(),
                     config.separator(), config.quotechar(), config.keyColumn(), config.valueColumn(), e);
             setError(e);
+            return false;
         }
-
-        return newLookupBuilder.build();
+        return true;
     }
 
     @Override
     public void doStop() throws Exception {
         LOG.debug("Stopping CSV data adapter for file: {}", config.path());
+        mappedLookupRef.getAndSet(MappedLookupIndex.empty()).close();
     }
 
     @Override
     public LookupResult doGet(Object key) {
+        if (config.isCidrLookup()) {
+            return doCidrGet(key);
+        }
+
         final String stringKey = config.isCaseInsensitiveLookup() ? String.valueOf(key).toLowerCase(Locale.ENGLISH) : String.valueOf(key);
-        final String value = lookupRef.get().get(stringKey);
+        final String value = config.isMemoryMappedIndex() ? mappedGet(stringKey) : lookupRef.get().get(stringKey);
+
+        if (value == null) {
+            return getEmptyResult();
+        }
+
+        return LookupResult.single(value);
+    }
+
+    private LookupResult doCidrGet(Object key) {
+        final String value;
+        if (key instanceof InetAddress) {
+            value = cidrLookupRef.get().longestPrefixMatch((InetAddress) key);
+        } else {
+            value = cidrLookupRef.get().longestPrefixMatch(String.valueOf(key));
+        }
 
         if (value == null) {
             return getEmptyResult();
@@ -239,6 +420,8 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
                     .valueColumn("value")
                     .checkInterval(60)
                     .caseInsensitiveLookup(false)
+                    .cidrLookup(false)
+                    .memoryMappedIndex(false)
                     .build();
         }
     }
@@ -301,6 +484,28 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             return caseInsensitiveLookup().isPresent() && caseInsensitiveLookup().get();
         }
 
+        /**
+         * If enabled, the key column contains IP addresses or CIDR ranges (e.g. {@code 10.0.0.0/8}) and lookups
+         * return the value of the most specific range containing the looked up IP address.
+         */
+        @JsonProperty("cidr_lookup")
+        public abstract Optional<Boolean> cidrLookup();
+
+        public boolean isCidrLookup() {
+            return cidrLookup().isPresent() && cidrLookup().get();
+        }
+
+        /**
+         * If enabled, the CSV file is compiled into an index file in the data directory which is memory mapped
+         * instead of keeping all entries on the heap. Not used in combination with {@link #cidrLookup()}.
+         */
+        @JsonProperty("memory_mapped_index")
+        public abstract Optional<Boolean> memoryMappedIndex();
+
+        public boolean isMemoryMappedIndex() {
+            return memoryMappedIndex().isPresent() && memoryMappedIndex().get() && !isCidrLookup();
+        }
+
         public static Builder builder() {
             return new AutoValue_CSVFileDataAdapter_Config.Builder();
         }
@@ -353,6 +558,12 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             @JsonProperty("case_insensitive_lookup")
             public abstract Builder caseInsensitiveLookup(Boolean caseInsensitiveLookup);
 
+            @JsonProperty("cidr_lookup")
+            public abstract Builder cidrLookup(Boolean cidrLookup);
+
+            @JsonProperty("memory_mapped_index")
+            public abstract Builder memoryMappedIndex(Boolean memoryMappedIndex);
+
             public abstract Config build();
         }
     }
@@ -38,6 +38,8 @@ import org.graylog2.lookup.adapters.dnslookup.ADnsAnswer;
 import org.graylog2.lookup.adapters.dnslookup.DnsAnswer;
 import org.graylog2.lookup.adapters.dnslookup.DnsClient;
 import org.graylog2.lookup.adapters.dnslookup.DnsLookupType;
+import org.graylog2.lookup.adapters.dnslookup.DnsNoRecordsException;
+import org.graylog2.lookup.adapters.dnslookup.InFlightRequests;
 import org.graylog2.lookup.adapters.dnslookup.PtrDnsAnswer;
 import org.graylog2.lookup.adapters.dnslookup.TxtDnsAnswer;
 import org.graylog2.lookup.dto.DataAdapterDto;
@@ -61,7 +63,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class DnsLookupDataAdapter extends LookupDataAdapter {
 
@@ -78,10 +83,19 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
     private static final String TIMER_RESOLVE_DOMAIN_NAME = "resolveDomainNameTime";
     private static final String TIMER_REVERSE_LOOKUP = "reverseLookupTime";
     private static final String TIMER_TEXT_LOOKUP = "textLookupTime";
+    private static final String TIMER_QUEUE = "queueTime";
+    private static final String COALESCED_COUNTER = "coalescedRequests";
+    private static final String REJECTED_COUNTER = "rejectedRequests";
     private DnsClient dnsClient;
     private final Config config;
 
     private final Counter errorCounter;
+    private final Counter rejectedCounter;
+    private final Timer queueTimer;
+
+    // Identical concurrent requests (e.g. the same PTR lookup from many processing threads) are only sent once.
+    private final InFlightRequests<String, LookupResult> inFlightRequests;
+    private final Semaphore requestPermits;
 
     // Timers exist for all request types, so that each can be troubleshot individually.
     private final Timer resolveDomainNameTimer;
@@ -97,6 +111,10 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         this.resolveDomainNameTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_RESOLVE_DOMAIN_NAME));
         this.reverseLookupTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_REVERSE_LOOKUP));
         this.textLookupTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_TEXT_LOOKUP));
+        this.queueTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_QUEUE));
+        this.rejectedCounter = metricRegistry.counter(MetricRegistry.name(getClass(), dto.id(), REJECTED_COUNTER));
+        this.inFlightRequests = new InFlightRequests<>(metricRegistry.counter(MetricRegistry.name(getClass(), dto.id(), COALESCED_COUNTER)));
+        this.requestPermits = new Semaphore(Math.max(1, config.maxConcurrentRequests()));
     }
 
     @Override
@@ -137,6 +155,42 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
             return getEmptyResult();
         }
 
+        try {
+            return inFlightRequests.execute(trimmedKey, () -> withRequestPermit(() -> resolve(trimmedKey)));
+        } catch (CompletionException e) {
+            // The coalesced request failed, the error has already been handled by the thread running it
+            return getErrorResult();
+        }
+    }
+
+    /**
+     * Limits the number of concurrent DNS requests. Callers wait at most for the request timeout to get a permit.
+     */
+    private LookupResult withRequestPermit(Supplier<LookupResult> request) {
+        final boolean acquired;
+        try (final Timer.Context ignored = queueTimer.time()) {
+            acquired = requestPermits.tryAcquire(config.requestTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return getErrorResult();
+        }
+
+        if (!acquired) {
+            LOG.debug("Couldn't start DNS request within [{}] ms, [{}] requests are already running",
+                    config.requestTimeout(), config.maxConcurrentRequests());
+            rejectedCounter.inc();
+            return getErrorResult();
+        }
+
+        try {
+            return request.get();
+        } finally {
+            requestPermits.release();
+        }
+    }
+
+    private LookupResult resolve(String trimmedKey) {
+
         LOG.debug("Beginning [{}] DNS resolution for key [{}]", config.lookupType(), trimmedKey);
 
         LookupResult lookupResult;
@@ -309,6 +363,9 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         final PtrDnsAnswer dnsResponse;
         try {
             dnsResponse = dnsClient.reverseLookup(key.toString());
+        } catch (DnsNoRecordsException e) {
+            LOG.debug("Could not perform reverse lookup on IP address [{}]. No PTR record was found.", key);
+            return getNegativeResult(e);
         } catch (Exception e) {
             LOG.error("Could not perform reverse DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(e));
             errorCounter.inc();
@@ -350,6 +407,9 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         final List<TxtDnsAnswer> txtDnsAnswers;
         try {
             txtDnsAnswers = dnsClient.txtLookup(key.toString());
+        } catch (DnsNoRecordsException e) {
+            LOG.debug("Could not perform Text lookup on IP address [{}]. No TXT records were found.", key);
+            return getNegativeResult(e);
         } catch (Exception e) {
             LOG.error("Could not perform TXT DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(e));
             errorCounter.inc();
@@ -369,6 +429,20 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         return getEmptyResult();
     }
 
+    /**
+     * Builds an empty result which is cached for the negative TTL of the DNS response (derived from the SOA record),
+     * so that lookups for non-existing records aren't sent to the DNS server over and over again.
+     */
+    private LookupResult getNegativeResult(DnsNoRecordsException e) {
+
+        if (config.hasOverrideTTL()) {
+            return LookupResult.builder().cacheTTL(config.getCacheTTLOverrideMillis()).build();
+        } else if (e.hasNegativeTTL()) {
+            return LookupResult.builder().cacheTTL(TimeUnit.SECONDS.toMillis(e.negativeTTL())).build();
+        }
+        return getEmptyResult();
+    }
+
     /**
      * Assigns the minimum TTL found in the supplied DnsAnswers. The minimum makes sense, because this is the least
      * amount of time that at least one of the records is valid for.
@@ -411,6 +485,7 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
                                               .serverIps(Config.DEFAULT_SERVER_IP)
                                               .cacheTTLOverrideEnabled(Config.DEFAULT_CACHE_TTL_OVERRIDE)
                                               .requestTimeout(Config.DEFAULT_TIMEOUT_MILLIS)
+                                              .maxConcurrentRequests(Config.DEFAULT_MAX_CONCURRENT_REQUESTS)
                                               .build();
         }
     }
@@ -429,12 +504,14 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         private static final String FIELD_LOOKUP_TYPE = "lookup_type";
         private static final String FIELD_REQUEST_TIMEOUT = "request_timeout";
         private static final String FIELD_SERVER_IPS = "server_ips";
+        private static final String FIELD_MAX_CONCURRENT_REQUESTS = "max_concurrent_requests";
 
         // Default values
         private static final boolean DEFAULT_CACHE_TTL_OVERRIDE = false;
         private static final DnsLookupType DEFAULT_LOOKUP_TYPE = DnsLookupType.A;
         private static final int DEFAULT_TIMEOUT_MILLIS = 10000;
         private static final String DEFAULT_SERVER_IP = ""; // Intentionally blank
+        private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 100;
 
         @Override
         @JsonProperty(TYPE_FIELD)
@@ -449,6 +526,9 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         @JsonProperty(FIELD_REQUEST_TIMEOUT)
         public abstract int requestTimeout();
 
+        @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+        public abstract int maxConcurrentRequests();
+
         @JsonProperty(FIELD_CACHE_TTL_OVERRIDE_ENABLED)
         public abstract boolean cacheTTLOverrideEnabled();
 
@@ -477,6 +557,10 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
                 errors.put(FIELD_REQUEST_TIMEOUT, "Value cannot be smaller than 1");
             }
 
+            if (maxConcurrentRequests() < 1) {
+                errors.put(FIELD_MAX_CONCURRENT_REQUESTS, "Value cannot be smaller than 1");
+            }
+
             return errors.isEmpty() ? Optional.empty() : Optional.of(errors);
         }
 
@@ -504,7 +588,8 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
                              .serverIps(DEFAULT_SERVER_IP)
                              .lookupType(DnsLookupType.A)
                              .cacheTTLOverrideEnabled(DEFAULT_CACHE_TTL_OVERRIDE)
-                             .requestTimeout(DEFAULT_TIMEOUT_MILLIS);
+                             .requestTimeout(DEFAULT_TIMEOUT_MILLIS)
+                             .maxConcurrentRequests(DEFAULT_MAX_CONCURRENT_REQUESTS);
             }
 
             @JsonProperty(TYPE_FIELD)
@@ -519,6 +604,9 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
             @JsonProperty(FIELD_REQUEST_TIMEOUT)
             public abstract Builder requestTimeout(int requestTimeout);
 
+            @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+            public abstract Builder maxConcurrentRequests(int maxConcurrentRequests);
+
             @JsonProperty(FIELD_CACHE_TTL_OVERRIDE_ENABLED)
             public abstract Builder cacheTTLOverrideEnabled(boolean cacheTTLOverride);
 
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.cidr;
+
+import com.google.common.net.InetAddresses;
+
+import javax.annotation.Nullable;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable binary radix trie for longest-prefix-match lookups of IPv4 and IPv6 addresses.
+ * <p>
+ * Nodes are stored in primitive {@code int} arrays instead of node objects to keep the memory footprint small and
+ * lookups cache-friendly. Values are de-duplicated so that many prefixes mapping to the same value share one
+ * string instance.
+ * <p>
+ * Instances are created with {@link #builder()} and are safe to share between threads.
+ */
+public class IpPrefixTrie {
+    private static final int NO_VALUE = -1;
+    private static final int NO_CHILD = 0; // The root node (index 0) can never be a child, so 0 marks a missing child
+
+    private static final IpPrefixTrie EMPTY = builder().build();
+
+    private final Tree ipv4;
+    private final Tree ipv6;
+    private final String[] values;
+    private final int size;
+
+    private IpPrefixTrie(Tree ipv4, Tree ipv6, String[] values, int size) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.values = values;
+        this.size = size;
+    }
+
+    public static IpPrefixTrie empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of prefixes stored in the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of the most specific prefix containing the given address.
+     *
+     * @param address the IP address literal, e.g. {@code 192.168.1.1} or {@code 2001:db8::1}
+     * @return the value of the longest matching prefix or {@code null} if the key isn't an IP address literal or no
+     * prefix matches
+     */
+    @Nullable
+    public String longestPrefixMatch(String address) {
+        requireNonNull(address, "address cannot be null");
+        final InetAddress inetAddress;
+        try {
+            // Only accepts IP literals and never performs a DNS lookup
+            inetAddress = InetAddresses.forString(address.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return longestPrefixMatch(inetAddress);
+    }
+
+    /**
+     * Returns the value of the most specific prefix containing the given address.
+     *
+     * @param address the IP address
+     * @return the value of the longest matching prefix or {@code null} if no prefix matches
+     */
+    @Nullable
+    public String longestPrefixMatch(InetAddress address) {
+        requireNonNull(address, "address cannot be null");
+        final byte[] bytes = address.getAddress();
+        final int valueIndex = (address instanceof Inet4Address ? ipv4 : ipv6).match(bytes);
+
+        return valueIndex == NO_VALUE ? null : values[valueIndex];
+    }
+
+    private static int bitAt(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static class Tree {
+        // children[2 * node] is the "0" child, children[2 * node + 1] the "1" child of a node
+        private final int[] children;
+        private final int[] values;
+        private final int maxBits;
+
+        private Tree(int[] children, int[] values, int maxBits) {
+            this.children = children;
+            this.values = values;
+            this.maxBits = maxBits;
+        }
+
+        private int match(byte[] address) {
+            int node = 0;
+            int best = values[0];
+
+            for (int i = 0; i < maxBits; i++) {
+                node = children[(node << 1) + bitAt(address, i)];
+                if (node == NO_CHILD) {
+                    break;
+                }
+                if (values[node] != NO_VALUE) {
+                    best = values[node];
+                }
+            }
+
+            return best;
+        }
+    }
+
+    private static class TreeBuilder {
+        private final int maxBits;
+        private int[] children = new int[32];
+        private int[] values = new int[16];
+        private int nodeCount = 1;
+
+        private TreeBuilder(int maxBits) {
+            this.maxBits = maxBits;
+            Arrays.fill(values, NO_VALUE);
+        }
+
+        /**
+         * @return {@code true} if a new prefix has been added, {@code false} if an existing one has been replaced
+         */
+        private boolean insert(byte[] address, int prefixLength, int valueIndex) {
+            int node = 0;
+
+            for (int i = 0; i < prefixLength; i++) {
+                final int slot = (node << 1) + bitAt(address, i);
+                int child = children[slot];
+                if (child == NO_CHILD) {
+                    child = newNode();
+                    children[slot] = child;
+                }
+                node = child;
+            }
+
+            final boolean added = values[node] == NO_VALUE;
+            values[node] = valueIndex;
+            return added;
+        }
+
+        private int newNode() {
+            if (nodeCount == values.length) {
+                final int newCapacity = values.length << 1;
+                children = Arrays.copyOf(children, newCapacity << 1);
+                values = Arrays.copyOf(values, newCapacity);
+                Arrays.fill(values, nodeCount, newCapacity, NO_VALUE);
+            }
+            return nodeCount++;
+        }
+
+        private Tree build() {
+            return new Tree(Arrays.copyOf(children, nodeCount << 1), Arrays.copyOf(values, nodeCount), maxBits);
+        }
+    }
+
+    public static class Builder {
+        private final TreeBuilder ipv4 = new TreeBuilder(32);
+        private final TreeBuilder ipv6 = new TreeBuilder(128);
+        private final Map<String, Integer> valueIndexes = new HashMap<>();
+        private int size = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a prefix to the trie. If the same prefix has been added before, the latest value wins.
+         *
+         * @param cidr  the prefix in CIDR notation, e.g. {@code 10.0.0.0/8} or {@code 2001:db8::/32}. A plain IP
+         *              address is treated as a host prefix ({@code /32} or {@code /128}).
+         * @param value the value to return for addresses within the prefix
+         * @return this builder
+         * @throws IllegalArgumentException if the prefix cannot be parsed
+         */
+        public Builder put(String cidr, String value) {
+            requireNonNull(cidr, "cidr cannot be null");
+            requireNonNull(value, "value cannot be null");
+
+            final String trimmed = cidr.trim();
+            final int slash = trimmed.indexOf('/');
+            final String addressPart = slash < 0 ? trimmed : trimmed.substring(0, slash);
+            final InetAddress address = InetAddresses.forString(addressPart);
+            final int maxBits = address instanceof Inet4Address ? 32 : 128;
+
+            final int prefixLength;
+            if (slash < 0) {
+                prefixLength = maxBits;
+            } else {
+                try {
+                    prefixLength = Integer.parseInt(trimmed.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid prefix length in <" + cidr + ">", e);
+                }
+            }
+            if (prefixLength < 0 || prefixLength > maxBits) {
+                throw new IllegalArgumentException("Prefix length of <" + cidr + "> must be between 0 and " + maxBits);
+            }
+
+            final int valueIndex = valueIndexes.computeIfAbsent(value, v -> valueIndexes.size());
+            if ((maxBits == 32 ? ipv4 : ipv6).insert(address.getAddress(), prefixLength, valueIndex)) {
+                size++;
+            }
+            return this;
+        }
+
+        public IpPrefixTrie build() {
+            final String[] values = new String[valueIndexes.size()];
+            valueIndexes.forEach((value, index) -> values[index] = value);
+
+            return new IpPrefixTrie(ipv4.build(), ipv6.build(), values, size);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import io.netty.handler.codec.dns.DefaultDnsPtrRecord;
 import io.netty.handler.codec.dns.DefaultDnsQuestion;
 import io.netty.handler.codec.dns.DefaultDnsRawRecord;
 import io.netty.handler.codec.dns.DefaultDnsRecordDecoder;
+import io.netty.handler.codec.dns.DnsRawRecord;
 import io.netty.handler.codec.dns.DnsRecord;
 import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.handler.codec.dns.DnsResponse;
@@ -258,7 +259,13 @@ public class DnsClient {
         return builder.build();
     }
 
-    public PtrDnsAnswer reverseLookup(String ipAddress) throws InterruptedException, ExecutionException {
+    /**
+     * Performs a reverse (PTR) lookup for the given IP address.
+     *
+     * @return the first PTR record or {@code null} if the response contained answers, but no PTR record
+     * @throws DnsNoRecordsException if the response didn't contain any answers
+     */
+    public PtrDnsAnswer reverseLookup(String ipAddress) throws InterruptedException, ExecutionException, DnsNoRecordsException {
 
         LOG.debug("Attempting to perform reverse lookup for IP address [{}]", ipAddress);
 
@@ -273,6 +280,9 @@ public class DnsClient {
         DnsResponse content = null;
         try {
             content = resolver.query(new DefaultDnsQuestion(inverseAddressFormat, DnsRecordType.PTR)).get(requestTimeout, TimeUnit.MILLISECONDS).content();
+            if (content.count(DnsSection.ANSWER) == 0) {
+                throw new DnsNoRecordsException(inverseAddressFormat, negativeTTL(content));
+            }
             for (int i = 0; i < content.count(DnsSection.ANSWER); i++) {
 
                 // Return the first PTR record, because there should be only one as per
@@ -346,7 +356,12 @@ public class DnsClient {
         }
     }
 
-    public List<TxtDnsAnswer> txtLookup(String hostName) throws InterruptedException, ExecutionException {
+    /**
+     * Performs a TXT lookup for the given host name.
+     *
+     * @throws DnsNoRecordsException if the response didn't contain any answers
+     */
+    public List<TxtDnsAnswer> txtLookup(String hostName) throws InterruptedException, ExecutionException, DnsNoRecordsException {
 
         if (isShutdown()) {
             throw new DnsClientNotRunningException();
@@ -360,6 +375,9 @@ public class DnsClient {
         try {
             content = resolver.query(new DefaultDnsQuestion(hostName, DnsRecordType.TXT)).get(requestTimeout, TimeUnit.MILLISECONDS).content();
             int count = content.count(DnsSection.ANSWER);
+            if (count == 0) {
+                throw new DnsNoRecordsException(hostName, negativeTTL(content));
+            }
             final ArrayList<TxtDnsAnswer> txtRecords = new ArrayList<>(count);
             for (int i = 0; i < count; i++) {
 
@@ -392,6 +410,35 @@ public class DnsClient {
         }
     }
 
+    /**
+     * Determines the TTL for caching a negative answer from the SOA record in the authority section of the response.
+     * As per <a href="https://tools.ietf.org/html/rfc2308#section-5">RFC 2308</a>, this is the minimum of the SOA
+     * record TTL and the SOA MINIMUM field.
+     *
+     * @return the negative TTL in seconds or {@link DnsNoRecordsException#NO_NEGATIVE_TTL} if there is no SOA record
+     */
+    static long negativeTTL(DnsResponse response) {
+
+        for (int i = 0; i < response.count(DnsSection.AUTHORITY); i++) {
+            final DnsRecord dnsRecord = response.recordAt(DnsSection.AUTHORITY, i);
+            if (DnsRecordType.SOA.equals(dnsRecord.type()) && dnsRecord instanceof DnsRawRecord) {
+                final ByteBuf soaData = ((DnsRawRecord) dnsRecord).content().duplicate();
+                try {
+                    // SOA RDATA: MNAME, RNAME, SERIAL, REFRESH, RETRY, EXPIRE, MINIMUM
+                    DefaultDnsRecordDecoder.decodeName(soaData);
+                    DefaultDnsRecordDecoder.decodeName(soaData);
+                    soaData.skipBytes(4 * Integer.BYTES);
+                    final long minimum = soaData.readUnsignedInt();
+                    return Math.min(dnsRecord.timeToLive(), minimum);
+                } catch (RuntimeException e) {
+                    LOG.debug("Couldn't decode SOA record [{}]. Cause [{}]", dnsRecord, ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+
+        return DnsNoRecordsException.NO_NEGATIVE_TTL;
+    }
+
     private boolean isShutdown() {
         return nettyEventLoop == null || nettyEventLoop.isShutdown();
     }
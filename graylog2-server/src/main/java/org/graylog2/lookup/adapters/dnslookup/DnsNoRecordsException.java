@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.dnslookup;
+
+import java.net.UnknownHostException;
+
+/**
+ * Signals that the DNS server answered a query without any matching records (NXDOMAIN or NODATA). If the response
+ * contained an SOA record in the authority section, the negative TTL according to
+ * <a href="https://tools.ietf.org/html/rfc2308#section-5">RFC 2308</a> is provided, so that the negative answer can
+ * be cached.
+ */
+public class DnsNoRecordsException extends UnknownHostException {
+    public static final long NO_NEGATIVE_TTL = -1L;
+
+    private final long negativeTTL;
+
+    public DnsNoRecordsException(String name, long negativeTTL) {
+        super("No DNS records found for " + name);
+        this.negativeTTL = negativeTTL;
+    }
+
+    /**
+     * @return the negative TTL in seconds or {@link #NO_NEGATIVE_TTL} if the response didn't contain an SOA record
+     */
+    public long negativeTTL() {
+        return negativeTTL;
+    }
+
+    public boolean hasNegativeTTL() {
+        return negativeTTL != NO_NEGATIVE_TTL;
+    }
+}
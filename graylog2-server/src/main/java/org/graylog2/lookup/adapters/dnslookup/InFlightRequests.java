@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.dnslookup;
+
+import com.codahale.metrics.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent requests for the same key, so that only one of them is executed and all other callers wait
+ * for and share its result.
+ *
+ * @param <K> the request key type
+ * @param <V> the result type
+ */
+public class InFlightRequests<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedRequests;
+
+    /**
+     * @param coalescedRequests counts the requests which have been served by the result of a running request
+     */
+    public InFlightRequests(Counter coalescedRequests) {
+        this.coalescedRequests = coalescedRequests;
+    }
+
+    /**
+     * Executes the request for the given key unless a request for the same key is already running. In that case,
+     * the result of the running request is returned.
+     *
+     * @param key     the request key
+     * @param request the request to execute
+     * @return the request result
+     * @throws CompletionException if the request of another caller failed with an exception
+     */
+    public V execute(K key, Supplier<V> request) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalescedRequests.inc();
+            return running.join();
+        }
+
+        try {
+            final V result = request.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return the number of currently running requests
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
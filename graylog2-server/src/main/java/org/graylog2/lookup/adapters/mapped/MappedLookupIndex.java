@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.mapped;
+
+import org.graylog2.shared.SuppressForbidden;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read-only key/value index which is stored in a file and accessed through memory mapping, so the data doesn't have
+ * to be kept on the Java heap.
+ * <p>
+ * The file consists of a fixed-size header, a data section with all entries and an open-addressing hash table with
+ * the offsets of the entries:
+ * <pre>
+ * header:  magic (int), version (int), entry count (long), slot count (long), slot table offset (long),
+ *          source fingerprint (long)
+ * entry:   key hash (int), key length (int), key bytes, value length (int), value bytes
+ * slots:   entry offset (long) per slot, 0 marks an empty slot
+ * </pre>
+ * Files are mapped in segments of 1 GB each, so files larger than 2 GB can be mapped as well. Entries never cross
+ * a segment boundary.
+ * <p>
+ * Index files are created with {@link #writer(Path, long)} and opened with {@link #open(Path)}. Instances are safe
+ * to share between threads. Readers which may race with {@link #close()} have to {@link #retain()} the index while
+ * reading from it, the mapped memory is released once the index has been closed and the last reader is done.
+ */
+public class MappedLookupIndex implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedLookupIndex.class);
+    @Nullable
+    private static final BufferCleaner BUFFER_CLEANER = findBufferCleaner();
+    private static final int MAGIC = 0x474C4B49; // "GLKI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int PADDING_MARKER = -1;
+    private static final int MIN_ENTRY_SIZE = 3 * Integer.BYTES;
+    private static final int SEGMENT_SHIFT = 30; // 1 GB segments
+
+    private static final MappedLookupIndex EMPTY = new MappedLookupIndex(new ByteBuffer[0], 0, 0, 0, 0);
+
+    private final ByteBuffer[] segments;
+    private final long entryCount;
+    private final long slotCount;
+    private final long slotTableOffset;
+    private final long sourceFingerprint;
+    // The index itself holds one reference until it gets closed
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private MappedLookupIndex(ByteBuffer[] segments, long entryCount, long slotCount, long slotTableOffset, long sourceFingerprint) {
+        this.segments = segments;
+        this.entryCount = entryCount;
+        this.slotCount = slotCount;
+        this.slotTableOffset = slotTableOffset;
+        this.sourceFingerprint = sourceFingerprint;
+    }
+
+    public static MappedLookupIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps an existing index file into memory.
+     *
+     * @param path the index file
+     * @return the opened index
+     * @throws IOException if the file cannot be read or isn't a valid index file
+     */
+    public static MappedLookupIndex open(Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+            if (channel.size() < HEADER_SIZE || segments[0].getInt(0) != MAGIC) {
+                unmap(segments);
+                throw new IOException("Invalid lookup index file " + path);
+            }
+            final ByteBuffer header = segments[0];
+            if (header.getInt(4) != VERSION) {
+                unmap(segments);
+                throw new IOException("Unsupported lookup index version " + header.getInt(4) + " in file " + path);
+            }
+            final long slotCount = header.getLong(16);
+            final long slotTableOffset = header.getLong(24);
+            if (slotCount < 0 || slotTableOffset < HEADER_SIZE || slotTableOffset + slotCount * Long.BYTES != channel.size()) {
+                unmap(segments);
+                throw new IOException("Truncated lookup index file " + path);
+            }
+            return new MappedLookupIndex(segments, header.getLong(8), slotCount, slotTableOffset, header.getLong(32));
+        }
+    }
+
+    /**
+     * Reads the source fingerprint of an index file without mapping the whole file.
+     *
+     * @param path the index file
+     * @return the fingerprint or {@code null} if the file doesn't exist or isn't a valid index file
+     */
+    @Nullable
+    public static Long readSourceFingerprint(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (final DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            final byte[] header = new byte[HEADER_SIZE];
+            input.readFully(header);
+            final ByteBuffer buffer = ByteBuffer.wrap(header);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            return buffer.getLong(32);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a writer for a new index file. The data is written to a temporary file next to the given path and
+     * atomically moved to the path by {@link Writer#finish()}. The path must not be in use by an open index, every
+     * generation of an index should be written to a new file.
+     *
+     * @param path              the index file
+     * @param sourceFingerprint a fingerprint of the source data which can be used to detect outdated index files
+     * @return the writer
+     * @throws IOException if the temporary file cannot be created
+     */
+    public static Writer writer(Path path, long sourceFingerprint) throws IOException {
+        return new Writer(path, sourceFingerprint);
+    }
+
+    public long size() {
+        return entryCount;
+    }
+
+    public long sourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    /**
+     * Acquires a reference to the index which keeps the mapped memory alive until it is {@link #release() released}.
+     *
+     * @return {@code true} if the reference has been acquired, {@code false} if the index has already been closed
+     */
+    public boolean retain() {
+        while (true) {
+            final int current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            unmap(segments);
+        }
+    }
+
+    /**
+     * Closes the index. The mapped memory is released as soon as all readers released their references.
+     */
+    @Override
+    public void close() {
+        if (this != EMPTY && closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value for the given key or {@code null} if the key doesn't exist
+     */
+    @Nullable
+    public String get(String key) {
+        requireNonNull(key, "key cannot be null");
+        if (slotCount == 0) {
+            return null;
+        }
+
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(keyBytes);
+        final long mask = slotCount - 1;
+
+        for (long slot = hash & mask, probes = 0; probes < slotCount; slot = (slot + 1) & mask, probes++) {
+            final long entryOffset = getLong(slotTableOffset + slot * Long.BYTES);
+            if (entryOffset == 0) {
+                return null;
+            }
+            final ByteBuffer segment = segments[segmentIndex(entryOffset)];
+            final int position = segmentPosition(entryOffset);
+            if (segment.getInt(position) == hash && keyEquals(segment, position + 2 * Integer.BYTES, keyBytes)) {
+                return readValue(segment, position);
+            }
+        }
+
+        return null;
+    }
+
+    private long getLong(long offset) {
+        return segments[segmentIndex(offset)].getLong(segmentPosition(offset));
+    }
+
+    private static boolean keyEquals(ByteBuffer segment, int keyPosition, byte[] keyBytes) {
+        if (segment.getInt(keyPosition - Integer.BYTES) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (segment.get(keyPosition + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readValue(ByteBuffer segment, int entryPosition) {
+        final int keyLength = segment.getInt(entryPosition + Integer.BYTES);
+        final int valueLengthPosition = entryPosition + 2 * Integer.BYTES + keyLength;
+        final int valueLength = segment.getInt(valueLengthPosition);
+        final byte[] value = new byte[valueLength];
+        final ByteBuffer duplicate = segment.duplicate();
+        duplicate.position(valueLengthPosition + Integer.BYTES);
+        duplicate.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static int segmentIndex(long offset) {
+        return (int) (offset >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentPosition(long offset) {
+        return (int) (offset & ((1L << SEGMENT_SHIFT) - 1));
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        final long segmentSize = 1L << SEGMENT_SHIFT;
+        final int segmentCount = (int) Math.max(1, (size + segmentSize - 1) >>> SEGMENT_SHIFT);
+        final ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            final long position = i * segmentSize;
+            segments[i] = channel.map(mode, position, Math.min(segmentSize, size - position));
+        }
+        return segments;
+    }
+
+    private static void unmap(ByteBuffer[] segments) {
+        if (BUFFER_CLEANER == null) {
+            // Leave it to the garbage collector
+            return;
+        }
+        for (ByteBuffer segment : segments) {
+            try {
+                BUFFER_CLEANER.clean(segment);
+            } catch (Exception e) {
+                LOG.debug("Couldn't unmap lookup index segment", e);
+                return;
+            }
+        }
+    }
+
+    private interface BufferCleaner {
+        void clean(ByteBuffer buffer) throws Exception;
+    }
+
+    @SuppressForbidden("Reflection necessary")
+    @Nullable
+    private static BufferCleaner findBufferCleaner() {
+        try {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (Exception e) {
+            LOG.trace("sun.misc.Unsafe#invokeCleaner not available", e);
+        }
+        try {
+            // Java 8
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (Exception e) {
+            LOG.debug("Unmapping lookup index files isn't supported, mapped memory is released by the garbage collector", e);
+            return null;
+        }
+    }
+
+    // FNV-1a, cheap to compute and good enough for the key distribution of lookup tables
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        // Spread the bits, the lower bits are used to find the slot
+        hash ^= hash >>> 16;
+        // The padding marker must never be a valid hash
+        return hash == PADDING_MARKER ? 0 : hash;
+    }
+
+    /**
+     * Writes a new index file. Entries are streamed to disk, only a constant amount of heap is used regardless of the
+     * number of entries. If the same key is added multiple times, the latest value wins.
+     */
+    public static class Writer implements Closeable {
+        private final Path path;
+        private final Path tmpPath;
+        private final long sourceFingerprint;
+        private final DataOutputStream output;
+        private long position = HEADER_SIZE;
+        private long entryCount = 0;
+        private boolean finished = false;
+
+        private Writer(Path path, long sourceFingerprint) throws IOException {
+            this.path = path;
+            this.tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+            this.sourceFingerprint = sourceFingerprint;
+            final OutputStream fileOutput = Files.newOutputStream(tmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.output = new DataOutputStream(new BufferedOutputStream(fileOutput, 64 * 1024));
+            output.write(new byte[HEADER_SIZE]);
+        }
+
+        public Writer put(String key, String value) throws IOException {
+            requireNonNull(key, "key cannot be null");
+            requireNonNull(value, "value cannot be null");
+
+            final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            final long entrySize = (long) MIN_ENTRY_SIZE + keyBytes.length + valueBytes.length;
+            final long segmentSize = 1L << SEGMENT_SHIFT;
+            if (entrySize > segmentSize - HEADER_SIZE) {
+                throw new IllegalArgumentException("Lookup entry for key <" + key + "> is too large");
+            }
+
+            final long remainingInSegment = segmentSize - (position & (segmentSize - 1));
+            if (entrySize > remainingInSegment) {
+                // Entries must not cross segment boundaries, continue in the next segment
+                if (remainingInSegment >= MIN_ENTRY_SIZE) {
+                    output.writeInt(PADDING_MARKER);
+                    output.write(new byte[(int) remainingInSegment - Integer.BYTES]);
+                } else {
+                    output.write(new byte[(int) remainingInSegment]);
+                }
+                position += remainingInSegment;
+            }
+
+            output.writeInt(hash(keyBytes));
+            output.writeInt(keyBytes.length);
+            output.write(keyBytes);
+            output.writeInt(valueBytes.length);
+            output.write(valueBytes);
+            position += entrySize;
+            entryCount++;
+            return this;
+        }
+
+        /**
+         * Builds the hash table, writes the header and atomically moves the index file into place.
+         *
+         * @return the number of entries in the index
+         * @throws IOException if the index file cannot be written
+         */
+        public long finish() throws IOException {
+            // Align the slot table so that no slot crosses a segment boundary
+            final long padding = (Long.BYTES - (position % Long.BYTES)) % Long.BYTES;
+            final long dataEnd = position;
+            final long slotTableOffset = position + padding;
+            // Next power of two with a load factor of at most 2/3
+            final long slotCount = Long.highestOneBit(Math.max(2, entryCount + entryCount / 2) - 1) << 1;
+            final long fileSize = slotTableOffset + slotCount * Long.BYTES;
+
+            // Write the empty slot table, the contents of regions added by mapping beyond the file size are unspecified
+            final byte[] zeros = new byte[64 * 1024];
+            for (long remaining = fileSize - dataEnd; remaining > 0; remaining -= zeros.length) {
+                output.write(zeros, 0, (int) Math.min(zeros.length, remaining));
+            }
+            output.close();
+
+            long uniqueEntries = 0;
+            try (final FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final ByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, fileSize);
+                final MappedLookupIndex index = new MappedLookupIndex(segments, entryCount, slotCount, slotTableOffset, sourceFingerprint);
+
+                long offset = HEADER_SIZE;
+                while (offset < dataEnd) {
+                    final ByteBuffer segment = segments[segmentIndex(offset)];
+                    final int entryPosition = segmentPosition(offset);
+                    if (segment.limit() - entryPosition < MIN_ENTRY_SIZE || segment.getInt(entryPosition) == PADDING_MARKER) {
+                        // Skip the padding at the end of the segment
+                        offset = (offset | ((1L << SEGMENT_SHIFT) - 1)) + 1;
+                        continue;
+                    }
+                    final int hash = segment.getInt(entryPosition);
+                    if (index.insert(offset, hash)) {
+                        uniqueEntries++;
+                    }
+                    final int keyLength = segment.getInt(entryPosition + Integer.BYTES);
+                    final int valueLength = segment.getInt(entryPosition + 2 * Integer.BYTES + keyLength);
+                    offset += (long) MIN_ENTRY_SIZE + keyLength + valueLength;
+                }
+
+                final ByteBuffer header = segments[0];
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(8, uniqueEntries);
+                header.putLong(16, slotCount);
+                header.putLong(24, slotTableOffset);
+                header.putLong(32, sourceFingerprint);
+
+                for (ByteBuffer segment : segments) {
+                    ((MappedByteBuffer) segment).force();
+                }
+                // The file cannot be moved while it is mapped on some platforms
+                unmap(segments);
+            }
+
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return uniqueEntries;
+        }
+
+        /**
+         * Removes the temporary file if the index hasn't been finished.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                output.close();
+                Files.deleteIfExists(tmpPath);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a new key has been inserted, {@code false} if an existing key has been replaced
+     */
+    private boolean insert(long entryOffset, int hash) {
+        final ByteBuffer entrySegment = segments[segmentIndex(entryOffset)];
+        final int entryPosition = segmentPosition(entryOffset);
+        final int keyLength = entrySegment.getInt(entryPosition + Integer.BYTES);
+        final byte[] keyBytes = new byte[keyLength];
+        for (int i = 0; i < keyLength; i++) {
+            keyBytes[i] = entrySegment.get(entryPosition + 2 * Integer.BYTES + i);
+        }
+
+        final long mask = slotCount - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            final long slotOffset = slotTableOffset + slot * Long.BYTES;
+            final long existing = getLong(slotOffset);
+            final ByteBuffer slotSegment = segments[segmentIndex(slotOffset)];
+            if (existing == 0) {
+                slotSegment.putLong(segmentPosition(slotOffset), entryOffset);
+                return true;
+            }
+            final ByteBuffer existingSegment = segments[segmentIndex(existing)];
+            final int existingPosition = segmentPosition(existing);
+            if (existingSegment.getInt(existingPosition) == hash && keyEquals(existingSegment, existingPosition + 2 * Integer.BYTES, keyBytes)) {
+                slotSegment.putLong(segmentPosition(slotOffset), entryOffset);
+                return false;
+            }
+        }
+    }
+}
@@ -128,6 +128,11 @@ public class MessageFilterChainProcessor implements MessageProcessor {
         return messages;
     }
 
+    @Override
+    public boolean handlesMessageFailures() {
+        return true;
+    }
+
     @VisibleForTesting
     protected List<MessageFilter> getFilterRegistry() {
         return filterRegistry;
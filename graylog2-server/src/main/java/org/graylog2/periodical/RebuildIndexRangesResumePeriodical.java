@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.periodical;
+
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.IndexSetRegistry;
+import org.graylog2.indexer.ranges.RebuildIndexRangesJob;
+import org.graylog2.indexer.ranges.RebuildIndexRangesState;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.periodical.Periodical;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.system.jobs.SystemJobConcurrencyException;
+import org.graylog2.system.jobs.SystemJobManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resumes an index range rebuild which has been interrupted by a restart of this node.
+ */
+public class RebuildIndexRangesResumePeriodical extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(RebuildIndexRangesResumePeriodical.class);
+
+    private final ClusterConfigService clusterConfigService;
+    private final IndexSetRegistry indexSetRegistry;
+    private final RebuildIndexRangesJob.Factory rebuildIndexRangesJobFactory;
+    private final SystemJobManager systemJobManager;
+    private final NodeId nodeId;
+
+    @Inject
+    public RebuildIndexRangesResumePeriodical(ClusterConfigService clusterConfigService,
+                                              IndexSetRegistry indexSetRegistry,
+                                              RebuildIndexRangesJob.Factory rebuildIndexRangesJobFactory,
+                                              SystemJobManager systemJobManager,
+                                              NodeId nodeId) {
+        this.clusterConfigService = clusterConfigService;
+        this.indexSetRegistry = indexSetRegistry;
+        this.rebuildIndexRangesJobFactory = rebuildIndexRangesJobFactory;
+        this.systemJobManager = systemJobManager;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public boolean runsForever() {
+        return true;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return false;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return true;
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 30;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 0;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public void doRun() {
+        final String stateKey = RebuildIndexRangesState.key(nodeId.toString());
+        final RebuildIndexRangesState state = clusterConfigService.get(stateKey, RebuildIndexRangesState.class);
+        if (state == null) {
+            return;
+        }
+
+        final Set<IndexSet> indexSets = state.indexSetIds().stream()
+                .map(indexSetRegistry::get)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toSet());
+        if (indexSets.isEmpty()) {
+            clusterConfigService.remove(stateKey);
+            return;
+        }
+
+        LOG.info("Resuming index range rebuild for {} index sets started at {}.", indexSets.size(), state.startedAt());
+        try {
+            systemJobManager.submit(rebuildIndexRangesJobFactory.create(indexSets));
+        } catch (SystemJobConcurrencyException e) {
+            LOG.info("Not resuming index range rebuild, another rebuild is already running.");
+        }
+    }
+}
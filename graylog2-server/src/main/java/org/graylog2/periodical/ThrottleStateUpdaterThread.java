@@ -64,6 +64,8 @@ public class ThrottleStateUpdaterThread extends Periodical {
     private long logEndOffset;
     private long currentReadOffset;
     private long currentTs;
+    private long writeCount;
+    private long totalWriteTimeNanos;
     private ThrottleState throttleState;
 
     @Inject
@@ -203,9 +205,13 @@ public class ThrottleStateUpdaterThread extends Periodical {
 
         long previousLogEndOffset = logEndOffset;
         long previousReadOffset = currentReadOffset;
+        long previousWriteCount = writeCount;
+        long previousTotalWriteTimeNanos = totalWriteTimeNanos;
         long logStartOffset = journal.getLogStartOffset();
         logEndOffset = journal.getLogEndOffset() - 1; // -1 because getLogEndOffset is the next offset that gets assigned
         currentReadOffset = journal.getNextReadOffset() - 1; // just to make it clear which field we read
+        writeCount = journal.getWriteCount();
+        totalWriteTimeNanos = journal.getTotalWriteTimeNanos();
 
         // for the first run, don't send an update, there's no previous data available to calc rates
         if (firstRun) {
@@ -220,6 +226,10 @@ public class ThrottleStateUpdaterThread extends Periodical {
         throttleState.journalSizeLimit = retentionSize.toBytes();
 
         throttleState.processBufferCapacity = processBuffer.getRemainingCapacity();
+        throttleState.processBufferSize = processBuffer.getRingBufferSize();
+
+        final long writes = writeCount - previousWriteCount;
+        throttleState.journalWriteLatencyNanos = writes > 0 ? (totalWriteTimeNanos - previousTotalWriteTimeNanos) / writes : 0;
 
         if (committedOffset == LocalKafkaJournal.DEFAULT_COMMITTED_OFFSET) {
             // nothing committed at all, the entire log is uncommitted, or completely empty.
@@ -51,6 +51,9 @@ public abstract class BaseConfiguration extends PathConfiguration {
     @Parameter(value = "processbuffer_processors", required = true, validator = PositiveIntegerValidator.class)
     private int processBufferProcessors = 5;
 
+    @Parameter(value = "processbuffer_batch_size", validator = PositiveIntegerValidator.class)
+    private int processBufferBatchSize = 1;
+
     @Parameter(value = "processor_wait_strategy", required = true)
     private String processorWaitStrategy = "blocking";
 
@@ -109,6 +112,10 @@ public abstract class BaseConfiguration extends PathConfiguration {
         return processBufferProcessors;
     }
 
+    public int getProcessBufferBatchSize() {
+        return processBufferBatchSize;
+    }
+
     private WaitStrategy getWaitStrategy(String waitStrategyName, String configOptionName) {
         switch (waitStrategyName) {
             case "sleeping":
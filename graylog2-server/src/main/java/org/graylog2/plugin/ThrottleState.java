@@ -25,6 +25,11 @@ public class ThrottleState {
     public long journalSizeLimit;
     public long readEventsPerSec;
     public long processBufferCapacity;
+    public long processBufferSize;
+    /**
+     * Average duration of a journal write in nanoseconds since the previous update.
+     */
+    public long journalWriteLatencyNanos;
 
     public ThrottleState() {
     }
@@ -36,6 +41,8 @@ public class ThrottleState {
         this.journalSizeLimit = o.journalSizeLimit;
         this.readEventsPerSec = o.readEventsPerSec;
         this.processBufferCapacity = o.processBufferCapacity;
+        this.processBufferSize = o.processBufferSize;
+        this.journalWriteLatencyNanos = o.journalWriteLatencyNanos;
     }
 
     @Override
@@ -48,6 +55,8 @@ public class ThrottleState {
                 .add("journalSize", journalSize)
                 .add("journalSizeLimit", journalSizeLimit)
                 .add("pbCapacity", processBufferCapacity)
+                .add("pbSize", processBufferSize)
+                .add("journalWriteLatencyNanos", journalWriteLatencyNanos)
                 .toString();
     }
 }
@@ -18,6 +18,32 @@ package org.graylog2.plugin.buffers;
 
 import org.graylog2.plugin.journal.RawMessage;
 
+import java.util.List;
+
 public interface InputBuffer extends EventBuffer {
     void insert(RawMessage message);
+
+    /**
+     * Inserts a batch of messages. Implementations may publish the batch at once so that it
+     * ends up in as few journal writes as possible.
+     */
+    default void insert(List<RawMessage> messages) {
+        messages.forEach(this::insert);
+    }
+
+    /**
+     * Returns a checkpoint for all messages which have been inserted before this call.
+     * <p>
+     * The checkpoint is reached once all of these messages have been written to the message journal,
+     * or have been handed over to message processing if the journal is disabled.
+     */
+    default Checkpoint checkpoint() {
+        return Checkpoint.REACHED;
+    }
+
+    interface Checkpoint {
+        Checkpoint REACHED = () -> true;
+
+        boolean isReached();
+    }
 }
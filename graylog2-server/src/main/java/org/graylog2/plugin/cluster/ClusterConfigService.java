@@ -20,6 +20,8 @@ import java.util.Set;
 
 /**
  * Service to save and retrieve cluster configuration beans.
+ * <p>
+ * Retrieved beans may be cached and shared between callers, so they must not be modified.
  */
 public interface ClusterConfigService {
     /**
@@ -76,6 +78,14 @@ public interface ClusterConfigService {
      */
     <T> int remove(Class<T> type);
 
+    /**
+     * Remove a configuration bean with the specified key from the cluster configuration.
+     *
+     * @param key The key that is used to find the cluster config object in the database.
+     * @return The number of removed entries from the cluster configuration.
+     */
+    int remove(String key);
+
     /**
      * List all classes of configuration beans in the database.
      *
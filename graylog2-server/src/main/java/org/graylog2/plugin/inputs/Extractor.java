@@ -99,6 +99,11 @@ public abstract class Extractor implements EmbeddedPersistable {
         REGEX
     }
 
+    private static final String CONDITION_TIMER = "conditionTime";
+    private static final String EXECUTION_TIMER = "executionTime";
+    private static final String CONVERTER_TIMER = "converterExecutionTime";
+    private static final String COMPLETE_TIMER = "completeExecutionTime";
+
     protected final AtomicLong exceptions;
     protected final AtomicLong converterExceptions;
 
@@ -177,13 +182,13 @@ public abstract class Extractor implements EmbeddedPersistable {
             this.regexConditionPattern = Pattern.compile(conditionValue, Pattern.DOTALL);
         }
 
-        final String metricsPrefix = name(getClass(), getType().toString().toLowerCase(Locale.ENGLISH), getId());
+        final String metricsPrefix = metricsPrefix(getClass(), getType(), getId());
         this.conditionHitsCounterName = name(metricsPrefix, "conditionHits");
         this.conditionMissesCounterName = name(metricsPrefix, "conditionMisses");
-        this.conditionTimerName = name(metricsPrefix, "conditionTime");
-        this.executionTimerName = name(metricsPrefix, "executionTime");
-        this.converterTimerName = name(metricsPrefix, "converterExecutionTime");
-        this.completeTimerName = name(metricsPrefix, "completeExecutionTime");
+        this.conditionTimerName = name(metricsPrefix, CONDITION_TIMER);
+        this.executionTimerName = name(metricsPrefix, EXECUTION_TIMER);
+        this.converterTimerName = name(metricsPrefix, CONVERTER_TIMER);
+        this.completeTimerName = name(metricsPrefix, COMPLETE_TIMER);
         this.conditionHitsCounter = metricRegistry.counter(conditionHitsCounterName);
         this.conditionMissesCounter = metricRegistry.counter(conditionMissesCounterName);
         this.conditionTimer = metricRegistry.timer(conditionTimerName);
@@ -451,6 +456,23 @@ public abstract class Extractor implements EmbeddedPersistable {
         return completeTimerName;
     }
 
+    /**
+     * Returns the names of the timers an extractor of the given class, type and ID registers when it is created.
+     * This allows registering custom timer implementations under these names before the extractor is created.
+     */
+    public static List<String> getTimerNames(Class<? extends Extractor> extractorClass, Type type, String id) {
+        final String metricsPrefix = metricsPrefix(extractorClass, type, id);
+        return ImmutableList.of(
+                name(metricsPrefix, CONDITION_TIMER),
+                name(metricsPrefix, EXECUTION_TIMER),
+                name(metricsPrefix, CONVERTER_TIMER),
+                name(metricsPrefix, COMPLETE_TIMER));
+    }
+
+    private static String metricsPrefix(Class<? extends Extractor> extractorClass, Type type, String id) {
+        return name(extractorClass, type.toString().toLowerCase(Locale.ENGLISH), id);
+    }
+
     public long getExceptionCount() {
         return exceptions.get();
     }
@@ -41,7 +41,9 @@ import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public abstract class MessageInput implements Stoppable {
@@ -370,6 +372,54 @@ public abstract class MessageInput implements Stoppable {
     }
 
     public void processRawMessage(RawMessage rawMessage) {
+        if (!prepareRawMessage(rawMessage)) {
+            return;
+        }
+
+        inputBuffer.insert(rawMessage);
+
+        final int payloadLength = rawMessage.getPayload().length;
+        incomingMessages.mark();
+        globalIncomingMessages.inc();
+        rawSize.mark(payloadLength);
+        globalRawSize.inc(payloadLength);
+    }
+
+    /**
+     * Processes a batch of raw messages and inserts them into the input buffer at once.
+     *
+     * @see #processRawMessage(RawMessage)
+     */
+    public void processRawMessages(List<RawMessage> rawMessages) {
+        final List<RawMessage> preparedMessages = new ArrayList<>(rawMessages.size());
+        long payloadLength = 0;
+        for (final RawMessage rawMessage : rawMessages) {
+            if (prepareRawMessage(rawMessage)) {
+                preparedMessages.add(rawMessage);
+                payloadLength += rawMessage.getPayload().length;
+            }
+        }
+        if (preparedMessages.isEmpty()) {
+            return;
+        }
+
+        inputBuffer.insert(preparedMessages);
+
+        incomingMessages.mark(preparedMessages.size());
+        globalIncomingMessages.inc(preparedMessages.size());
+        rawSize.mark(payloadLength);
+        globalRawSize.inc(payloadLength);
+    }
+
+    /**
+     * @return a checkpoint for all messages which have been processed by this input so far
+     * @see InputBuffer#checkpoint()
+     */
+    public InputBuffer.Checkpoint checkpoint() {
+        return inputBuffer.checkpoint();
+    }
+
+    private boolean prepareRawMessage(RawMessage rawMessage) {
         final int payloadLength = rawMessage.getPayload().length;
         if (payloadLength == 0) {
             LOG.debug("Discarding empty message {} from input [{}/{}] (remote address {}). Turn logger org.graylog2.plugin.journal.RawMessage to TRACE to see originating stack trace.",
@@ -378,20 +428,14 @@ public abstract class MessageInput implements Stoppable {
                       getId(),
                       rawMessage.getRemoteAddress() == null ? "unknown" : rawMessage.getRemoteAddress());
             emptyMessages.inc();
-            return;
+            return false;
         }
 
         // add the common message metadata for this input/codec
         rawMessage.setCodecName(codec.getName());
         rawMessage.setCodecConfig(codecConfig);
         rawMessage.addSourceNode(getId(), serverStatus.getNodeId());
-
-        inputBuffer.insert(rawMessage);
-
-        incomingMessages.mark();
-        globalIncomingMessages.inc();
-        rawSize.mark(payloadLength);
-        globalRawSize.inc(payloadLength);
+        return true;
     }
 
     public String getType() {
@@ -43,7 +43,9 @@ import io.netty.util.concurrent.GlobalEventExecutor;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.pkcs.PKCSException;
 import org.graylog2.configuration.TLSProtocolsConfiguration;
+import org.graylog2.inputs.transports.InputBackpressure;
 import org.graylog2.inputs.transports.NettyTransportConfiguration;
+import org.graylog2.inputs.transports.netty.BackpressureHandler;
 import org.graylog2.inputs.transports.netty.ByteBufMessageAggregationHandler;
 import org.graylog2.inputs.transports.netty.ChannelRegistrationHandler;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
@@ -123,6 +125,7 @@ public abstract class AbstractTcpTransport extends NettyTransport {
     private final NettyTransportConfiguration nettyTransportConfiguration;
     private final Set<String> enabledTLSProtocols;
     private final AtomicReference<Channel> channelReference;
+    private final InputBackpressure inputBackpressure;
 
     private final boolean tlsEnable;
     private final String tlsKeyPassword;
@@ -149,6 +152,7 @@ public abstract class AbstractTcpTransport extends NettyTransport {
                     nettyTransportConfiguration, new TLSProtocolsConfiguration(graylogConfiguration.getEnabledTlsProtocols()));
     }
 
+    @Deprecated
     public AbstractTcpTransport(
             Configuration configuration,
             ThroughputCounter throughputCounter,
@@ -157,11 +161,25 @@ public abstract class AbstractTcpTransport extends NettyTransport {
             EventLoopGroupFactory eventLoopGroupFactory,
             NettyTransportConfiguration nettyTransportConfiguration,
             TLSProtocolsConfiguration tlsConfiguration) {
+        this(configuration, throughputCounter, localRegistry, parentEventLoopGroup, eventLoopGroupFactory,
+                nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled());
+    }
+
+    public AbstractTcpTransport(
+            Configuration configuration,
+            ThroughputCounter throughputCounter,
+            LocalMetricRegistry localRegistry,
+            EventLoopGroup parentEventLoopGroup,
+            EventLoopGroupFactory eventLoopGroupFactory,
+            NettyTransportConfiguration nettyTransportConfiguration,
+            TLSProtocolsConfiguration tlsConfiguration,
+            InputBackpressure inputBackpressure) {
         super(configuration, eventLoopGroupFactory, throughputCounter, localRegistry);
         this.configuration = configuration;
         this.parentEventLoopGroup = parentEventLoopGroup;
         this.nettyTransportConfiguration = nettyTransportConfiguration;
         this.enabledTLSProtocols = tlsConfiguration.getEnabledTlsProtocols();
+        this.inputBackpressure = inputBackpressure;
         this.channelReference = new AtomicReference<>();
         this.childChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
@@ -260,6 +278,9 @@ public abstract class AbstractTcpTransport extends NettyTransport {
         handlers.put("channel-registration", () -> new ChannelRegistrationHandler(childChannels));
         handlers.put("traffic-counter", () -> throughputCounter);
         handlers.put("connection-counter", () -> connectionCounter);
+        if (inputBackpressure.isEnabled()) {
+            handlers.put("backpressure", () -> new BackpressureHandler(inputBackpressure::getPressure));
+        }
         if (tlsEnable) {
             LOG.info("Enabled TLS for input [{}/{}]. key-file=\"{}\" cert-file=\"{}\"", input.getName(), input.getId(), tlsKeyFile, tlsCertFile);
             handlers.put("tls", getSslHandlerCallable(input));
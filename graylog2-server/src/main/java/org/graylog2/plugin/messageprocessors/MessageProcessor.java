@@ -25,4 +25,16 @@ public interface MessageProcessor {
     }
 
     Messages process(Messages messages);
+
+    /**
+     * Indicates whether {@link #process(Messages)} handles failures of single messages on its own, e.g. by adding
+     * processing errors to the failing messages. Only such processors are handed whole batches of messages when the
+     * process buffer runs in batch mode, all other processors are called for one message at a time. If processing a
+     * batch fails nevertheless, its messages are processed again one by one.
+     *
+     * @return {@code true} if the processor can safely process a batch of messages in one call
+     */
+    default boolean handlesMessageFailures() {
+        return false;
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+import org.graylog.grn.GRN;
+
+import javax.annotation.Nullable;
+
+/**
+ * Published on the cluster event bus whenever the permissions of a principal might have changed, so that every node
+ * drops the cached authorization decisions of it. Without a principal, the decisions of all principals are dropped.
+ */
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class AuthorizationChangedEvent {
+    private static final String FIELD_PRINCIPAL = "principal";
+
+    @JsonProperty(FIELD_PRINCIPAL)
+    @Nullable
+    public abstract String principal();
+
+    @JsonCreator
+    public static AuthorizationChangedEvent create(@JsonProperty(FIELD_PRINCIPAL) @Nullable String principal) {
+        return new AutoValue_AuthorizationChangedEvent(principal);
+    }
+
+    public static AuthorizationChangedEvent forPrincipal(GRN principal) {
+        return create(principal.toString());
+    }
+
+    public static AuthorizationChangedEvent forAllPrincipals() {
+        return create(null);
+    }
+}
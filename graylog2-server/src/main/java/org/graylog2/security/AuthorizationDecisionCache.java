@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.graylog.grn.GRN;
+import org.graylog.grn.GRNRegistry;
+import org.graylog.grn.GRNTypes;
+import org.graylog.security.events.EntitySharesUpdateEvent;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.metrics.CacheStatsSet;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.graylog2.users.events.RoleChangedEvent;
+import org.graylog2.users.events.UserChangedEvent;
+import org.graylog2.users.events.UserDeletedEvent;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Caches the authorization decisions of principals, so that checking the same permission again (e.g. the read
+ * permission of every stream for every search) doesn't have to evaluate the roles and grants of the principal again.
+ * <p>
+ * Values derived from the decisions, like the set of streams a user is permitted to read, can be cached together
+ * with the decisions. All entries of a principal are dropped on every node when it, a role or one of its grants
+ * changes. The configured TTL only serves as a safety net for changes which aren't announced by an event.
+ */
+@Singleton
+public class AuthorizationDecisionCache {
+    private static final long MAXIMUM_PRINCIPALS = 10_000;
+
+    @Nullable
+    private final LoadingCache<GRN, PrincipalEntries> cache;
+    private final GRNRegistry grnRegistry;
+    private final EventBus clusterEventBus;
+    private final Timer evaluationTimer;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Inject
+    public AuthorizationDecisionCache(@Named("authorization_decision_cache_ttl") Duration ttl,
+                                      GRNRegistry grnRegistry,
+                                      MetricRegistry metricRegistry,
+                                      EventBus serverEventBus,
+                                      ClusterEventBus clusterEventBus) {
+        this.grnRegistry = grnRegistry;
+        this.clusterEventBus = clusterEventBus;
+        this.evaluationTimer = metricRegistry.timer(name(AuthorizationDecisionCache.class, "permissionEvaluation"));
+        this.hits = metricRegistry.counter(name(AuthorizationDecisionCache.class, "hits"));
+        this.misses = metricRegistry.counter(name(AuthorizationDecisionCache.class, "misses"));
+
+        if (ttl.getQuantity() > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                    .expireAfterWrite(ttl.toMilliseconds(), TimeUnit.MILLISECONDS)
+                    .maximumSize(MAXIMUM_PRINCIPALS)
+                    .recordStats()
+                    .build(CacheLoader.from(principal -> new PrincipalEntries()));
+            MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(AuthorizationDecisionCache.class, "principals"), cache));
+        } else {
+            this.cache = null;
+        }
+
+        serverEventBus.register(this);
+    }
+
+    /**
+     * Returns the cached decision for the given principal and permission or evaluates and caches it.
+     *
+     * @param principal  the principal to check the permission for
+     * @param permission the permission to check
+     * @param evaluator  evaluates the permission if there is no cached decision
+     * @return true if the principal has the given permission, false otherwise
+     */
+    public boolean isPermitted(GRN principal, String permission, Predicate<String> evaluator) {
+        if (cache == null) {
+            return evaluate(permission, evaluator);
+        }
+
+        final ConcurrentMap<String, Boolean> decisions = cache.getUnchecked(principal).decisions;
+        final Boolean decision = decisions.get(permission);
+        if (decision != null) {
+            hits.inc();
+            return decision;
+        }
+
+        final boolean permitted = evaluate(permission, evaluator);
+        decisions.put(permission, permitted);
+        return permitted;
+    }
+
+    /**
+     * Returns a cached value derived from the decisions of the given principal or computes and caches it. The value
+     * is dropped together with the decisions of the principal.
+     *
+     * @param principal the principal the value belongs to
+     * @param key       the key of the value
+     * @param loader    computes the value if it isn't cached
+     * @return the cached or computed value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T derivedValue(GRN principal, String key, Supplier<T> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        return (T) cache.getUnchecked(principal).derivedValues.computeIfAbsent(key, k -> loader.get());
+    }
+
+    public void invalidate(GRN principal) {
+        if (cache != null) {
+            cache.invalidate(principal);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private boolean evaluate(String permission, Predicate<String> evaluator) {
+        misses.inc();
+        try (final Timer.Context ignored = evaluationTimer.time()) {
+            return evaluator.test(permission);
+        }
+    }
+
+    // User changes are only published on the local event bus, so they are forwarded to the other nodes
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleUserChanged(UserChangedEvent event) {
+        userChanged(event.userId());
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleUserDeleted(UserDeletedEvent event) {
+        userChanged(event.userId());
+    }
+
+    private void userChanged(String userId) {
+        final GRN principal = grnRegistry.newGRN(GRNTypes.USER, userId);
+        invalidate(principal);
+        clusterEventBus.post(AuthorizationChangedEvent.forPrincipal(principal));
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleRoleChanged(RoleChangedEvent event) {
+        // We don't know which principals have the role, either directly or through a team
+        invalidateAll();
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleSharesUpdate(EntitySharesUpdateEvent event) {
+        // The other nodes are notified by the grant changes of the share update
+        invalidateAll();
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleAuthorizationChanged(AuthorizationChangedEvent event) {
+        final String principal = event.principal();
+        if (principal == null) {
+            invalidateAll();
+            return;
+        }
+        final GRN grn = grnRegistry.parse(principal);
+        if (GRNTypes.USER.equals(grn.grnType())) {
+            invalidate(grn);
+        } else {
+            // Teams and the global grantee can affect any user
+            invalidateAll();
+        }
+    }
+
+    private static class PrincipalEntries {
+        private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Object> derivedValues = new ConcurrentHashMap<>();
+    }
+}
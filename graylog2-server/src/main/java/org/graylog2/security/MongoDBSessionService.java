@@ -20,10 +20,21 @@ import org.graylog2.plugin.database.PersistedService;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
 
 public interface MongoDBSessionService extends PersistedService {
     @Nullable
     MongoDbSession load(String sessionId);
 
     Collection<MongoDbSession> loadAll();
+
+    /**
+     * Advances the last access time of the given sessions in one bulk operation. A session's last access time is
+     * never moved backwards, and sessions which have been deleted in the meantime are not recreated.
+     *
+     * @param lastAccessTimes the new last access time by session ID
+     * @return the number of matched sessions
+     */
+    int updateLastAccessTimes(Map<String, Date> lastAccessTimes);
 }
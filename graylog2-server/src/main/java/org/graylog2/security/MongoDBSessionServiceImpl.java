@@ -18,6 +18,7 @@ package org.graylog2.security;
 
 import com.google.common.collect.Lists;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
 import com.mongodb.DBObject;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -31,7 +32,9 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class MongoDBSessionServiceImpl extends PersistedServiceImpl implements MongoDBSessionService {
@@ -69,4 +72,17 @@ public class MongoDBSessionServiceImpl extends PersistedServiceImpl implements M
 
         return dbSessions;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int updateLastAccessTimes(Map<String, Date> lastAccessTimes) {
+        if (lastAccessTimes.isEmpty()) {
+            return 0;
+        }
+        final BulkWriteOperation bulk = collection(MongoDbSession.class).initializeUnorderedBulkOperation();
+        for (Map.Entry<String, Date> entry : lastAccessTimes.entrySet()) {
+            bulk.find(new BasicDBObject(MongoDbSession.FIELD_SESSION_ID, entry.getKey()))
+                    .updateOne(new BasicDBObject("$max", new BasicDBObject(MongoDbSession.FIELD_LAST_ACCESS_TIME, entry.getValue())));
+        }
+        return bulk.execute().getMatchedCount();
+    }
+}
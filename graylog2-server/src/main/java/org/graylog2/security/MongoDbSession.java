@@ -41,6 +41,7 @@ public class MongoDbSession extends PersistedImpl {
     private static final Logger LOG = LoggerFactory.getLogger(MongoDbSession.class);
     static final String COLLECTION_NAME = "sessions";
     static final String FIELD_SESSION_ID = "session_id";
+    static final String FIELD_LAST_ACCESS_TIME = "last_access_time";
 
     protected MongoDbSession(Map<String, Object> fields) {
         super(fields);
@@ -130,7 +131,7 @@ public class MongoDbSession extends PersistedImpl {
     }
 
     public Date getLastAccessTime() {
-        return ((DateTime) fields.get("last_access_time")).toDate();
+        return ((DateTime) fields.get(FIELD_LAST_ACCESS_TIME)).toDate();
     }
 
     public void setHost(String host) {
@@ -146,7 +147,7 @@ public class MongoDbSession extends PersistedImpl {
     }
 
     public void setLastAccessTime(Date lastAccessTime) {
-        fields.put("last_access_time", lastAccessTime);
+        fields.put(FIELD_LAST_ACCESS_TIME, lastAccessTime);
     }
 
     public boolean isExpired() {
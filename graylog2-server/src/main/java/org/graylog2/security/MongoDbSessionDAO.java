@@ -21,31 +21,65 @@ import com.github.rholder.retry.Retryer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.WaitStrategies;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.mongodb.DuplicateKeyException;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.mgt.SimpleSession;
 import org.apache.shiro.session.mgt.eis.CachingSessionDAO;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.plugin.system.NodeId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Stores sessions in MongoDB and keeps the active sessions in the node-local cache of {@link CachingSessionDAO}.
+ * <p>
+ * Updates which only touch the last access time of a session are handed to the {@link SessionLastAccessBuffer} and
+ * written in bulk, all other changes (attributes, expiration, stopping) are written immediately. Whenever such a change
+ * is written or a session is deleted, a {@link SessionChangedEvent} makes the other nodes drop their cached copy.
+ */
+@Singleton
 public class MongoDbSessionDAO extends CachingSessionDAO {
     private static final Logger LOG = LoggerFactory.getLogger(MongoDbSessionDAO.class);
 
     private final MongoDBSessionService mongoDBSessionService;
+    private final SessionLastAccessBuffer lastAccessBuffer;
+    private final EventBus clusterEventBus;
+    private final NodeId nodeId;
+    // The state of every known session as it was last written to or read from the database, without the access time
+    private final Cache<String, PersistedState> persistedStates = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
 
     @Inject
-    public MongoDbSessionDAO(MongoDBSessionService mongoDBSessionService) {
+    public MongoDbSessionDAO(MongoDBSessionService mongoDBSessionService,
+                             SessionLastAccessBuffer lastAccessBuffer,
+                             ClusterEventBus clusterEventBus,
+                             EventBus serverEventBus,
+                             NodeId nodeId) {
         this.mongoDBSessionService = mongoDBSessionService;
+        this.lastAccessBuffer = lastAccessBuffer;
+        this.clusterEventBus = clusterEventBus;
+        this.nodeId = nodeId;
+        serverEventBus.register(this);
     }
 
     @Override
@@ -67,6 +101,9 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
         final MongoDbSession dbSession = new MongoDbSession(fields);
         final String objectId = mongoDBSessionService.saveWithoutValidation(dbSession);
         LOG.debug("Created session {}", objectId);
+        if (session instanceof SimpleSession) {
+            persistedStates.put(id.toString(), new PersistedState((SimpleSession) session));
+        }
 
         return id;
     }
@@ -78,7 +115,9 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
             // expired session or it was never there to begin with
             return null;
         }
-        return getSimpleSession(sessionId, dbSession);
+        final SimpleSession session = getSimpleSession(sessionId, dbSession);
+        persistedStates.put(sessionId.toString(), new PersistedState(session));
+        return session;
     }
 
     private SimpleSession getSimpleSession(Serializable sessionId, MongoDbSession dbSession) {
@@ -95,7 +134,21 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
 
     @Override
     protected void doUpdate(Session session) {
-        final MongoDbSession dbSession = mongoDBSessionService.load(session.getId().toString());
+        final String sessionId = session.getId().toString();
+        if (!(session instanceof SimpleSession)) {
+            throw new RuntimeException("Unsupported session type: " + session.getClass().getCanonicalName());
+        }
+        final SimpleSession simpleSession = (SimpleSession) session;
+        final PersistedState state = new PersistedState(simpleSession);
+        // Other nodes don't need to know about changes of the last access time only
+        final boolean onlyAccessTimeChanged = state.equals(persistedStates.getIfPresent(sessionId));
+        if (lastAccessBuffer.isEnabled() && onlyAccessTimeChanged) {
+            LOG.trace("Deferring last access time update of session");
+            lastAccessBuffer.touch(sessionId, simpleSession.getLastAccessTime());
+            return;
+        }
+
+        final MongoDbSession dbSession = mongoDBSessionService.load(sessionId);
 
         if (null == dbSession) {
             throw new RuntimeException("Couldn't load session");
@@ -106,14 +159,9 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
         dbSession.setTimeout(session.getTimeout());
         dbSession.setStartTimestamp(session.getStartTimestamp());
         dbSession.setLastAccessTime(session.getLastAccessTime());
+        dbSession.setAttributes(simpleSession.getAttributes());
+        dbSession.setExpired(simpleSession.isExpired());
 
-        if (session instanceof SimpleSession) {
-            final SimpleSession simpleSession = (SimpleSession) session;
-            dbSession.setAttributes(simpleSession.getAttributes());
-            dbSession.setExpired(simpleSession.isExpired());
-        } else {
-            throw new RuntimeException("Unsupported session type: " + session.getClass().getCanonicalName());
-        }
         // Due to https://jira.mongodb.org/browse/SERVER-14322 upserts can fail under concurrency.
         // We need to retry the update, and stagger them a bit, so no all of the retries attempt it at the same time again.
         // Usually this should succeed the first time, though
@@ -131,6 +179,11 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
             LOG.warn("Tried to update session 10 times, but still failed. This is likely because of https://jira.mongodb.org/browse/SERVER-14322", e);
             throw new RuntimeException(e.getCause());
         }
+        persistedStates.put(sessionId, state);
+        lastAccessBuffer.discard(sessionId);
+        if (!onlyAccessTimeChanged) {
+            clusterEventBus.post(SessionChangedEvent.create(sessionId, nodeId.toString()));
+        }
     }
 
     @Override
@@ -144,6 +197,23 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
         } else {
             LOG.debug("Session not found in database");
         }
+        persistedStates.invalidate(id.toString());
+        lastAccessBuffer.discard(id.toString());
+        clusterEventBus.post(SessionChangedEvent.create(id.toString(), nodeId.toString()));
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleSessionChanged(SessionChangedEvent event) {
+        if (nodeId.toString().equals(event.nodeId())) {
+            return;
+        }
+        persistedStates.invalidate(event.sessionId());
+        final Session cachedSession = getCachedSession(event.sessionId());
+        if (cachedSession != null) {
+            LOG.debug("Removing session changed on node <{}> from cache", event.nodeId());
+            uncache(cachedSession);
+        }
     }
 
     @Override
@@ -158,4 +228,45 @@ public class MongoDbSessionDAO extends CachingSessionDAO {
 
         return sessions;
     }
+
+    private static class PersistedState {
+        private final String host;
+        private final long timeout;
+        private final Date startTimestamp;
+        private final Date stopTimestamp;
+        private final boolean expired;
+        private final Map<Object, Object> attributes;
+
+        private PersistedState(SimpleSession session) {
+            this.host = session.getHost();
+            this.timeout = session.getTimeout();
+            this.startTimestamp = session.getStartTimestamp();
+            this.stopTimestamp = session.getStopTimestamp();
+            this.expired = session.isExpired();
+            // Copy the attributes, the cached session object is modified in place
+            this.attributes = session.getAttributes() == null ? Collections.emptyMap() : new HashMap<>(session.getAttributes());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final PersistedState that = (PersistedState) o;
+            return timeout == that.timeout &&
+                    expired == that.expired &&
+                    Objects.equals(host, that.host) &&
+                    Objects.equals(startTimestamp, that.startTimestamp) &&
+                    Objects.equals(stopTimestamp, that.stopTimestamp) &&
+                    Objects.equals(attributes, that.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, timeout, startTimestamp, stopTimestamp, expired, attributes);
+        }
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+
+/**
+ * Published on the cluster event bus whenever a session has been written or deleted by a node, so that the other
+ * nodes drop their locally cached copy of it.
+ */
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class SessionChangedEvent {
+    private static final String FIELD_SESSION_ID = "session_id";
+    private static final String FIELD_NODE_ID = "node_id";
+
+    @JsonProperty(FIELD_SESSION_ID)
+    public abstract String sessionId();
+
+    @JsonProperty(FIELD_NODE_ID)
+    public abstract String nodeId();
+
+    @JsonCreator
+    public static SessionChangedEvent create(@JsonProperty(FIELD_SESSION_ID) String sessionId,
+                                             @JsonProperty(FIELD_NODE_ID) String nodeId) {
+        return new AutoValue_SessionChangedEvent(sessionId, nodeId);
+    }
+}
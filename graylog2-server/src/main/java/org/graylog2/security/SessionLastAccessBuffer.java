@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the last access time updates of sessions.
+ * <p>
+ * Only the latest access time of every session is kept in memory and written to the database in one bulk operation
+ * per write interval. A write interval of zero disables the buffer and sessions are written on every access.
+ */
+@Singleton
+public class SessionLastAccessBuffer extends AbstractIdleService {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionLastAccessBuffer.class);
+
+    private final MongoDBSessionService sessionService;
+    private final Duration writeInterval;
+    private final ConcurrentMap<String, Date> pendingLastAccessTimes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public SessionLastAccessBuffer(MongoDBSessionService sessionService,
+                                   @Named("session_last_access_write_interval") Duration writeInterval) {
+        this.sessionService = sessionService;
+        this.writeInterval = writeInterval;
+    }
+
+    public boolean isEnabled() {
+        return writeInterval.toMilliseconds() > 0;
+    }
+
+    /**
+     * Records the last access time of a session. It is written with the next flush, replacing any earlier access
+     * time of the same session which has not been written yet.
+     */
+    public void touch(String sessionId, Date lastAccessTime) {
+        pendingLastAccessTimes.merge(sessionId, lastAccessTime, (a, b) -> a.after(b) ? a : b);
+    }
+
+    /**
+     * Forgets the pending access time of a session, e. g. because the whole session has just been written.
+     */
+    public void discard(String sessionId) {
+        pendingLastAccessTimes.remove(sessionId);
+    }
+
+    @VisibleForTesting
+    int flush() {
+        final Map<String, Date> lastAccessTimes = new HashMap<>(pendingLastAccessTimes.size());
+        for (String sessionId : pendingLastAccessTimes.keySet()) {
+            final Date lastAccessTime = pendingLastAccessTimes.remove(sessionId);
+            if (lastAccessTime != null) {
+                lastAccessTimes.put(sessionId, lastAccessTime);
+            }
+        }
+        if (lastAccessTimes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            final int updated = sessionService.updateLastAccessTimes(lastAccessTimes);
+            LOG.debug("Updated last access time of {} sessions.", updated);
+            return lastAccessTimes.size();
+        } catch (Exception e) {
+            // Retry with the next flush, a newer access time recorded in the meantime wins
+            lastAccessTimes.forEach(this::touch);
+            LOG.warn("Couldn't update last access time of {} sessions, retrying.", lastAccessTimes.size(), e);
+            return 0;
+        }
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        if (!isEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("session-last-access-flush")
+                .setDaemon(true)
+                .build());
+        final long period = writeInterval.toMilliseconds();
+        executor.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(writeInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+        flush();
+    }
+}
@@ -34,6 +34,7 @@ import org.graylog.grn.GRNRegistry;
 import org.graylog.grn.GRNTypes;
 import org.graylog.security.PermissionAndRoleResolver;
 import org.graylog2.plugin.database.users.User;
+import org.graylog2.security.AuthorizationDecisionCache;
 import org.graylog2.security.MongoDbAuthorizationCacheManager;
 import org.graylog2.shared.security.ShiroRequestHeadersBinder;
 import org.graylog2.shared.users.UserService;
@@ -55,16 +56,19 @@ public class MongoDbAuthorizationRealm extends AuthorizingRealm {
     private final UserService userService;
     private final PermissionAndRoleResolver permissionAndRoleResolver;
     private final GRNRegistry grnRegistry;
+    private final AuthorizationDecisionCache decisionCache;
 
     @Inject
     MongoDbAuthorizationRealm(UserService userService,
                               MongoDbAuthorizationCacheManager mongoDbAuthorizationCacheManager,
                               PermissionAndRoleResolver permissionAndRoleResolver,
                               GRNRegistry grnRegistry,
+                              AuthorizationDecisionCache decisionCache,
                               EventBus serverEventBus) {
         this.userService = userService;
         this.permissionAndRoleResolver = permissionAndRoleResolver;
         this.grnRegistry = grnRegistry;
+        this.decisionCache = decisionCache;
         setCachingEnabled(true);
         setCacheManager(mongoDbAuthorizationCacheManager);
         serverEventBus.register(this);
@@ -83,6 +87,17 @@ public class MongoDbAuthorizationRealm extends AuthorizingRealm {
         return principals.asSet();
     }
 
+    @Override
+    public boolean isPermitted(PrincipalCollection principals, String permission) {
+        final Optional<GRN> principal = getUserPrincipal(principals)
+                .map(Optional::of)
+                .orElseGet(() -> getGRNPrincipal(principals));
+        if (!principal.isPresent()) {
+            return super.isPermitted(principals, permission);
+        }
+        return decisionCache.isPermitted(principal.get(), permission, p -> super.isPermitted(principals, p));
+    }
+
     @Override
     protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
         LOG.debug("Retrieving authorization information for: {}", principals);
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -103,6 +104,26 @@ public class InputBufferImpl implements InputBuffer {
         incomingMessages.mark();
     }
 
+    @Override
+    public void insert(List<RawMessage> messages) {
+        final RawMessage[] batch = messages.toArray(new RawMessage[0]);
+        // A single batch cannot be larger than the ring buffer
+        final int maxBatchSize = ringBuffer.getBufferSize();
+        for (int start = 0; start < batch.length; start += maxBatchSize) {
+            final int batchSize = Math.min(maxBatchSize, batch.length - start);
+            ringBuffer.publishEvents(RawMessageEvent.TRANSLATOR, start, batchSize, batch);
+            incomingMessages.mark(batchSize);
+        }
+    }
+
+    @Override
+    public Checkpoint checkpoint() {
+        // The gating sequences belong to the last handlers of the ring buffer (journalling or processing),
+        // so they only move past the cursor once all messages published so far have been handled.
+        final long cursor = ringBuffer.getCursor();
+        return () -> ringBuffer.getMinimumGatingSequence() >= cursor;
+    }
+
     @Override
     public long getUsage() {
         return ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
@@ -31,6 +31,7 @@ import org.graylog2.plugin.Message;
 import org.graylog2.plugin.buffers.Buffer;
 import org.graylog2.plugin.buffers.MessageEvent;
 import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.buffers.processors.BatchingProcessBufferHandler;
 import org.graylog2.shared.buffers.processors.DecodingProcessor;
 import org.graylog2.shared.buffers.processors.ProcessBufferProcessor;
 import org.slf4j.Logger;
@@ -58,6 +59,7 @@ public class ProcessBuffer extends Buffer {
                          DecodingProcessor.Factory decodingProcessorFactory,
                          ProcessBufferProcessor.Factory bufferProcessorFactory,
                          @Named("processbuffer_processors") int processorCount,
+                         @Named("processbuffer_batch_size") int batchSize,
                          @Named("ring_size") int ringSize,
                          @Named("processor_wait_strategy") String waitStrategyName) {
         this.ringBufferSize = ringSize;
@@ -83,14 +85,22 @@ public class ProcessBuffer extends Buffer {
         );
         disruptor.setDefaultExceptionHandler(new LoggingExceptionHandler(LOG));
 
-        LOG.info("Initialized ProcessBuffer with ring size <{}> and wait strategy <{}>.",
-                ringBufferSize, waitStrategy.getClass().getSimpleName());
+        LOG.info("Initialized ProcessBuffer with ring size <{}>, batch size <{}> and wait strategy <{}>.",
+                ringBufferSize, batchSize, waitStrategy.getClass().getSimpleName());
 
         processors = new ProcessBufferProcessor[processorCount];
         for (int i = 0; i < processorCount; i++) {
             processors[i] = bufferProcessorFactory.create(decodingProcessorFactory.create(decodeTime, parseTime));
         }
-        disruptor.handleEventsWithWorkerPool(processors);
+        if (batchSize > 1) {
+            final BatchingProcessBufferHandler[] handlers = new BatchingProcessBufferHandler[processorCount];
+            for (int i = 0; i < processorCount; i++) {
+                handlers[i] = new BatchingProcessBufferHandler(processors[i], i, processorCount, batchSize);
+            }
+            disruptor.handleEventsWith(handlers);
+        } else {
+            disruptor.handleEventsWithWorkerPool(processors);
+        }
 
         ringBuffer = disruptor.start();
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.lmax.disruptor.EventHandler;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds a {@link ProcessBufferProcessor} with micro-batches of messages.
+ * <p>
+ * Every handler sees all events of the ring buffer, but only handles the events whose sequence maps to its ordinal.
+ * Decoded messages are collected until the batch size is reached or the disruptor reports that no more events are
+ * available right now. Batching therefore never delays messages while waiting for more of them to arrive.
+ */
+public class BatchingProcessBufferHandler implements EventHandler<MessageEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingProcessBufferHandler.class);
+
+    private final ProcessBufferProcessor processor;
+    private final int ordinal;
+    private final int numberOfHandlers;
+    private final int batchSize;
+    private final List<Message> batch;
+
+    public BatchingProcessBufferHandler(ProcessBufferProcessor processor, int ordinal, int numberOfHandlers, int batchSize) {
+        this.processor = processor;
+        this.ordinal = ordinal;
+        this.numberOfHandlers = numberOfHandlers;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void onEvent(MessageEvent event, long sequence, boolean endOfBatch) {
+        if (sequence % numberOfHandlers == ordinal) {
+            try {
+                batch.addAll(processor.decode(event));
+            } catch (Exception e) {
+                LOG.error("Unable to decode message event at sequence {}", sequence, e);
+            } finally {
+                event.clearMessages();
+            }
+        }
+
+        if (batch.size() >= batchSize || (endOfBatch && !batch.isEmpty())) {
+            try {
+                processor.processBatch(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
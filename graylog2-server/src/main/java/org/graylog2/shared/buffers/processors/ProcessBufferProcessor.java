@@ -28,6 +28,7 @@ import org.graylog.failure.FailureSubmissionService;
 import org.graylog2.buffers.OutputBuffer;
 import org.graylog2.messageprocessors.OrderedMessageProcessors;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageCollection;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.Tools;
 import org.graylog2.plugin.buffers.MessageEvent;
@@ -39,9 +40,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -52,6 +57,7 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
     private final Meter incomingMessages;
 
     private final Timer processTime;
+    private final Timer batchProcessTime;
     private final Meter outgoingMessages;
     private final OrderedMessageProcessors orderedMessageProcessors;
 
@@ -83,33 +89,105 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
         incomingMessages = metricRegistry.meter(name(ProcessBufferProcessor.class, "incomingMessages"));
         outgoingMessages = metricRegistry.meter(name(ProcessBufferProcessor.class, "outgoingMessages"));
         processTime = metricRegistry.timer(name(ProcessBufferProcessor.class, "processTime"));
+        batchProcessTime = metricRegistry.timer(name(ProcessBufferProcessor.class, "batchProcessTime"));
         currentMessage = null;
     }
 
     @Override
     public void onEvent(MessageEvent event) throws Exception {
         try {
-            // Decode the RawMessage to a Message object. The DecodingProcessor used to be a separate handler in the
-            // ProcessBuffer. Due to performance problems discovered during 1.0.0 testing, we decided to move this here.
-            // TODO The DecodingProcessor does not need to be a EventHandler. We decided to do it like this to keep the change as small as possible for 1.0.0.
-            decodingProcessor.onEvent(event, 0L, false);
-
-            if (event.isSingleMessage()) {
-                dispatchMessage(event.getMessage());
-            } else {
-                final Collection<Message> messageList = event.getMessages();
-                if (messageList == null) {
-                    // skip message events which could not be decoded properly
-                    return;
-                }
+            for (final Message message : decode(event)) {
+                dispatchMessage(message);
+            }
+        } finally {
+            event.clearMessages();
+        }
+    }
+
+    /**
+     * Decodes the raw message of the given event. The caller is responsible for clearing the messages of the event.
+     *
+     * @return the decoded messages or an empty collection if the event could not be decoded
+     */
+    Collection<Message> decode(MessageEvent event) throws Exception {
+        // Decode the RawMessage to a Message object. The DecodingProcessor used to be a separate handler in the
+        // ProcessBuffer. Due to performance problems discovered during 1.0.0 testing, we decided to move this here.
+        // TODO The DecodingProcessor does not need to be a EventHandler. We decided to do it like this to keep the change as small as possible for 1.0.0.
+        decodingProcessor.onEvent(event, 0L, false);
+
+        if (event.isSingleMessage()) {
+            return Collections.singletonList(event.getMessage());
+        }
+        // skip message events which could not be decoded properly
+        final Collection<Message> messageList = event.getMessages();
+        return messageList == null ? Collections.emptyList() : messageList;
+    }
 
-                for (final Message message : messageList) {
-                    dispatchMessage(message);
+    /**
+     * Runs a batch of messages through each message processor in turn. Message processors which do not
+     * {@link MessageProcessor#handlesMessageFailures() handle message failures} on their own are applied to every
+     * message of the batch separately, so that only the failing messages are dropped, just like in
+     * {@link #onEvent(MessageEvent)}. If a message processor fails for a whole batch anyway, the batch is processed
+     * by it again one message at a time.
+     * <p>
+     * The processing time of the batch is recorded in the batch timer and spread evenly over its messages in the
+     * per-message timer.
+     */
+    void processBatch(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        currentMessage = batch.get(0);
+        incomingMessages.mark(batch.size());
+
+        final Timer.Context batchTimer = batchProcessTime.time();
+        try {
+            final Stream defaultStream = defaultStreamProvider.get();
+            for (Message message : batch) {
+                message.addStream(defaultStream);
+            }
+
+            Messages messages = new MessageCollection(batch);
+            for (MessageProcessor messageProcessor : orderedMessageProcessors) {
+                messages = processBatchStage(messageProcessor, messages);
+            }
+            for (Message message : messages) {
+                try {
+                    finishMessage(message);
+                } catch (Exception e) {
+                    handleProcessingFailure(message, e);
                 }
             }
         } finally {
-            event.clearMessages();
+            final long elapsedPerMessage = batchTimer.stop() / batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                processTime.update(elapsedPerMessage, TimeUnit.NANOSECONDS);
+            }
+            currentMessage = null;
+            outgoingMessages.mark(batch.size());
+        }
+    }
+
+    private Messages processBatchStage(MessageProcessor messageProcessor, Messages messages) {
+        if (messageProcessor.handlesMessageFailures()) {
+            try {
+                return messageProcessor.process(messages);
+            } catch (Exception e) {
+                // Don't drop the whole batch because of a single bad message, only the failing messages are dropped
+                LOG.debug("Message processor <{}> failed for a batch of messages, processing them one by one",
+                        messageProcessor.getClass().getName(), e);
+            }
+        }
+
+        final List<Message> processed = new ArrayList<>();
+        for (Message message : messages) {
+            try {
+                messageProcessor.process(message).forEach(processed::add);
+            } catch (Exception e) {
+                handleProcessingFailure(message, e);
+            }
         }
+        return new MessageCollection(processed);
     }
 
     public Optional<Message> getCurrentMessage() {
@@ -130,26 +208,29 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
                 LOG.trace("Finished processing message <{}>. Writing to output buffer.", msg.getId());
             }
         } catch (Exception e) {
-            if (LOG.isDebugEnabled()) {
-                // Log warning including the stacktrace
-                LOG.warn("Unable to process message <{}>:", msg.getId(), e);
-                // Log full message content to aid debugging
-                LOG.debug("Failed message <{}>: {}", msg.getId(), msg.toDumpString());
-            } else {
-                // Only logs a single line warning without stacktrace
-                LOG.warn("Unable to process message <{}>: {}", msg.getId(), e);
-            }
-
-            failureSubmissionService.submitUnknownProcessingError(msg, String.format(Locale.ENGLISH,
-                    "Unable to process message <%s>: %s",
-                    msg.getId(), e));
-
+            handleProcessingFailure(msg, e);
         } finally {
             currentMessage = null;
             outgoingMessages.mark();
         }
     }
 
+    private void handleProcessingFailure(Message msg, Exception e) {
+        if (LOG.isDebugEnabled()) {
+            // Log warning including the stacktrace
+            LOG.warn("Unable to process message <{}>:", msg.getId(), e);
+            // Log full message content to aid debugging
+            LOG.debug("Failed message <{}>: {}", msg.getId(), msg.toDumpString());
+        } else {
+            // Only logs a single line warning without stacktrace
+            LOG.warn("Unable to process message <{}>: {}", msg.getId(), e);
+        }
+
+        failureSubmissionService.submitUnknownProcessingError(msg, String.format(Locale.ENGLISH,
+                "Unable to process message <%s>: %s",
+                msg.getId(), e));
+    }
+
     private void handleMessage(@Nonnull Message msg) {
         msg.addStream(defaultStreamProvider.get());
         Messages messages = msg;
@@ -158,19 +239,23 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
             messages = messageProcessor.process(messages);
         }
         for (Message message : messages) {
-            if (!message.hasField(Message.FIELD_GL2_MESSAGE_ID) || isNullOrEmpty(message.getFieldAs(String.class, Message.FIELD_GL2_MESSAGE_ID))) {
-                // Set the message ID once all message processors have finished
-                // See documentation of Message.FIELD_GL2_MESSAGE_ID for details
-                message.addField(Message.FIELD_GL2_MESSAGE_ID, ulid.nextULID());
-            }
+            finishMessage(message);
+        }
+    }
 
-            // The processing time should only be set once all message processors have finished
-            message.setProcessingTime(Tools.nowUTC());
-            processingStatusRecorder.updatePostProcessingReceiveTime(message.getReceiveTime());
+    private void finishMessage(Message message) {
+        if (!message.hasField(Message.FIELD_GL2_MESSAGE_ID) || isNullOrEmpty(message.getFieldAs(String.class, Message.FIELD_GL2_MESSAGE_ID))) {
+            // Set the message ID once all message processors have finished
+            // See documentation of Message.FIELD_GL2_MESSAGE_ID for details
+            message.addField(Message.FIELD_GL2_MESSAGE_ID, ulid.nextULID());
+        }
 
-            if(failureSubmissionService.submitProcessingErrors(message)) {
-                outputBuffer.insertBlocking(message);
-            }
+        // The processing time should only be set once all message processors have finished
+        message.setProcessingTime(Tools.nowUTC());
+        processingStatusRecorder.updatePostProcessingReceiveTime(message.getReceiveTime());
+
+        if(failureSubmissionService.submitProcessingErrors(message)) {
+            outputBuffer.insertBlocking(message);
         }
     }
 
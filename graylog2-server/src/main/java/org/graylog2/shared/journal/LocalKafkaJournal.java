@@ -90,6 +90,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.concurrent.TimeUnit.DAYS;
@@ -152,6 +153,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     private final ScheduledExecutorService scheduler;
     private final ServerStatus serverStatus;
     private final Timer writeTime;
+    private final LongAdder totalWriteTimeNanos = new LongAdder();
 
     private final Timer readTime;
     private final KafkaScheduler kafkaScheduler;
@@ -503,7 +505,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      */
     @Override
     public long write(List<Entry> entries) {
-        try (Timer.Context ignored = writeTime.time()) {
+        final Timer.Context writeTimer = writeTime.time();
+        try {
             long payloadSize = 0L;
             long messageSetSize = 0L;
             long lastWriteOffset = 0L;
@@ -554,6 +557,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             }
 
             return lastWriteOffset;
+        } finally {
+            totalWriteTimeNanos.add(writeTimer.stop());
         }
     }
 
@@ -932,6 +937,20 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         throttleState.set(state);
     }
 
+    /**
+     * @return the number of calls to {@link #write(List)} since the journal has been created
+     */
+    public long getWriteCount() {
+        return writeTime.getCount();
+    }
+
+    /**
+     * @return the total time spent in {@link #write(List)} since the journal has been created
+     */
+    public long getTotalWriteTimeNanos() {
+        return totalWriteTimeNanos.sum();
+    }
+
 
     public class OffsetFileFlusher implements Runnable {
         @Override
@@ -22,10 +22,6 @@ import org.HdrHistogram.AtomicHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.OutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
-
 public class HdrHistogram extends com.codahale.metrics.Histogram {
     private static final Logger log = LoggerFactory.getLogger(HdrHistogram.class);
     private final AtomicHistogram hdrHistogram;
@@ -46,57 +42,7 @@ public class HdrHistogram extends com.codahale.metrics.Histogram {
 
     @Override
     public Snapshot getSnapshot() {
-        final AtomicHistogram copy = hdrHistogram.copy();
-        return new Snapshot() {
-            @Override
-            public double getValue(double quantile) {
-                return copy.getValueAtPercentile(quantile * 100);
-            }
-
-            @Override
-            public long[] getValues() {
-                return new long[0];
-            }
-
-            @Override
-            public int size() {
-                return 0;
-            }
-
-            @Override
-            public long getMax() {
-                return copy.getMaxValue();
-            }
-
-            @Override
-            public double getMean() {
-                final double mean = copy.getMean();
-                return Double.isNaN(mean) ? 0 : mean;
-            }
-
-            @Override
-            public long getMin() {
-                final long minValue = copy.getMinValue();
-                return minValue == Long.MAX_VALUE ? 0 : minValue;
-            }
-
-            @Override
-            public double getStdDev() {
-                final double stdDeviation = copy.getStdDeviation();
-                return Double.isNaN(stdDeviation) ? 0 : stdDeviation;
-            }
-
-            @Override
-            public void dump(OutputStream output) {
-                final PrintStream printStream;
-                try {
-                    printStream = new PrintStream(output, false, "UTF-8");
-                } catch (UnsupportedEncodingException e) {
-                    throw new RuntimeException(e);
-                }
-                copy.outputPercentileDistribution(printStream, 1d);
-            }
-        };
+        return new HdrSnapshot(hdrHistogram.copy());
     }
 
 
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.AtomicHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Reservoir} backed by an {@link AtomicHistogram}.
+ * <p>
+ * Unlike the sampling reservoirs shipped with the metrics library, recording a value is a lock-free array increment
+ * without any allocation, and the snapshot covers every recorded value with a fixed relative precision.
+ */
+public class HdrReservoir implements Reservoir {
+    private static final Logger log = LoggerFactory.getLogger(HdrReservoir.class);
+
+    private final AtomicHistogram hdrHistogram;
+
+    public HdrReservoir(final long highestTrackableValue, final int numberOfSignificantValueDigits) {
+        this.hdrHistogram = new AtomicHistogram(highestTrackableValue, numberOfSignificantValueDigits);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(hdrHistogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        try {
+            hdrHistogram.recordValue(value);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            log.debug("Ignoring value {} for HdrReservoir, it exceeds the highest trackable value {}", value, hdrHistogram.getHighestTrackableValue());
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return new HdrSnapshot(hdrHistogram.copy());
+    }
+}
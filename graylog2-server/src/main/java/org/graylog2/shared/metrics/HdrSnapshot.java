@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.AbstractHistogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * {@link Snapshot} view of a copied HdrHistogram. Individual values are not retained, so {@link #getValues()} is empty.
+ */
+class HdrSnapshot extends Snapshot {
+    private final AbstractHistogram copy;
+
+    HdrSnapshot(AbstractHistogram copy) {
+        this.copy = copy;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        return copy.getValueAtPercentile(quantile * 100);
+    }
+
+    @Override
+    public long[] getValues() {
+        return new long[0];
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public long getMax() {
+        return copy.getMaxValue();
+    }
+
+    @Override
+    public double getMean() {
+        final double mean = copy.getMean();
+        return Double.isNaN(mean) ? 0 : mean;
+    }
+
+    @Override
+    public long getMin() {
+        final long minValue = copy.getMinValue();
+        return minValue == Long.MAX_VALUE ? 0 : minValue;
+    }
+
+    @Override
+    public double getStdDev() {
+        final double stdDeviation = copy.getStdDeviation();
+        return Double.isNaN(stdDeviation) ? 0 : stdDeviation;
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        final PrintStream printStream;
+        try {
+            printStream = new PrintStream(output, false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        copy.outputPercentileDistribution(printStream, 1d);
+    }
+}
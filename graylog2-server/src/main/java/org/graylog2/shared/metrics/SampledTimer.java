@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformSnapshot;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link Timer} which only measures the duration of one in {@code sampleRate} invocations but counts every
+ * invocation.
+ * <p>
+ * Unsampled invocations neither read the clock nor touch the reservoir, they only mark the shared {@link Meter}.
+ * This makes the timer cheap enough for hot paths like stream rules, extractors and pipeline rules which are executed
+ * for every message. {@link #getCount()} and the rates report all invocations, the snapshot only contains the
+ * sampled durations. Durations are recorded into an {@link HdrReservoir} unless a different reservoir is given.
+ */
+public class SampledTimer extends Timer {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private static final Clock NO_CLOCK = new Clock() {
+        @Override
+        public long getTick() {
+            return 0L;
+        }
+    };
+    private static final Snapshot EMPTY_SNAPSHOT = new UniformSnapshot(new long[0]);
+    private static final Reservoir NO_RESERVOIR = new Reservoir() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public void update(long value) {
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return EMPTY_SNAPSHOT;
+        }
+    };
+
+    private final int sampleRate;
+    private final Meter meter;
+    private final Timer countingTimer;
+
+    public SampledTimer(int sampleRate) {
+        this(sampleRate, new HdrReservoir(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_VALUE_DIGITS), Clock.defaultClock());
+    }
+
+    public SampledTimer(int sampleRate, Reservoir reservoir, Clock clock) {
+        this(sampleRate, new Meter(clock), reservoir, clock);
+    }
+
+    private SampledTimer(int sampleRate, Meter meter, Reservoir reservoir, Clock clock) {
+        super(meter, new Histogram(reservoir), clock);
+        checkArgument(sampleRate > 0, "sampleRate must be positive");
+        this.sampleRate = sampleRate;
+        this.meter = meter;
+        // Shares the meter with this timer, but never reads the clock and discards the (zero) durations
+        this.countingTimer = new Timer(meter, new Histogram(NO_RESERVOIR), NO_CLOCK);
+    }
+
+    /**
+     * Returns the timer with the given name, registering a new one if it doesn't exist yet. A sample rate of 1 (or
+     * less) registers a regular {@link Timer}.
+     */
+    public static Timer getOrRegister(MetricRegistry metricRegistry, String name, int sampleRate) {
+        if (sampleRate <= 1) {
+            return metricRegistry.timer(name);
+        }
+        return metricRegistry.timer(name, () -> new SampledTimer(sampleRate));
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    private boolean sample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    @Override
+    public Context time() {
+        return sample() ? super.time() : countingTimer.time();
+    }
+
+    @Override
+    public <T> T time(Callable<T> event) throws Exception {
+        try (Context ignored = time()) {
+            return event.call();
+        }
+    }
+
+    @Override
+    public <T> T timeSupplier(Supplier<T> event) {
+        try (Context ignored = time()) {
+            return event.get();
+        }
+    }
+
+    @Override
+    public void time(Runnable event) {
+        try (Context ignored = time()) {
+            event.run();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return meter.getCount();
+    }
+}
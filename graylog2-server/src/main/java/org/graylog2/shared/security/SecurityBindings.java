@@ -23,6 +23,7 @@ import org.graylog2.plugin.PluginModule;
 import org.graylog2.rest.models.system.sessions.responses.DefaultSessionResponseFactory;
 import org.graylog2.rest.models.system.sessions.responses.SessionResponseFactory;
 import org.graylog2.security.DefaultX509TrustManager;
+import org.graylog2.security.SessionLastAccessBuffer;
 import org.graylog2.security.TrustManagerProvider;
 import org.graylog2.security.UserSessionTerminationService;
 import org.graylog2.security.encryption.EncryptedValueService;
@@ -37,6 +38,7 @@ public class SecurityBindings extends PluginModule {
         bind(SessionCreator.class).in(Scopes.SINGLETON);
         addPermissions(RestPermissions.class);
         addInitializer(UserSessionTerminationService.class);
+        addInitializer(SessionLastAccessBuffer.class);
 
         install(new FactoryModuleBuilder()
                 .implement(TrustManager.class, DefaultX509TrustManager.class)
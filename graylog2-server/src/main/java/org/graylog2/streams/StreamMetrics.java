@@ -19,26 +19,40 @@ package org.graylog2.streams;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.collect.Maps;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.shared.metrics.SampledTimer;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Caches the per-stream metrics, so the metric names don't have to be built and looked up in the registry for every
+ * message. The underlying Codahale meters and timers are backed by striped adders and can be updated concurrently.
+ */
 public class StreamMetrics {
     private final MetricRegistry metricRegistry;
+    private final int ruleTimerSampleRate;
 
-    private final Map<String, Meter> streamIncomingMeters = Maps.newHashMap();
-    private final Map<String, Timer> streamExecutionTimers = Maps.newHashMap();
-    private final Map<String, Meter> streamExceptionMeters = Maps.newHashMap();
-    private final Map<String, Meter> streamRuleTimeoutMeters = Maps.newHashMap();
-    private final Map<String, Meter> streamFaultsExceededMeters = Maps.newHashMap();
+    private final Map<String, Meter> streamIncomingMeters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> streamExecutionTimers = new ConcurrentHashMap<>();
+    private final Map<String, Meter> streamExceptionMeters = new ConcurrentHashMap<>();
+    private final Map<String, Meter> streamRuleTimeoutMeters = new ConcurrentHashMap<>();
+    private final Map<String, Meter> streamFaultsExceededMeters = new ConcurrentHashMap<>();
 
 
-    @Inject
     public StreamMetrics(final MetricRegistry metricRegistry) {
+        this(metricRegistry, 1);
+    }
+
+    @Inject
+    public StreamMetrics(final MetricRegistry metricRegistry,
+                         @Named("stream_rule_timer_sample_rate") final int ruleTimerSampleRate) {
         this.metricRegistry = metricRegistry;
+        this.ruleTimerSampleRate = ruleTimerSampleRate;
     }
 
     public void markIncomingMeter(String streamId) {
@@ -46,13 +60,10 @@ public class StreamMetrics {
     }
 
     public Timer getExecutionTimer(String streamId, String streamRuleId) {
-        Timer timer = this.streamExecutionTimers.get(streamRuleId);
-        if (timer == null) {
-            timer = metricRegistry.timer(MetricRegistry.name(Stream.class, streamId, "StreamRule", streamRuleId, "executionTime"));
-            this.streamExecutionTimers.put(streamRuleId, timer);
-        }
-
-        return timer;
+        return cached(streamExecutionTimers, streamRuleId,
+                () -> SampledTimer.getOrRegister(metricRegistry,
+                        MetricRegistry.name(Stream.class, streamId, "StreamRule", streamRuleId, "executionTime"),
+                        ruleTimerSampleRate));
     }
 
 
@@ -69,42 +80,23 @@ public class StreamMetrics {
     }
 
     private Meter getIncomingMeter(String streamId) {
-        Meter meter = this.streamIncomingMeters.get(streamId);
-        if (meter == null) {
-            meter = metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "incomingMessages"));
-            this.streamIncomingMeters.put(streamId, meter);
-        }
-
-        return meter;
+        return cached(streamIncomingMeters, streamId, () -> metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "incomingMessages")));
     }
 
     private Meter getExceptionMeter(String streamId) {
-        Meter meter = this.streamExceptionMeters.get(streamId);
-        if (meter == null) {
-            meter = metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "matchingExceptions"));
-            this.streamExceptionMeters.put(streamId, meter);
-        }
-
-        return meter;
+        return cached(streamExceptionMeters, streamId, () -> metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "matchingExceptions")));
     }
 
     private Meter getStreamRuleTimeoutMeter(final String streamId) {
-        Meter meter = this.streamRuleTimeoutMeters.get(streamId);
-        if (meter == null) {
-            meter = metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "ruleTimeouts"));
-            this.streamRuleTimeoutMeters.put(streamId, meter);
-        }
-
-        return meter;
+        return cached(streamRuleTimeoutMeters, streamId, () -> metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "ruleTimeouts")));
     }
 
     private Meter getStreamFaultsExceededMeter(final String streamId) {
-        Meter meter = this.streamFaultsExceededMeters.get(streamId);
-        if (meter == null) {
-            meter = metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "faultsExceeded"));
-            this.streamFaultsExceededMeters.put(streamId, meter);
-        }
+        return cached(streamFaultsExceededMeters, streamId, () -> metricRegistry.meter(MetricRegistry.name(Stream.class, streamId, "faultsExceeded")));
+    }
 
-        return meter;
+    private static <T> T cached(Map<String, T> cache, String id, Supplier<T> metricSupplier) {
+        // ConcurrentHashMap doesn't support null keys, the registry still returns the same metric for those
+        return id == null ? metricSupplier.get() : cache.computeIfAbsent(id, key -> metricSupplier.get());
     }
 }
@@ -16,6 +16,8 @@
  */
 package org.graylog2.streams;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -28,14 +30,22 @@ import org.graylog2.streams.events.StreamsChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 /**
  * Routes a {@link org.graylog2.plugin.Message} to its streams.
@@ -43,8 +53,16 @@ import java.util.concurrent.atomic.AtomicReference;
 public class StreamRouter {
     private static final Logger LOG = LoggerFactory.getLogger(StreamRouter.class);
 
+    /**
+     * Engine updates wait for this long after the last change, so that bursts of changes result in a single update.
+     */
+    private static final long UPDATE_DELAY_MILLIS = 500L;
+    /**
+     * Continuous changes delay an engine update by at most this long.
+     */
+    private static final long MAX_UPDATE_DELAY_MILLIS = 5_000L;
+
     private final ServerStatus serverStatus;
-    private final ScheduledExecutorService scheduler;
 
     private final AtomicReference<StreamRouterEngine> routerEngine = new AtomicReference<>(null);
     private final StreamRouterEngineUpdater engineUpdater;
@@ -54,11 +72,12 @@ public class StreamRouter {
                         ServerStatus serverStatus,
                         StreamRouterEngine.Factory routerEngineFactory,
                         EventBus serverEventBus,
+                        MetricRegistry metricRegistry,
                         @Named("daemonScheduler") ScheduledExecutorService scheduler) {
         this.serverStatus = serverStatus;
-        this.scheduler = scheduler;
 
-        this.engineUpdater = new StreamRouterEngineUpdater(routerEngine, routerEngineFactory, streamService, executorService());
+        this.engineUpdater = new StreamRouterEngineUpdater(routerEngine, routerEngineFactory, streamService, executorService(),
+                scheduler, metricRegistry.timer(name(StreamRouter.class, "engineUpdateTime")));
         this.routerEngine.set(engineUpdater.getNewEngine());
 
         // TODO: This class needs lifecycle management to avoid leaking objects in the EventBus
@@ -68,19 +87,19 @@ public class StreamRouter {
     @Subscribe
     @SuppressWarnings("unused")
     public void handleStreamsUpdate(StreamsChangedEvent event) {
-        scheduler.submit(engineUpdater);
+        engineUpdater.requestUpdate(event.streamIds());
     }
 
     @Subscribe
     @SuppressWarnings("unused")
     public void handleIndexSetCreation(IndexSetCreatedEvent event) {
-        scheduler.submit(engineUpdater);
+        engineUpdater.requestUpdate(null);
     }
 
     @Subscribe
     @SuppressWarnings("unused")
     public void handleIndexSetDeletion(IndexSetDeletedEvent event) {
-        scheduler.submit(engineUpdater);
+        engineUpdater.requestUpdate(null);
     }
 
     private ExecutorService executorService() {
@@ -99,39 +118,117 @@ public class StreamRouter {
         return engine.match(msg);
     }
 
+    /**
+     * Collects stream changes and applies them to the router engine in a single, delayed update.
+     * <p>
+     * Changes of individual streams only reload and rebuild the changed streams. Index set changes can affect any
+     * stream and reload all of them.
+     */
     private static class StreamRouterEngineUpdater implements Runnable {
         private final AtomicReference<StreamRouterEngine> routerEngine;
         private final StreamRouterEngine.Factory engineFactory;
         private final StreamService streamService;
         private final ExecutorService executorService;
+        private final ScheduledExecutorService scheduler;
+        private final Timer updateTimer;
+
+        private final Object pendingLock = new Object();
+        private Set<String> pendingStreamIds = new HashSet<>();
+        private boolean pendingFullReload = false;
+        private ScheduledFuture<?> scheduledUpdate = null;
+        private long firstPendingRequest;
 
         public StreamRouterEngineUpdater(AtomicReference<StreamRouterEngine> routerEngine,
                                          StreamRouterEngine.Factory engineFactory,
                                          StreamService streamService,
-                                         ExecutorService executorService) {
+                                         ExecutorService executorService,
+                                         ScheduledExecutorService scheduler,
+                                         Timer updateTimer) {
             this.routerEngine = routerEngine;
             this.engineFactory = engineFactory;
             this.streamService = streamService;
             this.executorService = executorService;
+            this.scheduler = scheduler;
+            this.updateTimer = updateTimer;
+        }
+
+        /**
+         * @param streamIds the IDs of the changed streams or {@code null} if all streams have to be reloaded
+         */
+        void requestUpdate(@Nullable Set<String> streamIds) {
+            synchronized (pendingLock) {
+                if (streamIds == null) {
+                    pendingFullReload = true;
+                } else {
+                    pendingStreamIds.addAll(streamIds);
+                }
+
+                final long now = System.nanoTime();
+                if (scheduledUpdate == null) {
+                    firstPendingRequest = now;
+                    scheduledUpdate = scheduler.schedule(this, UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } else if (now - firstPendingRequest < TimeUnit.MILLISECONDS.toNanos(MAX_UPDATE_DELAY_MILLIS)
+                        && scheduledUpdate.cancel(false)) {
+                    // An update which couldn't be cancelled has already started and will pick up this change
+                    scheduledUpdate = scheduler.schedule(this, UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
         }
 
         @Override
         public void run() {
-            try {
-                final StreamRouterEngine engine = getNewEngine();
+            final Set<String> streamIds;
+            final boolean fullReload;
+            synchronized (pendingLock) {
+                streamIds = pendingStreamIds;
+                fullReload = pendingFullReload;
+                pendingStreamIds = new HashSet<>();
+                pendingFullReload = false;
+                scheduledUpdate = null;
+            }
+            if (!fullReload && streamIds.isEmpty()) {
+                return;
+            }
 
-                if (engine.getFingerprint().equals(routerEngine.get().getFingerprint())) {
-                    LOG.debug("Not updating router engine, streams did not change (fingerprint={})", engine.getFingerprint());
-                } else {
-                    LOG.debug("Updating to new stream router engine. (old-fingerprint={} new-fingerprint={}",
-                            routerEngine.get().getFingerprint(), engine.getFingerprint());
-                    routerEngine.set(engine);
+            // Updates build on the current engine, so they must not run concurrently
+            synchronized (this) {
+                try (Timer.Context ignored = updateTimer.time()) {
+                    if (fullReload) {
+                        reload();
+                    } else {
+                        update(streamIds);
+                    }
+                } catch (Exception e) {
+                    LOG.error("Stream router engine update failed!", e);
+                    // The changes are lost, make sure the next update catches up on them
+                    synchronized (pendingLock) {
+                        pendingFullReload = true;
+                    }
                 }
-            } catch (Exception e) {
-                LOG.error("Stream router engine update failed!", e);
             }
         }
 
+        private void reload() {
+            final StreamRouterEngine engine = getNewEngine();
+
+            if (engine.getFingerprint().equals(routerEngine.get().getFingerprint())) {
+                LOG.debug("Not updating router engine, streams did not change (fingerprint={})", engine.getFingerprint());
+            } else {
+                LOG.debug("Updating to new stream router engine. (old-fingerprint={} new-fingerprint={}",
+                        routerEngine.get().getFingerprint(), engine.getFingerprint());
+                routerEngine.set(engine);
+            }
+        }
+
+        private void update(Set<String> streamIds) {
+            final List<Stream> enabledStreams = streamService.loadByIds(streamIds).stream()
+                    .filter(stream -> !Boolean.TRUE.equals(stream.getDisabled()))
+                    .collect(Collectors.toList());
+
+            LOG.debug("Updating {} changed streams in stream router engine ({} enabled)", streamIds.size(), enabledStreams.size());
+            routerEngine.set(routerEngine.get().withUpdatedStreams(streamIds, enabledStreams));
+        }
+
         private StreamRouterEngine getNewEngine() {
             return engineFactory.create(streamService.loadAllEnabled(), executorService);
         }
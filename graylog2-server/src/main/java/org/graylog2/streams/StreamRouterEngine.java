@@ -17,6 +17,8 @@
 package org.graylog2.streams;
 
 import com.codahale.metrics.Timer;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -37,6 +39,9 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -53,15 +58,26 @@ import java.util.concurrent.TimeUnit;
 public class StreamRouterEngine {
     private static final Logger LOG = LoggerFactory.getLogger(StreamRouterEngine.class);
 
+    private static final ImmutableList<StreamRuleType> RULE_TYPE_ORDER = ImmutableList.of(
+            StreamRuleType.ALWAYS_MATCH,
+            StreamRuleType.PRESENCE,
+            StreamRuleType.EXACT,
+            StreamRuleType.MATCH_INPUT,
+            StreamRuleType.GREATER,
+            StreamRuleType.SMALLER,
+            StreamRuleType.CONTAINS,
+            StreamRuleType.REGEX);
+
     private final EnumSet<StreamRuleType> ruleTypesNotNeedingFieldPresence = EnumSet.of(StreamRuleType.PRESENCE, StreamRuleType.EXACT, StreamRuleType.REGEX, StreamRuleType.ALWAYS_MATCH, StreamRuleType.CONTAINS, StreamRuleType.MATCH_INPUT);
     private final List<Stream> streams;
     private final StreamFaultManager streamFaultManager;
     private final StreamMetrics streamMetrics;
     private final TimeLimiter timeLimiter;
     private final long streamProcessingTimeout;
-    private final String fingerprint;
+    private final Supplier<String> fingerprint;
     private final Provider<Stream> defaultStreamProvider;
 
+    private final Map<String, List<Rule>> rulesByStreamId;
     private final List<Rule> rulesList;
 
     public interface Factory {
@@ -74,71 +90,86 @@ public class StreamRouterEngine {
                               StreamFaultManager streamFaultManager,
                               StreamMetrics streamMetrics,
                               @DefaultStream Provider<Stream> defaultStreamProvider) {
+        this(streams, SimpleTimeLimiter.create(executorService), streamFaultManager, streamMetrics, defaultStreamProvider,
+                Collections.emptyMap());
+    }
+
+    private StreamRouterEngine(List<Stream> streams,
+                               TimeLimiter timeLimiter,
+                               StreamFaultManager streamFaultManager,
+                               StreamMetrics streamMetrics,
+                               Provider<Stream> defaultStreamProvider,
+                               Map<String, List<Rule>> reusableRules) {
         this.streams = streams;
         this.streamFaultManager = streamFaultManager;
         this.streamMetrics = streamMetrics;
-        this.timeLimiter = SimpleTimeLimiter.create(executorService);
+        this.timeLimiter = timeLimiter;
         this.streamProcessingTimeout = streamFaultManager.getStreamProcessingTimeout();
-        this.fingerprint = new StreamListFingerprint(streams).getFingerprint();
+        this.fingerprint = Suppliers.memoize(() -> new StreamListFingerprint(streams).getFingerprint());
         this.defaultStreamProvider = defaultStreamProvider;
 
-        final List<Rule> alwaysMatchRules = Lists.newArrayList();
-        final List<Rule> presenceRules = Lists.newArrayList();
-        final List<Rule> exactRules = Lists.newArrayList();
-        final List<Rule> greaterRules = Lists.newArrayList();
-        final List<Rule> smallerRules = Lists.newArrayList();
-        final List<Rule> regexRules = Lists.newArrayList();
-        final List<Rule> containsRules = Lists.newArrayList();
-        final List<Rule> matchInputRules = Lists.newArrayList();
+        final Map<StreamRuleType, List<Rule>> rulesByType = new EnumMap<>(StreamRuleType.class);
+        for (StreamRuleType type : RULE_TYPE_ORDER) {
+            rulesByType.put(type, Lists.newArrayList());
+        }
 
+        this.rulesByStreamId = Maps.newHashMapWithExpectedSize(streams.size());
         for (Stream stream : streams) {
-            for (StreamRule streamRule : stream.getStreamRules()) {
-                final Rule rule;
-                try {
-                    rule = new Rule(stream, streamRule, stream.getMatchingType());
-                } catch (InvalidStreamRuleTypeException e) {
-                    LOG.warn("Invalid stream rule type. Skipping matching for this rule. " + e.getMessage(), e);
-                    continue;
-                }
-                switch (streamRule.getType()) {
-                    case ALWAYS_MATCH:
-                        alwaysMatchRules.add(rule);
-                        break;
-                    case PRESENCE:
-                        presenceRules.add(rule);
-                        break;
-                    case EXACT:
-                        exactRules.add(rule);
-                        break;
-                    case GREATER:
-                        greaterRules.add(rule);
-                        break;
-                    case SMALLER:
-                        smallerRules.add(rule);
-                        break;
-                    case REGEX:
-                        regexRules.add(rule);
-                        break;
-                    case CONTAINS:
-                        containsRules.add(rule);
-                        break;
-                    case MATCH_INPUT:
-                        matchInputRules.add(rule);
-                        break;
-                }
+            final List<Rule> existingRules = reusableRules.get(stream.getId());
+            final List<Rule> streamRules = existingRules != null ? existingRules : buildRules(stream);
+            rulesByStreamId.put(stream.getId(), streamRules);
+            for (Rule rule : streamRules) {
+                rulesByType.get(rule.getStreamRule().getType()).add(rule);
             }
         }
 
-        final int size = alwaysMatchRules.size() + presenceRules.size() + exactRules.size() + greaterRules.size() + smallerRules.size() + containsRules.size() + regexRules.size() + matchInputRules.size();
+        final int size = rulesByType.values().stream().mapToInt(List::size).sum();
         this.rulesList = Lists.newArrayListWithCapacity(size);
-        this.rulesList.addAll(alwaysMatchRules);
-        this.rulesList.addAll(presenceRules);
-        this.rulesList.addAll(exactRules);
-        this.rulesList.addAll(matchInputRules);
-        this.rulesList.addAll(greaterRules);
-        this.rulesList.addAll(smallerRules);
-        this.rulesList.addAll(containsRules);
-        this.rulesList.addAll(regexRules);
+        for (StreamRuleType type : RULE_TYPE_ORDER) {
+            this.rulesList.addAll(rulesByType.get(type));
+        }
+    }
+
+    private List<Rule> buildRules(Stream stream) {
+        final ImmutableList.Builder<Rule> rules = ImmutableList.builder();
+        for (StreamRule streamRule : stream.getStreamRules()) {
+            try {
+                rules.add(new Rule(stream, streamRule, stream.getMatchingType(), streamMetrics, streamFaultManager, timeLimiter));
+            } catch (InvalidStreamRuleTypeException e) {
+                LOG.warn("Invalid stream rule type. Skipping matching for this rule. " + e.getMessage(), e);
+            }
+        }
+        return rules.build();
+    }
+
+    /**
+     * Returns a new engine in which the given streams have been replaced. The rules of all other streams are shared
+     * with this engine instead of being built again.
+     *
+     * @param changedStreamIds the IDs of all changed streams, including the removed and disabled ones
+     * @param updatedStreams   the current version of the changed streams which should be routed to
+     * @return the updated engine
+     */
+    public StreamRouterEngine withUpdatedStreams(Set<String> changedStreamIds, Collection<Stream> updatedStreams) {
+        final Map<String, Stream> updatedStreamsById = Maps.newLinkedHashMap();
+        for (Stream stream : updatedStreams) {
+            updatedStreamsById.put(stream.getId(), stream);
+        }
+
+        final List<Stream> newStreams = Lists.newArrayListWithCapacity(streams.size() + updatedStreams.size());
+        for (Stream stream : streams) {
+            if (!changedStreamIds.contains(stream.getId())) {
+                newStreams.add(stream);
+            } else if (updatedStreamsById.containsKey(stream.getId())) {
+                // Keep the position of existing streams
+                newStreams.add(updatedStreamsById.remove(stream.getId()));
+            }
+        }
+        newStreams.addAll(updatedStreamsById.values());
+
+        final Map<String, List<Rule>> reusableRules = Maps.filterKeys(rulesByStreamId, id -> !changedStreamIds.contains(id));
+        return new StreamRouterEngine(ImmutableList.copyOf(newStreams), timeLimiter, streamFaultManager, streamMetrics,
+                defaultStreamProvider, reusableRules);
     }
 
     /**
@@ -156,7 +187,7 @@ public class StreamRouterEngine {
      * @return the fingerprint
      */
     public String getFingerprint() {
-        return fingerprint;
+        return fingerprint.get();
     }
 
     /**
@@ -250,7 +281,7 @@ public class StreamRouterEngine {
 
             for (final StreamRule streamRule : stream.getStreamRules()) {
                 try {
-                    final Rule rule = new Rule(stream, streamRule, stream.getMatchingType());
+                    final Rule rule = new Rule(stream, streamRule, stream.getMatchingType(), streamMetrics, streamFaultManager, timeLimiter);
                     match.addRule(rule);
                 } catch (InvalidStreamRuleTypeException e) {
                     LOG.warn("Invalid stream rule type. Skipping matching for this rule. " + e.getMessage(), e);
@@ -265,15 +296,27 @@ public class StreamRouterEngine {
         return matches;
     }
 
-    private class Rule {
+    // Static, so that rules shared by several engine instances don't keep the engine they have been created by alive
+    private static class Rule {
         private final Stream stream;
         private final StreamRule rule;
         private final String streamId;
         private final String streamRuleId;
         private final StreamRuleMatcher matcher;
         private final Stream.MatchingType matchingType;
-
-        public Rule(Stream stream, StreamRule rule, Stream.MatchingType matchingType) throws InvalidStreamRuleTypeException {
+        private final StreamMetrics streamMetrics;
+        private final StreamFaultManager streamFaultManager;
+        private final TimeLimiter timeLimiter;
+
+        public Rule(Stream stream,
+                    StreamRule rule,
+                    Stream.MatchingType matchingType,
+                    StreamMetrics streamMetrics,
+                    StreamFaultManager streamFaultManager,
+                    TimeLimiter timeLimiter) throws InvalidStreamRuleTypeException {
+            this.streamMetrics = streamMetrics;
+            this.streamFaultManager = streamFaultManager;
+            this.timeLimiter = timeLimiter;
             this.stream = stream;
             this.rule = rule;
             this.streamId = stream.getId();
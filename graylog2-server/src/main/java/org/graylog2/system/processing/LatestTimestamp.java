@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.system.processing;
+
+import org.joda.time.DateTime;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+import static org.joda.time.DateTimeZone.UTC;
+
+/**
+ * Keeps track of the latest timestamp that has been reported by many concurrent threads.
+ * <p>
+ * Updates are accumulated in striped cells as primitive millisecond values, so threads don't contend on a single
+ * reference for every message. The cells are only combined when the timestamp is read.
+ */
+class LatestTimestamp {
+    private final LongAccumulator latestMillis = new LongAccumulator(Math::max, 0L);
+
+    void update(DateTime timestamp) {
+        if (timestamp != null) {
+            latestMillis.accumulate(timestamp.getMillis());
+        }
+    }
+
+    DateTime get() {
+        return new DateTime(latestMillis.get(), UTC);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.indices;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.awaitility.Awaitility;
+import org.awaitility.Duration;
+import org.graylog.events.event.Event;
+import org.graylog.events.event.EventWithContext;
+import org.graylog.events.event.TestEvent;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.messages.IndexingRequest;
+import org.graylog2.indexer.messages.Messages;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.streams.StreamService;
+import org.graylog2.streams.events.StreamsChangedEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EventIndexerTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private StreamService streamService;
+    @Mock
+    private Messages messages;
+    @Mock
+    private IndexSet indexSet;
+
+    private Stream stream;
+    private ExecutorService executor;
+    private EventIndexer eventIndexer;
+
+    @Before
+    public void setUp() throws Exception {
+        stream = mock(Stream.class);
+        when(stream.getId()).thenReturn("stream-1");
+        when(stream.getIndexSet()).thenReturn(indexSet);
+        when(streamService.loadByIds(anyCollection())).thenReturn(ImmutableSet.of(stream));
+
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("event-indexer-test-%d").build());
+        eventIndexer = new EventIndexer(streamService, messages, new EventBus());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private EventWithContext event() {
+        final Event event = new TestEvent();
+        event.addStream("stream-1");
+        return EventWithContext.create(event);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writeIndexesEventsIntoIndexSetOfStream() {
+        final EventWithContext event = event();
+
+        eventIndexer.write(ImmutableList.of(event));
+
+        final ArgumentCaptor<List<IndexingRequest>> requests = ArgumentCaptor.forClass(List.class);
+        verify(messages).bulkIndexRequests(requests.capture(), anyBoolean());
+        assertThat(requests.getValue()).containsExactly(IndexingRequest.create(indexSet, event.event()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentWritesAreBatched() throws Exception {
+        final CountDownLatch firstBulkStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBulk = new CountDownLatch(1);
+        when(messages.bulkIndexRequests(anyList(), anyBoolean())).thenAnswer(invocation -> {
+            firstBulkStarted.countDown();
+            releaseFirstBulk.await(10, TimeUnit.SECONDS);
+            return ImmutableList.of();
+        });
+
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(event())), executor);
+        assertThat(firstBulkStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Written while the first bulk request is still running
+        final CompletableFuture<Void> second = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(event())), executor);
+        final CompletableFuture<Void> third = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(event(), event())), executor);
+        Awaitility.waitAtMost(Duration.FIVE_SECONDS).until(() -> eventIndexer.pendingRequests() == 3);
+        assertThat(second).isNotDone();
+        assertThat(third).isNotDone();
+
+        releaseFirstBulk.countDown();
+        CompletableFuture.allOf(first, second, third).get(10, TimeUnit.SECONDS);
+
+        final ArgumentCaptor<List<IndexingRequest>> requests = ArgumentCaptor.forClass(List.class);
+        verify(messages, times(2)).bulkIndexRequests(requests.capture(), anyBoolean());
+        assertThat(requests.getAllValues()).extracting(List::size).containsExactly(1, 3);
+    }
+
+    @Test
+    public void callerStopsWritingOnceItsOwnEventsAreWritten() throws Exception {
+        final CountDownLatch firstBulkStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBulk = new CountDownLatch(1);
+        final CountDownLatch secondBulkStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSecondBulk = new CountDownLatch(1);
+        final AtomicInteger bulkRequests = new AtomicInteger();
+        when(messages.bulkIndexRequests(anyList(), anyBoolean())).thenAnswer(invocation -> {
+            if (bulkRequests.incrementAndGet() == 1) {
+                firstBulkStarted.countDown();
+                releaseFirstBulk.await(10, TimeUnit.SECONDS);
+            } else {
+                secondBulkStarted.countDown();
+                releaseSecondBulk.await(10, TimeUnit.SECONDS);
+            }
+            return ImmutableList.of();
+        });
+
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(event())), executor);
+        assertThat(firstBulkStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        final CompletableFuture<Void> second = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(event())), executor);
+        Awaitility.waitAtMost(Duration.FIVE_SECONDS).until(() -> eventIndexer.pendingRequests() == 1);
+
+        releaseFirstBulk.countDown();
+        assertThat(secondBulkStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // The second bulk request is written by the second caller, the first one is done already
+        first.get(10, TimeUnit.SECONDS);
+        assertThat(second).isNotDone();
+
+        releaseSecondBulk.countDown();
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void blockedIndexSetDoesNotDelayOtherIndexSets() throws Exception {
+        final IndexSet otherIndexSet = mock(IndexSet.class);
+        final Stream otherStream = mock(Stream.class);
+        when(otherStream.getId()).thenReturn("stream-2");
+        when(otherStream.getIndexSet()).thenReturn(otherIndexSet);
+        when(streamService.loadByIds(anyCollection())).thenAnswer(invocation -> ImmutableSet.of(stream, otherStream));
+
+        final EventWithContext blockedEvent = event();
+        final CountDownLatch blockedBulkStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlockedBulk = new CountDownLatch(1);
+        when(messages.bulkIndexRequests(eq(ImmutableList.of(IndexingRequest.create(indexSet, blockedEvent.event()))), anyBoolean())).thenAnswer(invocation -> {
+            blockedBulkStarted.countDown();
+            releaseBlockedBulk.await(10, TimeUnit.SECONDS);
+            return ImmutableList.of();
+        });
+
+        final CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> eventIndexer.write(ImmutableList.of(blockedEvent)), executor);
+        assertThat(blockedBulkStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final Event otherEvent = new TestEvent();
+        otherEvent.addStream("stream-2");
+        eventIndexer.write(ImmutableList.of(EventWithContext.create(otherEvent)));
+
+        verify(messages).bulkIndexRequests(ImmutableList.of(IndexingRequest.create(otherIndexSet, otherEvent)), true);
+        assertThat(blocked).isNotDone();
+
+        releaseBlockedBulk.countDown();
+        blocked.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void streamIndexSetsAreCachedUntilStreamsChange() {
+        eventIndexer.write(ImmutableList.of(event()));
+        eventIndexer.write(ImmutableList.of(event()));
+
+        verify(streamService, times(1)).loadByIds(anyCollection());
+
+        eventIndexer.handleStreamsChanged(StreamsChangedEvent.create("stream-1"));
+        eventIndexer.write(ImmutableList.of(event()));
+
+        verify(streamService, times(2)).loadByIds(anyCollection());
+    }
+
+    @Test
+    public void writeFailsIfBulkRequestFails() {
+        when(messages.bulkIndexRequests(anyList(), anyBoolean())).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> eventIndexer.write(ImmutableList.of(event())))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.graylog.failure;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import org.graylog2.indexer.IndexFailureService;
 import org.graylog2.indexer.messages.Indexable;
@@ -27,7 +28,6 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -38,7 +38,8 @@ import static org.mockito.Mockito.when;
 public class DefaultFailureHandlerTest {
 
     private final IndexFailureService indexFailureService = mock(IndexFailureService.class);
-    private final DefaultFailureHandler underTest = new DefaultFailureHandler(indexFailureService);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final DefaultFailureHandler underTest = new DefaultFailureHandler(indexFailureService, metricRegistry);
 
     @Test
     public void isEnabled_returnsTrue() {
@@ -82,22 +83,51 @@ public class DefaultFailureHandlerTest {
         underTest.handle(indexingFailureBatch);
 
         // then
-        verify(indexFailureService, times(2)).saveWithoutValidation(any());
-
-        verify(indexFailureService, times(1)).saveWithoutValidation(argThat(arg ->
-                arg.asMap().get("letter_id").equals("msg-1") &&
-                        arg.asMap().get("index").equals("index1") &&
-                        arg.asMap().get("type").equals("indexing") &&
-                        arg.asMap().get("message").equals("indexingFailureDetails1") &&
-                        arg.asMap().get("timestamp") != null
-                ));
-
-        verify(indexFailureService, times(1)).saveWithoutValidation(argThat(arg ->
-                arg.asMap().get("letter_id").equals("msg-2") &&
-                        arg.asMap().get("index").equals("index2") &&
-                        arg.asMap().get("type").equals("indexing") &&
-                        arg.asMap().get("message").equals("indexingFailureDetails2") &&
-                        arg.asMap().get("timestamp") != null
+        verify(indexFailureService, times(1)).saveAll(argThat(arg -> arg.size() == 2 &&
+                arg.get(0).asMap().get("letter_id").equals("msg-1") &&
+                arg.get(0).asMap().get("index").equals("index1") &&
+                arg.get(0).asMap().get("type").equals("indexing") &&
+                arg.get(0).asMap().get("message").equals("indexingFailureDetails1") &&
+                arg.get(0).asMap().get("timestamp") != null &&
+                arg.get(1).asMap().get("letter_id").equals("msg-2") &&
+                arg.get(1).asMap().get("index").equals("index2") &&
+                arg.get(1).asMap().get("type").equals("indexing") &&
+                arg.get(1).asMap().get("message").equals("indexingFailureDetails2") &&
+                arg.get(1).asMap().get("timestamp") != null
         ));
     }
+
+    @Test
+    public void handle_identicalFailuresAreStoredOnceWithTheirCount() {
+        // given
+        final DateTime ts = DateTime.now(DateTimeZone.UTC);
+
+        final Indexable indexable1 = mock(Indexable.class);
+        when(indexable1.getId()).thenReturn("msg-1");
+        when(indexable1.getTimestamp()).thenReturn(ts);
+
+        final Indexable indexable2 = mock(Indexable.class);
+        when(indexable2.getId()).thenReturn("msg-2");
+        when(indexable2.getTimestamp()).thenReturn(ts);
+
+        final IndexingFailure indexingFailure1 = new IndexingFailure(
+                IndexingFailureCause.MappingError, "indexingFailureMessage1",
+                "indexingFailureDetails", Tools.nowUTC(), indexable1, "index1");
+
+        final IndexingFailure indexingFailure2 = new IndexingFailure(
+                IndexingFailureCause.MappingError, "indexingFailureMessage2",
+                "indexingFailureDetails", Tools.nowUTC(), indexable2, "index1");
+
+        final FailureBatch indexingFailureBatch = FailureBatch.indexingFailureBatch(ImmutableList.of(indexingFailure1, indexingFailure2));
+
+        // when
+        underTest.handle(indexingFailureBatch);
+
+        // then
+        verify(indexFailureService, times(1)).saveAll(argThat(arg -> arg.size() == 1 &&
+                arg.get(0).asMap().get("letter_id").equals("msg-1") &&
+                arg.get(0).getFields().get("count").equals(2)
+        ));
+        assertThat(metricRegistry.meter("org.graylog.failure.DefaultFailureHandler.deduplicatedFailures").getCount()).isEqualTo(1);
+    }
 }
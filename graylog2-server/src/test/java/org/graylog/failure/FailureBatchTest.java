@@ -118,6 +118,34 @@ public class FailureBatchTest {
         assertThat(FailureBatch.indexingFailureBatch(ImmutableList.of(createIndexingFailure())).containsProcessingFailures()).isFalse();
     }
 
+    @Test
+    public void groupByCause_regroupsFailuresByTypeAndCause() {
+        //given
+        final IndexingFailure mappingFailure1 = createIndexingFailure(IndexingFailureCause.MappingError, "Mapping Failed 1");
+        final IndexingFailure mappingFailure2 = createIndexingFailure(IndexingFailureCause.MappingError, "Mapping Failed 2");
+        final IndexingFailure unknownFailure = createIndexingFailure(IndexingFailureCause.UNKNOWN, "Unknown Failure");
+        final ProcessingFailure prcFailure = createProcessingFailure();
+
+        // when
+        final List<FailureBatch> batches = FailureBatch.groupByCause(ImmutableList.of(
+                FailureBatch.indexingFailureBatch(ImmutableList.of(mappingFailure1, unknownFailure)),
+                FailureBatch.processingFailureBatch(prcFailure),
+                FailureBatch.indexingFailureBatch(ImmutableList.of(mappingFailure2))));
+
+        // then
+        assertThat(batches).containsExactly(
+                FailureBatch.indexingFailureBatch(ImmutableList.of(mappingFailure1, mappingFailure2)),
+                FailureBatch.indexingFailureBatch(ImmutableList.of(unknownFailure)),
+                FailureBatch.processingFailureBatch(prcFailure));
+    }
+
+    private IndexingFailure createIndexingFailure(IndexingFailureCause cause, String message) {
+        return new IndexingFailure(
+                cause, message, "Cannot cast String to Double",
+                Tools.nowUTC(), null, "target-index"
+        );
+    }
+
     private IndexingFailure createIndexingFailure() {
         return new IndexingFailure(
                 IndexingFailureCause.MappingError, "Mapping Failed", "Cannot cast String to Double",
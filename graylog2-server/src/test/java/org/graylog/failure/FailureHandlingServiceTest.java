@@ -17,6 +17,7 @@
 package org.graylog.failure;
 
 import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
 import com.google.common.collect.ImmutableMap;
 import org.awaitility.Awaitility;
 import org.awaitility.Duration;
@@ -34,10 +35,13 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -54,6 +58,7 @@ public class FailureHandlingServiceTest {
     @BeforeEach
     public void setup() {
         when(configuration.getFailureHandlingQueueCapacity()).thenReturn(1000);
+        when(configuration.getFailureHandlingQueueMaxSize()).thenReturn(Size.megabytes(64L));
 
         failureSubmissionQueue = new FailureSubmissionQueue(configuration, metricRegistry);
     }
@@ -67,7 +72,7 @@ public class FailureHandlingServiceTest {
         final FailureHandler fallbackIndexingFailureHandler = enabledFailureHandler(indexingFailureBatch);
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackIndexingFailureHandler,
-                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         underTest.startAsync();
         underTest.awaitRunning();
@@ -99,7 +104,7 @@ public class FailureHandlingServiceTest {
         final FailureHandler fallbackFailureHandler = enabledFailureHandler();
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackFailureHandler,
-                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         underTest.startAsync();
         underTest.awaitRunning();
@@ -132,7 +137,7 @@ public class FailureHandlingServiceTest {
         final FailureHandler fallbackIndexingFailureHandler = enabledFailureHandler(indexingFailureBatch);
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackIndexingFailureHandler,
-                ImmutableSet.of(customIndexingFailureHandler1, customIndexingFailureHandler2), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(customIndexingFailureHandler1, customIndexingFailureHandler2), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         underTest.startAsync();
         underTest.awaitRunning();
@@ -161,7 +166,7 @@ public class FailureHandlingServiceTest {
         doThrow(new RuntimeException()).when(fallbackIndexingFailureHandler).handle(indexingFailureBatch2);
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackIndexingFailureHandler,
-                ImmutableSet.of(), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         underTest.startAsync();
         underTest.awaitRunning();
@@ -176,6 +181,10 @@ public class FailureHandlingServiceTest {
         // then
         verify(fallbackIndexingFailureHandler).handle(indexingFailureBatch2);
         verify(fallbackIndexingFailureHandler).handle(indexingFailureBatch1);
+
+        Awaitility.waitAtMost(Duration.ONE_SECOND)
+                .until(() -> metricRegistry.meter(name(FailureHandlingService.class, "handledFailures")).getCount() == 1);
+        assertThat(metricRegistry.meter(name(FailureHandlingService.class, "droppedFailures")).getCount()).isEqualTo(1);
     }
 
     @Test
@@ -191,7 +200,7 @@ public class FailureHandlingServiceTest {
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackFailureHandler,
                 ImmutableSet.of(customFailureHandler1, customFailureHandler2),
-                failureSubmissionQueue, configuration, acknowledger);
+                failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         // when
         underTest.startAsync();
@@ -216,7 +225,7 @@ public class FailureHandlingServiceTest {
         final FailureHandler customFailureHandler = enabledFailureHandler(indexingFailureBatch);
 
         final FailureHandlingService underTest = new FailureHandlingService(fallbackFailureHandler,
-                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(customFailureHandler), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         // when
         underTest.startAsync();
@@ -231,6 +240,38 @@ public class FailureHandlingServiceTest {
         verifyNoInteractions(acknowledger);
     }
 
+    @Test
+    public void run_queuedBatchesAreHandledTogetherGroupedByCause() throws Exception {
+        // given
+        when(configuration.getFailureHandlingBatchSize()).thenReturn(500);
+
+        final IndexingFailure mappingFailure1 = createIndexingFailure();
+        final IndexingFailure mappingFailure2 = createIndexingFailure();
+        final IndexingFailure unknownFailure = new IndexingFailure(
+                IndexingFailureCause.UNKNOWN, "Failure Message" + UUID.randomUUID(), "Failure Details",
+                Tools.nowUTC(), null, "target-index");
+
+        final FailureHandler fallbackFailureHandler = mock(FailureHandler.class);
+        when(fallbackFailureHandler.isEnabled()).thenReturn(true);
+        when(fallbackFailureHandler.supports(any())).thenReturn(true);
+
+        failureSubmissionQueue.submitBlocking(indexingFailureBatch(mappingFailure1));
+        failureSubmissionQueue.submitBlocking(indexingFailureBatch(unknownFailure));
+        failureSubmissionQueue.submitBlocking(indexingFailureBatch(mappingFailure2));
+
+        final FailureHandlingService underTest = new FailureHandlingService(fallbackFailureHandler,
+                ImmutableSet.of(), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
+
+        // when
+        underTest.startAsync();
+        underTest.awaitRunning();
+
+        // then
+        verify(fallbackFailureHandler, timeout(1000)).handle(FailureBatch.indexingFailureBatch(ImmutableList.of(mappingFailure1, mappingFailure2)));
+        verify(fallbackFailureHandler, timeout(1000)).handle(FailureBatch.indexingFailureBatch(ImmutableList.of(unknownFailure)));
+        verify(fallbackFailureHandler, times(2)).handle(any());
+    }
+
     @Test
     public void shutDown_uponShutdownAllRemainingFailuresAreHandled() throws Exception {
         // given
@@ -240,7 +281,7 @@ public class FailureHandlingServiceTest {
 
         final FailureSubmissionQueue failureSubmissionQueue = mock(FailureSubmissionQueue.class);
         final FailureHandlingService underTest = new FailureHandlingService(fallbackFailureHandler,
-                ImmutableSet.of(), failureSubmissionQueue, configuration, acknowledger);
+                ImmutableSet.of(), failureSubmissionQueue, configuration, acknowledger, metricRegistry);
 
         when(configuration.getFailureHandlingShutdownAwait()).thenReturn(com.github.joschi.jadconfig.util.Duration.milliseconds(300));
         when(failureSubmissionQueue.consumeBlockingWithTimeout(300L))
@@ -17,12 +17,15 @@
 package org.graylog.failure;
 
 import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.graylog2.Configuration;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +45,11 @@ public class FailureSubmissionQueueTest {
             .setDaemon(false)
             .build());
 
+    @Before
+    public void setUp() {
+        when(configuration.getFailureHandlingQueueMaxSize()).thenReturn(Size.megabytes(64L));
+    }
+
     @Test
     public void submitBlocking_whenQueueNotFull_acceptsNewBatches() throws Exception {
         //given
@@ -176,6 +184,88 @@ public class FailureSubmissionQueueTest {
         assertThat(consumedBatch).isNull();
     }
 
+    @Test
+    public void submitBlocking_whenQueueExceedsMaxSize_submissionIsBlocked() throws Exception {
+        //given
+        final ProcessingFailure prcFailure1 = createProcessingFailure();
+        final ProcessingFailure prcFailure2 = createProcessingFailure();
+        final long batchSize = FailureSubmissionQueue.estimateSize(FailureBatch.processingFailureBatch(prcFailure1));
+
+        when(configuration.getFailureHandlingQueueCapacity()).thenReturn(1000);
+        when(configuration.getFailureHandlingQueueMaxSize()).thenReturn(Size.bytes(batchSize + batchSize / 2));
+
+        final FailureSubmissionQueue underTest = new FailureSubmissionQueue(configuration, metricRegistry);
+
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure1));
+
+        // when
+        scheduler.schedule(() -> {
+            assertThat(underTest.queueSizeBytes()).isEqualTo(batchSize);
+            try {
+                assertThat(underTest.consumeBlocking()).isEqualTo(FailureBatch.processingFailureBatch(prcFailure1));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }, 300, TimeUnit.MILLISECONDS);
+
+        final long started = System.currentTimeMillis();
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure2));
+        final long waited = System.currentTimeMillis() - started;
+
+        // then
+        assertThat(waited).isGreaterThan(200);
+        assertThat(underTest.queueSizeBytes()).isEqualTo(batchSize);
+        assertThat(metricRegistry.meter("org.graylog.failure.FailureSubmissionQueue.blockedSubmissions").getCount()).isEqualTo(1);
+        assertThat(underTest.consumeBlocking()).isEqualTo(FailureBatch.processingFailureBatch(prcFailure2));
+        assertThat(underTest.queueSizeBytes()).isZero();
+    }
+
+    @Test
+    public void submitBlocking_whenQueueIsEmpty_acceptsBatchLargerThanMaxSize() throws Exception {
+        //given
+        when(configuration.getFailureHandlingQueueCapacity()).thenReturn(1000);
+        when(configuration.getFailureHandlingQueueMaxSize()).thenReturn(Size.bytes(1L));
+
+        final FailureSubmissionQueue underTest = new FailureSubmissionQueue(configuration, metricRegistry);
+
+        final ProcessingFailure prcFailure1 = createProcessingFailure();
+
+        // when
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure1));
+
+        // then
+        assertThat(underTest.queueSize()).isEqualTo(1);
+        assertThat(underTest.consumeBlocking()).isEqualTo(FailureBatch.processingFailureBatch(prcFailure1));
+    }
+
+    @Test
+    public void consumeAvailable_consumesBatchesUntilMaxFailuresReached() throws Exception {
+        //given
+        when(configuration.getFailureHandlingQueueCapacity()).thenReturn(1000);
+
+        final FailureSubmissionQueue underTest = new FailureSubmissionQueue(configuration, metricRegistry);
+
+        final ProcessingFailure prcFailure1 = createProcessingFailure();
+        final ProcessingFailure prcFailure2 = createProcessingFailure();
+        final ProcessingFailure prcFailure3 = createProcessingFailure();
+
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure1));
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure2));
+        underTest.submitBlocking(FailureBatch.processingFailureBatch(prcFailure3));
+
+        // when
+        final List<FailureBatch> consumedBatches = underTest.consumeAvailable(2);
+
+        // then
+        assertThat(consumedBatches).containsExactly(
+                FailureBatch.processingFailureBatch(prcFailure1),
+                FailureBatch.processingFailureBatch(prcFailure2));
+        assertThat(underTest.queueSize()).isEqualTo(1);
+        assertThat(underTest.consumeAvailable(0)).isEmpty();
+        assertThat(underTest.consumeAvailable(2)).containsExactly(FailureBatch.processingFailureBatch(prcFailure3));
+        assertThat(underTest.queueSizeBytes()).isZero();
+    }
+
     private ProcessingFailure createProcessingFailure() {
         return new ProcessingFailure(
                 ProcessingFailureCause.UNKNOWN, "message", "details",
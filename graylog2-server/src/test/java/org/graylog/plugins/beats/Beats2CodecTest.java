@@ -17,6 +17,7 @@
 package org.graylog.plugins.beats;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Resources;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.configuration.Configuration;
@@ -32,6 +33,7 @@ import org.mockito.junit.MockitoRule;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -301,6 +303,34 @@ public class Beats2CodecTest {
         assertThat(message.getField("beat_meta_cloud_availability_zone")).isEqualTo("gz-azone2");
     }
 
+    @Test
+    public void decodeAppliesPrefixFromMetadataAfterOtherFields() throws Exception {
+        final String json = "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\"," +
+                "\"host\":{\"name\":\"example.local\",\"ip\":[\"10.0.0.1\",\"10.0.0.2\"]}," +
+                "\"events\":[{\"id\":1},{\"id\":2}]," +
+                "\"message\":{\"ignored\":true}," +
+                "\"agent\":{\"hostname\":\"example.local\"}," +
+                "\"@metadata\":{\"beat\":\"filebeat\"}}";
+
+        final Message message = codec.decode(new RawMessage(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(message).isNotNull();
+        assertThat(message.getMessage()).isEmpty();
+        assertThat(message.getSource()).isEqualTo("example.local");
+        assertThat(message.getField("beats_type")).isEqualTo("filebeat");
+        assertThat(message.getField("filebeat_host_name")).isEqualTo("example.local");
+        assertThat(message.getField("filebeat_host_ip")).isEqualTo(ImmutableList.of("10.0.0.1", "10.0.0.2"));
+        assertThat(message.getField("filebeat_events_0_id")).isEqualTo(1);
+        assertThat(message.getField("filebeat_events_1_id")).isEqualTo(2);
+        assertThat(message.getField("filebeat_message_ignored")).isNull();
+        assertThat(message.getField("filebeat_@metadata_beat")).isEqualTo("filebeat");
+    }
+
+    @Test
+    public void decodeReturnsNullIfPayloadIsNotAnObject() throws Exception {
+        assertThat(codec.decode(new RawMessage("[1, 2]".getBytes(StandardCharsets.UTF_8)))).isNull();
+    }
+
     private RawMessage messageFromJson(String resourceName) throws IOException {
         final URL resource = Resources.getResource(this.getClass(), resourceName);
         final byte[] json = Resources.toByteArray(resource);
@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableMap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.logging.LoggingHandler;
 import org.graylog2.jackson.TypeReferences;
 import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
@@ -32,6 +33,7 @@ import java.util.Map;
 import java.util.zip.Deflater;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class BeatsFrameDecoderTest {
     private final ObjectMapper objectMapper = new ObjectMapperProvider().get();
@@ -231,6 +233,47 @@ public class BeatsFrameDecoderTest {
         }
     }
 
+    @Test
+    public void decodeFramesSplitAcrossReads() throws Exception {
+        final Map<String, String> data = ImmutableMap.of("foo", "bar");
+        final byte[] jsonBytes = "{\"answer\": 42}".getBytes(StandardCharsets.UTF_8);
+        final ByteBuf buffer = Unpooled.copiedBuffer(
+                buildWindowSizeFrame(2),
+                buildDataFrame(data, 1),
+                buildCompressedFrame(buildJsonFrame(jsonBytes, 2).array(), 3)
+        );
+
+        // Deliver the frames one byte at a time
+        while (buffer.isReadable()) {
+            channel.writeInbound(buffer.readRetainedSlice(1));
+        }
+        channel.finish();
+
+        final ByteBuf output1 = channel.readInbound();
+        final ByteBuf output2 = channel.readInbound();
+        assertThat((Object) channel.readInbound()).isNull();
+        assertThat(decoder.getWindowSize()).isEqualTo(2L);
+        assertThat(decoder.getSequenceNum()).isEqualTo(2L);
+        assertThat(extractSequenceNumber(channel.readOutbound())).isEqualTo(2L);
+
+        final Map<String, Object> result1 = objectMapper.readValue(output1.toString(StandardCharsets.UTF_8), TypeReferences.MAP_STRING_OBJECT);
+        final Map<String, Object> result2 = objectMapper.readValue(output2.toString(StandardCharsets.UTF_8), TypeReferences.MAP_STRING_OBJECT);
+        assertThat(result1).isEqualTo(data);
+        assertThat(result2).containsEntry("answer", 42);
+        output1.release();
+        output2.release();
+    }
+
+    @Test
+    public void decodeRejectsUnknownProtocolVersion() {
+        final ByteBuf buffer = Unpooled.buffer(1);
+        buffer.writeByte('1');
+
+        assertThatThrownBy(() -> channel.writeInbound(buffer))
+                .isInstanceOf(DecoderException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
     private long extractSequenceNumber(ByteBuf buffer) {
         assertThat(buffer.readByte()).isEqualTo((byte) '2');
         assertThat(buffer.readByte()).isEqualTo((byte) 'A');
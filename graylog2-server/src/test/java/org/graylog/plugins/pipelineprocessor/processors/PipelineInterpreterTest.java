@@ -418,7 +418,8 @@ public class PipelineInterpreterTest {
         return new PipelineInterpreter(
                 messageQueueAcknowledger,
                 new MetricRegistry(),
-                stateUpdater);
+                stateUpdater,
+                1);
     }
 
     @Test
@@ -473,7 +474,8 @@ public class PipelineInterpreterTest {
         final PipelineInterpreter interpreter = new PipelineInterpreter(
                 mock(MessageQueueAcknowledger.class),
                 metricRegistry,
-                stateUpdater);
+                stateUpdater,
+                1);
 
         interpreter.process(messageInDefaultStream("", ""));
 
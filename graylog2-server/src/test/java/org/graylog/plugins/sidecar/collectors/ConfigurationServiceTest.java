@@ -16,7 +16,9 @@
  */
 package org.graylog.plugins.sidecar.collectors;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
 import org.graylog.plugins.sidecar.rest.models.Configuration;
 import org.graylog.plugins.sidecar.rest.models.ConfigurationVariable;
 import org.graylog.plugins.sidecar.rest.models.NodeDetails;
@@ -70,7 +72,8 @@ public class ConfigurationServiceTest {
         when(sidecar.nodeDetails()).thenReturn(nodeDetails);
 
         this.configurationVariableService = new ConfigurationVariableService(mongodb.mongoConnection(), mongoJackObjectMapperProvider);
-        this.configurationService = new ConfigurationService(mongodb.mongoConnection(), mongoJackObjectMapperProvider, configurationVariableService);
+        this.configurationService = new ConfigurationService(mongodb.mongoConnection(), mongoJackObjectMapperProvider,
+                configurationVariableService, new SidecarPluginConfiguration(), new MetricRegistry());
     }
 
     @Test
@@ -109,4 +112,34 @@ public class ConfigurationServiceTest {
 
         assertEquals(TEMPLATE_RENDERED, result.template());
     }
+
+    @Test
+    public void testRenderedTemplatesAreCachedUntilInvalidation() throws Exception {
+        final String TEMPLATE = "myVariable: ${user.myVariable}\n";
+        configuration = buildTestConfig(TEMPLATE);
+        this.configurationService.save(configuration);
+        ConfigurationVariable myVariable = this.configurationVariableService.save(ConfigurationVariable.create("myVariable", "desc", "first"));
+
+        assertEquals("myVariable: first\n", this.configurationService.renderConfigurationForCollector(sidecar, configuration).template());
+
+        this.configurationVariableService.save(ConfigurationVariable.create(myVariable.id(), "myVariable", "desc", "second"));
+        assertEquals("myVariable: first\n", this.configurationService.renderConfigurationForCollector(sidecar, configuration).template());
+
+        this.configurationService.invalidateRenderCache();
+        assertEquals("myVariable: second\n", this.configurationService.renderConfigurationForCollector(sidecar, configuration).template());
+    }
+
+    @Test
+    public void testChangedTemplateIsRenderedAgain() throws Exception {
+        configuration = buildTestConfig("nodename: ${sidecar.nodeName}\n");
+        this.configurationService.save(configuration);
+        assertEquals("nodename: mockymock\n", this.configurationService.renderConfigurationForCollector(sidecar, configuration).template());
+
+        final Configuration updated = buildTestConfig("name: ${sidecar.nodeName}\n");
+        this.configurationService.save(updated);
+        assertEquals("name: mockymock\n", this.configurationService.renderConfigurationForCollector(sidecar, updated).template());
+
+        when(sidecar.nodeName()).thenReturn("renamed");
+        assertEquals("name: renamed\n", this.configurationService.renderConfigurationForCollector(sidecar, updated).template());
+    }
 }
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.sidecar.collectors;
 
+import com.google.common.collect.Lists;
 import com.mongodb.client.MongoCollection;
 import org.bson.Document;
 import org.graylog.plugins.sidecar.rest.models.NodeDetails;
@@ -111,6 +112,27 @@ public class SidecarServiceImplTest {
         assertEquals(os, nodeDetails.get("operating_system"));
     }
 
+    @Test
+    @MongoDBFixtures("collectorsMultipleDocuments.json")
+    public void testSaveHeartbeats() throws Exception {
+        final Sidecar existing = this.sidecarService.findByNodeId("uniqueid1");
+        final Sidecar heartbeat = existing.toBuilder()
+                .nodeName("newName")
+                .sidecarVersion("1.2.3")
+                .build();
+        final Sidecar deleted = Sidecar.create("deleted", "deleted", existing.nodeDetails(), "1.2.3");
+
+        final int result = this.sidecarService.saveHeartbeats(Lists.newArrayList(heartbeat, deleted));
+
+        final Sidecar updated = this.sidecarService.findByNodeId("uniqueid1");
+        assertEquals(1, result);
+        assertEquals("newName", updated.nodeName());
+        assertEquals("1.2.3", updated.sidecarVersion());
+        assertEquals(existing.assignments(), updated.assignments());
+        assertNull(this.sidecarService.findByNodeId("deleted"));
+        assertEquals(3, this.sidecarService.count());
+    }
+
     @Test
     @MongoDBFixtures("collectorsMultipleDocuments.json")
     public void testAll() throws Exception {
@@ -18,6 +18,7 @@ package org.graylog.plugins.sidecar.collectors.rest;
 
 import com.google.common.collect.Lists;
 import org.graylog.plugins.sidecar.collectors.rest.resources.RestResourceBaseTest;
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
 import org.graylog.plugins.sidecar.filter.ActiveSidecarFilter;
 import org.graylog.plugins.sidecar.mapper.SidecarStatusMapper;
 import org.graylog.plugins.sidecar.rest.models.NodeDetails;
@@ -26,6 +27,7 @@ import org.graylog.plugins.sidecar.rest.models.SidecarSummary;
 import org.graylog.plugins.sidecar.rest.requests.RegistrationRequest;
 import org.graylog.plugins.sidecar.rest.resources.SidecarResource;
 import org.graylog.plugins.sidecar.services.ActionService;
+import org.graylog.plugins.sidecar.services.SidecarHeartbeatBuffer;
 import org.graylog.plugins.sidecar.services.SidecarService;
 import org.graylog.plugins.sidecar.system.SidecarConfiguration;
 import org.graylog2.plugin.cluster.ClusterConfigService;
@@ -38,6 +40,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 import java.util.List;
 
@@ -47,6 +50,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(value = MockitoJUnitRunner.class)
@@ -78,7 +83,8 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 sidecarService,
                 actionService,
                 clusterConfigService,
-                statusMapper);
+                statusMapper,
+                new SidecarHeartbeatBuffer(sidecarService, new SidecarPluginConfiguration()));
     }
 
     @Test(expected = NotFoundException.class)
@@ -129,11 +135,34 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 )
         );
 
-        final Response response = this.resource.register("sidecarId", input, "0.0.1");
+        when(sidecarService.fromRequest("sidecarId", input, "0.0.1")).thenReturn(Sidecar.create("sidecarId", "nodeName", input.nodeDetails(), "0.0.1"));
+
+        final Response response = this.resource.register("sidecarId", input, "0.0.1", null);
 
         assertThat(response).isSuccess();
     }
 
+    @Test
+    public void testRegisterUnchanged() throws Exception {
+        final NodeDetails nodeDetails = NodeDetails.create("DummyOS 1.0", null, null, null, null);
+        final RegistrationRequest input = RegistrationRequest.create("nodeName", nodeDetails);
+        when(sidecarService.findByNodeId("sidecarId")).thenReturn(Sidecar.create("sidecarId", "nodeName", nodeDetails, "0.0.1"));
+
+        final Response first = this.resource.register("sidecarId", input, "0.0.1", null);
+        assertThat(first).isStatus(Response.Status.ACCEPTED);
+        final EntityTag etag = first.getEntityTag();
+        assertNotNull(etag);
+
+        final Response second = this.resource.register("sidecarId", input, "0.0.1", "\"" + etag.getValue() + "\"");
+        assertThat(second).isStatus(Response.Status.NOT_MODIFIED);
+        assertEquals(etag, second.getEntityTag());
+
+        final Response outdated = this.resource.register("sidecarId", input, "0.0.1", "\"outdated\"");
+        assertThat(outdated).isStatus(Response.Status.ACCEPTED);
+
+        verify(sidecarService, never()).save(any(Sidecar.class));
+    }
+
     @Test
     @Ignore
     public void testRegisterInvalidCollectorId() throws Exception {
@@ -148,7 +177,7 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 )
         );
 
-        final Response response = this.resource.register("", invalid, "0.0.1");
+        final Response response = this.resource.register("", invalid, "0.0.1", null);
 
         assertThat(response).isError();
         assertThat(response).isStatus(Response.Status.BAD_REQUEST);
@@ -168,7 +197,7 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 )
         );
 
-        final Response response = this.resource.register("sidecarId", invalid, "0.0.1");
+        final Response response = this.resource.register("sidecarId", invalid, "0.0.1", null);
 
         assertThat(response).isError();
         assertThat(response).isStatus(Response.Status.BAD_REQUEST);
@@ -182,7 +211,7 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 null
         );
 
-        final Response response = this.resource.register("sidecarId", invalid, "0.0.1");
+        final Response response = this.resource.register("sidecarId", invalid, "0.0.1", null);
 
         assertThat(response).isError();
         assertThat(response).isStatus(Response.Status.BAD_REQUEST);
@@ -202,7 +231,7 @@ public class SidecarResourceTest extends RestResourceBaseTest {
                 )
         );
 
-        final Response response = this.resource.register("sidecarId", invalid, "0.0.1");
+        final Response response = this.resource.register("sidecarId", invalid, "0.0.1", null);
 
         assertThat(response).isError();
         assertThat(response).isStatus(Response.Status.BAD_REQUEST);
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.sidecar.services;
+
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
+import org.graylog.plugins.sidecar.rest.models.NodeDetails;
+import org.graylog.plugins.sidecar.rest.models.Sidecar;
+import org.graylog.plugins.sidecar.rest.models.SidecarRegistrationConfiguration;
+import org.graylog.plugins.sidecar.rest.responses.RegistrationResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.ws.rs.core.EntityTag;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SidecarHeartbeatBufferTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private SidecarService sidecarService;
+
+    private SidecarHeartbeatBuffer buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new SidecarHeartbeatBuffer(sidecarService, new SidecarPluginConfiguration());
+    }
+
+    @Test
+    public void flushWritesLatestHeartbeatPerSidecar() {
+        final Sidecar first = sidecar("sidecar-1", "first");
+        final Sidecar second = sidecar("sidecar-1", "second");
+        final Sidecar other = sidecar("sidecar-2", "other");
+
+        buffer.heartbeat(first);
+        buffer.heartbeat(second);
+        buffer.heartbeat(other);
+
+        assertThat(buffer.flush()).isEqualTo(2);
+
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Collection<Sidecar>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(sidecarService).saveHeartbeats(captor.capture());
+        assertThat(captor.getValue()).containsExactlyInAnyOrder(second, other);
+
+        assertThat(buffer.flush()).isZero();
+        verify(sidecarService, times(1)).saveHeartbeats(anyCollection());
+    }
+
+    @Test
+    public void failedFlushIsRetried() {
+        final Sidecar sidecar = sidecar("sidecar-1", "first");
+        buffer.heartbeat(sidecar);
+        doThrow(new RuntimeException("Boom")).when(sidecarService).saveHeartbeats(anyCollection());
+
+        assertThat(buffer.flush()).isZero();
+
+        doThrow(new RuntimeException("Boom")).doReturn(1).when(sidecarService).saveHeartbeats(anyCollection());
+        assertThat(buffer.flush()).isZero();
+        assertThat(buffer.flush()).isEqualTo(1);
+        verify(sidecarService, times(3)).saveHeartbeats(Collections.singletonList(sidecar));
+    }
+
+    @Test
+    public void registrationEtagChangesWithResponse() {
+        final RegistrationResponse response = registrationResponse(30L);
+
+        final EntityTag etag = buffer.registrationEtag("sidecar-1", response);
+        assertThat(buffer.registrationEtag("sidecar-1", registrationResponse(30L))).isSameAs(etag);
+        assertThat(buffer.registrationEtag("sidecar-1", registrationResponse(60L))).isNotEqualTo(etag);
+
+        buffer.invalidateRegistration("sidecar-1");
+        assertThat(buffer.registrationEtag("sidecar-1", registrationResponse(60L))).isNotSameAs(etag);
+    }
+
+    private Sidecar sidecar(String nodeId, String nodeName) {
+        return Sidecar.create(nodeId, nodeName, NodeDetails.create("DummyOS 1.0", null, null, null, null), "1.0.0");
+    }
+
+    private RegistrationResponse registrationResponse(long updateInterval) {
+        return RegistrationResponse.create(SidecarRegistrationConfiguration.create(updateInterval, true), false, null, Collections.emptyList());
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -41,7 +42,7 @@ class MessagesExporterImplTest {
     void setUp() {
         backend = mock(ExportBackend.class);
         chunkDecorator = mock(ChunkDecorator.class);
-        sut = new DecoratingMessagesExporter(backend, chunkDecorator);
+        sut = new DecoratingMessagesExporter(backend, chunkDecorator, mock(ExecutorService.class));
     }
 
     @Test
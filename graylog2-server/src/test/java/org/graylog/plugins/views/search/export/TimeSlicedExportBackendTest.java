@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.graylog.plugins.views.search.export.TestData.simpleMessageChunk;
+
+class TimeSlicedExportBackendTest {
+    private static final DateTime FROM = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    // Fewer threads than slices, slices have to wait for a free thread
+    private final ExecutorService executor = Executors.newFixedThreadPool(2,
+            new ThreadFactoryBuilder().setNameFormat("export-slices-test-%d").build());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void splitsTimeRangeIntoAdjacentSlices() {
+        final AbsoluteRange range = AbsoluteRange.create(FROM, FROM.plusHours(1));
+
+        final List<AbsoluteRange> slices = TimeSlicedExportBackend.slice(range, 4);
+
+        assertThat(slices).extracting(AbsoluteRange::getFrom)
+                .containsExactly(FROM, FROM.plusMinutes(15), FROM.plusMinutes(30), FROM.plusMinutes(45));
+        assertThat(slices).extracting(AbsoluteRange::getTo)
+                .containsExactly(FROM.plusMinutes(15), FROM.plusMinutes(30), FROM.plusMinutes(45), FROM.plusHours(1));
+    }
+
+    @Test
+    void doesNotCreateMoreSlicesThanMilliseconds() {
+        final AbsoluteRange range = AbsoluteRange.create(FROM, FROM.plusMillis(2));
+
+        assertThat(TimeSlicedExportBackend.slice(range, 8)).hasSize(2);
+        assertThat(TimeSlicedExportBackend.slice(AbsoluteRange.create(FROM, FROM), 8)).containsExactly(AbsoluteRange.create(FROM, FROM));
+    }
+
+    @Test
+    void forwardsChunksOfAllSlicesWithSingleFirstAndLastChunk() {
+        final List<SimpleMessageChunk> results = export(commandWithSlices(3).build());
+
+        assertThat(results).hasSize(7);
+        assertThat(results.get(0).chunkOrder()).isEqualTo(SimpleMessageChunk.ChunkOrder.FIRST);
+        assertThat(results.subList(1, 6)).allMatch(c -> c.chunkOrder() == SimpleMessageChunk.ChunkOrder.INTERMEDIATE);
+        assertThat(results.get(6).chunkOrder()).isEqualTo(SimpleMessageChunk.ChunkOrder.LAST);
+        assertThat(results.get(6).messages()).isEmpty();
+        assertThat(results.stream().mapToInt(SimpleMessageChunk::size).sum()).isEqualTo(12);
+    }
+
+    @Test
+    void enforcesLimitAcrossSlices() {
+        final List<SimpleMessageChunk> results = export(commandWithSlices(3).limit(5).build());
+
+        assertThat(results.stream().mapToInt(SimpleMessageChunk::size).sum()).isEqualTo(5);
+        assertThat(results.get(results.size() - 1).isLastChunk()).isTrue();
+    }
+
+    @Test
+    void runsSingleSliceOnDelegate() {
+        final ExportMessagesCommand command = commandWithSlices(1).build();
+        final List<ExportMessagesCommand> commands = Collections.synchronizedList(new ArrayList<>());
+        final ExportBackend delegate = (c, collector) -> commands.add(c);
+
+        new TimeSlicedExportBackend(delegate, executor).run(command, chunk -> {});
+
+        assertThat(commands).containsExactly(command);
+    }
+
+    private ExportMessagesCommand.Builder commandWithSlices(int slices) {
+        return ExportMessagesCommand.builder()
+                .timeRange(AbsoluteRange.create(FROM, FROM.plusHours(3)))
+                .fieldsInOrder("timestamp", "message")
+                .slices(slices);
+    }
+
+    private List<SimpleMessageChunk> export(ExportMessagesCommand command) {
+        final List<SimpleMessageChunk> results = new ArrayList<>();
+        new TimeSlicedExportBackend(new TwoChunksPerSliceBackend(), executor).run(command, results::add);
+        return results;
+    }
+
+    private static class TwoChunksPerSliceBackend implements ExportBackend {
+        @Override
+        public void run(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+            final String timestamp = command.timeRange().getFrom().toString();
+            try {
+                chunkCollector.accept(simpleMessageChunk("timestamp,message", new Object[]{timestamp, "a"}, new Object[]{timestamp, "b"})
+                        .toBuilder().chunkOrder(SimpleMessageChunk.ChunkOrder.FIRST).build());
+                chunkCollector.accept(simpleMessageChunk("timestamp,message", new Object[]{timestamp, "c"}, new Object[]{timestamp, "d"}));
+                chunkCollector.accept(simpleMessageChunk("timestamp,message")
+                        .toBuilder().chunkOrder(SimpleMessageChunk.ChunkOrder.LAST).build());
+            } catch (ExportStoppedException e) {
+                // Backends stop retrieving messages when the collector throws
+            }
+        }
+    }
+}
@@ -16,34 +16,53 @@
  */
 package org.graylog.plugins.views.search.rest;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import org.graylog.grn.GRNRegistry;
+import org.graylog.plugins.views.search.permissions.SearchUser;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.plugin.database.users.User;
 import org.graylog2.plugin.streams.Stream;
+import org.graylog2.security.AuthorizationDecisionCache;
 import org.graylog2.shared.bindings.GuiceInjectorHolder;
 import org.graylog2.streams.StreamService;
+import org.graylog2.streams.events.StreamsChangedEvent;
+import org.graylog2.users.events.UserChangedEvent;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.graylog2.plugin.streams.Stream.NON_MESSAGE_STREAM_IDS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PermittedStreamsTest {
 
     private StreamService streamService;
+    private EventBus eventBus;
     private PermittedStreams sut;
 
     @Before
     public void setUp() throws Exception {
         GuiceInjectorHolder.createInjector(Collections.emptyList());
         streamService = mock(StreamService.class);
-        sut = new PermittedStreams(streamService);
+        eventBus = new EventBus();
+        final GRNRegistry grnRegistry = GRNRegistry.createWithBuiltinTypes();
+        final AuthorizationDecisionCache decisionCache = new AuthorizationDecisionCache(Duration.minutes(1), grnRegistry,
+                new MetricRegistry(), eventBus, mock(ClusterEventBus.class));
+        sut = new PermittedStreams(streamService, decisionCache, grnRegistry, eventBus);
     }
 
     @Test
@@ -85,6 +104,52 @@ public class PermittedStreamsTest {
         assertThat(result).containsExactly("i'm ok");
     }
 
+    @Test
+    public void reloadsStreamsAfterStreamChange() {
+        stubStreams("oans", "zwoa");
+        assertThat(sut.load(id -> true)).containsExactlyInAnyOrder("oans", "zwoa");
+        assertThat(sut.load(id -> true)).containsExactlyInAnyOrder("oans", "zwoa");
+        verify(streamService, times(1)).loadAll();
+
+        stubStreams("oans", "zwoa", "gsuffa");
+        eventBus.post(StreamsChangedEvent.create("gsuffa"));
+
+        assertThat(sut.load(id -> true)).containsExactlyInAnyOrder("oans", "zwoa", "gsuffa");
+    }
+
+    @Test
+    public void cachesPermittedStreamsOfUserUntilUserChanges() {
+        stubStreams("oans", "zwoa", "gsuffa");
+        final Set<String> readableStreams = new HashSet<>(ImmutableSet.of("zwoa"));
+        final SearchUser searchUser = searchUser("user-1", readableStreams);
+
+        assertThat(sut.loadForUser(searchUser)).containsExactly("zwoa");
+
+        readableStreams.add("gsuffa");
+        assertThat(sut.loadForUser(searchUser)).containsExactly("zwoa");
+
+        eventBus.post(UserChangedEvent.create("user-1"));
+        assertThat(sut.loadForUser(searchUser)).containsExactlyInAnyOrder("zwoa", "gsuffa");
+    }
+
+    @Test
+    public void permittedStreamsOfUserIncludeNewStreams() {
+        stubStreams("oans");
+        final SearchUser searchUser = searchUser("user-1", ImmutableSet.of("oans", "zwoa"));
+        assertThat(sut.loadForUser(searchUser)).containsExactly("oans");
+
+        stubStreams("oans", "zwoa");
+        eventBus.post(StreamsChangedEvent.create("zwoa"));
+
+        assertThat(sut.loadForUser(searchUser)).containsExactlyInAnyOrder("oans", "zwoa");
+    }
+
+    private SearchUser searchUser(String userId, Set<String> readableStreams) {
+        final User user = mock(User.class);
+        when(user.getId()).thenReturn(userId);
+        return new SearchUser(user, permission -> false, (permission, id) -> readableStreams.contains(id));
+    }
+
     private void stubStreams(String... streamIds) {
         List<Stream> streams = streamsWithIds(streamIds);
         when(streamService.loadAll()).thenReturn(streams);
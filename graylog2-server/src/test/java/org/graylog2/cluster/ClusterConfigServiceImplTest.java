@@ -18,6 +18,7 @@ package org.graylog2.cluster;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.Subscribe;
+import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
@@ -217,6 +218,69 @@ public class ClusterConfigServiceImplTest {
         assertThat(clusterConfigService.getOrDefault(CustomConfig.class, defaultValue)).isSameAs(defaultValue);
     }
 
+    @Test
+    public void getReturnsCachedConfig() throws Exception {
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
+        collection.save(customConfigObject("TEST"));
+
+        final CustomConfig customConfig = clusterConfigService.get(CustomConfig.class);
+        assertThat(customConfig.text).isEqualTo("TEST");
+
+        collection.update(new BasicDBObject("type", CustomConfig.class.getCanonicalName()), customConfigObject("CHANGED"));
+
+        assertThat(clusterConfigService.get(CustomConfig.class)).isSameAs(customConfig);
+    }
+
+    @Test
+    public void getReturnsConfigAfterInvalidation() throws Exception {
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
+        assertThat(clusterConfigService.get(CustomConfig.class)).isNull();
+
+        collection.save(customConfigObject("TEST"));
+        assertThat(clusterConfigService.get(CustomConfig.class)).isNull();
+
+        ((ClusterConfigServiceImpl) clusterConfigService).invalidate(CustomConfig.class.getCanonicalName());
+
+        assertThat(clusterConfigService.get(CustomConfig.class).text).isEqualTo("TEST");
+    }
+
+    @Test
+    public void writeInvalidatesCachedConfig() throws Exception {
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
+        collection.save(customConfigObject("ORIGINAL"));
+        assertThat(clusterConfigService.get(CustomConfig.class).text).isEqualTo("ORIGINAL");
+
+        final CustomConfig customConfig = new CustomConfig();
+        customConfig.text = "TEST";
+        clusterConfigService.write(customConfig);
+
+        assertThat(clusterConfigService.get(CustomConfig.class).text).isEqualTo("TEST");
+    }
+
+    @Test
+    public void removeInvalidatesCachedConfig() throws Exception {
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
+        collection.save(customConfigObject("TEST"));
+        assertThat(clusterConfigService.get(CustomConfig.class).text).isEqualTo("TEST");
+
+        assertThat(clusterConfigService.remove(CustomConfig.class)).isEqualTo(1);
+
+        assertThat(clusterConfigService.get(CustomConfig.class)).isNull();
+    }
+
+    private static DBObject customConfigObject(String text) {
+        return new BasicDBObjectBuilder()
+                .add("type", CustomConfig.class.getCanonicalName())
+                .add("payload", Collections.singletonMap("text", text))
+                .add("last_updated", TIME.toString())
+                .add("last_updated_by", "ID")
+                .get();
+    }
+
     @Test
     public void writeIgnoresNull() throws Exception {
         @SuppressWarnings("deprecation")
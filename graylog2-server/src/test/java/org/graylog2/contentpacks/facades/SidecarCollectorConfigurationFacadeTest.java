@@ -16,7 +16,9 @@
  */
 package org.graylog2.contentpacks.facades;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog.plugins.sidecar.common.SidecarPluginConfiguration;
 import org.graylog.plugins.sidecar.services.ConfigurationService;
 import org.graylog.plugins.sidecar.services.ConfigurationVariableService;
 import org.graylog.testing.mongodb.MongoDBFixtures;
@@ -50,7 +52,8 @@ public class SidecarCollectorConfigurationFacadeTest {
     public void setUp() throws Exception {
         final MongoJackObjectMapperProvider mapperProvider = new MongoJackObjectMapperProvider(objectMapper);
         final ConfigurationService configurationService = new ConfigurationService(mongodb.mongoConnection(),
-                mapperProvider, new ConfigurationVariableService(mongodb.mongoConnection(), mapperProvider));
+                mapperProvider, new ConfigurationVariableService(mongodb.mongoConnection(), mapperProvider),
+                new SidecarPluginConfiguration(), new MetricRegistry());
 
         facade = new SidecarCollectorConfigurationFacade(objectMapper, configurationService);
     }
@@ -29,6 +29,8 @@ import com.mongodb.DBObject;
 import com.mongodb.WriteConcern;
 import org.graylog.testing.mongodb.MongoDBInstance;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.cluster.ClusterConfigChangedEvent;
+import org.graylog2.cluster.ClusterConfigServiceImpl;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.plugin.system.NodeId;
 import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
@@ -74,6 +76,8 @@ public class ClusterEventPeriodicalTest {
     private EventBus serverEventBus;
     @Spy
     private ClusterEventBus clusterEventBus;
+    @Mock
+    private ClusterConfigServiceImpl clusterConfigService;
     private MongoConnection mongoConnection;
     private ClusterEventPeriodical clusterEventPeriodical;
 
@@ -92,7 +96,8 @@ public class ClusterEventPeriodicalTest {
                 nodeId,
                 new ChainingClassLoader(getClass().getClassLoader()),
                 serverEventBus,
-                clusterEventBus
+                clusterEventBus,
+                clusterConfigService
         );
     }
 
@@ -166,6 +171,26 @@ public class ClusterEventPeriodicalTest {
         verify(clusterEventBus, never()).post(any());
     }
 
+    @Test
+    public void runInvalidatesChangedClusterConfig() throws Exception {
+        final ClusterConfigChangedEvent event = ClusterConfigChangedEvent.create(TIME, "TEST-PRODUCER", "com.example.Config");
+        DBObject dbObject = new BasicDBObjectBuilder()
+                .add("timestamp", TIME.getMillis())
+                .add("producer", "TEST-PRODUCER")
+                .add("consumers", Collections.emptyList())
+                .add("event_class", ClusterConfigChangedEvent.class.getCanonicalName())
+                .add("payload", objectMapper.convertValue(event, Map.class))
+                .get();
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(ClusterEventPeriodical.COLLECTION_NAME);
+        collection.save(dbObject);
+
+        clusterEventPeriodical.run();
+
+        verify(clusterConfigService, times(1)).invalidate("com.example.Config");
+        verify(serverEventBus, times(1)).post(event);
+    }
+
     @Test
     public void runHandlesAutoValueCorrectly() throws Exception {
         final DebugEvent event = DebugEvent.create("Node ID", TIME, "test");
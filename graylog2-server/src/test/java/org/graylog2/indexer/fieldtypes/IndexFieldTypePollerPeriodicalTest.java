@@ -17,21 +17,31 @@
 package org.graylog2.indexer.fieldtypes;
 
 import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.eventbus.EventBus;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.cluster.Node;
+import org.graylog2.cluster.NodeService;
 import org.graylog2.indexer.MongoIndexSet;
 import org.graylog2.indexer.cluster.Cluster;
+import org.graylog2.indexer.indexset.IndexSetConfig;
 import org.graylog2.indexer.indexset.IndexSetService;
 import org.graylog2.indexer.indices.Indices;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.lifecycles.Lifecycle;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
@@ -46,13 +56,19 @@ class IndexFieldTypePollerPeriodicalTest {
     @SuppressWarnings("UnstableApiUsage")
     private final EventBus eventBus = mock(EventBus.class);
     private final ServerStatus serverStatus = mock(ServerStatus.class);
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
-            new ThreadFactoryBuilder().setNameFormat("index-field-type-poller-periodical-test-%d").build()
-    );
+    private final NodeService nodeService = mock(NodeService.class);
+    private final GracefulShutdownService gracefulShutdownService = mock(GracefulShutdownService.class);
 
     @BeforeEach
     void setUp() throws Exception {
-        this.periodical = new IndexFieldTypePollerPeriodical(indexFieldTypePoller,
+        this.periodical = createPeriodical("node-1");
+    }
+
+    private IndexFieldTypePollerPeriodical createPeriodical(String nodeId) {
+        final NodeId id = mock(NodeId.class);
+        when(id.toString()).thenReturn(nodeId);
+
+        return new IndexFieldTypePollerPeriodical(indexFieldTypePoller,
                 indexFieldTypesService,
                 indexSetService,
                 indices,
@@ -60,8 +76,11 @@ class IndexFieldTypePollerPeriodicalTest {
                 cluster,
                 eventBus,
                 serverStatus,
+                nodeService,
+                id,
+                gracefulShutdownService,
                 Duration.minutes(5),
-                scheduler);
+                1);
     }
 
     @Test
@@ -72,4 +91,45 @@ class IndexFieldTypePollerPeriodicalTest {
 
         verifyNoInteractions(cluster);
     }
+
+    @Test
+    void indexSetsAreSpreadAcrossActiveNodes() {
+        when(nodeService.allActive(Node.Type.SERVER)).thenReturn(ImmutableMap.of(
+                "node-1", mock(Node.class),
+                "node-2", mock(Node.class),
+                "node-3", mock(Node.class)));
+        final List<IndexSetConfig> configs = IntStream.range(0, 300)
+                .mapToObj(i -> {
+                    final IndexSetConfig config = mock(IndexSetConfig.class);
+                    when(config.id()).thenReturn("index-set-" + i);
+                    return config;
+                })
+                .collect(Collectors.toList());
+
+        final Set<IndexSetConfig> owned1 = periodical.ownedIndexSetConfigs(configs);
+        final Set<IndexSetConfig> owned2 = createPeriodical("node-2").ownedIndexSetConfigs(configs);
+        final Set<IndexSetConfig> owned3 = createPeriodical("node-3").ownedIndexSetConfigs(configs);
+
+        // Every index set is polled by exactly one node
+        assertThat(owned1).doesNotContainAnyElementsOf(owned2).doesNotContainAnyElementsOf(owned3);
+        assertThat(owned2).doesNotContainAnyElementsOf(owned3);
+        assertThat(owned1.size() + owned2.size() + owned3.size()).isEqualTo(configs.size());
+        assertThat(owned1).isNotEmpty();
+        assertThat(owned2).isNotEmpty();
+        assertThat(owned3).isNotEmpty();
+    }
+
+    @Test
+    void singleNodeOwnsAllIndexSets() {
+        when(nodeService.allActive(Node.Type.SERVER)).thenReturn(ImmutableMap.of());
+        final IndexSetConfig config = mock(IndexSetConfig.class);
+        when(config.id()).thenReturn("index-set-1");
+
+        assertThat(periodical.ownedIndexSetConfigs(Collections.singleton(config))).containsExactly(config);
+    }
+
+    @Test
+    void registersGracefulShutdownHook() {
+        verify(gracefulShutdownService).register(periodical);
+    }
 }
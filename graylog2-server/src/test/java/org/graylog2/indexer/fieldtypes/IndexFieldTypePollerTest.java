@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.fieldtypes;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
+import org.graylog2.indexer.indices.Indices;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexFieldTypePollerTest {
+    private final IndexFieldTypePollerAdapter adapter = mock(IndexFieldTypePollerAdapter.class);
+    private final Set<FieldTypeDTO> fields = ImmutableSet.of(FieldTypeDTO.create("message", "text"));
+    private IndexFieldTypePoller poller;
+
+    @BeforeEach
+    void setUp() {
+        poller = new IndexFieldTypePoller(mock(Indices.class), new MetricRegistry(), adapter);
+        when(adapter.pollIndex(eq("graylog_0"), any(Timer.class))).thenReturn(Optional.of(fields));
+    }
+
+    @Test
+    void pollIndexIfChangedSkipsUnchangedMapping() {
+        when(adapter.mappingVersion("graylog_0")).thenReturn(Optional.of(3L));
+
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).hasValueSatisfying(dto -> {
+            assertThat(dto.indexName()).isEqualTo("graylog_0");
+            assertThat(dto.fields()).isEqualTo(fields);
+        });
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isEmpty();
+
+        verify(adapter, times(1)).pollIndex(eq("graylog_0"), any(Timer.class));
+    }
+
+    @Test
+    void pollIndexIfChangedPollsChangedMapping() {
+        when(adapter.mappingVersion("graylog_0")).thenReturn(Optional.of(3L), Optional.of(4L));
+
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+
+        verify(adapter, times(2)).pollIndex(eq("graylog_0"), any(Timer.class));
+    }
+
+    @Test
+    void pollIndexIfChangedAlwaysPollsWithoutMappingVersion() {
+        when(adapter.mappingVersion("graylog_0")).thenReturn(Optional.empty());
+
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+
+        verify(adapter, times(2)).pollIndex(eq("graylog_0"), any(Timer.class));
+    }
+
+    @Test
+    void forgetIndexPollsIndexAgain() {
+        when(adapter.mappingVersion("graylog_0")).thenReturn(Optional.of(3L));
+
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+        poller.forgetIndex("graylog_0");
+        assertThat(poller.pollIndexIfChanged("graylog_0", "index-set")).isPresent();
+
+        verify(adapter, times(2)).pollIndex(eq("graylog_0"), any(Timer.class));
+    }
+}
@@ -22,6 +22,7 @@ import org.graylog2.Configuration;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.plugin.Message;
 import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.jupiter.api.BeforeEach;
@@ -55,7 +56,7 @@ class MessagesBulkIndexRetryingTest {
     void setUp() {
         when(conf.getFailureHandlingQueueCapacity()).thenReturn(1000);
         this.messages = new Messages(trafficAccounting, messagesAdapter, processingStatusRecorder,
-                mock(FailureSubmissionService.class));
+                mock(FailureSubmissionService.class), mock(GracefulShutdownService.class), 1);
     }
 
     @Test
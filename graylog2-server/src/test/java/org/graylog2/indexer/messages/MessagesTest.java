@@ -22,6 +22,7 @@ import org.graylog2.indexer.IndexSet;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.Tools;
 import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Rule;
@@ -39,6 +40,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -71,7 +75,7 @@ public class MessagesTest {
 
     @Before
     public void setUp() throws Exception {
-        this.messages = new Messages(trafficAccounting, messagesAdapter, mock(ProcessingStatusRecorder.class), failureSubmissionService);
+        this.messages = new Messages(trafficAccounting, messagesAdapter, mock(ProcessingStatusRecorder.class), failureSubmissionService, mock(GracefulShutdownService.class), 1);
     }
 
     @Test
@@ -188,6 +192,87 @@ public class MessagesTest {
         verifyNoInteractions(failureSubmissionService);
     }
 
+    @Test
+    public void bulkIndexRequests_writesIndexSetsConcurrentlyWhenEnabled() throws Exception {
+        final Messages parallelMessages = new Messages(trafficAccounting, messagesAdapter, mock(ProcessingStatusRecorder.class), failureSubmissionService, new GracefulShutdownService(), 2);
+        final DateTime ts = Tools.nowUTC();
+        final IndexSet slowIndexSet = mock(IndexSet.class);
+        final IndexSet otherIndexSet = mock(IndexSet.class);
+        final Message message1 = message("msg-1", ts);
+        final Message message2 = message("msg-2", ts);
+        final Message message3 = message("msg-3", ts);
+
+        final IndexingRequest slowRequest1 = IndexingRequest.create(slowIndexSet, message1);
+        final IndexingRequest otherRequest = IndexingRequest.create(otherIndexSet, message2);
+        final IndexingRequest slowRequest2 = IndexingRequest.create(slowIndexSet, message3);
+
+        final CountDownLatch otherIndexSetWritten = new CountDownLatch(1);
+        when(messagesAdapter.bulkIndex(ImmutableList.of(slowRequest1, slowRequest2))).thenAnswer(invocation -> {
+            // Only completes if the other index set isn't waiting for this one
+            assertThat(otherIndexSetWritten.await(10, TimeUnit.SECONDS)).isTrue();
+            return ImmutableList.of();
+        });
+        when(messagesAdapter.bulkIndex(ImmutableList.of(otherRequest))).thenAnswer(invocation -> {
+            otherIndexSetWritten.countDown();
+            return ImmutableList.of(Messages.IndexingError.create(message2, "other-index", Messages.IndexingError.ErrorType.MappingError, "Some error message"));
+        });
+
+        final List<String> failureIds = parallelMessages.bulkIndexRequests(ImmutableList.of(slowRequest1, otherRequest, slowRequest2), false);
+
+        assertThat(failureIds).containsExactly("msg-2");
+        verify(messagesAdapter, times(2)).bulkIndex(any());
+    }
+
+    @Test
+    public void bulkIndexRequests_writesOnlyOnePartitionPerIndexSetAtATime() throws Exception {
+        final Messages parallelMessages = new Messages(trafficAccounting, messagesAdapter, mock(ProcessingStatusRecorder.class), failureSubmissionService, new GracefulShutdownService(), 2);
+        final DateTime ts = Tools.nowUTC();
+        final IndexSet blockedIndexSet = mock(IndexSet.class);
+        final IndexSet otherIndexSet = mock(IndexSet.class);
+        final List<IndexingRequest> firstBatch = ImmutableList.of(
+                IndexingRequest.create(blockedIndexSet, message("msg-1", ts)),
+                IndexingRequest.create(otherIndexSet, message("msg-2", ts)));
+        final List<IndexingRequest> secondBatch = ImmutableList.of(
+                IndexingRequest.create(blockedIndexSet, message("msg-3", ts)),
+                IndexingRequest.create(otherIndexSet, message("msg-4", ts)));
+
+        final CountDownLatch blockedIndexSetStarted = new CountDownLatch(1);
+        final CountDownLatch blockedIndexSetReleased = new CountDownLatch(1);
+        final CountDownLatch otherIndexSetWritten = new CountDownLatch(2);
+        final AtomicInteger concurrentBlockedWrites = new AtomicInteger();
+        final AtomicInteger maxConcurrentBlockedWrites = new AtomicInteger();
+        when(messagesAdapter.bulkIndex(any())).thenAnswer(invocation -> {
+            final List<IndexingRequest> requests = invocation.getArgument(0);
+            if (requests.get(0).indexSet() == otherIndexSet) {
+                otherIndexSetWritten.countDown();
+                return ImmutableList.of();
+            }
+            maxConcurrentBlockedWrites.accumulateAndGet(concurrentBlockedWrites.incrementAndGet(), Math::max);
+            blockedIndexSetStarted.countDown();
+            assertThat(blockedIndexSetReleased.await(10, TimeUnit.SECONDS)).isTrue();
+            concurrentBlockedWrites.decrementAndGet();
+            return ImmutableList.of();
+        });
+
+        final Thread firstCaller = new Thread(() -> parallelMessages.bulkIndexRequests(firstBatch, false));
+        firstCaller.start();
+        assertThat(blockedIndexSetStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final Thread secondCaller = new Thread(() -> parallelMessages.bulkIndexRequests(secondBatch, false));
+        secondCaller.start();
+
+        // The second partition of the blocked index set must not take the last thread of the other index set
+        assertThat(otherIndexSetWritten.await(10, TimeUnit.SECONDS)).isTrue();
+        blockedIndexSetReleased.countDown();
+
+        firstCaller.join(TimeUnit.SECONDS.toMillis(10));
+        secondCaller.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(firstCaller.isAlive()).isFalse();
+        assertThat(secondCaller.isAlive()).isFalse();
+        assertThat(maxConcurrentBlockedWrites).hasValue(1);
+        verify(messagesAdapter, times(4)).bulkIndex(any());
+    }
+
     private Message message(String msgId, DateTime ts) {
         final Message mock = mock(Message.class);
         when(mock.getId()).thenReturn(msgId);
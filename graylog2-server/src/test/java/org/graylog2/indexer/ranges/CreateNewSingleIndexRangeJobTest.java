@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.shared.system.activities.ActivityWriter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CreateNewSingleIndexRangeJobTest {
+    private static final DateTime BEGIN = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime END = new DateTime(2015, 2, 1, 0, 0, DateTimeZone.UTC);
+
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ActivityWriter activityWriter;
+    @Mock
+    private IndexRangeService indexRangeService;
+    @Mock
+    private Indices indices;
+    @Mock
+    private ClusterConfigService clusterConfigService;
+    @Mock
+    private NodeId nodeId;
+
+    private CreateNewSingleIndexRangeJob job;
+
+    @Before
+    public void setUp() throws Exception {
+        when(indices.exists("graylog_1")).thenReturn(true);
+        when(indices.isClosed("graylog_1")).thenReturn(false);
+
+        job = new CreateNewSingleIndexRangeJob(Collections.emptySet(), "graylog_1", activityWriter, indices,
+                indexRangeService, clusterConfigService, nodeId, 2);
+    }
+
+    @Test
+    public void executeCreatesRangeWithoutFingerprintIfFingerprintsAreUnavailable() throws Exception {
+        when(indices.getIndexFingerprints("graylog_1")).thenThrow(new RuntimeException("boom"));
+        when(indexRangeService.calculateRange("graylog_1")).thenReturn(MongoIndexRange.create("graylog_1", BEGIN, END, END, 1));
+
+        job.execute();
+
+        final ArgumentCaptor<IndexRange> savedRange = ArgumentCaptor.forClass(IndexRange.class);
+        verify(indexRangeService).save(savedRange.capture());
+        assertThat(savedRange.getValue().indexName()).isEqualTo("graylog_1");
+        assertThat(((MongoIndexRange) savedRange.getValue()).fingerprint()).isEmpty();
+    }
+}
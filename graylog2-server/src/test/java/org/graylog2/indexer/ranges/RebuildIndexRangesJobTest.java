@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import org.graylog2.database.NotFoundException;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indices.IndexFingerprint;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.shared.system.activities.ActivityWriter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RebuildIndexRangesJobTest {
+    private static final DateTime BEGIN = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime END = new DateTime(2015, 2, 1, 0, 0, DateTimeZone.UTC);
+
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ActivityWriter activityWriter;
+    @Mock
+    private IndexRangeService indexRangeService;
+    @Mock
+    private Indices indices;
+    @Mock
+    private ClusterConfigService clusterConfigService;
+    @Mock
+    private NodeId nodeId;
+
+    private IndexSet indexSet;
+    private RebuildIndexRangesJob job;
+
+    @Before
+    public void setUp() throws Exception {
+        indexSet = mock(IndexSet.class, RETURNS_DEEP_STUBS);
+        when(indexSet.getConfig().id()).thenReturn("index-set-id");
+        when(indexSet.getIndexWildcard()).thenReturn("graylog_*");
+        when(indexSet.getManagedIndices()).thenReturn(new String[]{"graylog_0", "graylog_1", "graylog_2"});
+        when(indexSet.getActiveWriteIndex()).thenReturn("graylog_2");
+        when(nodeId.toString()).thenReturn("node-id");
+
+        job = new RebuildIndexRangesJob(Collections.singleton(indexSet), activityWriter, indexRangeService, indices,
+                clusterConfigService, nodeId, 2);
+    }
+
+    @Test
+    public void executeSkipsUnchangedIndices() throws Exception {
+        final IndexFingerprint unchanged = IndexFingerprint.create("uuid-0", 100L);
+        final IndexFingerprint changed = IndexFingerprint.create("uuid-1", 200L);
+        final Map<String, IndexFingerprint> fingerprints = new HashMap<>();
+        fingerprints.put("graylog_0", unchanged);
+        fingerprints.put("graylog_1", changed);
+        when(indices.getIndexFingerprints("graylog_*")).thenReturn(fingerprints);
+
+        when(indexRangeService.get("graylog_0"))
+                .thenReturn(MongoIndexRange.create("graylog_0", BEGIN, END, END, 1).withFingerprint(unchanged));
+        when(indexRangeService.get("graylog_1"))
+                .thenReturn(MongoIndexRange.create("graylog_1", BEGIN, END, END, 1).withFingerprint(IndexFingerprint.create("uuid-1", 100L)));
+        when(indexRangeService.get("graylog_2")).thenThrow(new NotFoundException("not found"));
+        when(indexRangeService.calculateRange("graylog_1")).thenReturn(MongoIndexRange.create("graylog_1", BEGIN, END, END, 1));
+        when(indexRangeService.createUnknownRange("graylog_2")).thenReturn(MongoIndexRange.create("graylog_2", new DateTime(0L, DateTimeZone.UTC), new DateTime(0L, DateTimeZone.UTC), END, 0));
+
+        job.execute();
+
+        verify(indexRangeService, never()).calculateRange("graylog_0");
+        verify(indexRangeService, never()).calculateRange("graylog_2");
+
+        final ArgumentCaptor<IndexRange> savedRanges = ArgumentCaptor.forClass(IndexRange.class);
+        verify(indexRangeService, times(2)).save(savedRanges.capture());
+        assertThat(savedRanges.getAllValues())
+                .extracting(IndexRange::indexName)
+                .containsExactlyInAnyOrder("graylog_1", "graylog_2");
+        assertThat(savedRanges.getAllValues())
+                .filteredOn(range -> range.indexName().equals("graylog_1"))
+                .hasOnlyOneElementSatisfying(range -> assertThat(((MongoIndexRange) range).fingerprint()).contains(changed));
+        assertThat(job.getProgress()).isEqualTo(100);
+    }
+
+    @Test
+    public void executeRecalculatesAllIndicesWithoutFingerprints() throws Exception {
+        when(indices.getIndexFingerprints("graylog_*")).thenThrow(new RuntimeException("boom"));
+        when(indexRangeService.get("graylog_2")).thenThrow(new NotFoundException("not found"));
+        when(indexRangeService.calculateRange("graylog_0")).thenReturn(MongoIndexRange.create("graylog_0", BEGIN, END, END, 1));
+        when(indexRangeService.calculateRange("graylog_1")).thenReturn(MongoIndexRange.create("graylog_1", BEGIN, END, END, 1));
+
+        job.execute();
+
+        verify(indexRangeService).calculateRange("graylog_0");
+        verify(indexRangeService).calculateRange("graylog_1");
+        verify(indexRangeService, never()).get("graylog_0");
+    }
+
+    @Test
+    public void executeWritesAndRemovesResumeState() throws Exception {
+        when(indices.getIndexFingerprints("graylog_*")).thenReturn(Collections.emptyMap());
+        when(indexRangeService.calculateRange(any())).thenReturn(MongoIndexRange.create("graylog_0", BEGIN, END, END, 1));
+
+        job.execute();
+
+        final ArgumentCaptor<RebuildIndexRangesState> state = ArgumentCaptor.forClass(RebuildIndexRangesState.class);
+        verify(clusterConfigService).write(eq(RebuildIndexRangesState.key("node-id")), state.capture());
+        assertThat(state.getValue().nodeId()).isEqualTo("node-id");
+        assertThat(state.getValue().indexSetIds()).containsExactly("index-set-id");
+        verify(clusterConfigService).remove(RebuildIndexRangesState.key("node-id"));
+    }
+}
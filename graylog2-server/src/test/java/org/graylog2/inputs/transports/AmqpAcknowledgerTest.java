@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import com.codahale.metrics.Timer;
+import com.rabbitmq.client.Channel;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class AmqpAcknowledgerTest {
+    private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Channel channel = mock(Channel.class);
+    private final Timer ackLatency = new Timer();
+    private final AtomicLong clock = new AtomicLong(0L);
+    private final AtomicBoolean written = new AtomicBoolean(false);
+    private final InputBuffer.Checkpoint checkpoint = written::get;
+
+    private final AmqpAcknowledger acknowledger = new AmqpAcknowledger(channel, 3, MAX_DELAY_NANOS,
+            () -> checkpoint, ackLatency, clock::get);
+
+    @Test
+    public void acknowledgesFullBatchOnceWritten() throws Exception {
+        acknowledger.delivered(1L);
+        acknowledger.delivered(2L);
+        acknowledger.delivered(3L);
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertThat(acknowledger.getUnackedDeliveries()).isEqualTo(3);
+
+        written.set(true);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+        acknowledger.flush();
+
+        verify(channel).basicAck(3L, true);
+        verifyNoMoreInteractions(channel);
+        assertThat(acknowledger.getUnackedDeliveries()).isZero();
+        assertThat(ackLatency.getCount()).isEqualTo(1);
+        assertThat(ackLatency.getSnapshot().getMax()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void acknowledgesIncompleteBatchAfterMaxDelay() throws Exception {
+        written.set(true);
+
+        acknowledger.delivered(1L);
+        acknowledger.flush();
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        clock.addAndGet(MAX_DELAY_NANOS);
+        acknowledger.flush();
+
+        verify(channel).basicAck(1L, true);
+        assertThat(acknowledger.getUnackedDeliveries()).isZero();
+    }
+
+    @Test
+    public void acknowledgesSeveralWrittenBatchesAtOnce() throws Exception {
+        for (long tag = 1L; tag <= 7L; tag++) {
+            acknowledger.delivered(tag);
+        }
+        assertThat(acknowledger.getUnackedDeliveries()).isEqualTo(7);
+
+        written.set(true);
+        acknowledger.flush();
+
+        verify(channel).basicAck(6L, true);
+        verifyNoMoreInteractions(channel);
+        assertThat(acknowledger.getUnackedDeliveries()).isEqualTo(1);
+
+        acknowledger.flushAll(1, TimeUnit.SECONDS);
+
+        verify(channel).basicAck(7L, true);
+        assertThat(acknowledger.getUnackedDeliveries()).isZero();
+    }
+}
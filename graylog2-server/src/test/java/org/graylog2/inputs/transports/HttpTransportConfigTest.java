@@ -36,5 +36,8 @@ public class HttpTransportConfigTest {
         assertTrue(requestedConfiguration.containsField(HttpTransport.CK_MAX_CHUNK_SIZE));
         assertEquals(ConfigurationField.Optional.OPTIONAL, requestedConfiguration.getField(HttpTransport.CK_MAX_CHUNK_SIZE).isOptional());
         assertEquals(65536, requestedConfiguration.getField(HttpTransport.CK_MAX_CHUNK_SIZE).getDefaultValue());
+
+        assertTrue(requestedConfiguration.containsField(HttpTransport.CK_ENABLE_BULK_RECEIVING));
+        assertEquals(false, requestedConfiguration.getField(HttpTransport.CK_ENABLE_BULK_RECEIVING).getDefaultValue());
     }
 }
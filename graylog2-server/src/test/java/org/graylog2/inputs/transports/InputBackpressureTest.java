@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import com.github.joschi.jadconfig.util.Duration;
+import org.graylog2.plugin.ThrottleState;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class InputBackpressureTest {
+    private final InputBackpressure inputBackpressure = new InputBackpressure(true, 50, Duration.milliseconds(100));
+
+    @Test
+    public void noPressureIfEverythingIsHealthy() {
+        final ThrottleState state = throttleState(10, 100, 0L, 1000, 1000);
+
+        assertThat(inputBackpressure.targetPressure(state)).isZero();
+    }
+
+    @Test
+    public void pressureGrowsWithJournalUtilization() {
+        assertThat(inputBackpressure.targetPressure(throttleState(50, 100, 0L, 1000, 1000))).isZero();
+        assertThat(inputBackpressure.targetPressure(throttleState(70, 100, 0L, 1000, 1000))).isCloseTo(0.444d, within(0.001d));
+        assertThat(inputBackpressure.targetPressure(throttleState(95, 100, 0L, 1000, 1000))).isEqualTo(1.0d);
+    }
+
+    @Test
+    public void slowJournalWritesAndFullProcessBufferNeverStopReading() {
+        final long slowWrite = TimeUnit.SECONDS.toNanos(10);
+
+        assertThat(inputBackpressure.targetPressure(throttleState(0, 100, slowWrite, 1000, 1000))).isEqualTo(0.9d);
+        assertThat(inputBackpressure.targetPressure(throttleState(0, 100, 0L, 0, 1000))).isEqualTo(0.5d);
+        assertThat(inputBackpressure.targetPressure(throttleState(0, 100, 0L, 50, 1000))).isCloseTo(0.25d, within(0.001d));
+    }
+
+    @Test
+    public void pressureRisesImmediatelyAndDecaysGradually() {
+        inputBackpressure.updateThrottleState(throttleState(95, 100, 0L, 1000, 1000));
+        assertThat(inputBackpressure.getPressure()).isEqualTo(1.0d);
+
+        inputBackpressure.updateThrottleState(throttleState(0, 100, 0L, 1000, 1000));
+        assertThat(inputBackpressure.getPressure()).isEqualTo(0.5d);
+
+        inputBackpressure.updateThrottleState(throttleState(0, 100, 0L, 1000, 1000));
+        assertThat(inputBackpressure.getPressure()).isEqualTo(0.25d);
+
+        for (int i = 0; i < 10; i++) {
+            inputBackpressure.updateThrottleState(throttleState(0, 100, 0L, 1000, 1000));
+        }
+        assertThat(inputBackpressure.getPressure()).isZero();
+    }
+
+    @Test
+    public void disabledInstance() {
+        assertThat(InputBackpressure.disabled().isEnabled()).isFalse();
+        assertThat(InputBackpressure.disabled().getPressure()).isZero();
+    }
+
+    private static ThrottleState throttleState(long journalSize, long journalSizeLimit, long journalWriteLatencyNanos,
+                                               long processBufferCapacity, long processBufferSize) {
+        final ThrottleState state = new ThrottleState();
+        state.journalSize = journalSize;
+        state.journalSizeLimit = journalSizeLimit;
+        state.journalWriteLatencyNanos = journalWriteLatencyNanos;
+        state.processBufferCapacity = processBufferCapacity;
+        state.processBufferSize = processBufferSize;
+        return state;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class BackpressureHandlerTest {
+    private static final long PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void keepsReadingWithoutPressure() {
+        final BackpressureHandler handler = new BackpressureHandler(() -> 0.0d, PERIOD_NANOS);
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.pipeline().fireChannelReadComplete();
+
+        assertThat(handler.isPaused()).isFalse();
+        assertThat(channel.config().isAutoRead()).isTrue();
+    }
+
+    @Test
+    public void stopsReadingWithFullPressure() throws Exception {
+        final BackpressureHandler handler = new BackpressureHandler(() -> 1.0d, PERIOD_NANOS);
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.pipeline().fireChannelReadComplete();
+        assertThat(channel.config().isAutoRead()).isFalse();
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PERIOD_NANOS) + 50L);
+        channel.runScheduledPendingTasks();
+
+        assertThat(handler.isPaused()).isTrue();
+        assertThat(channel.config().isAutoRead()).isFalse();
+    }
+
+    @Test
+    public void pausesReadingForTheRestOfThePeriodAfterTheReadWindow() throws Exception {
+        final long periodMillis = 400L;
+        final BackpressureHandler handler = new BackpressureHandler(() -> 0.5d, TimeUnit.MILLISECONDS.toNanos(periodMillis));
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        // Starts a new period after the connection has been idle for a full period
+        Thread.sleep(periodMillis + 50L);
+        channel.pipeline().fireChannelReadComplete();
+        assertThat(handler.isPaused()).isFalse();
+        assertThat(channel.config().isAutoRead()).isTrue();
+
+        // The read window is half of the period
+        Thread.sleep(periodMillis / 2 + 50L);
+        channel.pipeline().fireChannelReadComplete();
+        assertThat(handler.isPaused()).isTrue();
+        assertThat(channel.config().isAutoRead()).isFalse();
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> {
+            channel.runScheduledPendingTasks();
+            return channel.config().isAutoRead();
+        });
+        assertThat(handler.isPaused()).isFalse();
+    }
+}
@@ -20,6 +20,7 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
@@ -200,4 +201,65 @@ public class HttpHandlerTest {
         assertThat(headers.get(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS)).isEqualTo("Authorization, Content-Type");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void bulkRequestIsSplitIntoLines() {
+        final EmbeddedChannel bulkChannel = new EmbeddedChannel(new HttpHandler(true, true));
+        final FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/gelf/bulk");
+        httpRequest.headers().add(HttpHeaderNames.HOST, "localhost");
+        httpRequest.headers().add(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        httpRequest.content().writeBytes(GELF_MESSAGE).writeByte('\n')
+                .writeBytes("\r\n".getBytes(StandardCharsets.UTF_8))
+                .writeBytes(GELF_MESSAGE).writeBytes("\r\n".getBytes(StandardCharsets.UTF_8))
+                .writeBytes("not json\n".getBytes(StandardCharsets.UTF_8))
+                .writeBytes(GELF_MESSAGE);
+
+        bulkChannel.writeInbound(httpRequest);
+
+        final RawMessageBatch batch = bulkChannel.readInbound();
+        assertThat(batch.size()).isEqualTo(3);
+        for (int i = 0; i < batch.size(); i++) {
+            assertThat(batch.payload(i)).isEqualTo(GELF_MESSAGE);
+        }
+        batch.release();
+
+        final FullHttpResponse httpResponse = bulkChannel.readOutbound();
+        assertThat(httpResponse.status()).isEqualTo(HttpResponseStatus.ACCEPTED);
+        assertThat(httpResponse.headers().get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo(HttpHeaderValues.APPLICATION_JSON.toString());
+        final int offset = 2 * GELF_MESSAGE.length + 5;
+        assertThat(httpResponse.content().toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"accepted\":3,\"failed\":1,\"errors\":[{\"line\":4,\"offset\":" + offset + ",\"error\":\"Line is not a JSON object\"}]}");
+        httpResponse.release();
+        bulkChannel.finish();
+    }
+
+    @Test
+    public void bulkRequestWithoutValidLinesIsRejected() {
+        final EmbeddedChannel bulkChannel = new EmbeddedChannel(new HttpHandler(true, true));
+        final FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/gelf/bulk");
+        httpRequest.headers().add(HttpHeaderNames.HOST, "localhost");
+        httpRequest.content().writeBytes("\n[1, 2]\n".getBytes(StandardCharsets.UTF_8));
+
+        bulkChannel.writeInbound(httpRequest);
+
+        assertThat((Object) bulkChannel.readInbound()).isNull();
+        final FullHttpResponse httpResponse = bulkChannel.readOutbound();
+        assertThat(httpResponse.status()).isEqualTo(HttpResponseStatus.BAD_REQUEST);
+        assertThat(httpResponse.content().toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"accepted\":0,\"failed\":1,\"errors\":[{\"line\":2,\"offset\":1,\"error\":\"Line is not a JSON object\"}]}");
+        httpResponse.release();
+        bulkChannel.finish();
+    }
+
+    @Test
+    public void bulkPathIsNotFoundIfDisabled() {
+        final FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/gelf/bulk");
+        httpRequest.headers().add(HttpHeaderNames.HOST, "localhost");
+        httpRequest.content().writeBytes(GELF_MESSAGE);
+
+        channel.writeInbound(httpRequest);
+        channel.finish();
+
+        final HttpResponse httpResponse = channel.readOutbound();
+        assertThat(httpResponse.status()).isEqualTo(HttpResponseStatus.NOT_FOUND);
+    }
+}
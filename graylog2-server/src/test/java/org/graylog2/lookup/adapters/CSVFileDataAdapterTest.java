@@ -19,19 +19,28 @@ package org.graylog2.lookup.adapters;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Resources;
+import com.google.common.net.InetAddresses;
 import org.graylog2.lookup.AllowedAuxiliaryPathChecker;
 import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupResult;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -49,6 +58,9 @@ public class CSVFileDataAdapterTest {
     @Rule
     public MockitoRule rule = MockitoJUnit.rule();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final Path csvFile;
     private CSVFileDataAdapter csvFileDataAdapter;
 
@@ -70,7 +82,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void doGet_successfully_returns_values() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
         csvFileDataAdapter.doStart();
 
@@ -91,7 +103,7 @@ public class CSVFileDataAdapterTest {
                                     .checkInterval(60)
                                     .caseInsensitiveLookup(false)
                                     .build();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath((isA(Path.class)))).thenReturn(true);
         csvFileDataAdapter.doStart();
 
@@ -100,11 +112,123 @@ public class CSVFileDataAdapterTest {
         assertThat(csvFileDataAdapter.doGet("quux")).isEqualTo(LookupResult.empty());
     }
 
+    @Test
+    public void doGet_successfully_returns_values_for_cidr_lookup() throws Exception {
+        final URL resource = Resources.getResource("org/graylog2/lookup/adapters/CSVFileDataAdapterCIDRTest.csv");
+        final Config config = Config.builder()
+                                    .type(NAME)
+                                    .path(Paths.get(resource.toURI()).toString())
+                                    .separator(",")
+                                    .quotechar("\"")
+                                    .keyColumn("cidr")
+                                    .valueColumn("network")
+                                    .checkInterval(60)
+                                    .caseInsensitiveLookup(false)
+                                    .cidrLookup(true)
+                                    .build();
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter.doStart();
+
+        assertThat(csvFileDataAdapter.doGet("10.2.3.4")).isEqualTo(LookupResult.single("internal"));
+        assertThat(csvFileDataAdapter.doGet("10.1.2.3")).isEqualTo(LookupResult.single("datacenter"));
+        assertThat(csvFileDataAdapter.doGet(InetAddresses.forString("10.1.2.3"))).isEqualTo(LookupResult.single("datacenter"));
+        assertThat(csvFileDataAdapter.doGet("192.168.1.10")).isEqualTo(LookupResult.single("printer"));
+        assertThat(csvFileDataAdapter.doGet("2001:db8:1::1")).isEqualTo(LookupResult.single("documentation"));
+        assertThat(csvFileDataAdapter.doGet("192.168.1.11")).isEqualTo(LookupResult.empty());
+        assertThat(csvFileDataAdapter.doGet("10.0.0.0/8")).isEqualTo(LookupResult.empty());
+        assertThat(csvFileDataAdapter.doGet("localhost")).isEqualTo(LookupResult.empty());
+    }
+
+    @Test
+    public void doGet_successfully_returns_values_from_memory_mapped_index() throws Exception {
+        final Config config = Config.builder()
+                                    .type(NAME)
+                                    .path(csvFile.toString())
+                                    .separator(",")
+                                    .quotechar("\"")
+                                    .keyColumn("key")
+                                    .valueColumn("value")
+                                    .checkInterval(60)
+                                    .caseInsensitiveLookup(true)
+                                    .memoryMappedIndex(true)
+                                    .build();
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter.doStart();
+
+        assertThat(indexFiles()).hasSize(1);
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("23"));
+        assertThat(csvFileDataAdapter.doGet("BAR")).isEqualTo(LookupResult.single("42"));
+        assertThat(csvFileDataAdapter.doGet("quux")).isEqualTo(LookupResult.empty());
+    }
+
+    @Test
+    public void refresh_recompiles_memory_mapped_index_on_change() throws Exception {
+        final Path file = temporaryFolder.newFile("lookup.csv").toPath();
+        Files.write(file, "key,value\nfoo,23\n".getBytes(StandardCharsets.UTF_8));
+        final Config config = Config.builder()
+                                    .type(NAME)
+                                    .path(file.toString())
+                                    .separator(",")
+                                    .quotechar("\"")
+                                    .keyColumn("key")
+                                    .valueColumn("value")
+                                    .checkInterval(60)
+                                    .caseInsensitiveLookup(false)
+                                    .memoryMappedIndex(true)
+                                    .build();
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter.doStart();
+
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("23"));
+        assertThat(csvFileDataAdapter.doGet("bar")).isEqualTo(LookupResult.empty());
+
+        Files.write(file, "key,value\nfoo,24\nbar,42\n".getBytes(StandardCharsets.UTF_8));
+        csvFileDataAdapter.doRefresh(cachePurge);
+
+        assertFalse(csvFileDataAdapter.getError().isPresent());
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("24"));
+        assertThat(csvFileDataAdapter.doGet("bar")).isEqualTo(LookupResult.single("42"));
+        // The previous generation has been removed
+        assertThat(indexFiles()).hasSize(1);
+    }
+
+    @Test
+    public void start_recompiles_corrupted_memory_mapped_index() throws Exception {
+        final Config config = Config.builder()
+                                    .type(NAME)
+                                    .path(csvFile.toString())
+                                    .separator(",")
+                                    .quotechar("\"")
+                                    .keyColumn("key")
+                                    .valueColumn("value")
+                                    .checkInterval(60)
+                                    .caseInsensitiveLookup(false)
+                                    .memoryMappedIndex(true)
+                                    .build();
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
+        csvFileDataAdapter.doStart();
+        csvFileDataAdapter.doStop();
+
+        // Keep the header, so the file still looks like an up to date index
+        final Path indexFile = indexFiles().get(0);
+        Files.write(indexFile, Arrays.copyOf(Files.readAllBytes(indexFile), 64));
+
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
+        csvFileDataAdapter.doStart();
+
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("23"));
+        assertThat(indexFiles()).containsExactly(indexFile);
+    }
+
     @Test
     public void doGet_failure_filePathInvalid() throws Exception {
         final Config config = baseConfig();
         when(pathChecker.fileIsInAllowedPath((isA(Path.class)))).thenReturn(false);
-        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker);
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
         assertThatThrownBy(() -> csvFileDataAdapter.doStart())
                 .isExactlyInstanceOf(IllegalStateException.class)
                 .hasMessageStartingWith(CSVFileDataAdapter.ALLOWED_PATH_ERROR);
@@ -113,7 +237,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void refresh_success() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true).thenReturn(true);
         csvFileDataAdapter.doStart();
         csvFileDataAdapter.doRefresh(cachePurge);
@@ -123,7 +247,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void refresh_failure_disallowedFileLocation() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true).thenReturn(false);
         csvFileDataAdapter.doStart();
         csvFileDataAdapter.doRefresh(cachePurge);
@@ -199,4 +323,10 @@ public class CSVFileDataAdapterTest {
                      .caseInsensitiveLookup(false)
                      .build();
     }
+
+    private List<Path> indexFiles() throws IOException {
+        try (final Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath().resolve("lookup-tables"))) {
+            return files.collect(Collectors.toList());
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.cidr;
+
+import com.google.common.net.InetAddresses;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IpPrefixTrieTest {
+    @Test
+    public void emptyTrieMatchesNothing() {
+        final IpPrefixTrie trie = IpPrefixTrie.empty();
+
+        assertThat(trie.size()).isZero();
+        assertThat(trie.longestPrefixMatch("127.0.0.1")).isNull();
+        assertThat(trie.longestPrefixMatch("::1")).isNull();
+    }
+
+    @Test
+    public void returnsLongestMatchingPrefix() {
+        final IpPrefixTrie trie = IpPrefixTrie.builder()
+                .put("10.0.0.0/8", "a")
+                .put("10.1.0.0/16", "b")
+                .put("10.1.2.0/24", "c")
+                .put("10.1.2.3", "d")
+                .build();
+
+        assertThat(trie.size()).isEqualTo(4);
+        assertThat(trie.longestPrefixMatch("10.200.0.1")).isEqualTo("a");
+        assertThat(trie.longestPrefixMatch("10.1.200.1")).isEqualTo("b");
+        assertThat(trie.longestPrefixMatch("10.1.2.200")).isEqualTo("c");
+        assertThat(trie.longestPrefixMatch("10.1.2.3")).isEqualTo("d");
+        assertThat(trie.longestPrefixMatch("11.0.0.1")).isNull();
+    }
+
+    @Test
+    public void supportsDefaultRoute() {
+        final IpPrefixTrie trie = IpPrefixTrie.builder()
+                .put("0.0.0.0/0", "default")
+                .put("192.168.0.0/16", "private")
+                .build();
+
+        assertThat(trie.longestPrefixMatch("8.8.8.8")).isEqualTo("default");
+        assertThat(trie.longestPrefixMatch("192.168.10.1")).isEqualTo("private");
+        assertThat(trie.longestPrefixMatch("2001:db8::1")).isNull();
+    }
+
+    @Test
+    public void separatesIpv4AndIpv6() {
+        final IpPrefixTrie trie = IpPrefixTrie.builder()
+                .put("2001:db8::/32", "v6")
+                .put("2001:db8:abcd::/48", "v6-specific")
+                .put("32.1.0.0/16", "v4")
+                .build();
+
+        assertThat(trie.longestPrefixMatch("2001:db8:1::1")).isEqualTo("v6");
+        assertThat(trie.longestPrefixMatch("2001:db8:abcd:1::1")).isEqualTo("v6-specific");
+        assertThat(trie.longestPrefixMatch(InetAddresses.forString("2001:db8:abcd::ffff"))).isEqualTo("v6-specific");
+        assertThat(trie.longestPrefixMatch("32.1.13.184")).isEqualTo("v4");
+        assertThat(trie.longestPrefixMatch("2001:db9::1")).isNull();
+    }
+
+    @Test
+    public void latestValueWinsForDuplicatePrefixes() {
+        final IpPrefixTrie trie = IpPrefixTrie.builder()
+                .put("10.0.0.0/8", "first")
+                .put("10.0.0.0/8", "second")
+                .build();
+
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.longestPrefixMatch("10.0.0.1")).isEqualTo("second");
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        final IpPrefixTrie.Builder builder = IpPrefixTrie.builder();
+        for (int i = 0; i < 256; i++) {
+            builder.put("172.16." + i + ".0/24", "net-" + i);
+        }
+        final IpPrefixTrie trie = builder.build();
+
+        assertThat(trie.size()).isEqualTo(256);
+        for (int i = 0; i < 256; i++) {
+            assertThat(trie.longestPrefixMatch("172.16." + i + ".42")).isEqualTo("net-" + i);
+        }
+    }
+
+    @Test
+    public void ignoresKeysWhichAreNoIpAddresses() {
+        final IpPrefixTrie trie = IpPrefixTrie.builder()
+                .put("0.0.0.0/0", "default")
+                .build();
+
+        assertThat(trie.longestPrefixMatch("localhost")).isNull();
+        assertThat(trie.longestPrefixMatch("")).isNull();
+    }
+
+    @Test
+    public void rejectsInvalidPrefixes() {
+        assertThatThrownBy(() -> IpPrefixTrie.builder().put("10.0.0.0/33", "x"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IpPrefixTrie.builder().put("10.0.0.0/abc", "x"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IpPrefixTrie.builder().put("example.com/8", "x"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
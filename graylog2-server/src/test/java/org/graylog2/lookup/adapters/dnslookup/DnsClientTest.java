@@ -18,8 +18,17 @@ package org.graylog2.lookup.adapters.dnslookup;
 
 
 import com.google.common.net.InternetDomainName;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.DefaultDnsRawRecord;
+import io.netty.handler.codec.dns.DefaultDnsResponse;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.DnsSection;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.*;
 
 public class DnsClientTest {
@@ -115,6 +124,51 @@ public class DnsClientTest {
         assertEquals("HahaOneWordDomainTryingToBreakTheSoftware", result.domain());
     }
 
+    @Test
+    public void testNegativeTTLFromSoaRecord() {
+
+        // The negative TTL is the minimum of the SOA record TTL and the SOA MINIMUM field (RFC 2308).
+        assertEquals(300L, negativeTTL(buildSoaResponse(3600L, 300L)));
+        assertEquals(60L, negativeTTL(buildSoaResponse(60L, 300L)));
+
+        // No SOA record in the authority section
+        assertEquals(DnsNoRecordsException.NO_NEGATIVE_TTL, negativeTTL(new DefaultDnsResponse(1)));
+    }
+
+    private long negativeTTL(DnsResponse response) {
+        try {
+            return DnsClient.negativeTTL(response);
+        } finally {
+            response.release();
+        }
+    }
+
+    private DnsResponse buildSoaResponse(long recordTTL, long minimum) {
+
+        final ByteBuf soaData = Unpooled.buffer();
+        writeName(soaData, "ns1.example.com");
+        writeName(soaData, "hostmaster.example.com");
+        soaData.writeInt(2021010101); // SERIAL
+        soaData.writeInt(7200); // REFRESH
+        soaData.writeInt(3600); // RETRY
+        soaData.writeInt(1209600); // EXPIRE
+        soaData.writeInt((int) minimum); // MINIMUM
+
+        final DefaultDnsResponse response = new DefaultDnsResponse(1);
+        response.addRecord(DnsSection.AUTHORITY, new DefaultDnsRawRecord("example.com.", DnsRecordType.SOA, recordTTL, soaData));
+        return response;
+    }
+
+    private void writeName(ByteBuf buf, String name) {
+
+        for (String label : name.split("\\.")) {
+            final byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            buf.writeByte(bytes.length);
+            buf.writeBytes(bytes);
+        }
+        buf.writeByte(0);
+    }
+
     private PtrDnsAnswer buildReverseLookupDomainTest(String hostname) {
 
         PtrDnsAnswer.Builder builder = PtrDnsAnswer.builder();
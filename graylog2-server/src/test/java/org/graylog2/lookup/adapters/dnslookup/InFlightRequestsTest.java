@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.dnslookup;
+
+import com.codahale.metrics.Counter;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InFlightRequestsTest {
+    private final Counter coalescedRequests = new Counter();
+    private final InFlightRequests<String, String> inFlightRequests = new InFlightRequests<>(coalescedRequests);
+
+    @Test
+    public void executesRequest() {
+        assertThat(inFlightRequests.execute("key", () -> "value")).isEqualTo("value");
+        assertThat(inFlightRequests.size()).isZero();
+        assertThat(coalescedRequests.getCount()).isZero();
+    }
+
+    @Test
+    public void coalescesConcurrentRequestsForTheSameKey() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+
+        final CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> inFlightRequests.execute("key", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> inFlightRequests.execute("key", () -> {
+            executions.incrementAndGet();
+            return "other value";
+        }));
+        while (coalescedRequests.getCount() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(inFlightRequests.size()).isZero();
+    }
+
+    @Test
+    public void doesNotCoalesceRequestsForDifferentKeys() {
+        assertThat(inFlightRequests.execute("key1", () -> inFlightRequests.execute("key2", () -> "value2"))).isEqualTo("value2");
+        assertThat(coalescedRequests.getCount()).isZero();
+    }
+
+    @Test
+    public void propagatesFailures() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> inFlightRequests.execute("key", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("BOOM");
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> inFlightRequests.execute("key", () -> "value"));
+        while (coalescedRequests.getCount() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThatThrownBy(first::join).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).isInstanceOf(CompletionException.class).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(inFlightRequests.execute("key", () -> "value")).isEqualTo("value");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
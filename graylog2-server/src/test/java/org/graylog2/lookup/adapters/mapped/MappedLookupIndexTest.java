@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.mapped;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedLookupIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void emptyIndexContainsNothing() {
+        assertThat(MappedLookupIndex.empty().size()).isZero();
+        assertThat(MappedLookupIndex.empty().get("foo")).isNull();
+    }
+
+    @Test
+    public void writesAndReadsEntries() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 42L)) {
+            writer.put("foo", "23")
+                    .put("bar", "42")
+                    .put("", "empty key")
+                    .put("ünïcödé", "välüe");
+            assertThat(writer.finish()).isEqualTo(4);
+        }
+
+        final MappedLookupIndex index = MappedLookupIndex.open(path);
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.sourceFingerprint()).isEqualTo(42L);
+        assertThat(index.get("foo")).isEqualTo("23");
+        assertThat(index.get("bar")).isEqualTo("42");
+        assertThat(index.get("")).isEqualTo("empty key");
+        assertThat(index.get("ünïcödé")).isEqualTo("välüe");
+        assertThat(index.get("quux")).isNull();
+        assertThat(Files.exists(path.resolveSibling("test.idx.tmp"))).isFalse();
+    }
+
+    @Test
+    public void latestValueWinsForDuplicateKeys() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 0L)) {
+            writer.put("foo", "first").put("foo", "second");
+            assertThat(writer.finish()).isEqualTo(1);
+        }
+
+        final MappedLookupIndex index = MappedLookupIndex.open(path);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get("foo")).isEqualTo("second");
+    }
+
+    @Test
+    public void handlesManyEntries() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 0L)) {
+            for (int i = 0; i < 100_000; i++) {
+                writer.put("key-" + i, "value-" + i);
+            }
+            writer.finish();
+        }
+
+        final MappedLookupIndex index = MappedLookupIndex.open(path);
+        assertThat(index.size()).isEqualTo(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(index.get("key-" + i)).isEqualTo("value-" + i);
+        }
+        assertThat(index.get("key-100000")).isNull();
+    }
+
+    @Test
+    public void unfinishedWriterRemovesTemporaryFile() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 0L)) {
+            writer.put("foo", "bar");
+        }
+
+        assertThat(Files.exists(path)).isFalse();
+        assertThat(Files.exists(path.resolveSibling("test.idx.tmp"))).isFalse();
+    }
+
+    @Test
+    public void readsSourceFingerprint() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+        assertThat(MappedLookupIndex.readSourceFingerprint(path)).isNull();
+
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 1234L)) {
+            writer.finish();
+        }
+
+        assertThat(MappedLookupIndex.readSourceFingerprint(path)).isEqualTo(1234L);
+    }
+
+    @Test
+    public void rejectsInvalidFiles() throws IOException {
+        final Path path = temporaryFolder.newFile("invalid.idx").toPath();
+        Files.write(path, "not an index file, but long enough for the header check".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(MappedLookupIndex.readSourceFingerprint(path)).isNull();
+        assertThatThrownBy(() -> MappedLookupIndex.open(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 1234L)) {
+            writer.put("foo", "bar").finish();
+        }
+        final byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length - Long.BYTES));
+
+        assertThatThrownBy(() -> MappedLookupIndex.open(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void closedIndexCannotBeRetained() throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("test.idx");
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path, 1234L)) {
+            writer.put("foo", "bar").finish();
+        }
+
+        final MappedLookupIndex index = MappedLookupIndex.open(path);
+        assertThat(index.retain()).isTrue();
+        index.close();
+        // Still readable until the last reader released it
+        assertThat(index.get("foo")).isEqualTo("bar");
+        index.release();
+
+        assertThat(index.retain()).isFalse();
+        MappedLookupIndex.empty().close();
+        assertThat(MappedLookupIndex.empty().retain()).isTrue();
+    }
+}
@@ -25,6 +25,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.logging.LoggingHandler;
 import org.graylog2.configuration.TLSProtocolsConfiguration;
+import org.graylog2.inputs.transports.InputBackpressure;
 import org.graylog2.inputs.transports.NettyTransportConfiguration;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
 import org.graylog2.plugin.LocalMetricRegistry;
@@ -53,6 +54,7 @@ import static org.awaitility.Awaitility.await;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class AbstractTcpTransportTest {
     @Rule
@@ -101,12 +103,30 @@ public class AbstractTcpTransportTest {
         );
 
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {
+                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {
         };
         final MessageInput input = mock(MessageInput.class);
         assertThat(transport.getChildChannelHandlers(input)).containsKey("tls");
     }
 
+    @Test
+    public void getChildChannelHandlersAddsBackpressureHandlerIfEnabled() {
+        final Configuration configuration = new Configuration(ImmutableMap.of(
+            "bind_address", "localhost",
+            "port", 12345)
+        );
+        final InputBackpressure inputBackpressure = mock(InputBackpressure.class);
+        when(inputBackpressure.isEnabled()).thenReturn(true);
+
+        final AbstractTcpTransport transport = new AbstractTcpTransport(
+            configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, inputBackpressure) {};
+        final AbstractTcpTransport transportWithoutBackpressure = new AbstractTcpTransport(
+            configuration, throughputCounter, new LocalMetricRegistry(), eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {};
+
+        assertThat(transport.getChildChannelHandlers(input)).containsKey("backpressure");
+        assertThat(transportWithoutBackpressure.getChildChannelHandlers(input)).doesNotContainKey("backpressure");
+    }
+
     @Test
     public void getChildChannelHandlersFailsIfTempDirDoesNotExist() throws IOException {
         final File tmpDir = temporaryFolder.newFolder();
@@ -120,7 +140,7 @@ public class AbstractTcpTransportTest {
         );
 
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-            configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {};
+            configuration, throughputCounter, new LocalMetricRegistry(), eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {};
 
         expectedException.expect(IllegalStateException.class);
         expectedException.expectMessage("Couldn't write to temporary directory: " + tmpDir.getAbsolutePath());
@@ -142,7 +162,7 @@ public class AbstractTcpTransportTest {
         );
 
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-            configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {};
+            configuration, throughputCounter, new LocalMetricRegistry(), eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {};
 
         expectedException.expect(IllegalStateException.class);
         expectedException.expectMessage("Couldn't write to temporary directory: " + tmpDir.getAbsolutePath());
@@ -163,7 +183,7 @@ public class AbstractTcpTransportTest {
         );
 
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-            configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {};
+            configuration, throughputCounter, new LocalMetricRegistry(), eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {};
 
         expectedException.expect(IllegalStateException.class);
         expectedException.expectMessage("Couldn't write to temporary directory: " + file.getAbsolutePath());
@@ -178,7 +198,7 @@ public class AbstractTcpTransportTest {
                 "bind_address", "127.0.0.1",
                 "port", 0));
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {
+                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {
         };
         transport.launch(input);
 
@@ -210,7 +230,7 @@ public class AbstractTcpTransportTest {
                 "bind_address", "127.0.0.1",
                 "port", 0));
         final AbstractTcpTransport transport = new AbstractTcpTransport(
-                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration) {
+                configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration, InputBackpressure.disabled()) {
         };
         transport.launch(input);
 
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.eventbus.EventBus;
+import org.graylog.grn.GRN;
+import org.graylog.grn.GRNRegistry;
+import org.graylog.grn.GRNTypes;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.users.events.RoleChangedEvent;
+import org.graylog2.users.events.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class AuthorizationDecisionCacheTest {
+    private final GRNRegistry grnRegistry = GRNRegistry.createWithBuiltinTypes();
+    private final GRN user1 = grnRegistry.newGRN(GRNTypes.USER, "user-1");
+    private final GRN user2 = grnRegistry.newGRN(GRNTypes.USER, "user-2");
+    private final AtomicInteger evaluations = new AtomicInteger();
+    private final Predicate<String> evaluator = permission -> {
+        evaluations.incrementAndGet();
+        return permission.startsWith("streams:read");
+    };
+
+    private EventBus eventBus;
+    private ClusterEventBus clusterEventBus;
+    private MetricRegistry metricRegistry;
+    private AuthorizationDecisionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        eventBus = new EventBus();
+        clusterEventBus = mock(ClusterEventBus.class);
+        metricRegistry = new MetricRegistry();
+        cache = new AuthorizationDecisionCache(Duration.minutes(1), grnRegistry, metricRegistry, eventBus, clusterEventBus);
+    }
+
+    @Test
+    void cachesDecisionsPerPrincipalAndPermission() {
+        assertThat(cache.isPermitted(user1, "streams:read:1", evaluator)).isTrue();
+        assertThat(cache.isPermitted(user1, "streams:read:1", evaluator)).isTrue();
+        assertThat(cache.isPermitted(user1, "streams:edit:1", evaluator)).isFalse();
+        assertThat(cache.isPermitted(user1, "streams:edit:1", evaluator)).isFalse();
+        assertThat(cache.isPermitted(user2, "streams:read:1", evaluator)).isTrue();
+
+        assertThat(evaluations).hasValue(3);
+        assertThat(metricRegistry.getTimers().get(MetricRegistry.name(AuthorizationDecisionCache.class, "permissionEvaluation")).getCount())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void userChangeInvalidatesDecisionsOfUser() {
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+
+        eventBus.post(UserChangedEvent.create("user-1"));
+
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+        assertThat(evaluations).hasValue(3);
+        // The other nodes are notified as well
+        verify(clusterEventBus).post(AuthorizationChangedEvent.forPrincipal(user1));
+    }
+
+    @Test
+    void authorizationChangeOfUserInvalidatesDecisionsOfUser() {
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+
+        eventBus.post(AuthorizationChangedEvent.forPrincipal(user1));
+
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+        assertThat(evaluations).hasValue(3);
+    }
+
+    @Test
+    void authorizationChangeOfTeamInvalidatesAllDecisions() {
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+
+        eventBus.post(AuthorizationChangedEvent.forPrincipal(grnRegistry.newGRN(GRNTypes.TEAM, "team-1")));
+
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+        assertThat(evaluations).hasValue(4);
+    }
+
+    @Test
+    void roleChangeInvalidatesAllDecisions() {
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+
+        eventBus.post(RoleChangedEvent.create("Reader"));
+
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user2, "streams:read:1", evaluator);
+        assertThat(evaluations).hasValue(4);
+    }
+
+    @Test
+    void derivedValuesAreDroppedWithDecisions() {
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.derivedValue(user1, "key", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.derivedValue(user1, "key", loads::incrementAndGet)).isEqualTo(1);
+
+        cache.invalidate(user1);
+
+        assertThat(cache.derivedValue(user1, "key", loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void zeroTtlDisablesCache() {
+        cache = new AuthorizationDecisionCache(Duration.seconds(0), grnRegistry, new MetricRegistry(), eventBus, clusterEventBus);
+
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+        cache.isPermitted(user1, "streams:read:1", evaluator);
+
+        assertThat(evaluations).hasValue(2);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.security;
+
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.EventBus;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.bson.types.ObjectId;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.plugin.system.NodeId;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoDbSessionDAOTest {
+    private MongoDBSessionService sessionService;
+    private ClusterEventBus clusterEventBus;
+    private EventBus serverEventBus;
+    private SessionLastAccessBuffer lastAccessBuffer;
+    private MongoDbSessionDAO sessionDAO;
+
+    @BeforeEach
+    void setUp() {
+        sessionService = mock(MongoDBSessionService.class);
+        when(sessionService.saveWithoutValidation(any())).thenReturn(new ObjectId().toHexString());
+        when(sessionService.load(any())).thenAnswer(invocation -> dbSession(invocation.getArgument(0)));
+        clusterEventBus = mock(ClusterEventBus.class);
+        serverEventBus = new EventBus();
+        lastAccessBuffer = new SessionLastAccessBuffer(sessionService, Duration.seconds(30));
+        final NodeId nodeId = mock(NodeId.class);
+        when(nodeId.toString()).thenReturn("node-1");
+
+        sessionDAO = new MongoDbSessionDAO(sessionService, lastAccessBuffer, clusterEventBus, serverEventBus, nodeId);
+        sessionDAO.setCacheManager(new MemoryConstrainedCacheManager());
+    }
+
+    @Test
+    void defersLastAccessTimeOnlyUpdates() {
+        final SimpleSession session = (SimpleSession) sessionDAO.readSession("session-1");
+        verify(sessionService, times(1)).load("session-1");
+
+        session.touch();
+        sessionDAO.update(session);
+        session.touch();
+        sessionDAO.update(session);
+
+        verify(sessionService, never()).saveWithoutValidation(any());
+        verify(clusterEventBus, never()).post(any());
+        // Served from the local cache
+        assertThat(sessionDAO.readSession("session-1")).isSameAs(session);
+        verify(sessionService, times(1)).load("session-1");
+
+        assertThat(lastAccessBuffer.flush()).isEqualTo(1);
+        verify(sessionService).updateLastAccessTimes(Collections.singletonMap("session-1", session.getLastAccessTime()));
+        assertThat(lastAccessBuffer.flush()).isZero();
+    }
+
+    @Test
+    void writesAttributeChangesImmediately() {
+        final SimpleSession session = (SimpleSession) sessionDAO.readSession("session-1");
+        session.touch();
+        sessionDAO.update(session);
+
+        session.setAttribute("username", "jane");
+        sessionDAO.update(session);
+
+        verify(sessionService).saveWithoutValidation(any());
+        verify(clusterEventBus).post(SessionChangedEvent.create("session-1", "node-1"));
+        // The pending access time has been written together with the attributes
+        assertThat(lastAccessBuffer.flush()).isZero();
+
+        // Changing the session object after the write is detected as well
+        session.setAttribute("username", "john");
+        sessionDAO.update(session);
+        verify(sessionService, times(2)).saveWithoutValidation(any());
+
+        session.touch();
+        sessionDAO.update(session);
+        verify(sessionService, times(2)).saveWithoutValidation(any());
+    }
+
+    @Test
+    void writesStoppedSessionsImmediately() {
+        final SimpleSession session = (SimpleSession) sessionDAO.readSession("session-1");
+
+        session.stop();
+        sessionDAO.update(session);
+
+        verify(sessionService).saveWithoutValidation(any());
+        verify(clusterEventBus).post(SessionChangedEvent.create("session-1", "node-1"));
+    }
+
+    @Test
+    void writesThroughIfBufferIsDisabled() {
+        final NodeId nodeId = mock(NodeId.class);
+        when(nodeId.toString()).thenReturn("node-1");
+        sessionDAO = new MongoDbSessionDAO(sessionService, new SessionLastAccessBuffer(sessionService, Duration.seconds(0)),
+                clusterEventBus, serverEventBus, nodeId);
+        final SimpleSession session = (SimpleSession) sessionDAO.readSession("session-1");
+
+        session.touch();
+        sessionDAO.update(session);
+
+        verify(sessionService).saveWithoutValidation(any());
+        verify(sessionService, never()).updateLastAccessTimes(anyMap());
+        // Other nodes don't need to know about access time changes
+        verify(clusterEventBus, never()).post(any());
+    }
+
+    @Test
+    void dropsSessionsChangedOnOtherNodesFromCache() {
+        final SimpleSession session = (SimpleSession) sessionDAO.readSession("session-1");
+        session.touch();
+        // Sessions are cached once they have been updated
+        sessionDAO.update(session);
+
+        serverEventBus.post(SessionChangedEvent.create("session-1", "node-1"));
+        assertThat(sessionDAO.readSession("session-1")).isSameAs(session);
+
+        serverEventBus.post(SessionChangedEvent.create("session-1", "node-2"));
+        assertThat(sessionDAO.readSession("session-1")).isNotSameAs(session);
+        verify(sessionService, times(2)).load("session-1");
+    }
+
+    @Test
+    void deletePublishesChange() {
+        final Session session = sessionDAO.readSession("session-1");
+
+        sessionDAO.delete(session);
+
+        verify(sessionService).destroy(any(MongoDbSession.class));
+        verify(clusterEventBus).post(SessionChangedEvent.create("session-1", "node-1"));
+    }
+
+    private static MongoDbSession dbSession(String sessionId) {
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final Map<String, Object> fields = new HashMap<>(ImmutableMap.of(
+                "session_id", sessionId,
+                "host", "127.0.0.1",
+                "start_timestamp", now,
+                "last_access_time", now,
+                "timeout", 60_000L));
+        return new MongoDbSession(new ObjectId(), fields);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import org.graylog2.plugin.BaseConfiguration;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.messageq.MessageQueueWriter;
+import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InputBufferImplTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MessageQueueWriter messageQueueWriter = mock(MessageQueueWriter.class);
+    private final AtomicInteger writtenMessages = new AtomicInteger();
+    private final CountDownLatch writeLatch = new CountDownLatch(1);
+
+    private InputBufferImpl inputBuffer;
+
+    @Before
+    public void setUp() throws Exception {
+        final BaseConfiguration configuration = mock(BaseConfiguration.class);
+        when(configuration.getInputBufferRingSize()).thenReturn(8);
+        when(configuration.getInputBufferWaitStrategy()).thenReturn(new BlockingWaitStrategy());
+        when(configuration.getInputbufferProcessors()).thenReturn(2);
+        when(configuration.isMessageJournalEnabled()).thenReturn(true);
+
+        doAnswer(invocation -> {
+            writeLatch.await();
+            writtenMessages.addAndGet(invocation.<List<?>>getArgument(0).size());
+            return null;
+        }).when(messageQueueWriter).write(anyList());
+
+        inputBuffer = new InputBufferImpl(metricRegistry,
+                configuration,
+                () -> mock(DirectMessageHandler.class),
+                () -> new RawMessageEncoderHandler(metricRegistry),
+                () -> new JournallingMessageHandler(metricRegistry, messageQueueWriter, mock(ProcessingStatusRecorder.class)));
+    }
+
+    @Test
+    public void insertBatchLargerThanRingBuffer() {
+        writeLatch.countDown();
+
+        inputBuffer.insert(rawMessages(20));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> writtenMessages.get() == 20);
+        assertThat(metricRegistry.meter("org.graylog2.shared.buffers.InputBufferImpl.incomingMessages").getCount()).isEqualTo(20);
+    }
+
+    @Test
+    public void checkpointIsReachedAfterJournalWrite() {
+        inputBuffer.insert(rawMessages(3));
+        final InputBuffer.Checkpoint checkpoint = inputBuffer.checkpoint();
+
+        assertThat(checkpoint.isReached()).isFalse();
+
+        writeLatch.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(checkpoint::isReached);
+        assertThat(writtenMessages.get()).isEqualTo(3);
+    }
+
+    private static List<RawMessage> rawMessages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    final RawMessage rawMessage = new RawMessage(("message-" + i).getBytes(StandardCharsets.UTF_8));
+                    rawMessage.setCodecName("raw");
+                    rawMessage.setCodecConfig(Configuration.EMPTY_CONFIGURATION);
+                    return rawMessage;
+                })
+                .collect(Collectors.toList());
+    }
+}
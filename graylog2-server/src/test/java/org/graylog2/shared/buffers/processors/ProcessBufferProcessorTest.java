@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import de.huxhorn.sulky.ulid.ULID;
+import org.graylog.failure.FailureSubmissionService;
+import org.graylog2.buffers.OutputBuffer;
+import org.graylog2.messageprocessors.OrderedMessageProcessors;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageCollection;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.graylog2.plugin.messageprocessors.MessageProcessor;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProcessBufferProcessorTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private OrderedMessageProcessors orderedMessageProcessors;
+    @Mock
+    private OutputBuffer outputBuffer;
+    @Mock
+    private DecodingProcessor decodingProcessor;
+    @Mock
+    private FailureSubmissionService failureSubmissionService;
+
+    private final List<Integer> processedBatchSizes = new ArrayList<>();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private ProcessBufferProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        when(failureSubmissionService.submitProcessingErrors(any())).thenReturn(true);
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> ImmutableList.<MessageProcessor>of(new FailingForBadMessages(true)).iterator());
+
+        processor = new ProcessBufferProcessor(metricRegistry, orderedMessageProcessors, outputBuffer,
+                mock(ProcessingStatusRecorder.class), new ULID(), decodingProcessor, () -> mock(Stream.class),
+                failureSubmissionService);
+    }
+
+    @Test
+    public void processesWholeBatchInOneCall() {
+        final Message message1 = message("good-1");
+        final Message message2 = message("good-2");
+
+        processor.processBatch(ImmutableList.of(message1, message2));
+
+        assertThat(processedBatchSizes).containsExactly(2);
+        verify(outputBuffer).insertBlocking(message1);
+        verify(outputBuffer).insertBlocking(message2);
+        assertThat(message1.hasField(Message.FIELD_GL2_MESSAGE_ID)).isTrue();
+    }
+
+    @Test
+    public void processesMessagesSeparatelyIfProcessorDoesNotHandleMessageFailures() {
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> ImmutableList.<MessageProcessor>of(new FailingForBadMessages(false)).iterator());
+        final Message good = message("good");
+        final Message bad = message("bad");
+
+        processor.processBatch(ImmutableList.of(good, bad));
+
+        assertThat(processedBatchSizes).containsExactly(1, 1);
+        verify(outputBuffer).insertBlocking(good);
+        verify(outputBuffer, never()).insertBlocking(bad);
+        verify(failureSubmissionService).submitUnknownProcessingError(eq(bad), any());
+    }
+
+    @Test
+    public void processesMessagesSeparatelyIfProcessorFailsForBatch() {
+        final Message good = message("good");
+        final Message bad = message("bad");
+
+        processor.processBatch(ImmutableList.of(good, bad));
+
+        assertThat(processedBatchSizes).containsExactly(2, 1, 1);
+        verify(outputBuffer).insertBlocking(good);
+        verify(outputBuffer, never()).insertBlocking(bad);
+        verify(failureSubmissionService, never()).submitUnknownProcessingError(eq(good), any());
+        verify(failureSubmissionService).submitUnknownProcessingError(eq(bad), any());
+    }
+
+    @Test
+    public void recordsProcessTimeForEveryMessageOfBatch() {
+        processor.processBatch(ImmutableList.of(message("good-1"), message("good-2")));
+
+        assertThat(metricRegistry.timer(MetricRegistry.name(ProcessBufferProcessor.class, "processTime")).getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer(MetricRegistry.name(ProcessBufferProcessor.class, "batchProcessTime")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void handlerOnlyProcessesOwnEventsAndFlushesAtEndOfBatch() throws Exception {
+        final BatchingProcessBufferHandler handler = new BatchingProcessBufferHandler(processor, 1, 2, 10);
+
+        handler.onEvent(eventWith(message("good-0")), 0, false);
+        handler.onEvent(eventWith(message("good-1")), 1, false);
+        handler.onEvent(eventWith(message("good-2")), 2, false);
+        handler.onEvent(eventWith(message("good-3")), 3, false);
+        assertThat(processedBatchSizes).isEmpty();
+
+        handler.onEvent(eventWith(message("good-4")), 4, true);
+        assertThat(processedBatchSizes).containsExactly(2);
+    }
+
+    @Test
+    public void handlerFlushesFullBatches() throws Exception {
+        final BatchingProcessBufferHandler handler = new BatchingProcessBufferHandler(processor, 0, 1, 2);
+
+        handler.onEvent(eventWith(message("good-0")), 0, false);
+        handler.onEvent(eventWith(message("good-1")), 1, false);
+        handler.onEvent(eventWith(message("good-2")), 2, false);
+
+        assertThat(processedBatchSizes).containsExactly(2);
+    }
+
+    private MessageEvent eventWith(Message message) {
+        final MessageEvent event = new MessageEvent();
+        event.setMessage(message);
+        return event;
+    }
+
+    private Message message(String text) {
+        return new Message(text, "source", Tools.nowUTC());
+    }
+
+    private class FailingForBadMessages implements MessageProcessor {
+        private final boolean handlesMessageFailures;
+
+        FailingForBadMessages(boolean handlesMessageFailures) {
+            this.handlesMessageFailures = handlesMessageFailures;
+        }
+
+        @Override
+        public boolean handlesMessageFailures() {
+            return handlesMessageFailures;
+        }
+
+        @Override
+        public Messages process(Messages messages) {
+            final List<Message> list = ImmutableList.copyOf(messages);
+            processedBatchSizes.add(list.size());
+            if (Iterables.any(list, m -> "bad".equals(m.getMessage()))) {
+                throw new IllegalStateException("Boom!");
+            }
+            return new MessageCollection(list);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class HdrReservoirTest {
+    @Test
+    public void recordsAllValues() {
+        final HdrReservoir reservoir = new HdrReservoir(10_000L, 3);
+
+        for (long i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(reservoir.size()).isEqualTo(1000);
+        assertThat(snapshot.getMin()).isEqualTo(1L);
+        assertThat(snapshot.getMax()).isEqualTo(1000L);
+        assertThat(snapshot.getMean()).isCloseTo(500.5d, within(1d));
+        assertThat(snapshot.getMedian()).isCloseTo(500d, within(1d));
+        assertThat(snapshot.get99thPercentile()).isCloseTo(990d, within(1d));
+    }
+
+    @Test
+    public void ignoresValuesAboveHighestTrackableValue() {
+        final HdrReservoir reservoir = new HdrReservoir(1000L, 2);
+
+        reservoir.update(10);
+        reservoir.update(1_000_000L);
+
+        assertThat(reservoir.size()).isEqualTo(1);
+        assertThat(reservoir.getSnapshot().getMax()).isEqualTo(10L);
+    }
+
+    @Test
+    public void emptySnapshot() {
+        final Snapshot snapshot = new HdrReservoir(1000L, 2).getSnapshot();
+
+        assertThat(snapshot.getMin()).isZero();
+        assertThat(snapshot.getMax()).isZero();
+        assertThat(snapshot.getMean()).isZero();
+        assertThat(snapshot.getStdDev()).isZero();
+    }
+}
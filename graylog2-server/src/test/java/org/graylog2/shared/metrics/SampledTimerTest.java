@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+public class SampledTimerTest {
+    private static class ManualClock extends Clock {
+        private long tick = 0L;
+
+        @Override
+        public long getTick() {
+            tick += TimeUnit.MILLISECONDS.toNanos(5);
+            return tick;
+        }
+    }
+
+    @Test
+    public void sampleRateOfOneMeasuresEveryInvocation() {
+        final SampledTimer timer = new SampledTimer(1, new UniformReservoir(), new ManualClock());
+
+        for (int i = 0; i < 100; i++) {
+            timer.time().stop();
+        }
+
+        assertThat(timer.getCount()).isEqualTo(100);
+        assertThat(timer.getSnapshot().size()).isEqualTo(100);
+        assertThat(timer.getSnapshot().getMin()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void countsEveryInvocationButMeasuresOnlySamples() throws Exception {
+        final SampledTimer timer = new SampledTimer(100, new UniformReservoir(), new ManualClock());
+
+        for (int i = 0; i < 10_000; i++) {
+            timer.time().stop();
+        }
+        timer.time(() -> {});
+        timer.time(() -> "callable");
+        timer.timeSupplier(() -> "supplier");
+
+        assertThat(timer.getCount()).isEqualTo(10_003);
+        assertThat(timer.getMeanRate()).isPositive();
+        assertThat(timer.getSnapshot().size()).isBetween(1, 1000);
+        assertThat(timer.getSnapshot().getMin()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void usesHdrReservoirByDefault() {
+        final SampledTimer timer = new SampledTimer(1);
+
+        timer.update(3, TimeUnit.MILLISECONDS);
+        timer.update(-1, TimeUnit.MILLISECONDS);
+
+        assertThat(timer.getCount()).isEqualTo(1);
+        assertThat(timer.getSnapshot().getMax()).isCloseTo(TimeUnit.MILLISECONDS.toNanos(3), withinPercentage(1));
+    }
+
+    @Test
+    public void rejectsInvalidSampleRate() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SampledTimer(0));
+    }
+
+    @Test
+    public void getOrRegisterOnlyUsesSampledTimerForSampleRatesAboveOne() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+
+        final Timer plain = SampledTimer.getOrRegister(metricRegistry, "plain", 1);
+        final Timer sampled = SampledTimer.getOrRegister(metricRegistry, "sampled", 10);
+
+        assertThat(plain).isNotInstanceOf(SampledTimer.class);
+        assertThat(sampled).isInstanceOf(SampledTimer.class);
+        assertThat(((SampledTimer) sampled).getSampleRate()).isEqualTo(10);
+        assertThat(SampledTimer.getOrRegister(metricRegistry, "sampled", 10)).isSameAs(sampled);
+        assertThat(metricRegistry.timer("sampled")).isSameAs(sampled);
+    }
+}
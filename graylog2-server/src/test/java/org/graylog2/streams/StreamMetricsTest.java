@@ -18,6 +18,7 @@ package org.graylog2.streams;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import org.graylog2.shared.metrics.SampledTimer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -41,4 +42,14 @@ public class StreamMetricsTest {
         assertThat(metricRegistry.getTimers())
                 .containsKey("org.graylog2.plugin.streams.Stream.stream-id.StreamRule.stream-rule-id.executionTime");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getExecutionTimerUsesSampledTimerIfConfigured() {
+        final StreamMetrics sampledStreamMetrics = new StreamMetrics(metricRegistry, 10);
+
+        final Timer timer = sampledStreamMetrics.getExecutionTimer("stream-id", "stream-rule-id");
+
+        assertThat(timer).isInstanceOf(SampledTimer.class);
+        assertThat(sampledStreamMetrics.getExecutionTimer("stream-id", "stream-rule-id")).isSameAs(timer);
+    }
+}
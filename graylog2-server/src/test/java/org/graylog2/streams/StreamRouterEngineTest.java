@@ -18,6 +18,7 @@ package org.graylog2.streams;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.bson.types.ObjectId;
 import org.graylog2.plugin.Message;
@@ -764,6 +765,53 @@ public class StreamRouterEngineTest {
                 Lists.newArrayList(stream), engine.match(message2));
     }
 
+    @Test
+    public void withUpdatedStreamsReplacesChangedStreams() throws Exception {
+        final StreamMock unchanged = getStreamMock("unchanged");
+        unchanged.setStreamRules(Lists.newArrayList(exactRule(unchanged, "source", "a")));
+        final StreamMock changed = getStreamMock("changed");
+        changed.setStreamRules(Lists.newArrayList(exactRule(changed, "source", "a")));
+        final StreamMock removed = getStreamMock("removed");
+        removed.setStreamRules(Lists.newArrayList(exactRule(removed, "source", "a")));
+
+        final StreamRouterEngine engine = newEngine(Lists.newArrayList(unchanged, changed, removed));
+
+        final StreamMock updated = new StreamMock(ImmutableMap.of("_id", new ObjectId(changed.getId()), "title", "changed", "matching_type", Stream.MatchingType.AND));
+        updated.setStreamRules(Lists.newArrayList(exactRule(updated, "source", "b")));
+        final StreamMock added = getStreamMock("added");
+        added.setStreamRules(Lists.newArrayList(exactRule(added, "source", "b")));
+
+        final StreamRouterEngine updatedEngine = engine.withUpdatedStreams(
+                ImmutableSet.of(changed.getId(), removed.getId(), added.getId()),
+                Lists.newArrayList(updated, added));
+
+        assertThat(updatedEngine.getStreams()).containsExactly(unchanged, updated, added);
+        assertThat(updatedEngine.getFingerprint()).isEqualTo(newEngine(Lists.newArrayList(unchanged, updated, added)).getFingerprint());
+
+        final Message messageA = getMessage();
+        messageA.addField("source", "a");
+        assertThat(updatedEngine.match(messageA)).containsExactly(unchanged);
+
+        final Message messageB = getMessage();
+        messageB.addField("source", "b");
+        assertThat(updatedEngine.match(messageB)).containsExactlyInAnyOrder(updated, added);
+
+        // The original engine must not be affected
+        assertThat(engine.getStreams()).containsExactly(unchanged, changed, removed);
+        assertThat(engine.match(messageA)).containsExactlyInAnyOrder(unchanged, changed, removed);
+    }
+
+    private StreamRuleMock exactRule(Stream stream, String field, String value) {
+        return new StreamRuleMock(ImmutableMap.<String, Object>builder()
+                .put("_id", new ObjectId())
+                .put("field", field)
+                .put("value", value)
+                .put("type", StreamRuleType.EXACT.toInteger())
+                .put("inverted", false)
+                .put("stream_id", stream.getId())
+                .build());
+    }
+
     private StreamMock getStreamMock(String title) {
         return getStreamMock(title, Stream.MatchingType.AND);
     }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.system.processing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatestTimestampTest {
+    @Test
+    public void defaultsToEpoch() {
+        assertThat(new LatestTimestamp().get()).isEqualTo(new DateTime(0L, DateTimeZone.UTC));
+    }
+
+    @Test
+    public void keepsLatestTimestamp() {
+        final LatestTimestamp latestTimestamp = new LatestTimestamp();
+        final DateTime timestamp = new DateTime(2021, 6, 1, 12, 0, DateTimeZone.forOffsetHours(2));
+
+        latestTimestamp.update(timestamp);
+        latestTimestamp.update(timestamp.minusSeconds(1));
+        latestTimestamp.update(null);
+
+        assertThat(latestTimestamp.get()).isEqualTo(timestamp.withZone(DateTimeZone.UTC));
+    }
+
+    @Test
+    public void combinesConcurrentUpdates() throws Exception {
+        final LatestTimestamp latestTimestamp = new LatestTimestamp();
+        final DateTime start = new DateTime(2021, 6, 1, 12, 0, DateTimeZone.UTC);
+        final ExecutorService executor = Executors.newFixedThreadPool(4,
+                new ThreadFactoryBuilder().setNameFormat("latest-timestamp-test-%d").build());
+
+        for (int thread = 0; thread < 4; thread++) {
+            final int offset = thread;
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    latestTimestamp.update(start.plusMillis(i * 4 + offset));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(latestTimestamp.get()).isEqualTo(start.plusMillis(9_999 * 4 + 3));
+    }
+}
@@ -31,6 +31,11 @@ class CSVFileAdapterDocumentation extends React.Component {
 '10.0.0.1';'e4:b2:12:d1:48:28';'server1'
 '10.0.0.2';'e4:b2:11:d1:58:34';'server2'`;
 
+    const csvFile3 = `"cidr","network"
+"10.0.0.0/8","internal"
+"10.1.0.0/16","datacenter"
+"2001:db8::/32","documentation"`;
+
     return (
       <div>
         <p>The CSV data adapter can read key value pairs from a CSV file.</p>
@@ -72,6 +77,26 @@ class CSVFileAdapterDocumentation extends React.Component {
 
         <h5 style={{ marginBottom: 10 }}>CSV File</h5>
         <pre>{csvFile2}</pre>
+
+        <h3 style={{ marginBottom: 10 }}>Example 3 (CIDR lookup)</h3>
+
+        <p>
+          With <strong>CIDR lookup</strong> enabled, the key column contains IP addresses or CIDR ranges. A lookup for
+          an IP address returns the value of the most specific range containing it, e.g. <code>10.1.2.3</code> returns
+          <code>datacenter</code> and <code>10.2.3.4</code> returns <code>internal</code>.
+        </p>
+
+        <h5 style={{ marginBottom: 10 }}>Configuration</h5>
+        <p style={{ marginBottom: 10, padding: 0 }}>
+          Separator: <code>,</code><br />
+          Quote character: <code>"</code><br />
+          Key column: <code>cidr</code><br />
+          Value column: <code>network</code><br />
+          CIDR lookup: <code>yes</code>
+        </p>
+
+        <h5 style={{ marginBottom: 10 }}>CSV File</h5>
+        <pre>{csvFile3}</pre>
       </div>
     );
   }
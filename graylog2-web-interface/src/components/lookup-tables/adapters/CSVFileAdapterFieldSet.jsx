@@ -104,6 +104,22 @@ class CSVFileAdapterFieldSet extends React.Component {
                     onChange={this.props.handleFormEvent}
                     help="Enable if the key lookup should be case-insensitive."
                     wrapperClassName="col-md-offset-3 col-md-9" />
+             <Input type="checkbox"
+                    id="cidr_lookup"
+                    name="cidr_lookup"
+                    label="CIDR lookup"
+                    checked={config.cidr_lookup}
+                    onChange={this.props.handleFormEvent}
+                    help="Enable if the key column contains IP addresses or CIDR ranges and lookups should return the value of the most specific matching range."
+                    wrapperClassName="col-md-offset-3 col-md-9" />
+             <Input type="checkbox"
+                    id="memory_mapped_index"
+                    name="memory_mapped_index"
+                    label="Use memory-mapped index"
+                    checked={config.memory_mapped_index}
+                    onChange={this.props.handleFormEvent}
+                    help="Enable for very large CSV files. The file is compiled into an index file in the data directory which is memory-mapped instead of being kept on the heap. Not used for CIDR lookups."
+                    wrapperClassName="col-md-offset-3 col-md-9" />
            </fieldset>
          );
        }
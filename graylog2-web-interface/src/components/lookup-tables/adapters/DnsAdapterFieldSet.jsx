@@ -120,6 +120,20 @@ class DnsAdapterFieldSet extends React.Component {
                value={config.request_timeout}
                labelClassName="col-sm-3"
                wrapperClassName="col-sm-9" />
+        <Input type="number"
+               id="max_concurrent_requests"
+               name="max_concurrent_requests"
+               label="Max. Concurrent Requests"
+               required
+               onChange={handleFormEvent}
+               help={validationMessage(
+                 'max_concurrent_requests',
+                 'Maximum number of DNS requests running at the same time. Identical concurrent lookups are only sent once.',
+               )}
+               bsStyle={validationState('max_concurrent_requests')}
+               value={config.max_concurrent_requests}
+               labelClassName="col-sm-3"
+               wrapperClassName="col-sm-9" />
         <TimeUnitInput label="Cache TTL Override"
                        help="If enabled, the cache TTL will be overridden with the specified value."
                        update={this.updateCacheTTLOverride}
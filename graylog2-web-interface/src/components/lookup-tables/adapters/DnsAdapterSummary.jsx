@@ -42,6 +42,9 @@ const DnsAdapterSummary = ({ dataAdapter }) => {
       <dt>DNS Request Timeout</dt>
       <dd>{config.request_timeout} ms</dd>
 
+      <dt>Max. Concurrent Requests</dt>
+      <dd>{config.max_concurrent_requests || 'n/a'}</dd>
+
       <dt>Cache TTL Override</dt>
       <dd>
         {!config.cache_ttl_override_enabled ? 'n/a' : <TimeUnit value={config.cache_ttl_override} unit={config.cache_ttl_override_unit} />}